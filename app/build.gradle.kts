@@ -27,6 +27,16 @@ android {
             )
         }
     }
+    // MockContentProvider/MockContentResolver for instrumented tests
+    useLibrary("android.test.mock")
+
+    // Robolectric needs the merged resources and manifest for the widget harness in src/test
+    testOptions {
+        unitTests {
+            isIncludeAndroidResources = true
+        }
+    }
+
     compileOptions {
         // Changed to JavaVersion.VERSION_1_8 for wider compatibility often needed with lower minSdk
         // Keep 11 if you are sure all libraries support it and you need Java 11 features
@@ -41,6 +51,9 @@ android {
 
 dependencies {
 
+    // Android-free countdown formatting, scheduling and ranking logic
+    implementation(project(":countdown-core"))
+
     implementation(libs.appcompat) // Assuming alias exists
     implementation(libs.material)  // Assuming alias exists
     // implementation(libs.activity) // Often included transitively, keep if needed directly
@@ -59,6 +72,8 @@ dependencies {
 
 
     testImplementation(libs.junit) // Assuming alias exists
+    testImplementation(libs.robolectric)
+    testImplementation("androidx.work:work-testing:2.8.1")
     androidTestImplementation(libs.ext.junit) // Assuming alias exists
     androidTestImplementation(libs.espresso.core) // Assuming alias exists
 }
\ No newline at end of file
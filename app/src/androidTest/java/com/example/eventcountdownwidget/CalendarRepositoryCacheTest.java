@@ -0,0 +1,135 @@
+package com.example.eventcountdownwidget;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.provider.CalendarContract;
+import android.test.mock.MockContentProvider;
+import android.test.mock.MockContentResolver;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented test for the shared instance cache behind
+ * {@link SimpleEventListWidgetProvider.CalendarRepository#loadEvents}, using a fake calendar
+ * provider that counts how many queries reach it.
+ */
+@RunWith(AndroidJUnit4.class)
+public class CalendarRepositoryCacheTest {
+
+    private static final String TEST_PREFS_PREFIX = "cache_test_";
+
+    private CountingCalendarProvider provider;
+    private Context context;
+
+    /**
+     * Answers every Instances query with 40 hour-long events starting an hour apart from now,
+     * dealt round-robin to the queried calendars.
+     */
+    private static final class CountingCalendarProvider extends MockContentProvider {
+        int queryCount;
+        String lastSortOrder;
+        List<String> lastCalendarIds;
+
+        @Override
+        public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs, String sortOrder) {
+            queryCount++;
+            lastSortOrder = sortOrder;
+            lastCalendarIds = Arrays.asList(selectionArgs).subList(0, selectionArgs.length - 1); // Last arg is "now"
+            MatrixCursor cursor = new MatrixCursor(projection);
+            long now = System.currentTimeMillis();
+            long hour = TimeUnit.HOURS.toMillis(1);
+            for (int i = 0; i < 40; i++) {
+                long start = now + i * hour;
+                long calendarId = Long.parseLong(lastCalendarIds.get(i % lastCalendarIds.size()));
+                cursor.addRow(new Object[]{(long) i, "Event " + i, start, start + hour, 0, "UTC", null, calendarId});
+            }
+            return cursor;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        final Context target = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        provider = new CountingCalendarProvider();
+        final MockContentResolver resolver = new MockContentResolver();
+        resolver.addProvider(CalendarContract.AUTHORITY, provider);
+
+        // Fake resolver plus prefs files of our own, so the app's real calendar selection is untouched
+        context = new ContextWrapper(target) {
+            @Override public ContentResolver getContentResolver() { return resolver; }
+            @Override public SharedPreferences getSharedPreferences(String name, int mode) {
+                return target.getSharedPreferences(TEST_PREFS_PREFIX + name, mode);
+            }
+        };
+        context.getSharedPreferences("calendar_preferences", Context.MODE_PRIVATE).edit()
+                .putStringSet("selected_calendars", new HashSet<>(Arrays.asList("1", "2")))
+                .commit();
+        EventInstanceCache.getInstance().invalidate();
+    }
+
+    @After
+    public void tearDown() {
+        context.getSharedPreferences("calendar_preferences", Context.MODE_PRIVATE).edit().clear().commit();
+        EventInstanceCache.getInstance().invalidate();
+    }
+
+    @Test
+    public void tenListWidgets_issueOneProviderQuery() {
+        int[] maxEvents = {10, 5, 25, 1, 10, 10, 3, 25, 7, 10};
+        for (int max : maxEvents) {
+            List<SimpleEventListWidgetProvider.CalendarEventItem> events =
+                    SimpleEventListWidgetProvider.CalendarRepository.loadEvents(context, max);
+            assertEquals(max, events.size());
+            assertEquals(0, events.get(0).getId());
+        }
+        assertEquals(1, provider.queryCount);
+        assertTrue(provider.lastSortOrder.endsWith("LIMIT " + EventInstanceCache.MIN_QUERY_LIMIT));
+    }
+
+    @Test
+    public void selectionChange_queriesOnlyAddedCalendars() {
+        SimpleEventListWidgetProvider.CalendarRepository.loadEvents(context, 10);
+        assertEquals(1, provider.queryCount);
+
+        // Same as CalendarSelectionReceiver: drop the removed calendar, keep the rest
+        context.getSharedPreferences("calendar_preferences", Context.MODE_PRIVATE).edit()
+                .putStringSet("selected_calendars", new HashSet<>(Arrays.asList("1", "3")))
+                .commit();
+        EventInstanceCache.getInstance().dropCalendars(Arrays.asList("2"));
+
+        List<SimpleEventListWidgetProvider.CalendarEventItem> events =
+                SimpleEventListWidgetProvider.CalendarRepository.loadEvents(context, 10);
+        assertEquals(2, provider.queryCount);
+        assertEquals(Arrays.asList("3"), provider.lastCalendarIds);
+        assertEquals(10, events.size());
+        for (SimpleEventListWidgetProvider.CalendarEventItem event : events) {
+            assertNotEquals("2", event.getCalendarId());
+        }
+    }
+
+    @Test
+    public void invalidate_reachesProviderAgain() {
+        SimpleEventListWidgetProvider.CalendarRepository.loadEvents(context, 10);
+        EventInstanceCache.getInstance().invalidate();
+        SimpleEventListWidgetProvider.CalendarRepository.loadEvents(context, 10);
+        assertEquals(2, provider.queryCount);
+    }
+}
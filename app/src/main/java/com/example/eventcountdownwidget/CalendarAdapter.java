@@ -8,22 +8,44 @@ import android.widget.CheckBox;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import java.util.List;
+import java.util.Objects;
 
 public class CalendarAdapter extends RecyclerView.Adapter<CalendarAdapter.CalendarViewHolder> {
 
-    private List<CalendarSettingsActivity.CalendarInfo> calendars;
+    private static final DiffUtil.ItemCallback<CalendarSettingsActivity.CalendarInfo> DIFF_CALLBACK =
+            new DiffUtil.ItemCallback<CalendarSettingsActivity.CalendarInfo>() {
+                @Override
+                public boolean areItemsTheSame(@NonNull CalendarSettingsActivity.CalendarInfo oldItem,
+                                               @NonNull CalendarSettingsActivity.CalendarInfo newItem) {
+                    return oldItem.getId() == newItem.getId();
+                }
+
+                @Override
+                public boolean areContentsTheSame(@NonNull CalendarSettingsActivity.CalendarInfo oldItem,
+                                                  @NonNull CalendarSettingsActivity.CalendarInfo newItem) {
+                    return oldItem.getColor() == newItem.getColor()
+                            && oldItem.isSelected() == newItem.isSelected()
+                            && Objects.equals(oldItem.getDisplayName(), newItem.getDisplayName())
+                            && Objects.equals(oldItem.getAccountName(), newItem.getAccountName());
+                }
+            };
+
+    // Diffs are computed on a background thread, so a reload only rebinds the rows that changed
+    private final AsyncListDiffer<CalendarSettingsActivity.CalendarInfo> differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
     private OnCalendarCheckListener listener;
 
     public interface OnCalendarCheckListener {
         void onCalendarChecked(CalendarSettingsActivity.CalendarInfo calendarInfo, boolean isChecked);
     }
 
-    public CalendarAdapter(List<CalendarSettingsActivity.CalendarInfo> calendars, OnCalendarCheckListener listener) {
-        this.calendars = calendars;
+    public CalendarAdapter(OnCalendarCheckListener listener) {
         this.listener = listener;
+        setHasStableIds(true);
     }
 
     @NonNull
@@ -36,7 +58,7 @@ public class CalendarAdapter extends RecyclerView.Adapter<CalendarAdapter.Calend
 
     @Override
     public void onBindViewHolder(@NonNull CalendarViewHolder holder, int position) {
-        CalendarSettingsActivity.CalendarInfo calendar = calendars.get(position);
+        CalendarSettingsActivity.CalendarInfo calendar = differ.getCurrentList().get(position);
 
         holder.calendarName.setText(calendar.getDisplayName());
         holder.accountName.setText(calendar.getAccountName());
@@ -66,7 +88,17 @@ public class CalendarAdapter extends RecyclerView.Adapter<CalendarAdapter.Calend
 
     @Override
     public int getItemCount() {
-        return calendars.size();
+        return differ.getCurrentList().size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return differ.getCurrentList().get(position).getId();
+    }
+
+    /** Shows a new list; the caller must not modify it afterwards. */
+    public void submitList(List<CalendarSettingsActivity.CalendarInfo> newList) {
+        differ.submitList(newList);
     }
 
     static class CalendarViewHolder extends RecyclerView.ViewHolder {
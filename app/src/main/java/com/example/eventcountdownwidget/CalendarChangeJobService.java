@@ -0,0 +1,77 @@
+package com.example.eventcountdownwidget;
+
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.appwidget.AppWidgetManager;
+import android.content.ComponentName;
+import android.content.Context;
+import android.provider.CalendarContract;
+import android.util.Log;
+
+/**
+ * Content-trigger job that wakes the app when the calendar changes while the process isn't running,
+ * which a {@link CalendarChangeObserver} alone can't do. The system debounces the trigger with the
+ * same delays the observer uses. Content-trigger jobs fire once, so every run schedules the next one.
+ */
+public class CalendarChangeJobService extends JobService {
+
+    private static final String TAG = "CalendarChangeJob";
+    private static final int JOB_ID = 6001;
+
+    static void schedule(Context context) {
+        JobScheduler jobScheduler = context.getSystemService(JobScheduler.class);
+        if (jobScheduler == null) {
+            Log.e(TAG, "Cannot get JobScheduler service.");
+            return;
+        }
+        JobInfo job = new JobInfo.Builder(JOB_ID, new ComponentName(context, CalendarChangeJobService.class))
+                .addTriggerContentUri(new JobInfo.TriggerContentUri(CalendarContract.Events.CONTENT_URI,
+                        JobInfo.TriggerContentUri.FLAG_NOTIFY_FOR_DESCENDANTS))
+                .addTriggerContentUri(new JobInfo.TriggerContentUri(CalendarContract.Instances.CONTENT_URI,
+                        JobInfo.TriggerContentUri.FLAG_NOTIFY_FOR_DESCENDANTS))
+                .setTriggerContentUpdateDelay(CalendarChangeObserver.DEBOUNCE_MILLIS)
+                .setTriggerContentMaxDelay(CalendarChangeObserver.MAX_DEBOUNCE_MILLIS)
+                .build();
+        jobScheduler.schedule(job);
+    }
+
+    static void cancel(Context context) {
+        JobScheduler jobScheduler = context.getSystemService(JobScheduler.class);
+        if (jobScheduler != null) {
+            jobScheduler.cancel(JOB_ID);
+        }
+    }
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        final Context context = getApplicationContext();
+        if (CalendarChangeObserver.isRegistered()) {
+            // The observer in this process saw the same change and handles it
+            schedule(context);
+            return false;
+        }
+
+        Log.d(TAG, "Calendar changed while the app wasn't running; checking list widgets.");
+        new Thread(() -> {
+            try {
+                CalendarChangeObserver.refreshChangedListWidgets(context);
+            } catch (Exception e) {
+                Log.e(TAG, "Error refreshing list widgets after a calendar change", e);
+            }
+            // Observe further changes for as long as the process lives; this also reschedules the job
+            int[] listIds = AppWidgetManager.getInstance(context)
+                    .getAppWidgetIds(new ComponentName(context, SimpleEventListWidgetProvider.class));
+            CalendarChangeObserver.setEnabled(context, listIds != null && listIds.length > 0);
+            jobFinished(params, false);
+        }).start();
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        schedule(getApplicationContext());
+        return false;
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.eventcountdownwidget;
+
+import android.content.Context;
+import android.database.ContentObserver;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+import android.provider.CalendarContract;
+import android.util.Log;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the calendar provider and refreshes list widgets when their visible events change.
+ * Notifications arrive in bursts while a sync runs, so they are debounced: the refresh runs once
+ * things have been quiet for {@link #DEBOUNCE_MILLIS}, but no later than {@link #MAX_DEBOUNCE_MILLIS}
+ * after the first change. The refresh re-queries once and only notifies the widgets whose
+ * rows differ from what they last rendered (see {@link ListWidgetRefresher}).
+ * Registered while list widgets exist; {@link CalendarChangeJobService} covers the times
+ * the process isn't running.
+ */
+final class CalendarChangeObserver extends ContentObserver {
+
+    private static final String TAG = "CalendarChangeObserver";
+
+    static final long DEBOUNCE_MILLIS = TimeUnit.SECONDS.toMillis(3);
+    static final long MAX_DEBOUNCE_MILLIS = TimeUnit.SECONDS.toMillis(15);
+
+    private static HandlerThread sThread;
+    private static CalendarChangeObserver sObserver;
+    private static Boolean sEnabled; // Null until the first call after process start
+
+    private final Context appContext;
+    private final Handler handler;
+    private final Runnable flush = this::flush;
+    private long firstPendingChange; // Uptime of the first change not yet handled; 0 if none
+
+    private CalendarChangeObserver(Context appContext, Handler handler) {
+        super(handler);
+        this.appContext = appContext;
+        this.handler = handler;
+    }
+
+    /**
+     * Registers the observer (and the job that stands in for it while the process is dead) when
+     * list widgets exist, and tears both down once the last one is removed. Cheap to call repeatedly.
+     */
+    static synchronized void setEnabled(Context context, boolean enabled) {
+        if (sEnabled != null && sEnabled == enabled) {
+            return;
+        }
+        sEnabled = enabled;
+        Context appContext = context.getApplicationContext();
+        if (enabled) {
+            if (sThread == null) {
+                sThread = new HandlerThread(TAG);
+                sThread.start();
+            }
+            CalendarChangeObserver observer = new CalendarChangeObserver(appContext, new Handler(sThread.getLooper()));
+            try {
+                appContext.getContentResolver().registerContentObserver(CalendarContract.Events.CONTENT_URI, true, observer);
+                appContext.getContentResolver().registerContentObserver(CalendarContract.Instances.CONTENT_URI, true, observer);
+            } catch (SecurityException e) {
+                Log.w(TAG, "Cannot observe the calendar provider; relying on polling.", e);
+                sEnabled = null; // Retry once the permission is granted
+                return;
+            }
+            sObserver = observer;
+            CalendarChangeJobService.schedule(appContext);
+            Log.d(TAG, "Observing calendar changes.");
+        } else {
+            if (sObserver != null) {
+                appContext.getContentResolver().unregisterContentObserver(sObserver);
+                sObserver.handler.removeCallbacks(sObserver.flush);
+                sObserver = null;
+            }
+            // A job scheduled by an earlier process may still be pending
+            CalendarChangeJobService.cancel(appContext);
+            Log.d(TAG, "No list widgets left; stopped observing calendar changes.");
+        }
+    }
+
+    /** Whether an observer is registered in this process. */
+    static synchronized boolean isRegistered() {
+        return sObserver != null;
+    }
+
+    // Runs on the observer thread, so the debounce state needs no locking
+    @Override
+    public void onChange(boolean selfChange, Uri uri) {
+        long now = SystemClock.uptimeMillis();
+        if (firstPendingChange == 0) {
+            firstPendingChange = now;
+        }
+        long delay = Math.min(DEBOUNCE_MILLIS, Math.max(0, firstPendingChange + MAX_DEBOUNCE_MILLIS - now));
+        handler.removeCallbacks(flush);
+        handler.postDelayed(flush, delay);
+    }
+
+    private void flush() {
+        firstPendingChange = 0;
+        refreshChangedListWidgets(appContext);
+    }
+
+    /**
+     * Drops the cached instances and notifies the list widgets whose visible rows changed.
+     * Blocks on the provider query, so call it off the main thread.
+     */
+    static void refreshChangedListWidgets(Context context) {
+        EventInstanceCache.getInstance().invalidate();
+        ListWidgetRefresher.notifyChangedListWidgets(context);
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.eventcountdownwidget;
+
+import android.content.Context;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.provider.CalendarContract;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Process-wide cache of the device's calendars (name, color, account, visibility), shared by every
+ * screen that lists calendars. The provider is queried on a background thread, once per change:
+ * a {@link ContentObserver} on {@link CalendarContract.Calendars#CONTENT_URI} reloads the list
+ * while someone is listening and otherwise just drops it, so the next listener triggers the load.
+ */
+final class CalendarMetadataRepository {
+
+    private static final String TAG = "CalendarMetadata";
+
+    /** Bursts of provider changes (e.g. during a sync) are folded into one reload. */
+    static final long DEBOUNCE_MILLIS = 500;
+
+    /**
+     * One row of {@link CalendarContract.Calendars}.
+     */
+    static final class CalendarMetadata {
+        final long id;
+        final String displayName;
+        final String accountName;
+        final int color;
+        final boolean visible;
+
+        CalendarMetadata(long id, String displayName, String accountName, int color, boolean visible) {
+            this.id = id;
+            this.displayName = displayName;
+            this.accountName = accountName;
+            this.color = color;
+            this.visible = visible;
+        }
+    }
+
+    /**
+     * Receives the calendars, sorted by display name, on the main thread.
+     */
+    interface Listener {
+        void onCalendarsLoaded(List<CalendarMetadata> calendars);
+    }
+
+    private static CalendarMetadataRepository sInstance;
+
+    private final Context appContext;
+    private final Handler worker;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Runnable refresh = this::refresh;
+    private volatile List<CalendarMetadata> calendars; // Null until loaded, and again after an unobserved change
+    private ContentObserver observer; // Only touched on the worker thread
+
+    private CalendarMetadataRepository(Context appContext, Handler worker) {
+        this.appContext = appContext;
+        this.worker = worker;
+    }
+
+    static synchronized CalendarMetadataRepository get(Context context) {
+        if (sInstance == null) {
+            HandlerThread thread = new HandlerThread(TAG);
+            thread.start();
+            sInstance = new CalendarMetadataRepository(context.getApplicationContext(), new Handler(thread.getLooper()));
+        }
+        return sInstance;
+    }
+
+    /**
+     * Delivers the cached calendars right away if there are any, loading them otherwise, and again
+     * after every change until the listener is removed. Call on the main thread.
+     */
+    void addListener(Listener listener) {
+        listeners.add(listener);
+        List<CalendarMetadata> cached = calendars;
+        if (cached != null) {
+            listener.onCalendarsLoaded(cached);
+        } else {
+            scheduleRefresh(0);
+        }
+    }
+
+    void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /** Starts loading the calendars in the background unless they are cached. Cheap to call repeatedly. */
+    void prefetch() {
+        if (calendars == null) {
+            scheduleRefresh(0);
+        }
+    }
+
+    private void scheduleRefresh(long delayMillis) {
+        worker.removeCallbacks(refresh);
+        worker.postDelayed(refresh, delayMillis);
+    }
+
+    // Runs on the worker thread
+    private void refresh() {
+        List<CalendarMetadata> loaded = query();
+        if (loaded == null) {
+            return; // The next listener or prefetch retries
+        }
+        observe();
+        calendars = loaded;
+        mainHandler.post(() -> {
+            for (Listener listener : listeners) {
+                listener.onCalendarsLoaded(loaded);
+            }
+        });
+    }
+
+    private void observe() {
+        if (observer != null) {
+            return;
+        }
+        ContentObserver calendarObserver = new ContentObserver(worker) {
+            @Override
+            public void onChange(boolean selfChange) {
+                if (listeners.isEmpty()) {
+                    calendars = null;
+                } else {
+                    scheduleRefresh(DEBOUNCE_MILLIS);
+                }
+            }
+        };
+        try {
+            appContext.getContentResolver().registerContentObserver(
+                    CalendarContract.Calendars.CONTENT_URI, true, calendarObserver);
+            observer = calendarObserver;
+        } catch (SecurityException e) {
+            Log.w(TAG, "Cannot observe calendars; the cached list may go stale.", e);
+        }
+    }
+
+    private List<CalendarMetadata> query() {
+        String[] projection = new String[] {
+                CalendarContract.Calendars._ID,
+                CalendarContract.Calendars.CALENDAR_DISPLAY_NAME,
+                CalendarContract.Calendars.CALENDAR_COLOR,
+                CalendarContract.Calendars.ACCOUNT_NAME,
+                CalendarContract.Calendars.VISIBLE
+        };
+        try (Cursor cursor = appContext.getContentResolver().query(
+                CalendarContract.Calendars.CONTENT_URI,
+                projection,
+                null,
+                null,
+                CalendarContract.Calendars.CALENDAR_DISPLAY_NAME + " ASC")) {
+            List<CalendarMetadata> loaded = new ArrayList<>();
+            if (cursor != null) {
+                while (cursor.moveToNext()) {
+                    loaded.add(new CalendarMetadata(cursor.getLong(0), cursor.getString(1), cursor.getString(3),
+                            cursor.getInt(2), cursor.getInt(4) == 1));
+                }
+            }
+            Log.d(TAG, "Loaded " + loaded.size() + " calendars.");
+            return Collections.unmodifiableList(loaded);
+        } catch (SecurityException e) {
+            Log.w(TAG, "No permission to read calendars.", e);
+            return null;
+        } catch (Exception e) {
+            Log.e(TAG, "Error loading calendars", e);
+            return null;
+        }
+    }
+}
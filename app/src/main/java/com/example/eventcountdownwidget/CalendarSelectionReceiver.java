@@ -0,0 +1,62 @@
+package com.example.eventcountdownwidget;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Refreshes the list widgets after the user changed which calendars they show.
+ * Diffs the old and new selection sent by {@link CalendarSettingsActivity}: removed calendars are
+ * dropped from the shared {@link EventInstanceCache}, added ones are queried by the refresh, and
+ * calendars in both sets are served from the cache.
+ */
+public class CalendarSelectionReceiver extends BroadcastReceiver {
+
+    private static final String TAG = "CalendarSelection";
+
+    public static final String ACTION_CALENDAR_SELECTION_CHANGED = "com.example.eventcountdownwidget.CALENDAR_SELECTION_CHANGED";
+    static final String EXTRA_OLD_CALENDAR_IDS = "com.example.eventcountdownwidget.EXTRA_OLD_CALENDAR_IDS";
+    static final String EXTRA_NEW_CALENDAR_IDS = "com.example.eventcountdownwidget.EXTRA_NEW_CALENDAR_IDS";
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        if (intent == null || !ACTION_CALENDAR_SELECTION_CHANGED.equals(intent.getAction())) {
+            Log.w(TAG, "Received unexpected intent: " + intent);
+            return;
+        }
+
+        List<String> oldIds = intent.getStringArrayListExtra(EXTRA_OLD_CALENDAR_IDS);
+        List<String> newIds = intent.getStringArrayListExtra(EXTRA_NEW_CALENDAR_IDS);
+        if (oldIds == null || newIds == null) {
+            EventInstanceCache.getInstance().invalidate(); // Can't diff; start over
+        } else {
+            Set<String> removed = new HashSet<>(oldIds);
+            removed.removeAll(newIds);
+            Set<String> added = new HashSet<>(newIds);
+            added.removeAll(oldIds);
+            if (removed.isEmpty() && added.isEmpty()) {
+                return;
+            }
+            Log.d(TAG, "Calendar selection changed: +" + added.size() + " -" + removed.size());
+            EventInstanceCache.getInstance().dropCalendars(new ArrayList<>(removed));
+        }
+
+        final Context appContext = context.getApplicationContext();
+        final PendingResult pendingResult = goAsync();
+        new Thread(() -> {
+            try {
+                ListWidgetRefresher.notifyChangedListWidgets(appContext);
+            } catch (Exception e) {
+                Log.e(TAG, "Error refreshing list widgets after a selection change", e);
+            } finally {
+                pendingResult.finish();
+            }
+        }).start();
+    }
+}
@@ -1,11 +1,8 @@
 package com.example.eventcountdownwidget;
 
-import android.content.ContentResolver;
 import android.content.Intent;
 import android.content.SharedPreferences;
-import android.database.Cursor;
 import android.os.Bundle;
-import android.provider.CalendarContract;
 import android.util.Log;
 import android.view.MenuItem;
 import androidx.appcompat.app.AppCompatActivity;
@@ -25,8 +22,9 @@ public class CalendarSettingsActivity extends AppCompatActivity {
     private static final String HAS_MADE_SELECTION = "has_made_selection";
 
     private RecyclerView calendarRecyclerView;
-    private List<CalendarInfo> calendarList = new ArrayList<>();
+    private CalendarAdapter calendarAdapter;
     private Set<String> selectedCalendarIds = new HashSet<>();
+    private Set<String> savedCalendarIds = new HashSet<>(); // Selection as last persisted, to diff against
     private boolean selectionChanged = false;
 
     @Override
@@ -42,17 +40,36 @@ public class CalendarSettingsActivity extends AppCompatActivity {
         calendarRecyclerView = findViewById(R.id.calendar_recycler_view);
         calendarRecyclerView.setLayoutManager(new LinearLayoutManager(this));
 
+        // Set up the adapter once; each load submits a new list and only changed rows rebind
+        calendarAdapter = new CalendarAdapter((calendarInfo, isChecked) -> {
+            selectionChanged = true;
+            if (isChecked) {
+                selectedCalendarIds.add(String.valueOf(calendarInfo.getId()));
+            } else {
+                selectedCalendarIds.remove(String.valueOf(calendarInfo.getId()));
+            }
+
+            // We'll save in onPause/onBackPressed instead of every change for efficiency
+        });
+        calendarRecyclerView.setAdapter(calendarAdapter);
+
         // Load saved calendar preferences
         loadSelectedCalendars();
+    }
 
-        // Load available calendars and display them
-        loadCalendars();
+    @Override
+    protected void onResume() {
+        super.onResume();
+        // Show the cached calendars at once; the repository loads them off the main thread if needed
+        // and calls back again whenever the provider's calendars change
+        CalendarMetadataRepository.get(this).addListener(calendarsListener);
     }
 
     private void loadSelectedCalendars() {
         SharedPreferences prefs = getSharedPreferences(CALENDAR_PREFS, MODE_PRIVATE);
         boolean hasSelection = prefs.getBoolean(HAS_MADE_SELECTION, false);
         selectedCalendarIds = new HashSet<>(prefs.getStringSet(SELECTED_CALENDARS, new HashSet<>()));
+        savedCalendarIds = new HashSet<>(selectedCalendarIds);
 
         // If no calendars have been selected yet and this is first run, we'll let the user select
         if (!hasSelection) {
@@ -62,94 +79,36 @@ public class CalendarSettingsActivity extends AppCompatActivity {
         }
     }
 
-    private void loadCalendars() {
-        String[] projection = new String[] {
-                CalendarContract.Calendars._ID,
-                CalendarContract.Calendars.CALENDAR_DISPLAY_NAME,
-                CalendarContract.Calendars.CALENDAR_COLOR,
-                CalendarContract.Calendars.ACCOUNT_NAME,
-                CalendarContract.Calendars.VISIBLE // Include visibility flag
-        };
-
-        ContentResolver contentResolver = getContentResolver();
-        Cursor cursor = contentResolver.query(
-                CalendarContract.Calendars.CONTENT_URI,
-                projection,
-                null,
-                null,
-                CalendarContract.Calendars.CALENDAR_DISPLAY_NAME + " ASC");
-
-        calendarList.clear();
-
-        if (cursor != null && cursor.getCount() > 0) {
-            // Get shared preferences to check if this is first run
-            SharedPreferences prefs = getSharedPreferences(CALENDAR_PREFS, MODE_PRIVATE);
-            boolean hasSelection = prefs.getBoolean(HAS_MADE_SELECTION, false);
-
-            // No longer auto-selecting calendars on first run
-            // boolean selectAllByDefault = !hasSelection;
-            // Set<String> initialSelection = new HashSet<>();
-
-            while (cursor.moveToNext()) {
-                long id = cursor.getLong(0);
-                String displayName = cursor.getString(1);
-                int color = cursor.getInt(2);
-                String accountName = cursor.getString(3);
-                int visible = cursor.getInt(4); // 0 = invisible, 1 = visible
-
-                String calendarId = String.valueOf(id);
-
-                // No longer auto-selecting visible calendars
-                // if (selectAllByDefault && visible == 1) {
-                //     initialSelection.add(calendarId);
-                // }
-
-                boolean isSelected = selectedCalendarIds.contains(calendarId);
-
-                // Only include visible calendars in the list
-                if (visible == 1) {
-                    calendarList.add(new CalendarInfo(id, displayName, accountName, color, isSelected));
-                }
-            }
-
-            // No longer saving initial selection automatically
-            // if (selectAllByDefault && !initialSelection.isEmpty()) {
-            //     selectedCalendarIds = initialSelection;
-            //     SharedPreferences.Editor editor = prefs.edit();
-            //     editor.putStringSet(SELECTED_CALENDARS, selectedCalendarIds);
-            //     editor.putBoolean(HAS_MADE_SELECTION, true);
-            //     editor.apply();
-            // }
-
-            cursor.close();
-        }
+    private final CalendarMetadataRepository.Listener calendarsListener = this::showCalendars;
 
-        // Set up the adapter
-        CalendarAdapter adapter = new CalendarAdapter(calendarList, (calendarInfo, isChecked) -> {
-            selectionChanged = true;
-            if (isChecked) {
-                selectedCalendarIds.add(String.valueOf(calendarInfo.getId()));
-            } else {
-                selectedCalendarIds.remove(String.valueOf(calendarInfo.getId()));
+    private void showCalendars(List<CalendarMetadataRepository.CalendarMetadata> calendars) {
+        List<CalendarInfo> calendarList = new ArrayList<>();
+        for (CalendarMetadataRepository.CalendarMetadata calendar : calendars) {
+            // Only include visible calendars in the list
+            if (calendar.visible) {
+                boolean isSelected = selectedCalendarIds.contains(String.valueOf(calendar.id));
+                calendarList.add(new CalendarInfo(calendar.id, calendar.displayName, calendar.accountName,
+                        calendar.color, isSelected));
             }
-
-            // We'll save in onPause/onBackPressed instead of every change for efficiency
-        });
-
-        calendarRecyclerView.setAdapter(adapter);
+        }
+        calendarAdapter.submitList(calendarList);
     }
 
     private void saveSelectedCalendars() {
         Log.d(TAG, "Saving selected calendars: " + selectedCalendarIds.size());
         SharedPreferences.Editor editor = getSharedPreferences(CALENDAR_PREFS, MODE_PRIVATE).edit();
-        editor.putStringSet(SELECTED_CALENDARS, selectedCalendarIds);
+        editor.putStringSet(SELECTED_CALENDARS, new HashSet<>(selectedCalendarIds));
         editor.putBoolean(HAS_MADE_SELECTION, true);
         editor.apply();
         selectionChanged = false;
 
-        // Notify other components that calendar selection changed
-        Intent intent = new Intent("com.example.eventcountdownwidget.CALENDAR_SELECTION_CHANGED");
+        // Let the widgets refresh; the receiver diffs the old and new selection
+        Intent intent = new Intent(CalendarSelectionReceiver.ACTION_CALENDAR_SELECTION_CHANGED);
+        intent.setPackage(getPackageName()); // Implicit broadcasts don't reach manifest receivers
+        intent.putStringArrayListExtra(CalendarSelectionReceiver.EXTRA_OLD_CALENDAR_IDS, new ArrayList<>(savedCalendarIds));
+        intent.putStringArrayListExtra(CalendarSelectionReceiver.EXTRA_NEW_CALENDAR_IDS, new ArrayList<>(selectedCalendarIds));
         sendBroadcast(intent);
+        savedCalendarIds = new HashSet<>(selectedCalendarIds);
 
         // Give user feedback that selections were saved
         Snackbar.make(calendarRecyclerView, R.string.calendars_saved, Snackbar.LENGTH_SHORT).show();
@@ -158,6 +117,7 @@ public class CalendarSettingsActivity extends AppCompatActivity {
     @Override
     public void onPause() {
         super.onPause();
+        CalendarMetadataRepository.get(this).removeListener(calendarsListener);
         if (selectionChanged) {
             saveSelectedCalendars();
         }
@@ -0,0 +1,72 @@
+package com.example.eventcountdownwidget;
+
+import android.content.Context;
+import android.content.res.Resources;
+
+import com.example.eventcountdownwidget.core.CountdownTextEngine;
+import com.example.eventcountdownwidget.core.DateFieldFormatter;
+import com.example.eventcountdownwidget.core.DayBoundaryIndex;
+
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Process-wide {@link CountdownTextEngine} and {@link DateFieldFormatter} instances, rebuilt
+ * whenever the locale changes so their cached plural phrases and month names stay current.
+ * The list rows' day table follows the device zone; {@link #invalidate} rebuilds everything after the
+ * zone, the wall clock, the locale or the app itself changed, and the table is also rebuilt on its own
+ * once the clock runs past its end.
+ */
+final class CountdownTexts {
+
+    private static final int[] PLURAL_IDS = new int[5];
+    static {
+        PLURAL_IDS[CountdownTextEngine.UNIT_YEARS] = R.plurals.years;
+        PLURAL_IDS[CountdownTextEngine.UNIT_MONTHS] = R.plurals.months;
+        PLURAL_IDS[CountdownTextEngine.UNIT_DAYS] = R.plurals.days;
+        PLURAL_IDS[CountdownTextEngine.UNIT_HOURS] = R.plurals.hours;
+        PLURAL_IDS[CountdownTextEngine.UNIT_MINUTES] = R.plurals.minutes;
+    }
+
+    private static volatile CountdownTextEngine sEngine;
+    private static volatile DateFieldFormatter sListDates;
+
+    private CountdownTexts() {}
+
+    /** The engine for the countdown widget's subtitle, in the app's current locale. */
+    static CountdownTextEngine engine(Context context) {
+        final Resources res = context.getApplicationContext().getResources();
+        Locale locale = res.getConfiguration().getLocales().get(0);
+        CountdownTextEngine engine = sEngine;
+        if (engine == null || !engine.getLocale().equals(locale)) {
+            CountdownTextEngine.Labels labels = new CountdownTextEngine.Labels(
+                    res.getString(R.string.label_in), res.getString(R.string.label_ago),
+                    res.getString(R.string.countdown_starts_soon), res.getString(R.string.countdown_passed),
+                    res.getString(R.string.countdown_now));
+            engine = new CountdownTextEngine(locale,
+                    (unit, quantity) -> res.getQuantityString(PLURAL_IDS[unit], quantity, quantity), labels);
+            sEngine = engine;
+        }
+        return engine;
+    }
+
+    /** Date fields for the list widget's rows, in the device zone and the default locale. */
+    static DateFieldFormatter listDates() {
+        Locale locale = Locale.getDefault();
+        DateFieldFormatter dates = sListDates;
+        if (dates == null || !dates.getLocale().equals(locale) || !dates.getDays().covers(System.currentTimeMillis())) {
+            dates = new DateFieldFormatter(DayBoundaryIndex.build(TimeZone.getDefault(), System.currentTimeMillis()), locale);
+            sListDates = dates;
+        }
+        return dates;
+    }
+
+    /**
+     * Drops the engine and the day table, so the next text is formatted with the current zone, date,
+     * locale and resources. See {@link SystemChangeReceiver}.
+     */
+    static void invalidate() {
+        sEngine = null;
+        sListDates = null;
+    }
+}
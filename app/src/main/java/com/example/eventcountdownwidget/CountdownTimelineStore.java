@@ -0,0 +1,160 @@
+package com.example.eventcountdownwidget;
+
+import android.content.Context;
+import android.util.Log;
+import android.util.SparseArray;
+
+import com.example.eventcountdownwidget.core.CountdownTextEngine;
+import com.example.eventcountdownwidget.core.CountdownTimeline;
+import com.example.eventcountdownwidget.core.NextUpdateCalculator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Each countdown widget's {@link CountdownTimeline}, kept in memory and in one small file per widget
+ * so a tick after a process restart still only looks its entry up. A timeline is rebuilt when the
+ * widget's event or the locale no longer match it, or once the clock runs past its last entry;
+ * {@link #invalidate} drops them all after the app itself changed.
+ * Callers are often on the main thread, so they never touch the files or build a full timeline: on a
+ * miss they get a {@link #HEAD_ENTRIES}-entry timeline built on the spot, while a background thread
+ * reads the file or builds and writes the full timeline and then swaps it in.
+ */
+final class CountdownTimelineStore {
+
+    private static final String TAG = "CountdownTimelines";
+    private static final String DIR_NAME = "timelines";
+    // Enough to render now and to know when the subtitle next changes
+    private static final int HEAD_ENTRIES = 2;
+
+    private static CountdownTimelineStore sInstance;
+
+    private final Context appContext;
+    private final File dir;
+    private final SparseArray<CountdownTimeline> timelines = new SparseArray<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(); // All file access
+
+    private CountdownTimelineStore(Context appContext) {
+        this.appContext = appContext;
+        this.dir = new File(appContext.getFilesDir(), DIR_NAME);
+    }
+
+    static synchronized CountdownTimelineStore get(Context context) {
+        if (sInstance == null) {
+            sInstance = new CountdownTimelineStore(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /** @return The widget's timeline covering {@code nowMillis}, or null while it has no event date. */
+    synchronized CountdownTimeline timelineFor(int appWidgetId, WidgetConfigCache.CountdownConfig config, long nowMillis) {
+        if (config.eventStartTime == -1) {
+            return null;
+        }
+        CountdownTextEngine engine = CountdownTexts.engine(appContext);
+        String localeTag = engine.getLocale().toLanguageTag();
+        CountdownTimeline timeline = timelines.get(appWidgetId);
+        if (timeline == null || !timeline.matches(config.eventStartTime, config.eventEndTime, localeTag)
+                || !timeline.covers(nowMillis)) {
+            final CountdownTimeline head = CountdownTimeline.build(
+                    engine, nowMillis, config.eventStartTime, config.eventEndTime, HEAD_ENTRIES);
+            timelines.put(appWidgetId, head);
+            executor.execute(() -> load(appWidgetId, head, engine, localeTag, nowMillis,
+                    config.eventStartTime, config.eventEndTime));
+            timeline = head;
+        }
+        return timeline;
+    }
+
+    /** When the widget's subtitle next changes: the end of its current entry. */
+    long nextChange(int appWidgetId, WidgetConfigCache.CountdownConfig config, long nowMillis) {
+        CountdownTimeline timeline = timelineFor(appWidgetId, config, nowMillis);
+        return timeline != null ? timeline.validUntil(timeline.indexAt(nowMillis)) : NextUpdateCalculator.NEVER;
+    }
+
+    synchronized void remove(final int[] appWidgetIds) {
+        for (int appWidgetId : appWidgetIds) {
+            timelines.remove(appWidgetId);
+        }
+        executor.execute(() -> {
+            for (int appWidgetId : appWidgetIds) {
+                fileOf(appWidgetId).delete();
+            }
+        });
+    }
+
+    /** Drops every timeline, e.g. after an app update that may have changed the labels. */
+    synchronized void invalidate() {
+        timelines.clear();
+        executor.execute(() -> {
+            File[] files = dir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+        });
+    }
+
+    /**
+     * Background half of a miss: takes the widget's timeline from its file, or builds and writes a
+     * full one, and puts it in place of {@code head} unless the widget was removed or rebuilt meanwhile.
+     */
+    private void load(int appWidgetId, CountdownTimeline head, CountdownTextEngine engine, String localeTag,
+                      long nowMillis, long startTime, long endTime) {
+        CountdownTimeline timeline = read(appWidgetId);
+        if (timeline == null || !timeline.matches(startTime, endTime, localeTag) || !timeline.covers(nowMillis)) {
+            timeline = CountdownTimeline.build(engine, nowMillis, startTime, endTime);
+            write(appWidgetId, timeline);
+            Log.d(TAG, "Built " + timeline.size() + " entries for widget ID: " + appWidgetId);
+        }
+        synchronized (this) {
+            if (timelines.get(appWidgetId) == head) {
+                timelines.put(appWidgetId, timeline);
+            }
+        }
+    }
+
+    private File fileOf(int appWidgetId) {
+        return new File(dir, Integer.toString(appWidgetId));
+    }
+
+    private CountdownTimeline read(int appWidgetId) {
+        File file = fileOf(appWidgetId);
+        if (!file.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            return CountdownTimeline.readFrom(in);
+        } catch (IOException e) {
+            Log.w(TAG, "Dropping unreadable timeline of widget ID: " + appWidgetId, e);
+            return null;
+        }
+    }
+
+    private void write(int appWidgetId, CountdownTimeline timeline) {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            return; // Still served from memory
+        }
+        File file = fileOf(appWidgetId);
+        File tmp = new File(dir, appWidgetId + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            timeline.writeTo(out);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write timeline of widget ID: " + appWidgetId, e);
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+        }
+    }
+}
@@ -8,24 +8,51 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.card.MaterialCardView;
 
+import java.text.SimpleDateFormat;
+import java.util.Date;
 import java.util.List;
+import java.util.Locale;
 
 public class EventAdapter extends RecyclerView.Adapter<EventAdapter.EventViewHolder> {
 
-    private List<EventSelectionActivity.CalendarEvent> events;
+    // Rows are the same instance if their provider row is; only visible fields count as content
+    private static final DiffUtil.ItemCallback<EventSelectionActivity.CalendarEvent> DIFF_CALLBACK =
+            new DiffUtil.ItemCallback<EventSelectionActivity.CalendarEvent>() {
+                @Override
+                public boolean areItemsTheSame(@NonNull EventSelectionActivity.CalendarEvent oldItem,
+                                               @NonNull EventSelectionActivity.CalendarEvent newItem) {
+                    return oldItem.getInstanceId() == newItem.getInstanceId();
+                }
+
+                @Override
+                public boolean areContentsTheSame(@NonNull EventSelectionActivity.CalendarEvent oldItem,
+                                                  @NonNull EventSelectionActivity.CalendarEvent newItem) {
+                    return oldItem.getStartTime() == newItem.getStartTime()
+                            && oldItem.getEndTime() == newItem.getEndTime()
+                            && oldItem.getTitle().equals(newItem.getTitle());
+                }
+            };
+
+    // Diffs are computed on a background thread, so a reload only rebinds the rows that changed
+    private final AsyncListDiffer<EventSelectionActivity.CalendarEvent> differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
     private OnEventClickListener listener;
+    // Dates are formatted at bind time, so only rows that are shown pay for it
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("EEE, MMM d, yyyy HH:mm", Locale.getDefault());
+    private final Date reusableDate = new Date();
 
     public interface OnEventClickListener {
         void onEventClick(EventSelectionActivity.CalendarEvent event);
     }
 
-    public EventAdapter(List<EventSelectionActivity.CalendarEvent> events, OnEventClickListener listener) {
-        this.events = events;
+    public EventAdapter(OnEventClickListener listener) {
         this.listener = listener;
+        setHasStableIds(true);
     }
 
     @NonNull
@@ -38,9 +65,10 @@ public class EventAdapter extends RecyclerView.Adapter<EventAdapter.EventViewHol
 
     @Override
     public void onBindViewHolder(@NonNull EventViewHolder holder, int position) {
-        EventSelectionActivity.CalendarEvent event = events.get(position);
+        EventSelectionActivity.CalendarEvent event = differ.getCurrentList().get(position);
         holder.eventTitle.setText(event.getTitle());
-        holder.eventDate.setText(event.getFormattedDate());
+        reusableDate.setTime(event.getStartTime());
+        holder.eventDate.setText(dateFormat.format(reusableDate));
 
         // Make the card clickable with proper haptic feedback
         holder.cardView.setOnClickListener(v -> {
@@ -53,12 +81,21 @@ public class EventAdapter extends RecyclerView.Adapter<EventAdapter.EventViewHol
 
     @Override
     public int getItemCount() {
-        return events.size();
+        return differ.getCurrentList().size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return differ.getCurrentList().get(position).getInstanceId();
     }
 
-    public void updateList(List<EventSelectionActivity.CalendarEvent> newList) {
-        this.events = newList;
-        notifyDataSetChanged();
+    /**
+     * Shows a new list; the caller must not modify it afterwards.
+     *
+     * @param commitCallback Run once the diff has been applied; may be null.
+     */
+    public void submitList(List<EventSelectionActivity.CalendarEvent> newList, Runnable commitCallback) {
+        differ.submitList(newList, commitCallback);
     }
 
     static class EventViewHolder extends RecyclerView.ViewHolder {
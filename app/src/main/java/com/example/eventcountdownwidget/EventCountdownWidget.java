@@ -5,12 +5,13 @@ import android.appwidget.AppWidgetManager;
 import android.appwidget.AppWidgetProvider;
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
-import android.content.res.Resources;
 import android.graphics.Color;
 import android.os.Build;
+import android.os.Parcel;
+import android.os.SystemClock;
 import android.text.TextUtils; // Import TextUtils
 import android.util.Log;
+import android.util.SparseArray;
 import android.util.TypedValue;
 import android.view.View;
 import android.widget.RemoteViews;
@@ -20,39 +21,27 @@ import androidx.annotation.ColorInt;
 import androidx.core.content.ContextCompat;
 
 import com.example.eventcountdownwidget.utils.ColorUtil;
+import com.example.eventcountdownwidget.core.CountdownTimeline;
 
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.Locale;
 import java.util.Random;
-import java.util.concurrent.TimeUnit;
 
 /**
  * Implementation of App Widget functionality.
  * Handles widget updates, deletion, and dynamic theming.
  */
 public class EventCountdownWidget extends AppWidgetProvider {
-    // Constants for SharedPreferences
-    private static final String PREFS_NAME = "com.example.eventcountdownwidget.WidgetPrefs";
-    private static final String PREF_PREFIX_KEY = "widget_";
-    private static final String EVENT_ID_KEY = "_event_id";
-    private static final String EVENT_TITLE_KEY = "_event_title";
-    private static final String EVENT_TIME_KEY = "_event_time"; // Start time
-    private static final String EVENT_END_TIME_KEY = "_event_end_time"; // End time
-    // private static final String FONT_SIZE_KEY = "_font_size"; // REMOVED
-    private static final String THEME_STYLE_KEY = "_theme_style";
-    private static final String WIDGET_COLOR_KEY = "_widget_color";
-
     // Logging Tag
     private static final String TAG = "EventCountdownWidget";
 
-    // Time constants for formatting
-    private static final long MINUTE_MILLIS = TimeUnit.MINUTES.toMillis(1);
-    private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
-    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
-    private static final long MONTH_APPROX_MILLIS = TimeUnit.DAYS.toMillis(30); // Approximation
-    private static final long YEAR_APPROX_MILLIS = TimeUnit.DAYS.toMillis(365); // Approximation
+    // What each widget's subtitle slot currently shows, as sent by this process (see applySubtitle);
+    // ticks only push changes to it
+    private static final SparseArray<String> sShownSubtitles = new SparseArray<>();
+    // Prefix of the shown-state key while the Chronometer runs; can't collide with subtitle text
+    private static final String CHRONOMETER_STATE = "\u0000chronometer:";
 
     // Keep onUpdate, onEnabled, onDeleted, onDisabled as they are
     @Override
@@ -67,19 +56,14 @@ public class EventCountdownWidget extends AppWidgetProvider {
     public void onEnabled(Context context) { /* ... */ }
     @Override
     public void onDeleted(Context context, int[] appWidgetIds) {
-        SharedPreferences.Editor prefs = context.getSharedPreferences(PREFS_NAME, 0).edit();
         for (int appWidgetId : appWidgetIds) {
-            Log.d(TAG, "Deleting preferences and canceling updates for widget ID: " + appWidgetId);
-            prefs.remove(PREF_PREFIX_KEY + appWidgetId + EVENT_ID_KEY);
-            prefs.remove(PREF_PREFIX_KEY + appWidgetId + EVENT_TITLE_KEY);
-            prefs.remove(PREF_PREFIX_KEY + appWidgetId + EVENT_TIME_KEY);
-            prefs.remove(PREF_PREFIX_KEY + appWidgetId + EVENT_END_TIME_KEY); // Remove end time
-            // prefs.remove(PREF_PREFIX_KEY + appWidgetId + FONT_SIZE_KEY); // REMOVED
-            prefs.remove(PREF_PREFIX_KEY + appWidgetId + THEME_STYLE_KEY);
-            prefs.remove(PREF_PREFIX_KEY + appWidgetId + WIDGET_COLOR_KEY);
+            Log.d(TAG, "Deleting config and canceling updates for widget ID: " + appWidgetId);
             WidgetUpdateReceiver.cancelUpdate(context, appWidgetId, EventCountdownWidget.class.getName());
+            synchronized (sShownSubtitles) { sShownSubtitles.remove(appWidgetId); }
         }
-        prefs.apply();
+        // One store write for the whole batch
+        WidgetConfigCache.get(context).deleteCountdownConfigs(appWidgetIds);
+        CountdownTimelineStore.get(context).remove(appWidgetIds);
     }
     @Override
     public void onDisabled(Context context) { /* ... */ }
@@ -90,242 +74,196 @@ public class EventCountdownWidget extends AppWidgetProvider {
 
 
     /**
-     * Updates a single widget instance.
+     * Pushes the complete layout of a single widget instance: theme, texts, date and click intent.
+     * Used on first bind and after config or theme changes; timed refreshes go through
+     * {@link #updateCountdownText}.
      */
     static void updateAppWidget(Context context, AppWidgetManager appWidgetManager, int appWidgetId) {
-        Log.d(TAG, "Updating widget content for ID: " + appWidgetId);
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, 0);
-        String eventTitle = prefs.getString(PREF_PREFIX_KEY + appWidgetId + EVENT_TITLE_KEY, "");
-        long eventStartTime = prefs.getLong(PREF_PREFIX_KEY + appWidgetId + EVENT_TIME_KEY, -1);
-        long eventEndTime = prefs.getLong(PREF_PREFIX_KEY + appWidgetId + EVENT_END_TIME_KEY, -1); // Load end time
-        int themeStyleOption = prefs.getInt(PREF_PREFIX_KEY + appWidgetId + THEME_STYLE_KEY, 0);
-        int widgetUniqueColor = prefs.getInt(PREF_PREFIX_KEY + appWidgetId + WIDGET_COLOR_KEY, -1);
-
-        // Generate color if needed
-        if (widgetUniqueColor == -1) { /* ... generate and save color ... */ }
-
-        RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.event_countdown_widget);
-
-        // --- Determine Theme Colors ---
-        int backgroundColor;
-        int textColor;
-        int subtitleTextColor;
-        // ... (Keep the color determination logic as before) ...
-        if (themeStyleOption == 1) { // Light
-            backgroundColor = ContextCompat.getColor(context, R.color.widget_background_light);
-            textColor = ContextCompat.getColor(context, R.color.widget_text_on_light);
-            subtitleTextColor = ContextCompat.getColor(context, R.color.lightTextSecondary);
-        } else if (themeStyleOption == 2) { // Dark
-            backgroundColor = ContextCompat.getColor(context, R.color.widget_background_dark);
-            textColor = ContextCompat.getColor(context, R.color.widget_text_on_dark);
-            subtitleTextColor = ContextCompat.getColor(context, R.color.darkTextSecondary);
-        } else { // Dynamic or Custom
-            int baseColor = (widgetUniqueColor != -1) ? widgetUniqueColor : Color.parseColor("#303030");
-            backgroundColor = baseColor;
-            boolean isDark = ColorUtil.isDarkColor(backgroundColor);
-            textColor = isDark ? Color.WHITE : Color.BLACK;
-            subtitleTextColor = isDark ? Color.argb(230, 255, 255, 255) : Color.argb(230, 0, 0, 0);
-            if (themeStyleOption == 0 && Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) { /* ... try dynamic ... */ }
-        }
-
-
-        // --- Apply Colors and Background ---
-        int alphaBackgroundColor = Color.argb(230, Color.red(backgroundColor), Color.green(backgroundColor), Color.blue(backgroundColor));
-        views.setInt(R.id.widget_layout, "setBackgroundResource", R.drawable.widget_background);
-        views.setInt(R.id.widget_layout, "setBackgroundColor", alphaBackgroundColor);
-        views.setTextColor(R.id.appwidget_event_title, textColor);
-        views.setTextColor(R.id.appwidget_subtitle_data, subtitleTextColor);
-
-        // --- Apply Font Sizes (Using fixed dimensions) ---
-        float titleSizeSp = context.getResources().getDimension(R.dimen.widget_title_text_size) / context.getResources().getDisplayMetrics().scaledDensity;
-        float subtitleSizeSp = context.getResources().getDimension(R.dimen.widget_subtitle_text_size) / context.getResources().getDisplayMetrics().scaledDensity;
-        views.setTextViewTextSize(R.id.appwidget_event_title, TypedValue.COMPLEX_UNIT_SP, titleSizeSp);
-        views.setTextViewTextSize(R.id.appwidget_subtitle_data, TypedValue.COMPLEX_UNIT_SP, subtitleSizeSp);
-        // Apply color to Date text as well
-        views.setTextColor(R.id.appwidget_event_date, subtitleTextColor);
-
+        long trace = WidgetTrace.begin(context, WidgetTrace.UPDATE_COUNTDOWN);
+        try {
+            long startNanos = System.nanoTime();
+            Log.d(TAG, "Updating widget content for ID: " + appWidgetId);
+            // Typed settings from the process-wide cache; the store is only consulted on a cold miss
+            WidgetConfigCache.CountdownConfig config = WidgetConfigCache.get(context).getCountdownConfig(appWidgetId);
+            String eventTitle = config.eventTitle;
+            long eventStartTime = config.eventStartTime;
+            int themeStyleOption = config.themeStyle;
+            int widgetUniqueColor = config.widgetColor;
+
+            // Generate color if needed
+            if (widgetUniqueColor == -1) { /* ... generate and save color ... */ }
+
+            RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.event_countdown_widget);
+
+            // --- Determine Theme Colors ---
+            int backgroundColor;
+            int textColor;
+            int subtitleTextColor;
+            // ... (Keep the color determination logic as before) ...
+            if (themeStyleOption == 1) { // Light
+                backgroundColor = ContextCompat.getColor(context, R.color.widget_background_light);
+                textColor = ContextCompat.getColor(context, R.color.widget_text_on_light);
+                subtitleTextColor = ContextCompat.getColor(context, R.color.lightTextSecondary);
+            } else if (themeStyleOption == 2) { // Dark
+                backgroundColor = ContextCompat.getColor(context, R.color.widget_background_dark);
+                textColor = ContextCompat.getColor(context, R.color.widget_text_on_dark);
+                subtitleTextColor = ContextCompat.getColor(context, R.color.darkTextSecondary);
+            } else { // Dynamic or Custom
+                int baseColor = (widgetUniqueColor != -1) ? widgetUniqueColor : Color.parseColor("#303030");
+                backgroundColor = baseColor;
+                boolean isDark = ColorUtil.isDarkColor(backgroundColor);
+                textColor = isDark ? Color.WHITE : Color.BLACK;
+                subtitleTextColor = isDark ? Color.argb(230, 255, 255, 255) : Color.argb(230, 0, 0, 0);
+                if (themeStyleOption == 0 && Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) { /* ... try dynamic ... */ }
+            }
 
-        // --- Event Countdown Logic (Refactored) ---
-        String subtitleText; // Renamed from countdownText
-        if (eventStartTime != -1 && eventTitle != null && !eventTitle.isEmpty()) {
-            views.setTextViewText(R.id.appwidget_event_title, eventTitle);
 
-            long nowMillis = System.currentTimeMillis();
-            long diffMillis = eventStartTime - nowMillis; // Difference until start time
+            // --- Apply Colors and Background ---
+            int alphaBackgroundColor = Color.argb(230, Color.red(backgroundColor), Color.green(backgroundColor), Color.blue(backgroundColor));
+            views.setInt(R.id.widget_layout, "setBackgroundResource", R.drawable.widget_background);
+            views.setInt(R.id.widget_layout, "setBackgroundColor", alphaBackgroundColor);
+            views.setTextColor(R.id.appwidget_event_title, textColor);
+            views.setTextColor(R.id.appwidget_subtitle_data, subtitleTextColor);
+            views.setTextColor(R.id.appwidget_countdown_chronometer, subtitleTextColor);
+
+            // --- Apply Font Sizes (Using fixed dimensions) ---
+            float titleSizeSp = context.getResources().getDimension(R.dimen.widget_title_text_size) / context.getResources().getDisplayMetrics().scaledDensity;
+            float subtitleSizeSp = context.getResources().getDimension(R.dimen.widget_subtitle_text_size) / context.getResources().getDisplayMetrics().scaledDensity;
+            views.setTextViewTextSize(R.id.appwidget_event_title, TypedValue.COMPLEX_UNIT_SP, titleSizeSp);
+            views.setTextViewTextSize(R.id.appwidget_subtitle_data, TypedValue.COMPLEX_UNIT_SP, subtitleSizeSp);
+            views.setTextViewTextSize(R.id.appwidget_countdown_chronometer, TypedValue.COMPLEX_UNIT_SP, subtitleSizeSp);
+            // Apply color to Date text as well
+            views.setTextColor(R.id.appwidget_event_date, subtitleTextColor);
+
+
+            // --- Event Countdown Logic (Refactored) ---
+            String subtitleState = applySubtitle(context, views, appWidgetId, config, System.currentTimeMillis());
+            if (config.hasEvent()) {
+                views.setTextViewText(R.id.appwidget_event_title, eventTitle);
+            } else {
+                // Display placeholder text
+                views.setTextViewText(R.id.appwidget_event_title, context.getString(R.string.widget_default_title));
+                views.setViewVisibility(R.id.appwidget_event_date, View.GONE);
+            }
 
-            if (nowMillis >= eventStartTime && (eventEndTime == -1 || nowMillis < eventEndTime)) {
-                // Event is happening now (started but not yet ended, or no end time specified)
-                subtitleText = context.getString(R.string.countdown_now);
-            } else if (diffMillis >= 0) {
-                // Event is in the future
-                subtitleText = formatTimeUntil(context, diffMillis);
+            // --- Event Date Validation & Display ---
+            if (eventStartTime != -1 && eventTitle != null && !eventTitle.isEmpty()) {
+                SimpleDateFormat dateFormat = new SimpleDateFormat("EEE, MMM d 'at' HH:mm", Locale.getDefault());
+                String dateText = dateFormat.format(new Date(eventStartTime));
+                views.setTextViewText(R.id.appwidget_event_date, dateText);
+                views.setViewVisibility(R.id.appwidget_event_date, View.VISIBLE);
             } else {
-                // Event start time is in the past, and we are not "now"
-                subtitleText = formatTimeSince(context, -diffMillis); // Pass positive difference
+                 views.setViewVisibility(R.id.appwidget_event_date, View.GONE);
             }
 
-        } else {
-            // Display placeholder text
-            views.setTextViewText(R.id.appwidget_event_title, context.getString(R.string.widget_default_title));
-            subtitleText = context.getString(R.string.widget_setup_prompt);
-            views.setViewVisibility(R.id.appwidget_event_date, View.GONE);
-        }
-        views.setTextViewText(R.id.appwidget_subtitle_data, subtitleText);
 
-        // --- Event Date Validation & Display ---
-        if (eventStartTime != -1 && eventTitle != null && !eventTitle.isEmpty()) {
-            SimpleDateFormat dateFormat = new SimpleDateFormat("EEE, MMM d 'at' HH:mm", Locale.getDefault());
-            String dateText = dateFormat.format(new Date(eventStartTime));
-            views.setTextViewText(R.id.appwidget_event_date, dateText);
-            views.setViewVisibility(R.id.appwidget_event_date, View.VISIBLE);
-        } else {
-             views.setViewVisibility(R.id.appwidget_event_date, View.GONE);
+            // --- Click Intent for Configuration ---
+            Intent configIntent = new Intent(context, WidgetConfigActivity.class);
+            configIntent.putExtra(AppWidgetManager.EXTRA_APPWIDGET_ID, appWidgetId);
+            PendingIntent configPendingIntent = PendingIntent.getActivity(context, appWidgetId, configIntent, PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+            views.setOnClickPendingIntent(R.id.widget_layout, configPendingIntent);
+
+            // Update the widget
+            Log.d(TAG, "Applying update view to widget ID: " + appWidgetId);
+            try {
+                recordTraffic(context, views, false);
+                appWidgetManager.updateAppWidget(appWidgetId, views);
+                synchronized (sShownSubtitles) { sShownSubtitles.put(appWidgetId, subtitleState); }
+            } catch (Exception e) {
+                Log.e(TAG, "Error updating widget " + appWidgetId, e);
+            }
+            WidgetMetrics.getInstance().recordSince(WidgetMetrics.Timer.UPDATE_COUNTDOWN, startNanos);
+        } finally {
+            WidgetTrace.end(WidgetTrace.UPDATE_COUNTDOWN, trace, "widgetId", appWidgetId);
         }
+    }
 
+    /**
+     * Timed refresh of a single widget: sends only the subtitle slot, and only if it changed,
+     * through {@code partiallyUpdateAppWidget}. Falls back to a full update if this process hasn't
+     * bound the widget's layout yet.
+     */
+    static void updateCountdownText(Context context, AppWidgetManager appWidgetManager, int appWidgetId) {
+        String shownSubtitle;
+        synchronized (sShownSubtitles) { shownSubtitle = sShownSubtitles.get(appWidgetId); }
+        if (shownSubtitle == null) {
+            updateAppWidget(context, appWidgetManager, appWidgetId);
+            return;
+        }
 
-        // --- Click Intent for Configuration ---
-        Intent configIntent = new Intent(context, WidgetConfigActivity.class);
-        configIntent.putExtra(AppWidgetManager.EXTRA_APPWIDGET_ID, appWidgetId);
-        PendingIntent configPendingIntent = PendingIntent.getActivity(context, appWidgetId, configIntent, PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
-        views.setOnClickPendingIntent(R.id.widget_layout, configPendingIntent);
+        WidgetConfigCache.CountdownConfig config = WidgetConfigCache.get(context).getCountdownConfig(appWidgetId);
+        RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.event_countdown_widget);
+        String subtitleState = applySubtitle(context, views, appWidgetId, config, System.currentTimeMillis());
+        if (subtitleState.equals(shownSubtitle)) {
+            Log.d(TAG, "Subtitle of widget " + appWidgetId + " unchanged; skipping update.");
+            return;
+        }
 
-        // Update the widget
-        Log.d(TAG, "Applying update view to widget ID: " + appWidgetId);
         try {
-            appWidgetManager.updateAppWidget(appWidgetId, views);
+            recordTraffic(context, views, true);
+            appWidgetManager.partiallyUpdateAppWidget(appWidgetId, views);
+            synchronized (sShownSubtitles) { sShownSubtitles.put(appWidgetId, subtitleState); }
         } catch (Exception e) {
             Log.e(TAG, "Error updating widget " + appWidgetId, e);
         }
     }
 
-
-    // --- NEW HELPER METHODS for Time Formatting ---
-
     /**
-     * Formats the time remaining until a future event.
-     * Shows the largest two relevant units (e.g., "In 2 days 5 hrs", "In 3 hrs 10 mins").
+     * Fills the subtitle slot from the widget's precomputed {@link CountdownTimeline} entry: within a
+     * day of the event start a Chronometer that the launcher ticks by itself (so no per-minute alarms
+     * are needed), otherwise the static subtitle text or the setup prompt.
      *
-     * @param context Context to access resources.
-     * @param diffMillis The positive difference in milliseconds until the event.
-     * @return Formatted string like "In X unit Y unit".
+     * @return A key of what the slot shows, so ticks can tell whether anything changed.
      */
-    private static String formatTimeUntil(Context context, long diffMillis) {
-        if (diffMillis < MINUTE_MILLIS) {
-            return context.getString(R.string.countdown_starts_soon);
-        }
-
-        long years = diffMillis / YEAR_APPROX_MILLIS;
-        long months = (diffMillis % YEAR_APPROX_MILLIS) / MONTH_APPROX_MILLIS;
-        long days = (diffMillis % MONTH_APPROX_MILLIS) / DAY_MILLIS;
-        long hours = (diffMillis % DAY_MILLIS) / HOUR_MILLIS;
-        long minutes = (diffMillis % HOUR_MILLIS) / MINUTE_MILLIS;
-
-        Resources res = context.getResources();
-
-        // Special case for Today: Use hour/minute format directly if less than 24 hours
-        if (diffMillis < DAY_MILLIS && years == 0 && months == 0 && days == 0) {
-            if (hours > 0) {
-                String hourPart = res.getQuantityString(R.plurals.hours, (int) hours, (int) hours);
-                String minutePart = (minutes > 0) ? " " + res.getQuantityString(R.plurals.minutes, (int) minutes, (int) minutes) : "";
-                return context.getString(R.string.label_in) + " " + hourPart + minutePart;
-            } else { // Only minutes left
-                return context.getString(R.string.label_in) + " " + res.getQuantityString(R.plurals.minutes, (int) minutes, (int) minutes);
-            }
-        }
-
-        // More than a day away — collect the two largest units without allocating a List
-        String part1 = null;
-        String part2 = null;
-
-        if (years > 0) {
-            part1 = res.getQuantityString(R.plurals.years, (int) years, (int) years);
-        }
-        if (months > 0) {
-            if (part1 == null) { part1 = res.getQuantityString(R.plurals.months, (int) months, (int) months); }
-            else if (part2 == null) { part2 = res.getQuantityString(R.plurals.months, (int) months, (int) months); }
-        }
-        if (days > 0 && years == 0) { // Show days only if no years shown
-            if (part1 == null) { part1 = res.getQuantityString(R.plurals.days, (int) days, (int) days); }
-            else if (part2 == null) { part2 = res.getQuantityString(R.plurals.days, (int) days, (int) days); }
-        }
-        if (hours > 0 && years == 0 && months == 0) { // Show hours only if no years/months shown
-            if (part1 == null) { part1 = res.getQuantityString(R.plurals.hours, (int) hours, (int) hours); }
-            else if (part2 == null) { part2 = res.getQuantityString(R.plurals.hours, (int) hours, (int) hours); }
-        }
-
-        // Build the final string (Show max 2 largest units)
-        String timeString;
-        if (part1 != null && part2 != null) {
-            timeString = part1 + " " + part2;
-        } else if (part1 != null) {
-            timeString = part1;
-        } else {
-            // Should have been caught by "starts soon", but as fallback:
-            timeString = res.getQuantityString(R.plurals.minutes, 1, 1); // "1 min"
+    private static String applySubtitle(Context context, RemoteViews views, int appWidgetId,
+                                        WidgetConfigCache.CountdownConfig config, long nowMillis) {
+        CountdownTimeline timeline = CountdownTimelineStore.get(context).timelineFor(appWidgetId, config, nowMillis);
+        int entry = timeline != null ? timeline.indexAt(nowMillis) : -1;
+        if (entry >= 0 && timeline.kindAt(entry) != CountdownTimeline.KIND_TEXT) {
+            boolean countDown = timeline.kindAt(entry) == CountdownTimeline.KIND_CHRONOMETER_UNTIL;
+            // Chronometer bases live on the elapsed-realtime clock
+            long base = SystemClock.elapsedRealtime() + (config.eventStartTime - nowMillis);
+            String format = context.getString(countDown ? R.string.countdown_chronometer_until : R.string.countdown_chronometer_since);
+            views.setChronometer(R.id.appwidget_countdown_chronometer, base, format, true);
+            views.setChronometerCountDown(R.id.appwidget_countdown_chronometer, countDown);
+            views.setViewVisibility(R.id.appwidget_countdown_chronometer, View.VISIBLE);
+            views.setViewVisibility(R.id.appwidget_subtitle_data, View.GONE);
+            return CHRONOMETER_STATE + countDown + ":" + config.eventStartTime;
         }
 
-        return context.getString(R.string.label_in) + " " + timeString;
+        String subtitleText = entry >= 0 && config.hasEvent()
+                ? timeline.textAt(entry) : context.getString(R.string.widget_setup_prompt);
+        views.setTextViewText(R.id.appwidget_subtitle_data, subtitleText);
+        views.setViewVisibility(R.id.appwidget_subtitle_data, View.VISIBLE);
+        views.setChronometer(R.id.appwidget_countdown_chronometer, 0, null, false); // Stop ticking
+        views.setViewVisibility(R.id.appwidget_countdown_chronometer, View.GONE);
+        return subtitleText;
     }
 
-
     /**
-     * Formats the time elapsed since a past event.
-     * Shows the largest two relevant units (e.g., "3 yrs 2 mos ago", "5 days 6 hrs ago").
-     *
-     * @param context Context to access resources.
-     * @param diffMillis The positive difference in milliseconds since the event started.
-     * @return Formatted string like "X unit Y unit ago".
+     * Counts the push, and while tracing is on ({@link WidgetTrace#isEnabled}) also adds the parcelled
+     * size of {@code views} to the hourly traffic counter and the metrics, logging each closed hour.
+     * Parcelling copies every action, so it is left out of untraced ticks.
      */
-    private static String formatTimeSince(Context context, long diffMillis) {
-        if (diffMillis < MINUTE_MILLIS) {
-            // Event just passed, or happened within the last minute
-            return context.getString(R.string.countdown_passed); // Or "Just now"
+    private static void recordTraffic(Context context, RemoteViews views, boolean partial) {
+        WidgetMetrics metrics = WidgetMetrics.getInstance();
+        metrics.increment(partial ? WidgetMetrics.Counter.REMOTE_VIEWS_PARTIAL : WidgetMetrics.Counter.REMOTE_VIEWS_FULL);
+        if (!WidgetTrace.isEnabled(context)) {
+            return;
         }
-
-        long years = diffMillis / YEAR_APPROX_MILLIS;
-        long months = (diffMillis % YEAR_APPROX_MILLIS) / MONTH_APPROX_MILLIS;
-        long days = (diffMillis % MONTH_APPROX_MILLIS) / DAY_MILLIS;
-        long hours = (diffMillis % DAY_MILLIS) / HOUR_MILLIS;
-        long minutes = (diffMillis % HOUR_MILLIS) / MINUTE_MILLIS;
-
-        Resources res = context.getResources();
-
-        // Collect the two largest units without allocating a List
-        String part1 = null;
-        String part2 = null;
-
-        if (years > 0) {
-            part1 = res.getQuantityString(R.plurals.years, (int) years, (int) years);
-        }
-        if (months > 0) {
-            if (part1 == null) { part1 = res.getQuantityString(R.plurals.months, (int) months, (int) months); }
-            else if (part2 == null) { part2 = res.getQuantityString(R.plurals.months, (int) months, (int) months); }
-        }
-        if (days > 0 && years == 0) { // Show days only if no years shown
-            if (part1 == null) { part1 = res.getQuantityString(R.plurals.days, (int) days, (int) days); }
-            else if (part2 == null) { part2 = res.getQuantityString(R.plurals.days, (int) days, (int) days); }
-        }
-        if (hours > 0 && years == 0 && months == 0) { // Show hours only if no years/months shown
-            if (part1 == null) { part1 = res.getQuantityString(R.plurals.hours, (int) hours, (int) hours); }
-            else if (part2 == null) { part2 = res.getQuantityString(R.plurals.hours, (int) hours, (int) hours); }
-        }
-        if (minutes > 0 && years == 0 && months == 0 && days == 0) { // Show minutes only if smallest unit
-            if (part1 == null) { part1 = res.getQuantityString(R.plurals.minutes, (int) minutes, (int) minutes); }
-            else if (part2 == null) { part2 = res.getQuantityString(R.plurals.minutes, (int) minutes, (int) minutes); }
-        }
-
-        // Build the final string (Show max 2 largest units)
-        String timeString;
-        if (part1 != null && part2 != null) {
-            timeString = part1 + " " + part2;
-        } else if (part1 != null) {
-            timeString = part1;
-        } else {
-            // Fallback if calculation is weird (shouldn't happen if diffMillis >= MINUTE_MILLIS)
-            return context.getString(R.string.countdown_passed); // Return early without "ago"
+        Parcel parcel = Parcel.obtain();
+        try {
+            views.writeToParcel(parcel, 0);
+            metrics.add(WidgetMetrics.Counter.REMOTE_VIEWS_BYTES, parcel.dataSize());
+            RemoteViewsTrafficCounter.Totals closedHour =
+                    RemoteViewsTrafficCounter.getInstance().record(System.currentTimeMillis(), parcel.dataSize(), partial);
+            if (closedHour != null) {
+                Log.i(TAG, "RemoteViews traffic: " + closedHour);
+            }
+        } finally {
+            parcel.recycle();
         }
-
-        return timeString + " " + context.getString(R.string.label_ago);
     }
 
+
 } // End of EventCountdownWidget class
\ No newline at end of file
@@ -0,0 +1,209 @@
+package com.example.eventcountdownwidget;
+
+import com.example.eventcountdownwidget.core.EventRanker;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-level cache of calendar instance query results, shared by every list widget.
+ * Results are partitioned per calendar, so a selection change only queries the calendars that were
+ * added and drops the ones that were removed; partitions loaded by one query share its timestamp and
+ * are kept for {@link #TTL_MILLIS}. A request merges the selected partitions by start time and takes
+ * a prefix of {@code maxEvents} items. Loads are single-flight: concurrent callers wait for
+ * one query instead of each issuing their own.
+ * Contains no Android dependencies so it can be exercised from plain JVM unit tests.
+ */
+final class EventInstanceCache {
+
+    /** How long a query result is served before the calendar provider is asked again. */
+    static final long TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    /** Minimum number of instances fetched per query, so every widget's prefix fits in one result. */
+    static final int MIN_QUERY_LIMIT = 25;
+
+    /**
+     * Runs the actual provider query.
+     */
+    interface Loader {
+        /**
+         * @return Instances of the given calendars overlapping {@code [windowStart, windowEnd]} that end
+         *         at or after {@code now}, sorted by start time, at most {@code limit} of them; or null
+         *         if the query failed. Each item's calendar ID must be one of {@code calendarIds}.
+         */
+        List<SimpleEventListWidgetProvider.CalendarEventItem> load(List<String> calendarIds,
+                long now, long windowStart, long windowEnd, int limit);
+    }
+
+    /**
+     * Identifies a query: the calendar set plus the window's extent around "now".
+     */
+    static final class Key {
+        final List<String> calendarIds; // Sorted so set iteration order doesn't matter
+        final long windowBackMillis;
+        final long windowForwardMillis;
+
+        Key(Collection<String> calendarIds, long windowBackMillis, long windowForwardMillis) {
+            this.calendarIds = new ArrayList<>(new TreeSet<>(calendarIds));
+            this.windowBackMillis = windowBackMillis;
+            this.windowForwardMillis = windowForwardMillis;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return windowBackMillis == other.windowBackMillis
+                    && windowForwardMillis == other.windowForwardMillis
+                    && calendarIds.equals(other.calendarIds);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = calendarIds.hashCode();
+            result = 31 * result + (int) (windowBackMillis ^ (windowBackMillis >>> 32));
+            return 31 * result + (int) (windowForwardMillis ^ (windowForwardMillis >>> 32));
+        }
+    }
+
+    /**
+     * One calendar's share of a query result. A query that hit its limit only proves that no
+     * instances are missing up to the start of its last row; {@code completeUntil} records that
+     * instant (or {@link Long#MAX_VALUE} if the query returned everything).
+     */
+    private static final class Partition {
+        final List<SimpleEventListWidgetProvider.CalendarEventItem> items = new ArrayList<>();
+        final long loadedAtMillis;
+        final long completeUntil;
+
+        Partition(long loadedAtMillis, long completeUntil) {
+            this.loadedAtMillis = loadedAtMillis;
+            this.completeUntil = completeUntil;
+        }
+    }
+
+    private static final EventInstanceCache INSTANCE = new EventInstanceCache();
+
+    private final Map<String, Partition> partitions = new HashMap<>();
+    private long windowBackMillis = -1; // Window the partitions were loaded with
+    private long windowForwardMillis = -1;
+    private int queryCount;
+
+    static EventInstanceCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the first {@code maxEvents} not-yet-ended instances for the key, querying through
+     * {@code loader} only the calendars that have no fresh partition able to satisfy the request.
+     *
+     * @return A new list the caller may modify.
+     */
+    synchronized List<SimpleEventListWidgetProvider.CalendarEventItem> getEvents(Key key, long nowMillis, int maxEvents,
+            Loader loader) {
+        if (key.windowBackMillis != windowBackMillis || key.windowForwardMillis != windowForwardMillis) {
+            partitions.clear();
+            windowBackMillis = key.windowBackMillis;
+            windowForwardMillis = key.windowForwardMillis;
+        }
+        int limit = Math.max(MIN_QUERY_LIMIT, maxEvents);
+
+        List<String> missing = new ArrayList<>();
+        for (String calendarId : key.calendarIds) {
+            if (!isFresh(partitions.get(calendarId), nowMillis)) missing.add(calendarId);
+        }
+        if (!missing.isEmpty() && !load(missing, nowMillis, limit, loader)) {
+            return new ArrayList<>();
+        }
+
+        List<SimpleEventListWidgetProvider.CalendarEventItem> result = merge(key.calendarIds, nowMillis, maxEvents);
+        if (result.size() < maxEvents) {
+            // Truncated partitions may have lost rows to events that ended since their query
+            List<String> truncated = new ArrayList<>();
+            for (String calendarId : key.calendarIds) {
+                if (partitions.get(calendarId).completeUntil != Long.MAX_VALUE) truncated.add(calendarId);
+            }
+            if (!truncated.isEmpty()) {
+                if (!load(truncated, nowMillis, limit, loader)) {
+                    return new ArrayList<>();
+                }
+                result = merge(key.calendarIds, nowMillis, maxEvents);
+            }
+        }
+        return result;
+    }
+
+    private static boolean isFresh(Partition partition, long nowMillis) {
+        return partition != null
+                && nowMillis >= partition.loadedAtMillis && nowMillis - partition.loadedAtMillis < TTL_MILLIS;
+    }
+
+    /**
+     * Queries the given calendars in one go and replaces their partitions.
+     *
+     * @return False if the query failed; the calendars' partitions are dropped in that case.
+     */
+    private boolean load(List<String> calendarIds, long nowMillis, int limit, Loader loader) {
+        List<SimpleEventListWidgetProvider.CalendarEventItem> loaded = loader.load(calendarIds, nowMillis,
+                nowMillis - windowBackMillis, nowMillis + windowForwardMillis, limit);
+        queryCount++;
+        if (loaded == null) {
+            // Don't serve a failure (e.g. missing permission) for the whole TTL
+            for (String calendarId : calendarIds) partitions.remove(calendarId);
+            return false;
+        }
+
+        long completeUntil = loaded.size() >= limit ? loaded.get(loaded.size() - 1).getStartTime() : Long.MAX_VALUE;
+        for (String calendarId : calendarIds) {
+            partitions.put(calendarId, new Partition(nowMillis, completeUntil));
+        }
+        for (SimpleEventListWidgetProvider.CalendarEventItem item : loaded) {
+            Partition partition = calendarIds.size() == 1
+                    ? partitions.get(calendarIds.get(0))
+                    : partitions.get(item.getCalendarId());
+            if (partition != null) partition.items.add(item);
+        }
+        return true;
+    }
+
+    /**
+     * Merges the calendars' partitions by start time, keeping not-yet-ended instances that start no
+     * later than every partition's {@code completeUntil}. Instances tied with the last row of a
+     * truncated query may be missing; their relative order is arbitrary anyway.
+     */
+    private List<SimpleEventListWidgetProvider.CalendarEventItem> merge(List<String> calendarIds, long nowMillis,
+            int maxEvents) {
+        long completeUntil = Long.MAX_VALUE;
+        List<List<SimpleEventListWidgetProvider.CalendarEventItem>> selected = new ArrayList<>(calendarIds.size());
+        for (String calendarId : calendarIds) {
+            Partition partition = partitions.get(calendarId);
+            completeUntil = Math.min(completeUntil, partition.completeUntil);
+            selected.add(partition.items);
+        }
+        // Ties keep calendar order, so a single query's order survives
+        return EventRanker.upcoming(selected, nowMillis, completeUntil, maxEvents);
+    }
+
+    /** Drops the partitions of calendars that are no longer selected. */
+    synchronized void dropCalendars(Collection<String> calendarIds) {
+        for (String calendarId : calendarIds) {
+            partitions.remove(calendarId);
+        }
+    }
+
+    /** Drops every cached result, e.g. after a calendar change or when the user hit refresh. */
+    synchronized void invalidate() {
+        partitions.clear();
+    }
+
+    /** Number of provider queries issued so far, for tests and logging. */
+    synchronized int getQueryCount() {
+        return queryCount;
+    }
+}
@@ -9,8 +9,12 @@ import android.widget.RemoteViewsService;
 import androidx.core.content.ContextCompat;
 
 import com.example.eventcountdownwidget.utils.ColorUtil;
+import com.example.eventcountdownwidget.core.DateFieldFormatter;
+import com.example.eventcountdownwidget.core.DayBoundaryIndex;
+import com.example.eventcountdownwidget.core.EventBuffer;
+import com.example.eventcountdownwidget.core.NextUpdateCalculator;
 
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 // Removed unused imports
@@ -33,8 +37,14 @@ public class EventListWidgetService extends RemoteViewsService {
     class EventListRemoteViewsFactory implements RemoteViewsService.RemoteViewsFactory {
         private final Context mContext;
         private final int mAppWidgetId;
-        private List<SimpleEventListWidgetProvider.CalendarEventItem> mEventList = new ArrayList<>();
+        // Only the displayed fields, column-wise; kept until the next refresh
+        private EventBuffer mEvents = EventBuffer.EMPTY;
         private SimpleEventListWidgetProvider.WidgetConfig mWidgetConfig;
+        // Item colors, resolved once per data set rather than per row
+        private int mTitleColor = Color.WHITE;
+        private int mSubtitleColor = Color.LTGRAY;
+        private final ListRowCache<RemoteViews> mRows = new ListRowCache<>();
+        private DateFieldFormatter mDates; // Day table and locale the cached rows were built with
 
         public EventListRemoteViewsFactory(Context context, Intent intent) {
             mContext = context;
@@ -46,32 +56,85 @@ public class EventListWidgetService extends RemoteViewsService {
         // onCreate, onDataSetChanged, onDestroy, loadWidgetConfig, loadEvents (Keep as is)
         @Override public void onCreate() { loadWidgetConfig(); loadEvents(); }
         @Override public void onDataSetChanged() {loadWidgetConfig(); loadEvents(); }
-        @Override public void onDestroy() { mEventList.clear(); }
-        private void loadWidgetConfig() { mWidgetConfig = SimpleEventListWidgetProvider.WidgetConfigManager.loadConfig(mContext, mAppWidgetId); if (mWidgetConfig == null) { mWidgetConfig = new SimpleEventListWidgetProvider.WidgetConfig(mAppWidgetId, 0, -1, 10); } }
-        private void loadEvents() { if (mWidgetConfig != null) { mEventList = SimpleEventListWidgetProvider.CalendarRepository.loadEvents(mContext, mWidgetConfig.getMaxEvents()); } else { mEventList.clear(); } }
+        @Override public void onDestroy() { mEvents = EventBuffer.EMPTY; mRows.resize(0); }
+        private void loadWidgetConfig() {
+            mWidgetConfig = SimpleEventListWidgetProvider.WidgetConfigManager.loadConfig(mContext, mAppWidgetId);
+            if (mWidgetConfig == null) { mWidgetConfig = new SimpleEventListWidgetProvider.WidgetConfig(mAppWidgetId, 0, -1, 10); }
+            resolveItemColors(mWidgetConfig);
+        }
+        private void loadEvents() {
+            List<SimpleEventListWidgetProvider.CalendarEventItem> events = mWidgetConfig != null
+                    ? SimpleEventListWidgetProvider.CalendarRepository.loadEvents(mContext, mWidgetConfig.getMaxEvents())
+                    : Collections.<SimpleEventListWidgetProvider.CalendarEventItem>emptyList();
+            ListWindowTracker.getInstance().recordRendered(mAppWidgetId, ListWindowTracker.fingerprint(events));
+            mEvents = EventBuffer.of(events);
+            DateFieldFormatter dates = CountdownTexts.listDates();
+            if (dates != mDates) { // New zone, clock or locale: every cached subtitle is suspect
+                mDates = dates;
+                mRows.clear();
+            }
+            mRows.resize(mEvents.size());
+            scheduleNextTextChange();
+        }
+
+        /** Reports the earliest instant any visible row's subtitle will change, so the next refresh lands exactly then. */
+        private void scheduleNextTextChange() {
+            if (mAppWidgetId == AppWidgetManager.INVALID_APPWIDGET_ID) return;
+            long now = System.currentTimeMillis();
+            long nextChange = NextUpdateCalculator.NEVER;
+            boolean exact = false;
+            EventBuffer events = mEvents;
+            DayBoundaryIndex days = mDates.getDays();
+            for (int i = 0; i < events.size(); i++) {
+                long startTime = events.getStartTime(i);
+                long endTime = events.getEndTime(i);
+                long change = NextUpdateCalculator.nextListItemChange(now, startTime, endTime, events.isAllDay(i), days);
+                if (change <= nextChange) {
+                    boolean rowExact = NextUpdateCalculator.needsExactListAlarm(change, startTime, endTime);
+                    exact = change < nextChange ? rowExact : exact || rowExact;
+                    nextChange = change;
+                }
+            }
+            WidgetUpdateReceiver.scheduleListUpdate(mContext, mAppWidgetId, nextChange, exact);
+        }
 
         @Override
-        public int getCount() { return mEventList.size(); }
+        public int getCount() { return mEvents.size(); }
 
         @Override
         public RemoteViews getViewAt(int position) {
-            if (position < 0 || position >= mEventList.size() || mEventList.get(position) == null) {
+            EventBuffer events = mEvents;
+            if (position < 0 || position >= events.size()) {
                 return new RemoteViews(mContext.getPackageName(), R.layout.event_list_widget_item); // Return empty
             }
 
+            long trace = WidgetTrace.begin(mContext, WidgetTrace.GET_VIEW_AT);
             try {
-                SimpleEventListWidgetProvider.CalendarEventItem event = mEventList.get(position);
-                RemoteViews rv = new RemoteViews(mContext.getPackageName(), R.layout.event_list_widget_item);
-
-                // Populate views
-                rv.setTextViewText(R.id.event_item_title, event.getTitle());
-                String subtitle = SimpleEventListWidgetProvider.CountdownFormatter.formatCountdown(event);
-                rv.setTextViewText(R.id.event_item_subtitle, subtitle);
-
-                // Apply theme
-                if (mWidgetConfig != null) { applyItemTheme(rv, mWidgetConfig); }
-                else { rv.setTextColor(R.id.event_item_title, Color.WHITE); rv.setTextColor(R.id.event_item_subtitle, Color.LTGRAY); }
-
+                long now = System.currentTimeMillis();
+                long id = events.getId(position);
+                long startTime = events.getStartTime(position);
+                long endTime = events.getEndTime(position);
+                boolean allDay = events.isAllDay(position);
+                String title = events.getTitle(position);
+
+                // Same instance and its subtitle can't have changed yet: nothing to format or build
+                RemoteViews rv = mRows.getCurrent(position, id, startTime, endTime, allDay, title, now);
+                if (rv != null) {
+                    return rv;
+                }
+
+                String subtitle = SimpleEventListWidgetProvider.CountdownFormatter.formatCountdown(now, startTime, endTime, allDay);
+                long validUntil = NextUpdateCalculator.nextListItemChange(
+                        now, startTime, endTime, allDay, mDates.getDays());
+                rv = mRows.get(position, id, startTime, endTime, allDay, title, subtitle);
+                if (rv == null) {
+                    rv = new RemoteViews(mContext.getPackageName(), R.layout.event_list_widget_item);
+                    rv.setTextViewText(R.id.event_item_title, title);
+                    rv.setTextViewText(R.id.event_item_subtitle, subtitle);
+                    rv.setTextColor(R.id.event_item_title, mTitleColor);
+                    rv.setTextColor(R.id.event_item_subtitle, mSubtitleColor);
+                }
+                mRows.put(position, id, startTime, endTime, allDay, title, subtitle, validUntil, rv);
                 return rv;
             } catch (Exception e) {
                 RemoteViews errorRv = new RemoteViews(mContext.getPackageName(), R.layout.event_list_widget_item);
@@ -79,22 +142,29 @@ public class EventListWidgetService extends RemoteViewsService {
                 errorRv.setTextViewText(R.id.event_item_subtitle, "Cannot load");
                 errorRv.setTextColor(R.id.event_item_title, Color.RED);
                 return errorRv;
+            } finally {
+                WidgetTrace.end(WidgetTrace.GET_VIEW_AT, trace, "position", position);
             }
         }
 
-        // applyItemTheme (Keep as is)
-        private void applyItemTheme(RemoteViews rv, SimpleEventListWidgetProvider.WidgetConfig config) {
+        /** Resolves the row text colors for {@code config}, dropping cached rows if they changed. */
+        private void resolveItemColors(SimpleEventListWidgetProvider.WidgetConfig config) {
             int titleColor; int subtitleColor;
             if (config.getThemeStyle() == 1) { titleColor=ContextCompat.getColor(mContext, R.color.widget_text_on_light); subtitleColor=ContextCompat.getColor(mContext, R.color.lightTextSecondary); }
             else if (config.getThemeStyle() == 2) { titleColor=ContextCompat.getColor(mContext, R.color.widget_text_on_dark); subtitleColor=ContextCompat.getColor(mContext, R.color.darkTextSecondary); }
             else { int baseBg = (config.getWidgetColor() != -1) ? config.getWidgetColor() : Color.parseColor("#303030"); boolean dark = ColorUtil.isDarkColor(baseBg); titleColor = dark ? Color.WHITE : Color.BLACK; subtitleColor = dark ? Color.argb(200, 255, 255, 255) : Color.DKGRAY; }
-            rv.setTextColor(R.id.event_item_title, titleColor); rv.setTextColor(R.id.event_item_subtitle, subtitleColor);
+            if (titleColor != mTitleColor || subtitleColor != mSubtitleColor) {
+                mTitleColor = titleColor;
+                mSubtitleColor = subtitleColor;
+                mRows.clear();
+            }
         }
 
-        // getLoadingView, getViewTypeCount, getItemId, hasStableIds (Keep as is)
+        // getLoadingView, getViewTypeCount, getItemId, hasStableIds
+        // Item IDs are instance row IDs: a recurring event's occurrences share only their event ID
         @Override public RemoteViews getLoadingView() { return null; }
         @Override public int getViewTypeCount() { return 1; }
-        @Override public long getItemId(int pos) { return (pos>=0 && pos<mEventList.size() && mEventList.get(pos)!=null) ? mEventList.get(pos).getId() : pos; }
+        @Override public long getItemId(int pos) { EventBuffer events = mEvents; return (pos>=0 && pos<events.size()) ? events.getId(pos) : pos; }
         @Override public boolean hasStableIds() { return true; }
 
     } // End of Factory
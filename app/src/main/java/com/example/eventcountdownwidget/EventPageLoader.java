@@ -0,0 +1,80 @@
+package com.example.eventcountdownwidget;
+
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs the event picker's provider queries one at a time on a background thread and delivers
+ * results on the main thread. Each task gets a {@link CancellationSignal} to pass to
+ * {@code ContentResolver.query}; {@link #cancelAll()} cancels everything in flight and drops
+ * results of tasks started before it, so a reload never races the queries it supersedes.
+ * Call everything on the main thread.
+ */
+final class EventPageLoader {
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Set<CancellationSignal> inFlight = new HashSet<>(); // Guarded by itself
+    private int generation; // Only touched on the main thread
+
+    /**
+     * Runs {@code task} in the background and hands its result to {@code onResult} unless it was
+     * cancelled meanwhile.
+     *
+     * @return The task's signal, for cancelling just this task.
+     */
+    <T> CancellationSignal load(Function<CancellationSignal, T> task, Consumer<T> onResult) {
+        final int taskGeneration = generation;
+        final CancellationSignal signal = new CancellationSignal();
+        synchronized (inFlight) {
+            inFlight.add(signal);
+        }
+        executor.execute(() -> {
+            T result = null;
+            try {
+                if (!signal.isCanceled()) {
+                    result = task.apply(signal);
+                }
+            } finally {
+                synchronized (inFlight) {
+                    inFlight.remove(signal);
+                }
+            }
+            if (signal.isCanceled()) {
+                return;
+            }
+            final T delivered = result;
+            mainHandler.post(() -> {
+                if (taskGeneration == generation && !signal.isCanceled()) {
+                    onResult.accept(delivered);
+                }
+            });
+        });
+        return signal;
+    }
+
+    /** Cancels every task in flight or queued; none of them will deliver a result. */
+    void cancelAll() {
+        generation++;
+        synchronized (inFlight) {
+            for (CancellationSignal signal : inFlight) {
+                signal.cancel();
+            }
+            inFlight.clear();
+        }
+    }
+
+    /** Cancels everything and stops the thread; the loader can't be used afterwards. */
+    void shutdown() {
+        cancelAll();
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.eventcountdownwidget;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Bounded window of keyset-loaded pages behind a scrolling list. Pages are fetched relative to the
+ * first or last loaded item (the key), so later pages cost the same as the first one, and at most
+ * {@code maxPages} pages are kept: appending past that drops the oldest page and prepending drops
+ * the newest, which can then be loaded again from its neighbour's key.
+ * Loading itself happens elsewhere: the window hands out {@link Load} requests and applies their
+ * results. Results of requests issued before the last {@link #start()} are ignored.
+ * Contains no Android dependencies so it can be exercised from plain JVM unit tests.
+ */
+final class EventPageWindow<T> {
+
+    /**
+     * A page to fetch: up to {@link #limit} items after {@link #anchor} (or from the beginning if
+     * it is null), or before it when {@link #backward}.
+     */
+    static final class Load<T> {
+        final boolean backward;
+        final T anchor;
+        final int limit;
+        private final int generation;
+
+        Load(boolean backward, T anchor, int limit, int generation) {
+            this.backward = backward;
+            this.anchor = anchor;
+            this.limit = limit;
+            this.generation = generation;
+        }
+    }
+
+    private final int pageSize;
+    private final int maxPages;
+    private final int prefetchDistance;
+
+    private final List<T> items = new ArrayList<>();
+    private final List<T> readOnlyItems = Collections.unmodifiableList(items);
+    private final ArrayDeque<Integer> pageSizes = new ArrayDeque<>();
+    private boolean startReached = true; // Nothing precedes the first loaded item
+    private boolean endReached;          // Nothing follows the last loaded item
+    private boolean loading;
+    private boolean firstPageLoaded;
+    private int generation;
+
+    /**
+     * @param prefetchDistance Load the next page once the visible range is this close to an edge.
+     */
+    EventPageWindow(int pageSize, int maxPages, int prefetchDistance) {
+        this.pageSize = pageSize;
+        this.maxPages = maxPages;
+        this.prefetchDistance = prefetchDistance;
+    }
+
+    /** Live, read-only view of the loaded items, in key order. */
+    List<T> items() {
+        return readOnlyItems;
+    }
+
+    /** Whether the first page has arrived since the last {@link #start()}. */
+    boolean isFirstPageLoaded() {
+        return firstPageLoaded;
+    }
+
+    /**
+     * Whether the loaded items are the whole result: the first page has arrived and nothing was
+     * left before or after them. Only then can they be narrowed in memory with {@link #retain}.
+     */
+    boolean isComplete() {
+        return firstPageLoaded && !loading && startReached && endReached;
+    }
+
+    /**
+     * Drops every item whose flag in {@code keep} is false, for narrowing a {@link #isComplete()
+     * complete} result. The window stays complete and pending results are ignored afterwards.
+     *
+     * @return The number of items removed.
+     */
+    int retain(boolean[] keep) {
+        if (!isComplete() || keep.length != items.size()) {
+            throw new IllegalStateException("Can only narrow the complete, unchanged result");
+        }
+        generation++;
+        int kept = 0;
+        for (int i = 0; i < keep.length; i++) {
+            if (keep[i]) {
+                items.set(kept++, items.get(i));
+            }
+        }
+        int removed = items.size() - kept;
+        items.subList(kept, items.size()).clear();
+        pageSizes.clear();
+        if (!items.isEmpty()) {
+            pageSizes.add(items.size());
+        }
+        return removed;
+    }
+
+    /**
+     * Drops everything (e.g. for a new search) and returns the request for the first page.
+     * The caller should notify its adapter that the data set changed.
+     */
+    Load<T> start() {
+        items.clear();
+        pageSizes.clear();
+        startReached = true;
+        endReached = false;
+        firstPageLoaded = false;
+        loading = true;
+        return new Load<>(false, null, pageSize, ++generation);
+    }
+
+    /**
+     * @return The next page to fetch for the visible positions, or null if none is needed or a
+     *         load is already in flight.
+     */
+    Load<T> onVisibleRange(int firstVisible, int lastVisible) {
+        if (loading || !firstPageLoaded) {
+            return null;
+        }
+        if (!endReached && lastVisible >= items.size() - prefetchDistance) {
+            loading = true;
+            return new Load<>(false, items.isEmpty() ? null : items.get(items.size() - 1), pageSize, generation);
+        }
+        if (!startReached && firstVisible < prefetchDistance) {
+            loading = true;
+            return new Load<>(true, items.get(0), pageSize, generation);
+        }
+        return null;
+    }
+
+    /**
+     * Applies a fetched page.
+     *
+     * @param page The items in key order, or null if the query failed (the load may be retried).
+     * @return Whether the items changed; false for empty, failed or stale loads.
+     */
+    boolean apply(Load<T> load, List<T> page) {
+        if (load.generation != generation) {
+            return false;
+        }
+        loading = false;
+        if (page == null) {
+            return false;
+        }
+        firstPageLoaded = true;
+        boolean full = page.size() >= load.limit;
+
+        if (!load.backward) {
+            endReached = !full;
+            if (page.isEmpty()) return false;
+            if (pageSizes.size() >= maxPages) {
+                items.subList(0, pageSizes.removeFirst()).clear();
+                startReached = false;
+            }
+            items.addAll(page);
+            pageSizes.addLast(page.size());
+            return true;
+        }
+
+        startReached = !full;
+        if (page.isEmpty()) return false;
+        if (pageSizes.size() >= maxPages) {
+            items.subList(items.size() - pageSizes.removeLast(), items.size()).clear();
+            endReached = false;
+        }
+        items.addAll(0, page);
+        pageSizes.addFirst(page.size());
+        return true;
+    }
+}
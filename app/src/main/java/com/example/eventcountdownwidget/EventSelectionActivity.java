@@ -5,9 +5,14 @@ import android.content.ContentResolver;
 import android.content.ContentUris;
 import android.content.Intent;
 import android.content.SharedPreferences;
+import android.database.ContentObserver;
 import android.database.Cursor;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.OperationCanceledException;
 import android.provider.CalendarContract;
 import android.util.Log;
 import android.view.Menu;
@@ -24,34 +29,47 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.appbar.MaterialToolbar;
 import com.google.android.material.progressindicator.LinearProgressIndicator;
+import com.example.eventcountdownwidget.core.InstanceQuery;
 
 import androidx.appcompat.widget.SearchView;
 
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Date;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Locale;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
 
 public class EventSelectionActivity extends AppCompatActivity {
     private static final String TAG = "EventSelectionActivity";
-    private static final String PREFS_NAME = "com.example.eventcountdownwidget.WidgetPrefs";
     private static final String CALENDAR_PREFS = "calendar_preferences";
     private static final String SELECTED_CALENDARS = "selected_calendars";
-    private static final String PREF_PREFIX_KEY = "widget_";
-    private static final String EVENT_ID_KEY = "_event_id";
-    private static final String EVENT_TITLE_KEY = "_event_title";
-    private static final String EVENT_TIME_KEY = "_event_time"; // Start Time
-    private static final String EVENT_END_TIME_KEY = "_event_end_time"; // End Time
+    private static final int PAGE_SIZE = 50;
+    private static final int MAX_PAGES = 5;
+    private static final int PREFETCH_DISTANCE = 15; // Rows from either edge that trigger the next page
+    private static final long SEARCH_DEBOUNCE_MILLIS = 150;
+    private static final long WINDOW_GRANULARITY_MILLIS = TimeUnit.MINUTES.toMillis(1); // Resumes within it reuse the result
 
     private int mAppWidgetId = AppWidgetManager.INVALID_APPWIDGET_ID;
     private RecyclerView recyclerView;
     private LinearProgressIndicator progressIndicator;
-    private List<CalendarEvent> eventList = new ArrayList<>();
-    private List<CalendarEvent> fullEventList = new ArrayList<>(); // Unfiltered master list for search
+    // Keyset-paged events: the first screen loads fast and at most PAGE_SIZE * MAX_PAGES rows stay in memory
+    private final EventPageWindow<CalendarEvent> pages = new EventPageWindow<>(PAGE_SIZE, MAX_PAGES, PREFETCH_DISTANCE);
+    private final EventPageLoader loader = new EventPageLoader();
+    private List<String> queryCalendarIds = Collections.emptyList();
+    private long queryStartMillis;
+    private long queryEndMillis;
+    private String titleFilter; // Normalized search applied to the list; null when not searching
+    private String loadedKey; // Calendars, window and search behind the current result; null forces a reload
+    private ContentObserver calendarObserver;
+    // Search runs once typing pauses; a keystroke cancels the narrowing still running for the last one
+    private final Handler searchHandler = new Handler(Looper.getMainLooper());
+    private final Runnable applySearch = this::applySearch;
+    private String typedFilter;
+    private CancellationSignal pendingNarrowing;
     private EventAdapter eventAdapter; // Keep adapter instance
     private View emptyStateContainer;
     private TextView emptyViewTextView;
@@ -98,7 +116,7 @@ public class EventSelectionActivity extends AppCompatActivity {
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
 
         // Initialize adapter here, update data later
-        eventAdapter = new EventAdapter(eventList, event -> {
+        eventAdapter = new EventAdapter(event -> {
             // Save the event data (including end time now)
             saveEventData(event.getId(), event.getTitle(), event.getStartTime(), event.getEndTime());
             // Update the widget (this also schedules the first update)
@@ -108,9 +126,28 @@ public class EventSelectionActivity extends AppCompatActivity {
         });
 
         recyclerView.setAdapter(eventAdapter);
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView rv, int dx, int dy) {
+                loadPagesNearVisibleRange();
+            }
+        });
+
+        // Any change in the provider makes the next resume query again instead of reusing the result
+        calendarObserver = new ContentObserver(new Handler(Looper.getMainLooper())) {
+            @Override
+            public void onChange(boolean selfChange) {
+                loadedKey = null;
+            }
+        };
+        try {
+            getContentResolver().registerContentObserver(CalendarContract.CONTENT_URI, true, calendarObserver);
+        } catch (SecurityException e) {
+            Log.w(TAG, "Cannot observe the calendar provider; reloading on every resume.", e);
+            calendarObserver = null;
+        }
 
-        // Load events initially
-        loadCalendarEvents();
+        // Events are loaded in onResume, which always follows
     }
 
     @Override
@@ -137,24 +174,6 @@ public class EventSelectionActivity extends AppCompatActivity {
         return true;
     }
 
-    private void filterEvents(String query) {
-        if (query == null || query.trim().isEmpty()) {
-            eventList.clear();
-            eventList.addAll(fullEventList);
-        } else {
-            String lowerQuery = query.toLowerCase(Locale.getDefault());
-            List<CalendarEvent> filtered = new ArrayList<>();
-            for (CalendarEvent event : fullEventList) {
-                if (event.getTitle() != null && event.getTitle().toLowerCase(Locale.getDefault()).contains(lowerQuery)) {
-                    filtered.add(event);
-                }
-            }
-            eventList.clear();
-            eventList.addAll(filtered);
-        }
-        eventAdapter.updateList(eventList);
-    }
-
     @Override
     public boolean onOptionsItemSelected(@NonNull MenuItem item) {
         if (item.getItemId() == R.id.action_calendar_settings) {
@@ -169,15 +188,49 @@ public class EventSelectionActivity extends AppCompatActivity {
     @Override
     protected void onResume() {
         super.onResume();
-        // Always reload events when returning to this activity
-        Log.d(TAG, "Resuming EventSelectionActivity, reloading events from selected calendars.");
-        loadCalendarEvents();
+        // Reload events when returning to this activity, unless nothing they depend on changed
+        loadCalendarEvents(true);
     }
 
-    private void loadCalendarEvents() {
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        searchHandler.removeCallbacks(applySearch);
+        if (calendarObserver != null) {
+            getContentResolver().unregisterContentObserver(calendarObserver);
+        }
+        loader.shutdown();
+    }
+
+    /**
+     * Starts over from the first page.
+     *
+     * @param reuseUnchanged Keep the current result (or the load in flight) if the selected
+     *                       calendars, the time window and the search are the same and the
+     *                       provider reported no change since.
+     */
+    private void loadCalendarEvents(boolean reuseUnchanged) {
+        // Get selected calendars
+        SharedPreferences prefs = getSharedPreferences(CALENDAR_PREFS, MODE_PRIVATE);
+        Set<String> selectedCalendarIds = prefs.getStringSet(SELECTED_CALENDARS, new HashSet<>());
+
+        // Get time range: from now to one year from now. Fixed for this load so page keys stay valid.
+        long now = System.currentTimeMillis();
+        long startMillis = now - now % WINDOW_GRANULARITY_MILLIS;
+        String key = loadKey(selectedCalendarIds, startMillis, titleFilter);
+        if (reuseUnchanged && key.equals(loadedKey)) {
+            Log.d(TAG, "Selected calendars and time window unchanged; keeping the loaded events.");
+            return;
+        }
+        Log.d(TAG, "Loading events from selected calendars.");
+        loadedKey = key;
+
         progressIndicator.setVisibility(View.VISIBLE);
-        eventList.clear(); // Clear previous results before loading
-        eventAdapter.notifyDataSetChanged(); // Notify adapter about clearing
+        // Supersede every query and search still running
+        loader.cancelAll();
+        pendingNarrowing = null;
+        // The current rows stay up until the first page replaces them, so unchanged rows aren't rebound
+        EventPageWindow.Load<CalendarEvent> firstPage = pages.start();
 
         // Hide empty state until we determine if it's needed
         if (emptyStateContainer != null) {
@@ -187,13 +240,10 @@ public class EventSelectionActivity extends AppCompatActivity {
         // Show recycler view
         recyclerView.setVisibility(View.VISIBLE);
 
-        // Get selected calendars
-        SharedPreferences prefs = getSharedPreferences(CALENDAR_PREFS, MODE_PRIVATE);
-        Set<String> selectedCalendarIds = prefs.getStringSet(SELECTED_CALENDARS, new HashSet<>());
-
         // If no calendars are selected, show the empty state with action button
         if (selectedCalendarIds.isEmpty()) {
             progressIndicator.setVisibility(View.GONE);
+            eventAdapter.submitList(Collections.emptyList(), null);
 
             // Show an actionable empty state
             if (emptyStateContainer != null && emptyViewTextView != null && emptyStateActionButton != null) {
@@ -219,30 +269,172 @@ public class EventSelectionActivity extends AppCompatActivity {
             return;
         }
 
-        // Get time range: from now to one year from now
-        Calendar beginTime = Calendar.getInstance();
-        long startMillis = beginTime.getTimeInMillis();
+        queryStartMillis = startMillis;
         Calendar endTimeCal = Calendar.getInstance(); // Renamed to avoid conflict
+        endTimeCal.setTimeInMillis(startMillis);
         endTimeCal.add(Calendar.YEAR, 1); // Show events up to one year in the future
-        long endMillis = endTimeCal.getTimeInMillis();
+        queryEndMillis = endTimeCal.getTimeInMillis();
+        queryCalendarIds = new ArrayList<>(selectedCalendarIds);
+
+        requestPage(firstPage);
+    }
+
+    private static String loadKey(Collection<String> calendarIds, long startMillis, String filter) {
+        return new TreeSet<>(calendarIds) + "@" + startMillis + "/" + filter;
+    }
+
+    private void filterEvents(String query) {
+        typedFilter = EventTitleSearch.normalize(query);
+        cancelPendingNarrowing();
+        searchHandler.removeCallbacks(applySearch);
+        searchHandler.postDelayed(applySearch, SEARCH_DEBOUNCE_MILLIS);
+    }
+
+    private void applySearch() {
+        String filter = typedFilter;
+        if (filter == null ? titleFilter == null : filter.equals(titleFilter)) {
+            return;
+        }
+        if (EventTitleSearch.narrows(titleFilter, filter) && pages.isComplete()) {
+            // Every match is already loaded: narrow in memory instead of querying again
+            narrowLoadedEvents(filter);
+        } else {
+            // Let the provider search, so it covers the whole year and not just the loaded pages
+            titleFilter = filter;
+            loadCalendarEvents(false);
+        }
+    }
+
+    private void narrowLoadedEvents(String filter) {
+        final List<CalendarEvent> snapshot = new ArrayList<>(pages.items());
+        final String[] tokens = EventTitleSearch.tokens(filter);
+        pendingNarrowing = loader.load(
+                signal -> EventTitleSearch.match(snapshot, CalendarEvent::getSearchTitle, tokens, signal::isCanceled),
+                keep -> onNarrowed(filter, keep));
+    }
+
+    private void onNarrowed(String filter, boolean[] keep) {
+        pendingNarrowing = null;
+        if (keep == null || isDestroyed() || !pages.isComplete() || keep.length != pages.items().size()) {
+            return;
+        }
+        titleFilter = filter;
+        if (loadedKey != null) {
+            loadedKey = loadKey(queryCalendarIds, queryStartMillis, filter);
+        }
+        pages.retain(keep);
+        eventAdapter.submitList(new ArrayList<>(pages.items()), null);
+        if (pages.items().isEmpty()) {
+            showNoEventsFound();
+        }
+    }
+
+    private void cancelPendingNarrowing() {
+        if (pendingNarrowing != null) {
+            pendingNarrowing.cancel();
+            pendingNarrowing = null;
+        }
+    }
+
+    // Asks the page window whether the visible rows are close enough to an edge to need another page
+    private void loadPagesNearVisibleRange() {
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        if (layoutManager == null) {
+            return;
+        }
+        EventPageWindow.Load<CalendarEvent> load = pages.onVisibleRange(
+                layoutManager.findFirstVisibleItemPosition(), layoutManager.findLastVisibleItemPosition());
+        if (load != null) {
+            requestPage(load);
+        }
+    }
+
+    private void requestPage(EventPageWindow.Load<CalendarEvent> load) {
+        // Snapshot the query inputs so the background thread never reads fields the UI thread may reset
+        final List<String> calendarIds = queryCalendarIds;
+        final long startMillis = queryStartMillis;
+        final long endMillis = queryEndMillis;
+        final String filter = titleFilter;
+
+        loader.load(signal -> queryPage(load, calendarIds, startMillis, endMillis, filter, signal),
+                page -> onPageLoaded(load, page));
+    }
+
+    private void onPageLoaded(EventPageWindow.Load<CalendarEvent> load, List<CalendarEvent> page) {
+        if (isDestroyed()) {
+            return;
+        }
+        boolean wasFirstPage = !pages.isFirstPageLoaded();
+        if (page == null && wasFirstPage) {
+            // Nothing to retry from yet: show the failed first page as empty, and query again next time
+            page = Collections.emptyList();
+            loadedKey = null;
+        }
+        boolean changed = pages.apply(load, page);
+        boolean firstPageArrived = wasFirstPage && pages.isFirstPageLoaded();
+        if (changed || firstPageArrived) {
+            // Once the diff is applied, keep filling the screen if needed
+            eventAdapter.submitList(new ArrayList<>(pages.items()),
+                    () -> recyclerView.post(this::loadPagesNearVisibleRange));
+        }
+        if (!firstPageArrived) {
+            return;
+        }
 
+        progressIndicator.setVisibility(View.GONE);
+        if (pages.items().isEmpty()) {
+            showNoEventsFound();
+        } else {
+            // Ensure recycler view is visible if it was hidden
+            recyclerView.setVisibility(View.VISIBLE);
+            if (emptyStateContainer != null) {
+                emptyStateContainer.setVisibility(View.GONE);
+            }
+        }
+    }
+
+    private void showNoEventsFound() {
+        // Show empty state for no events found
+        if (emptyStateContainer != null && emptyViewTextView != null && emptyStateActionButton != null) {
+            emptyStateContainer.setVisibility(View.VISIBLE);
+            emptyViewTextView.setText(R.string.no_events_found);
+            emptyStateActionButton.setText(R.string.check_calendar_settings);
+            emptyStateActionButton.setVisibility(View.VISIBLE);
+            emptyStateActionButton.setOnClickListener(v -> {
+                Intent intent = new Intent(EventSelectionActivity.this, CalendarSettingsActivity.class);
+                startActivity(intent);
+            });
+            recyclerView.setVisibility(View.GONE);
+        } else {
+            Toast.makeText(EventSelectionActivity.this,
+                    R.string.no_events_found, Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    /**
+     * Runs one keyset page query: instances ordered by (BEGIN, EVENT_ID) strictly after the load's
+     * anchor, or strictly before it for a backward load. Runs on the {@link #loader} thread.
+     *
+     * @return The page in ascending order, or null if the query failed.
+     */
+    private List<CalendarEvent> queryPage(EventPageWindow.Load<CalendarEvent> load, List<String> calendarIds,
+                                          long startMillis, long endMillis, String filter,
+                                          CancellationSignal signal) {
         // Projection includes start and end times
         final String[] INSTANCE_PROJECTION = new String[] {
                 CalendarContract.Instances.EVENT_ID, // 0
                 CalendarContract.Instances.TITLE, // 1
-                CalendarContract.Instances.DESCRIPTION, // 2
-                CalendarContract.Instances.BEGIN, // 3 Start Time
-                CalendarContract.Instances.END, // 4 End Time
-                CalendarContract.Instances.CALENDAR_ID // 5
+                CalendarContract.Instances.BEGIN, // 2 Start Time
+                CalendarContract.Instances.END, // 3 End Time
+                CalendarContract.Instances._ID // 4 Instance row, unique per occurrence
         };
 
         // Column indices based on projection
         final int PROJECTION_EVENT_ID_INDEX = 0;
         final int PROJECTION_TITLE_INDEX = 1;
-        final int PROJECTION_DESCRIPTION_INDEX = 2;
-        final int PROJECTION_BEGIN_INDEX = 3;
-        final int PROJECTION_END_INDEX = 4;
-        final int PROJECTION_CALENDAR_ID_INDEX = 5;
+        final int PROJECTION_BEGIN_INDEX = 2;
+        final int PROJECTION_END_INDEX = 3;
+        final int PROJECTION_INSTANCE_ID_INDEX = 4;
 
         // Build the URI with the time range parameters
         Uri.Builder builder = CalendarContract.Instances.CONTENT_URI.buildUpon();
@@ -251,132 +443,64 @@ public class EventSelectionActivity extends AppCompatActivity {
         ContentUris.appendId(builder, endMillis);
         Uri uri = builder.build();
 
-        // Build the selection criteria for calendars
-        StringBuilder selectionBuilder = new StringBuilder();
-        List<String> selectionArgsList = new ArrayList<>(); // Use List
-
-        // Append calendar ID selection
-        selectionBuilder.append(CalendarContract.Instances.CALENDAR_ID).append(" IN (");
-        for (int i = 0; i < selectedCalendarIds.size(); i++) {
-            selectionBuilder.append("?");
-            if (i < selectedCalendarIds.size() - 1) {
-                selectionBuilder.append(",");
-            }
-        }
-        selectionBuilder.append(")");
-        selectionArgsList.addAll(selectedCalendarIds);
-
-        // Add selection to only show future events or events currently happening
-        selectionBuilder.append(" AND ").append(CalendarContract.Instances.END).append(" >= ?");
-        selectionArgsList.add(String.valueOf(startMillis)); // Only events ending now or later
-
-        String selection = selectionBuilder.toString();
-        String[] selectionArgs = selectionArgsList.toArray(new String[0]);
-
-        // Sort by date, soonest first. Cap results to avoid loading thousands of events into memory.
-        String sortOrder = CalendarContract.Instances.BEGIN + " ASC LIMIT 200";
-
-        // Execute the query on a background thread
-        new Thread(() -> {
-            ContentResolver contentResolver = getContentResolver();
-            Cursor cursor = null;
-            List<CalendarEvent> loadedEvents = new ArrayList<>(); // Load into temporary list
-
-            try {
-                cursor = contentResolver.query(
-                        uri,
-                        INSTANCE_PROJECTION,
-                        selection,
-                        selectionArgs,
-                        sortOrder
-                );
-
-                if (cursor != null && cursor.getCount() > 0) {
-                    Log.d(TAG, "Calendar events found: " + cursor.getCount());
-                    // Hoist formatter and Date outside the loop — avoids N allocations
-                    SimpleDateFormat dateFormat = new SimpleDateFormat("EEE, MMM d, yyyy HH:mm", Locale.getDefault());
-                    Date reusableDate = new Date();
-                    while (cursor.moveToNext()) {
-                        long eventId = cursor.getLong(PROJECTION_EVENT_ID_INDEX);
-                        String title = cursor.getString(PROJECTION_TITLE_INDEX);
-                        String description = cursor.getString(PROJECTION_DESCRIPTION_INDEX);
-                        long startTime = cursor.getLong(PROJECTION_BEGIN_INDEX);
-                        long eventEndTime = cursor.getLong(PROJECTION_END_INDEX); // Get end time
-
-                        // Basic check for valid title
-                        if (title == null || title.trim().isEmpty()) {
-                            title = "(No Title)";
-                        }
-
-                        // Format date for display — reuse formatter and Date object
-                        reusableDate.setTime(startTime);
-                        String formattedDate = dateFormat.format(reusableDate);
-
-                        loadedEvents.add(new CalendarEvent(eventId, title, description, startTime, eventEndTime, formattedDate)); // Add end time
+        // Selected calendars, ending now or later, every filter token in the title (same rule as
+        // EventTitleSearch.matches), continuing after (or before) the anchor's (BEGIN, EVENT_ID);
+        // sorted by that key, which EVENT_ID makes unique. Backward pages are read in reverse.
+        CalendarEvent anchor = load.anchor;
+        InstanceQuery query = InstanceQuery.page(CalendarContract.Instances.CALENDAR_ID,
+                CalendarContract.Instances.END, CalendarContract.Instances.TITLE,
+                CalendarContract.Instances.BEGIN, CalendarContract.Instances.EVENT_ID, calendarIds, startMillis,
+                EventTitleSearch.tokens(filter), anchor != null,
+                anchor != null ? anchor.getStartTime() : 0L, anchor != null ? anchor.getId() : 0L,
+                load.backward, load.limit);
+
+        ContentResolver contentResolver = getContentResolver();
+        List<CalendarEvent> page = new ArrayList<>(load.limit);
+        try (Cursor cursor = contentResolver.query(uri, INSTANCE_PROJECTION, query.selection, query.selectionArgs, query.sortOrder, signal)) {
+            if (cursor != null) {
+                while (cursor.moveToNext()) {
+                    long eventId = cursor.getLong(PROJECTION_EVENT_ID_INDEX);
+                    String title = cursor.getString(PROJECTION_TITLE_INDEX);
+                    long startTime = cursor.getLong(PROJECTION_BEGIN_INDEX);
+                    long eventEndTime = cursor.getLong(PROJECTION_END_INDEX); // Get end time
+                    long instanceId = cursor.getLong(PROJECTION_INSTANCE_ID_INDEX);
+
+                    // Normalized here, off the main thread, so searching never has to
+                    String searchTitle = EventTitleSearch.normalize(title);
+
+                    // Basic check for valid title
+                    if (title == null || title.trim().isEmpty()) {
+                        title = "(No Title)";
                     }
-                } else {
-                    Log.d(TAG, "No upcoming events found in selected calendars within the next year.");
-                }
-            } catch (SecurityException se) {
-                Log.e(TAG, "Permission error loading calendar events", se);
-                // Post error message to UI thread
-                runOnUiThread(() -> {
-                    progressIndicator.setVisibility(View.GONE);
-                    Toast.makeText(EventSelectionActivity.this, "Calendar permission denied.", Toast.LENGTH_LONG).show();
-                });
-                return; // Stop background thread
-            } catch (Exception e) {
-                Log.e(TAG, "Error loading calendar events", e);
-            } finally {
-                if (cursor != null) {
-                    cursor.close();
+
+                    page.add(new CalendarEvent(instanceId, eventId, title, startTime, eventEndTime, searchTitle));
                 }
             }
-
-            // Update UI on main thread
+            Log.d(TAG, "Loaded page of " + page.size() + " events" + (load.backward ? " (backward)" : ""));
+        } catch (SecurityException se) {
+            Log.e(TAG, "Permission error loading calendar events", se);
+            // Post error message to UI thread
             runOnUiThread(() -> {
                 progressIndicator.setVisibility(View.GONE);
-                fullEventList.clear(); // Update the master list
-                fullEventList.addAll(loadedEvents);
-                eventList.clear(); // Clear the displayed list
-                eventList.addAll(loadedEvents); // Add newly loaded events
-                eventAdapter.notifyDataSetChanged(); // Notify adapter of data change
-
-                if (eventList.isEmpty()) {
-                    // Show empty state for no events found
-                    if (emptyStateContainer != null && emptyViewTextView != null && emptyStateActionButton != null) {
-                        emptyStateContainer.setVisibility(View.VISIBLE);
-                        emptyViewTextView.setText(R.string.no_events_found);
-                        emptyStateActionButton.setText(R.string.check_calendar_settings);
-                        emptyStateActionButton.setVisibility(View.VISIBLE);
-                        emptyStateActionButton.setOnClickListener(v -> {
-                            Intent intent = new Intent(EventSelectionActivity.this, CalendarSettingsActivity.class);
-                            startActivity(intent);
-                        });
-                        recyclerView.setVisibility(View.GONE);
-                    } else {
-                        Toast.makeText(EventSelectionActivity.this,
-                                R.string.no_events_found, Toast.LENGTH_SHORT).show();
-                    }
-                } else {
-                    // Ensure recycler view is visible if it was hidden
-                    recyclerView.setVisibility(View.VISIBLE);
-                    if (emptyStateContainer != null) {
-                        emptyStateContainer.setVisibility(View.GONE);
-                    }
-                }
+                Toast.makeText(EventSelectionActivity.this, "Calendar permission denied.", Toast.LENGTH_LONG).show();
             });
-        }).start();
+            return null;
+        } catch (OperationCanceledException e) {
+            return null; // Superseded by a newer load; the result would be dropped anyway
+        } catch (Exception e) {
+            Log.e(TAG, "Error loading calendar events", e);
+            return null;
+        }
+
+        if (load.backward) {
+            Collections.reverse(page);
+        }
+        return page;
     }
 
     // Updated saveEventData to include endTime
     private void saveEventData(long eventId, String title, long startTime, long endTime) {
-        SharedPreferences.Editor prefs = getSharedPreferences(PREFS_NAME, 0).edit();
-        prefs.putLong(PREF_PREFIX_KEY + mAppWidgetId + EVENT_ID_KEY, eventId);
-        prefs.putString(PREF_PREFIX_KEY + mAppWidgetId + EVENT_TITLE_KEY, title);
-        prefs.putLong(PREF_PREFIX_KEY + mAppWidgetId + EVENT_TIME_KEY, startTime);
-        prefs.putLong(PREF_PREFIX_KEY + mAppWidgetId + EVENT_END_TIME_KEY, endTime); // Save end time
-        prefs.apply();
+        WidgetConfigCache.get(this).saveCountdownEvent(mAppWidgetId, eventId, title, startTime, endTime);
         Log.d(TAG, "Saved event data for widget " + mAppWidgetId + ": ID=" + eventId + ", Start=" + startTime + ", End=" + endTime);
     }
 
@@ -394,27 +518,27 @@ public class EventSelectionActivity extends AppCompatActivity {
 
     // Calendar event model class
     public static class CalendarEvent {
+        private long instanceId; // Stable adapter ID; recurring events share their event ID
         private long id;
         private String title;
-        private String description;
         private long startTime;
         private long endTime; // Added end time support
-        private String formattedDate;
+        private String searchTitle; // Normalized by EventTitleSearch; null for untitled events
 
-        public CalendarEvent(long id, String title, String description, long startTime, long endTime, String formattedDate) {
+        public CalendarEvent(long instanceId, long id, String title, long startTime, long endTime, String searchTitle) {
+            this.instanceId = instanceId;
             this.id = id;
             this.title = title;
-            this.description = description;
             this.startTime = startTime;
             this.endTime = endTime;
-            this.formattedDate = formattedDate;
+            this.searchTitle = searchTitle;
         }
 
+        public long getInstanceId() { return instanceId; }
         public long getId() { return id; }
         public String getTitle() { return title; }
-        public String getDescription() { return description; }
         public long getStartTime() { return startTime; }
         public long getEndTime() { return endTime; }
-        public String getFormattedDate() { return formattedDate; }
+        public String getSearchTitle() { return searchTitle; }
     }
 }
@@ -0,0 +1,81 @@
+package com.example.eventcountdownwidget;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+/**
+ * Title matching for the event picker's search. Titles are normalized once when their page is
+ * loaded; a query matches when every one of its whitespace-separated tokens occurs in the title,
+ * which is also what the provider-side {@code LIKE} clauses select, so narrowing loaded rows in
+ * memory and re-querying give the same answer.
+ * Contains no Android dependencies so it can be exercised from plain JVM unit tests.
+ */
+final class EventTitleSearch {
+
+    private static final String[] NO_TOKENS = new String[0];
+    private static final int CANCEL_CHECK_INTERVAL = 256; // Rows between cancellation checks
+
+    private EventTitleSearch() {}
+
+    /** Lowercased, trimmed, with runs of whitespace collapsed to one space; null for blank text. */
+    static String normalize(String text) {
+        if (text == null) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder(text.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = sb.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                sb.append(' ');
+                pendingSpace = false;
+            }
+            sb.append(c);
+        }
+        return sb.length() == 0 ? null : sb.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /** The tokens of a normalized query. */
+    static String[] tokens(String normalizedQuery) {
+        return normalizedQuery == null ? NO_TOKENS : normalizedQuery.split(" ");
+    }
+
+    /**
+     * Whether every row matching {@code next} also matches {@code previous}, so the previous
+     * result can be narrowed instead of searched again. True when text was only added.
+     */
+    static boolean narrows(String previous, String next) {
+        return next != null && (previous == null || next.startsWith(previous));
+    }
+
+    static boolean matches(String normalizedTitle, String[] tokens) {
+        for (String token : tokens) {
+            if (normalizedTitle == null || !normalizedTitle.contains(token)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Matches each item's normalized title against the tokens. Meant for a background thread:
+     * returns null as soon as {@code cancelled} says so, i.e. when a newer keystroke superseded it.
+     */
+    static <T> boolean[] match(List<T> items, Function<T, String> normalizedTitle, String[] tokens,
+                               BooleanSupplier cancelled) {
+        boolean[] keep = new boolean[items.size()];
+        for (int i = 0; i < keep.length; i++) {
+            if (i % CANCEL_CHECK_INTERVAL == 0 && cancelled.getAsBoolean()) {
+                return null;
+            }
+            keep[i] = matches(normalizedTitle.apply(items.get(i)), tokens);
+        }
+        return keep;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.eventcountdownwidget;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.util.Log;
+
+import com.example.eventcountdownwidget.core.UpdateScheduler;
+
+import java.util.Date;
+
+/**
+ * Serves every deadline with one exact alarm, armed for the earliest of them.
+ */
+final class ExactAlarmBackend implements UpdateBackend {
+
+    private static final String TAG = "ExactAlarmBackend";
+    private static final int ALARM_REQUEST_CODE = 0;
+
+    @Override
+    public void arm(Context context, long nextDeadline, long nextExactDeadline) {
+        armAlarm(context, nextDeadline);
+    }
+
+    /**
+     * Keeps exactly one update alarm armed for {@code triggerAtMillis}, or none if it is
+     * {@link UpdateScheduler#NO_DEADLINE}.
+     */
+    static void armAlarm(Context context, long triggerAtMillis) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (alarmManager == null) {
+            Log.e(TAG, "Cannot get AlarmManager service.");
+            return;
+        }
+
+        if (triggerAtMillis == UpdateScheduler.NO_DEADLINE) {
+            PendingIntent existing = createUpdatePendingIntent(context, PendingIntent.FLAG_NO_CREATE);
+            if (existing != null) {
+                alarmManager.cancel(existing);
+                existing.cancel();
+                Log.d(TAG, "Nothing needs an exact update; cancelled the update alarm.");
+            }
+            return;
+        }
+
+        Log.d(TAG, "Arming update alarm for " + new Date(triggerAtMillis));
+        PendingIntent pendingIntent = createUpdatePendingIntent(context, PendingIntent.FLAG_UPDATE_CURRENT);
+        try {
+            // Use setExactAndAllowWhileIdle for better reliability across Doze modes
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+                if (alarmManager.canScheduleExactAlarms()) {
+                    alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerAtMillis, pendingIntent);
+                } else {
+                    alarmManager.setAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerAtMillis, pendingIntent);
+                    Log.w(TAG, "Cannot schedule exact alarms. Scheduled inexact widget update.");
+                }
+            } else {
+                alarmManager.setExact(AlarmManager.RTC_WAKEUP, triggerAtMillis, pendingIntent);
+            }
+        } catch (SecurityException se) {
+            Log.e(TAG, "SecurityException scheduling update alarm. Check exact alarm permissions.", se);
+            alarmManager.setAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerAtMillis, pendingIntent);
+        } catch (Exception e) {
+            Log.e(TAG, "Error scheduling update alarm", e);
+        }
+    }
+
+    private static PendingIntent createUpdatePendingIntent(Context context, int flags) {
+        Intent intent = new Intent(context, WidgetUpdateReceiver.class);
+        intent.setAction(WidgetUpdateReceiver.ACTION_UPDATE_WIDGET);
+
+        int pendingIntentFlags = flags | PendingIntent.FLAG_IMMUTABLE;
+
+        return PendingIntent.getBroadcast(
+                context,
+                ALARM_REQUEST_CODE, // One shared alarm for all widgets
+                intent,
+                pendingIntentFlags
+        );
+    }
+}
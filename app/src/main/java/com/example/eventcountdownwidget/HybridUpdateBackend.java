@@ -0,0 +1,100 @@
+package com.example.eventcountdownwidget;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+
+import com.example.eventcountdownwidget.core.UpdateScheduler;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps exact alarms for the deadlines that must be on time (event starts and ends, the final
+ * "Nm left" hour of list rows) and hands everything before them to one deferrable WorkManager job.
+ * The OS batches that job with other apps' work and may hold it for a while in Doze, which only
+ * means a day or hour counter moves a little late; the exact alarm behind it is never delayed.
+ * While that job runs, the job after it is only enqueued once its batch is done, chained behind it.
+ */
+final class HybridUpdateBackend implements UpdateBackend {
+
+    private static final String TAG = "HybridUpdateBackend";
+    static final String WORK_NAME = "com.example.eventcountdownwidget.DeferredWidgetUpdate";
+
+    // Marks a backend that hasn't armed anything yet in this process: the work a previous process
+    // enqueued may still be pending, and only WorkManager knows
+    private static final long UNKNOWN = Long.MIN_VALUE;
+
+    private long mEnqueuedAt = UNKNOWN;
+    // While WidgetUpdateWorker runs: the deadline its successor is held back for
+    private boolean mWorkRunning;
+    private long mHeldDeadline = UpdateScheduler.NO_DEADLINE;
+
+    @Override
+    public synchronized void arm(Context context, long nextDeadline, long nextExactDeadline) {
+        WorkManager workManager;
+        try {
+            workManager = WorkManager.getInstance(context);
+        } catch (IllegalStateException e) {
+            Log.e(TAG, "WorkManager not initialized; serving every deadline with the exact alarm.", e);
+            ExactAlarmBackend.armAlarm(context, nextDeadline);
+            return;
+        }
+
+        ExactAlarmBackend.armAlarm(context, nextExactDeadline);
+        if (mWorkRunning) {
+            // Replacing the unique work now would cancel the worker that brought us here
+            mHeldDeadline = nextDeadline < nextExactDeadline ? nextDeadline : UpdateScheduler.NO_DEADLINE;
+            return;
+        }
+        if (nextDeadline >= nextExactDeadline) {
+            // Nothing to defer: the exact alarm (if any) is the first wakeup needed anyway. Also
+            // cancels work left over from before a process restart, which would wake us for nothing
+            if (mEnqueuedAt != UpdateScheduler.NO_DEADLINE) {
+                workManager.cancelUniqueWork(WORK_NAME);
+                mEnqueuedAt = UpdateScheduler.NO_DEADLINE;
+            }
+            return;
+        }
+        if (nextDeadline == mEnqueuedAt) {
+            return;
+        }
+        enqueue(workManager, nextDeadline, ExistingWorkPolicy.REPLACE);
+    }
+
+    @Override
+    public synchronized void onWorkStarted() {
+        mWorkRunning = true;
+        mHeldDeadline = UpdateScheduler.NO_DEADLINE;
+    }
+
+    @Override
+    public synchronized void onWorkFinished(Context context) {
+        mWorkRunning = false;
+        mEnqueuedAt = UpdateScheduler.NO_DEADLINE; // The running work is done with
+        if (mHeldDeadline == UpdateScheduler.NO_DEADLINE) {
+            return;
+        }
+        try {
+            // Still running until we return: APPEND chains the successor behind it instead of cancelling it
+            enqueue(WorkManager.getInstance(context), mHeldDeadline, ExistingWorkPolicy.APPEND_OR_REPLACE);
+        } catch (IllegalStateException e) {
+            Log.e(TAG, "WorkManager not initialized; serving the held deadline with the exact alarm.", e);
+            ExactAlarmBackend.armAlarm(context, mHeldDeadline);
+        }
+        mHeldDeadline = UpdateScheduler.NO_DEADLINE;
+    }
+
+    private void enqueue(WorkManager workManager, long deadline, ExistingWorkPolicy policy) {
+        long delay = Math.max(0L, deadline - System.currentTimeMillis());
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(WidgetUpdateWorker.class)
+                .setInitialDelay(delay, TimeUnit.MILLISECONDS)
+                .build();
+        workManager.enqueueUniqueWork(WORK_NAME, policy, request);
+        mEnqueuedAt = deadline;
+        Log.d(TAG, "Deferred update enqueued for " + new Date(deadline));
+    }
+}
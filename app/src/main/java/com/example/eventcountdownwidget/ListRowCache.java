@@ -0,0 +1,105 @@
+package com.example.eventcountdownwidget;
+
+import java.util.Arrays;
+
+/**
+ * The rows a list widget's RemoteViewsFactory last built, per position, keyed by the instance they
+ * show (event ID and begin time), its end, all-day flag and title, and the subtitle they were built
+ * with. Scrolling back
+ * to a row, or a refresh that leaves its text alone, hands back the same row instead of building
+ * a new one. Each entry also remembers until when its subtitle stays current, so a hit doesn't
+ * even need the subtitle to be formatted again.
+ * Contains no Android dependencies so it can be exercised from plain JVM unit tests.
+ */
+final class ListRowCache<V> {
+
+    private static final class Entry<V> {
+        final long id;
+        final long startTime;
+        final long endTime;
+        final boolean allDay;
+        final String title;
+        final String subtitle;
+        final long validUntil;
+        final V row;
+
+        Entry(long id, long startTime, long endTime, boolean allDay, String title, String subtitle,
+              long validUntil, V row) {
+            this.id = id;
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.allDay = allDay;
+            this.title = title;
+            this.subtitle = subtitle;
+            this.validUntil = validUntil;
+            this.row = row;
+        }
+
+        // The end and all-day flag feed the subtitle and its validUntil, so an edit to either must miss
+        boolean shows(long id, long startTime, long endTime, boolean allDay, String title) {
+            return this.id == id && this.startTime == startTime && this.endTime == endTime && this.allDay == allDay
+                    && (this.title == null ? title == null : this.title.equals(title));
+        }
+    }
+
+    private Entry<V>[] entries = newEntries(0);
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <V> Entry<V>[] newEntries(int size) {
+        return (Entry<V>[]) new Entry[size];
+    }
+
+    /**
+     * Adopts a new data set of {@code size} rows. Entries are kept by position, since a refresh
+     * mostly shows the same instances in the same order; those that no longer match simply miss.
+     */
+    synchronized void resize(int size) {
+        if (size != entries.length) {
+            entries = Arrays.copyOf(entries, size);
+        }
+    }
+
+    /** Drops every row, e.g. when their colors changed. */
+    synchronized void clear() {
+        Arrays.fill(entries, null);
+    }
+
+    /**
+     * @return The row at {@code position} if it shows this instance and its subtitle is still
+     *         current at {@code nowMillis}, otherwise null.
+     */
+    synchronized V getCurrent(int position, long id, long startTime, long endTime, boolean allDay, String title,
+                              long nowMillis) {
+        Entry<V> entry = entryAt(position);
+        return entry != null && entry.shows(id, startTime, endTime, allDay, title) && nowMillis < entry.validUntil
+                ? entry.row : null;
+    }
+
+    /**
+     * @return The row at {@code position} if it shows this instance with exactly {@code subtitle},
+     *         otherwise null. Used once the subtitle had to be formatted again, to keep rows whose
+     *         text came out the same.
+     */
+    synchronized V get(int position, long id, long startTime, long endTime, boolean allDay, String title,
+                       String subtitle) {
+        Entry<V> entry = entryAt(position);
+        return entry != null && entry.shows(id, startTime, endTime, allDay, title) && entry.subtitle.equals(subtitle)
+                ? entry.row : null;
+    }
+
+    /**
+     * Remembers {@code row} for {@code position}.
+     *
+     * @param validUntil When {@code subtitle} next changes.
+     */
+    synchronized void put(int position, long id, long startTime, long endTime, boolean allDay, String title,
+                          String subtitle, long validUntil, V row) {
+        if (position >= 0 && position < entries.length) {
+            entries[position] = new Entry<>(id, startTime, endTime, allDay, title, subtitle, validUntil, row);
+        }
+    }
+
+    private Entry<V> entryAt(int position) {
+        return position >= 0 && position < entries.length ? entries[position] : null;
+    }
+}
@@ -3,7 +3,6 @@ package com.example.eventcountdownwidget;
 import android.app.Activity;
 import android.appwidget.AppWidgetManager;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.graphics.Color;
 import android.os.Build;
 import android.os.Bundle;
@@ -29,12 +28,6 @@ import java.util.Set;
  * Allows setting maximum events to display, theme, and color.
  */
 public class ListWidgetConfigActivity extends Activity {
-    private static final String PREFS_NAME = "com.example.eventcountdownwidget.WidgetPrefs";
-    private static final String PREF_PREFIX_KEY = "list_widget_";
-    private static final String THEME_STYLE_KEY = "_theme_style";
-    private static final String WIDGET_COLOR_KEY = "_widget_color";
-    private static final String MAX_EVENTS_KEY = "_max_events";
-
     // Static random instance for better randomization
     private static final Random random = new Random();
     private static final Set<Integer> recentlyUsedColors = new HashSet<>();
@@ -161,10 +154,10 @@ public class ListWidgetConfigActivity extends Activity {
     }
 
     private void loadSavedPreferences() {
-        SharedPreferences prefs = getSharedPreferences(PREFS_NAME, 0);
-        int savedThemeStyle = prefs.getInt(PREF_PREFIX_KEY + mAppWidgetId + THEME_STYLE_KEY, 0);
-        int savedColor = prefs.getInt(PREF_PREFIX_KEY + mAppWidgetId + WIDGET_COLOR_KEY, -1);
-        int savedMaxEvents = prefs.getInt(PREF_PREFIX_KEY + mAppWidgetId + MAX_EVENTS_KEY, 10);
+        SimpleEventListWidgetProvider.WidgetConfig config = WidgetConfigCache.get(this).getListConfig(mAppWidgetId);
+        int savedThemeStyle = config.getThemeStyle();
+        int savedColor = config.getWidgetColor();
+        int savedMaxEvents = config.getMaxEvents();
 
         // Set UI to saved values
         if (themeStyleRadioGroup != null) {
@@ -258,16 +251,10 @@ public class ListWidgetConfigActivity extends Activity {
         int themeStyleOption = getSelectedThemeStyle();
         int maxEvents = maxEventsSeekBar.getProgress() + 5; // Add 5 to get actual value (minimum of 5)
 
-        SharedPreferences.Editor prefs = getSharedPreferences(PREFS_NAME, 0).edit();
-        prefs.putInt(PREF_PREFIX_KEY + mAppWidgetId + THEME_STYLE_KEY, themeStyleOption);
-        prefs.putInt(PREF_PREFIX_KEY + mAppWidgetId + MAX_EVENTS_KEY, maxEvents);
-
-        // Save the selected color
-        if (customColor != -1) {
-            prefs.putInt(PREF_PREFIX_KEY + mAppWidgetId + WIDGET_COLOR_KEY, customColor);
-        }
-
-        prefs.apply();
+        WidgetConfigCache cache = WidgetConfigCache.get(this);
+        // Keep the previously saved color unless a new one was picked
+        int color = customColor != -1 ? customColor : cache.getListConfig(mAppWidgetId).getWidgetColor();
+        cache.saveListConfig(mAppWidgetId, themeStyleOption, color, maxEvents);
     }
 
     private void updateWidget() {
@@ -0,0 +1,53 @@
+package com.example.eventcountdownwidget;
+
+import android.appwidget.AppWidgetManager;
+import android.content.ComponentName;
+import android.content.Context;
+import android.util.Log;
+
+import java.util.List;
+
+/**
+ * Pushes fresh rows to the list widgets after the calendar data or the calendar selection changed.
+ * Loads each widget's rows through the shared {@link EventInstanceCache}, so only calendars without
+ * a fresh partition are queried, and sends one batched {@code notifyAppWidgetViewDataChanged}
+ * for the widgets whose visible rows differ from what they last rendered.
+ */
+final class ListWidgetRefresher {
+
+    private static final String TAG = "ListWidgetRefresher";
+
+    private ListWidgetRefresher() {}
+
+    /**
+     * Blocks on the provider query, so call it off the main thread.
+     */
+    static void notifyChangedListWidgets(Context context) {
+        AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
+        int[] listIds = appWidgetManager.getAppWidgetIds(new ComponentName(context, SimpleEventListWidgetProvider.class));
+        if (listIds == null || listIds.length == 0) {
+            return;
+        }
+
+        ListWindowTracker tracker = ListWindowTracker.getInstance();
+        int[] changedIds = new int[listIds.length];
+        int changedCount = 0;
+        for (int appWidgetId : listIds) {
+            int maxEvents = WidgetConfigCache.get(context).getListConfig(appWidgetId).getMaxEvents();
+            // Every widget after the first is served from the query the first one made
+            List<SimpleEventListWidgetProvider.CalendarEventItem> events =
+                    SimpleEventListWidgetProvider.CalendarRepository.loadEvents(context, maxEvents);
+            if (tracker.hasChanged(appWidgetId, ListWindowTracker.fingerprint(events))) {
+                changedIds[changedCount++] = appWidgetId;
+            }
+        }
+        Log.d(TAG, changedCount + " of " + listIds.length + " list widgets changed.");
+
+        if (changedCount > 0) {
+            int[] ids = new int[changedCount];
+            System.arraycopy(changedIds, 0, ids, 0, changedCount);
+            appWidgetManager.notifyAppWidgetViewDataChanged(ids, R.id.event_list_view);
+            WidgetMetrics.getInstance().add(WidgetMetrics.Counter.LIST_DATA_CHANGED, changedCount);
+        }
+    }
+}
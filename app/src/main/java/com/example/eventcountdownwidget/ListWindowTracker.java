@@ -0,0 +1,66 @@
+package com.example.eventcountdownwidget;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers a fingerprint of the rows each list widget last rendered, so a calendar change
+ * notification only refreshes the widgets whose visible window is actually different.
+ * Contains no Android dependencies so it can be exercised from plain JVM unit tests.
+ */
+final class ListWindowTracker {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final ListWindowTracker INSTANCE = new ListWindowTracker();
+
+    private final Map<Integer, Long> renderedFingerprints = new HashMap<>();
+
+    static ListWindowTracker getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Hashes everything a row displays or is keyed by: event ID, start, end, all-day flag and title.
+     * Order matters, since rows are shown in list order.
+     */
+    static long fingerprint(List<SimpleEventListWidgetProvider.CalendarEventItem> events) {
+        long hash = mix(FNV_OFFSET_BASIS, events.size());
+        for (SimpleEventListWidgetProvider.CalendarEventItem event : events) {
+            hash = mix(hash, event.getId());
+            hash = mix(hash, event.getStartTime());
+            hash = mix(hash, event.getEndTime());
+            hash = mix(hash, event.isAllDay() ? 1 : 0);
+            hash = mix(hash, event.getTitle() != null ? event.getTitle().hashCode() : 0);
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, long value) {
+        for (int shift = 0; shift < 64; shift += 8) {
+            hash ^= (value >>> shift) & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /** Records the rows a widget's RemoteViewsFactory just loaded. */
+    synchronized void recordRendered(int appWidgetId, long fingerprint) {
+        renderedFingerprints.put(appWidgetId, fingerprint);
+    }
+
+    /**
+     * @return Whether {@code fingerprint} differs from what the widget last rendered. Widgets that
+     *         haven't rendered in this process count as changed.
+     */
+    synchronized boolean hasChanged(int appWidgetId, long fingerprint) {
+        Long rendered = renderedFingerprints.get(appWidgetId);
+        return rendered == null || rendered != fingerprint;
+    }
+
+    synchronized void forget(int appWidgetId) {
+        renderedFingerprints.remove(appWidgetId);
+    }
+}
@@ -17,6 +17,7 @@ import androidx.core.content.ContextCompat;
 
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.card.MaterialCardView;
+import com.google.android.material.switchmaterial.SwitchMaterial;
 
 public class MainActivity extends AppCompatActivity {
     private static final int CALENDAR_PERMISSION_REQUEST_CODE = 1001;
@@ -26,6 +27,8 @@ public class MainActivity extends AppCompatActivity {
     private MaterialButton grantPermissionButton;
     private TextView countdownWidgetsCount;
     private TextView listWidgetsCount;
+    private TextView diagnosticsText;
+    private SwitchMaterial traceSwitch;
     private MaterialButton manageCalendarsButton;
 
     @Override
@@ -39,6 +42,8 @@ public class MainActivity extends AppCompatActivity {
         grantPermissionButton = findViewById(R.id.grant_permission_button);
         countdownWidgetsCount = findViewById(R.id.countdown_widgets_count);
         listWidgetsCount = findViewById(R.id.list_widgets_count);
+        diagnosticsText = findViewById(R.id.diagnostics_text);
+        traceSwitch = findViewById(R.id.trace_switch);
         manageCalendarsButton = findViewById(R.id.manage_calendars_button);
 
         // Set up interactions
@@ -47,6 +52,10 @@ public class MainActivity extends AppCompatActivity {
             Intent intent = new Intent(MainActivity.this, CalendarSettingsActivity.class);
             startActivity(intent);
         });
+        findViewById(R.id.export_diagnostics_button).setOnClickListener(v -> exportDiagnostics());
+        traceSwitch.setChecked(WidgetTrace.isEnabled(this));
+        traceSwitch.setOnCheckedChangeListener((button, checked) -> WidgetTrace.setEnabled(this, checked));
+        findViewById(R.id.export_trace_button).setOnClickListener(v -> exportTrace());
     }
 
     @Override
@@ -63,6 +72,8 @@ public class MainActivity extends AppCompatActivity {
         if (hasPermission) {
             permissionStatusCard.setVisibility(View.GONE);
             manageCalendarsButton.setVisibility(View.VISIBLE);
+            // Warm the shared calendar list so "Manage calendars" opens with it already loaded
+            CalendarMetadataRepository.get(this).prefetch();
         } else {
             permissionStatusCard.setVisibility(View.VISIBLE);
             permissionStatusText.setText(R.string.permission_denied_status);
@@ -71,6 +82,9 @@ public class MainActivity extends AppCompatActivity {
 
         // 2. Update Widget Counts
         updateWidgetCounts();
+
+        // 3. Hot-path metrics recorded by this process
+        diagnosticsText.setText(WidgetMetrics.getInstance().snapshot(System.currentTimeMillis()).toSummary());
     }
 
     private void updateWidgetCounts() {
@@ -85,6 +99,26 @@ public class MainActivity extends AppCompatActivity {
         listWidgetsCount.setText(getString(R.string.list_widgets, listIds.length));
     }
 
+    /** Shares the full metrics snapshot as JSON, e.g. to attach it to a bug report. */
+    private void exportDiagnostics() {
+        String json = WidgetMetrics.getInstance().snapshot(System.currentTimeMillis()).toJson();
+        Intent send = new Intent(Intent.ACTION_SEND);
+        send.setType("application/json");
+        send.putExtra(Intent.EXTRA_SUBJECT, "widget-metrics.json");
+        send.putExtra(Intent.EXTRA_TEXT, json);
+        startActivity(Intent.createChooser(send, getString(R.string.export_diagnostics_chooser)));
+    }
+
+    /** Shares the recorded update passes as Chrome trace-event JSON, for a trace viewer. */
+    private void exportTrace() {
+        String json = WidgetTrace.export(this);
+        Intent send = new Intent(Intent.ACTION_SEND);
+        send.setType("application/json");
+        send.putExtra(Intent.EXTRA_SUBJECT, "widget-trace.json");
+        send.putExtra(Intent.EXTRA_TEXT, json);
+        startActivity(Intent.createChooser(send, getString(R.string.export_trace_chooser)));
+    }
+
     private void requestCalendarPermission() {
         ActivityCompat.requestPermissions(this,
                 new String[]{Manifest.permission.READ_CALENDAR},
@@ -0,0 +1,86 @@
+package com.example.eventcountdownwidget;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts the bytes of RemoteViews sent to the launcher, split into full layouts and partial
+ * updates, in wall-clock hour buckets. {@link #record} reports when an hour has closed so the
+ * caller can log its totals.
+ * Contains no Android dependencies so it can be exercised from plain JVM unit tests.
+ */
+final class RemoteViewsTrafficCounter {
+
+    static final long BUCKET_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    /**
+     * Totals of one hour bucket.
+     */
+    static final class Totals {
+        final long bucketStartMillis;
+        final int fullUpdates;
+        final long fullBytes;
+        final int partialUpdates;
+        final long partialBytes;
+
+        Totals(long bucketStartMillis, int fullUpdates, long fullBytes, int partialUpdates, long partialBytes) {
+            this.bucketStartMillis = bucketStartMillis;
+            this.fullUpdates = fullUpdates;
+            this.fullBytes = fullBytes;
+            this.partialUpdates = partialUpdates;
+            this.partialBytes = partialBytes;
+        }
+
+        long totalBytes() {
+            return fullBytes + partialBytes;
+        }
+
+        @Override
+        public String toString() {
+            return totalBytes() + " bytes/h (" + fullUpdates + " full = " + fullBytes + " B, "
+                    + partialUpdates + " partial = " + partialBytes + " B)";
+        }
+    }
+
+    private static final RemoteViewsTrafficCounter INSTANCE = new RemoteViewsTrafficCounter();
+
+    private long bucketStartMillis = -1;
+    private int fullUpdates;
+    private long fullBytes;
+    private int partialUpdates;
+    private long partialBytes;
+
+    static RemoteViewsTrafficCounter getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Adds one update to the bucket containing {@code nowMillis}.
+     *
+     * @return The totals of the previous bucket if this update started a new hour, otherwise null.
+     */
+    synchronized Totals record(long nowMillis, int bytes, boolean partial) {
+        long bucket = nowMillis - Math.floorMod(nowMillis, BUCKET_MILLIS);
+        Totals closed = null;
+        if (bucket != bucketStartMillis) {
+            if (bucketStartMillis != -1) closed = current();
+            bucketStartMillis = bucket;
+            fullUpdates = 0;
+            fullBytes = 0;
+            partialUpdates = 0;
+            partialBytes = 0;
+        }
+        if (partial) {
+            partialUpdates++;
+            partialBytes += bytes;
+        } else {
+            fullUpdates++;
+            fullBytes += bytes;
+        }
+        return closed;
+    }
+
+    /** Totals of the current hour so far. */
+    synchronized Totals current() {
+        return new Totals(bucketStartMillis, fullUpdates, fullBytes, partialUpdates, partialBytes);
+    }
+}
@@ -3,17 +3,14 @@ package com.example.eventcountdownwidget;
 import android.app.PendingIntent;
 import android.appwidget.AppWidgetManager;
 import android.appwidget.AppWidgetProvider;
-import android.content.ComponentName;
 import android.content.ContentResolver;
 import android.content.ContentUris;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
-import android.content.res.Resources;
 import android.database.Cursor;
 import android.graphics.Color;
 import android.net.Uri;
-import android.os.Build;
 import android.provider.CalendarContract;
 import android.util.Log;
 import android.view.View;
@@ -21,17 +18,14 @@ import android.widget.RemoteViews;
 import androidx.core.content.ContextCompat;
 
 import com.example.eventcountdownwidget.utils.ColorUtil;
+import com.example.eventcountdownwidget.core.CountdownTextEngine;
+import com.example.eventcountdownwidget.core.EventInstance;
+import com.example.eventcountdownwidget.core.InstanceQuery;
 
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Date;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Locale;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
-import java.util.TimeZone;
 
 
 /**
@@ -42,7 +36,20 @@ import java.util.TimeZone;
  */
 public class SimpleEventListWidgetProvider extends AppWidgetProvider {
     private static final String TAG = "SimpleEventListWidget";
-    private static final TimeZone SAST_TIMEZONE = TimeZone.getTimeZone("Africa/Johannesburg"); // Consider making this globally accessible if used elsewhere
+    // Set on the refresh button's broadcast so a manual refresh bypasses the shared event cache
+    static final String EXTRA_MANUAL_REFRESH = "com.example.eventcountdownwidget.EXTRA_MANUAL_REFRESH";
+
+    /**
+     * Drops the shared event cache on manual refreshes, then dispatches as usual (to onUpdate etc.).
+     */
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        if (intent != null && intent.getBooleanExtra(EXTRA_MANUAL_REFRESH, false)) {
+            Log.d(TAG, "Manual refresh requested; invalidating cached calendar instances.");
+            EventInstanceCache.getInstance().invalidate();
+        }
+        super.onReceive(context, intent);
+    }
 
     /**
      * Called when widgets need updating (first placement, periodic update, config change, system events).
@@ -82,6 +89,7 @@ public class SimpleEventListWidgetProvider extends AppWidgetProvider {
             Log.d(TAG, "onDeleted called for widget ID: " + appWidgetId + ". Deleting prefs and canceling updates.");
             WidgetConfigManager.deleteConfig(context, appWidgetId);
             WidgetUpdateReceiver.cancelUpdate(context, appWidgetId, SimpleEventListWidgetProvider.class.getName());
+            ListWindowTracker.getInstance().forget(appWidgetId);
         }
         super.onDeleted(context, appWidgetIds); // Important to call super
     }
@@ -102,6 +110,8 @@ public class SimpleEventListWidgetProvider extends AppWidgetProvider {
      * This method is static to be callable from the update receiver.
      */
     static void updateAppWidget(Context context, AppWidgetManager appWidgetManager, int appWidgetId) {
+        long startNanos = System.nanoTime();
+        long trace = WidgetTrace.begin(context, WidgetTrace.UPDATE_LIST);
         try {
             Log.d(TAG, "updateAppWidget: Setting up frame and ListView for ID: " + appWidgetId);
             WidgetConfig config = WidgetConfigManager.loadConfig(context, appWidgetId);
@@ -131,12 +141,16 @@ public class SimpleEventListWidgetProvider extends AppWidgetProvider {
 
             // 6. Update the widget instance
             appWidgetManager.updateAppWidget(appWidgetId, views);
+            WidgetMetrics.getInstance().increment(WidgetMetrics.Counter.REMOTE_VIEWS_FULL);
             Log.d(TAG, "updateAppWidget: Widget structure update applied for ID: " + appWidgetId);
 
         } catch (Exception e) {
             Log.e(TAG, "updateAppWidget: Error setting up list widget ID " + appWidgetId, e);
             displayErrorView(context, appWidgetManager, appWidgetId); // Display an error state
+        } finally {
+            WidgetTrace.end(WidgetTrace.UPDATE_LIST, trace, "widgetId", appWidgetId);
         }
+        WidgetMetrics.getInstance().recordSince(WidgetMetrics.Timer.UPDATE_LIST, startNanos);
     }
 
     /** Displays a standard error view on the widget when an update fails severely. */
@@ -176,17 +190,19 @@ public class SimpleEventListWidgetProvider extends AppWidgetProvider {
     /**
      * Domain model representing a calendar event item.
      */
-    static class CalendarEventItem {
+    static class CalendarEventItem implements EventInstance {
         private final long id; private final String title; private final long startTime; private final long endTime;
-        private final boolean allDay; private final String eventTimezone; private final String description;
+        private final boolean allDay;
+        private final String calendarId; // Null when unknown
 
-        public CalendarEventItem(long id, String title, long startTime, long endTime, boolean allDay, String eventTimezone, String description) {
-            this.id = id; this.title = title; this.startTime = startTime; this.endTime = endTime; this.allDay = allDay; this.eventTimezone = eventTimezone; this.description = description;
+        public CalendarEventItem(long id, String title, long startTime, long endTime, boolean allDay) {
+            this(id, null, title, startTime, endTime, allDay);
         }
-        public long getId() { return id; } public String getTitle() { return title; } public long getStartTime() { return startTime; }
-        public long getEndTime() { return endTime; } public boolean isAllDay() { return allDay; }
-        // Unused getters can be removed if desired:
-        // public String getEventTimezone() { return eventTimezone; } public String getDescription() { return description; }
+        public CalendarEventItem(long id, String calendarId, String title, long startTime, long endTime, boolean allDay) {
+            this.id = id; this.calendarId = calendarId; this.title = title; this.startTime = startTime; this.endTime = endTime; this.allDay = allDay;
+        }
+        @Override public long getId() { return id; } @Override public String getCalendarId() { return calendarId; } @Override public String getTitle() { return title; } @Override public long getStartTime() { return startTime; }
+        @Override public long getEndTime() { return endTime; } @Override public boolean isAllDay() { return allDay; }
     }
 
     /**
@@ -205,30 +221,16 @@ public class SimpleEventListWidgetProvider extends AppWidgetProvider {
     }
 
     /**
-     * Manages loading and deleting widget configuration from SharedPreferences.
+     * Manages loading and deleting widget configuration through {@link WidgetConfigCache}.
      */
     static class WidgetConfigManager {
-        private static final String PREFS_NAME = "com.example.eventcountdownwidget.WidgetPrefs";
-        private static final String PREF_PREFIX_KEY = "simple_list_widget_";
-        private static final String THEME_STYLE_KEY = "_theme_style";
-        private static final String WIDGET_COLOR_KEY = "_widget_color";
-        private static final String MAX_EVENTS_KEY = "_max_events";
-        private static final int DEFAULT_EVENTS_TO_SHOW = 10; // Default number of events
 
         public static WidgetConfig loadConfig(Context context, int appWidgetId) {
-            SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, 0);
-            int themeStyle = prefs.getInt(PREF_PREFIX_KEY + appWidgetId + THEME_STYLE_KEY, 0); // Default: Dynamic
-            int widgetColor = prefs.getInt(PREF_PREFIX_KEY + appWidgetId + WIDGET_COLOR_KEY, -1); // Default: None (-1)
-            int maxEvents = prefs.getInt(PREF_PREFIX_KEY + appWidgetId + MAX_EVENTS_KEY, DEFAULT_EVENTS_TO_SHOW);
-            return new WidgetConfig(appWidgetId, themeStyle, widgetColor, maxEvents);
+            return WidgetConfigCache.get(context).getListConfig(appWidgetId);
         }
 
         public static void deleteConfig(Context context, int appWidgetId) {
-            SharedPreferences.Editor editor = context.getSharedPreferences(PREFS_NAME, 0).edit();
-            editor.remove(PREF_PREFIX_KEY + appWidgetId + THEME_STYLE_KEY);
-            editor.remove(PREF_PREFIX_KEY + appWidgetId + WIDGET_COLOR_KEY);
-            editor.remove(PREF_PREFIX_KEY + appWidgetId + MAX_EVENTS_KEY);
-            editor.apply();
+            WidgetConfigCache.get(context).deleteListConfig(appWidgetId);
         }
         // Optional bulk delete if needed elsewhere
         // public static void deleteConfigs(Context context, int[] appWidgetIds) { for(int id : appWidgetIds) deleteConfig(context, id); }
@@ -242,57 +244,75 @@ public class SimpleEventListWidgetProvider extends AppWidgetProvider {
         private static final String CALENDAR_PREFS = "calendar_preferences";
         private static final String SELECTED_CALENDARS = "selected_calendars";
 
+        // Query window around now: slightly back for long-running events, 30 days ahead
+        private static final long WINDOW_BACK_MILLIS = TimeUnit.DAYS.toMillis(1);
+        private static final long WINDOW_FORWARD_MILLIS = TimeUnit.DAYS.toMillis(30);
+
+        /**
+         * Returns the next {@code maxEvents} instances from the selected calendars.
+         * Served from the shared {@link EventInstanceCache}, so several list widgets refreshing together
+         * cost a single provider query.
+         */
         public static List<CalendarEventItem> loadEvents(Context context, int maxEvents) {
+            SharedPreferences prefs = context.getSharedPreferences(CALENDAR_PREFS, Context.MODE_PRIVATE);
+            Set<String> selectedCalendarIds = prefs.getStringSet(SELECTED_CALENDARS, null);
+            if (selectedCalendarIds == null || selectedCalendarIds.isEmpty()) {
+                Log.w(TAG, "No calendars selected for event query.");
+                return new ArrayList<>(); // Return empty if no calendars are selected
+            }
+
+            long startNanos = System.nanoTime();
+            long trace = WidgetTrace.begin(context, WidgetTrace.LOAD_EVENTS);
+            List<CalendarEventItem> events;
+            try {
+                final ContentResolver resolver = context.getContentResolver();
+                EventInstanceCache.Key key = new EventInstanceCache.Key(selectedCalendarIds, WINDOW_BACK_MILLIS, WINDOW_FORWARD_MILLIS);
+                events = EventInstanceCache.getInstance().getEvents(key, System.currentTimeMillis(), maxEvents,
+                        (calendarIds, now, windowStart, windowEnd, limit) -> queryInstances(resolver, calendarIds, now, windowStart, windowEnd, limit));
+            } finally {
+                WidgetTrace.end(WidgetTrace.LOAD_EVENTS, trace, "maxEvents", maxEvents);
+            }
+            WidgetMetrics.getInstance().recordLoad(startNanos, events.size());
+            return events;
+        }
+
+        /**
+         * Queries CalendarContract.Instances for the given calendars.
+         *
+         * @return Instances sorted by start time, or null if the query failed.
+         */
+        static List<CalendarEventItem> queryInstances(ContentResolver resolver, List<String> calendarIds,
+                                                      long now, long windowStart, long windowEnd, int limit) {
+            long startNanos = System.nanoTime();
+            long trace = WidgetTrace.begin(WidgetTrace.CALENDAR_QUERY);
             List<CalendarEventItem> eventList = new ArrayList<>();
             Cursor cursor = null;
             try {
-                SharedPreferences prefs = context.getSharedPreferences(CALENDAR_PREFS, Context.MODE_PRIVATE);
-                Set<String> selectedCalendarIds = prefs.getStringSet(SELECTED_CALENDARS, null);
-                if (selectedCalendarIds == null || selectedCalendarIds.isEmpty()) {
-                    Log.w(TAG, "No calendars selected for event query.");
-                    return eventList; // Return empty if no calendars are selected
-                }
-
-                long now = System.currentTimeMillis();
-                long futureLimit = now + TimeUnit.DAYS.toMillis(30); // Query events within the next 30 days
-
-                // Build selection string dynamically for selected calendar IDs
-                StringBuilder selection = new StringBuilder(CalendarContract.Instances.CALENDAR_ID + " IN (");
-                String[] placeholders = new String[selectedCalendarIds.size()];
-                for(int i = 0; i < selectedCalendarIds.size(); i++) placeholders[i] = "?";
-                selection.append(String.join(",", placeholders)).append(")");
-                List<String> selectionArgs = new ArrayList<>(selectedCalendarIds);
-
-                // Add time constraint: Events must end at or after 'now'
-                selection.append(" AND ").append(CalendarContract.Instances.END).append(" >= ?");
-                selectionArgs.add(String.valueOf(now));
+                // Selected calendars' instances that end at or after 'now', earliest first
+                InstanceQuery query = InstanceQuery.build(CalendarContract.Instances.CALENDAR_ID,
+                        CalendarContract.Instances.END, CalendarContract.Instances.BEGIN, calendarIds, now, limit);
 
                 // Define the URI for querying instances within the time range
                 Uri.Builder uriBuilder = CalendarContract.Instances.CONTENT_URI.buildUpon();
-                ContentUris.appendId(uriBuilder, now - TimeUnit.DAYS.toMillis(1)); // Look slightly back for long events
-                ContentUris.appendId(uriBuilder, futureLimit);
+                ContentUris.appendId(uriBuilder, windowStart);
+                ContentUris.appendId(uriBuilder, windowEnd);
                 Uri queryUri = uriBuilder.build();
 
-                // Define the projection (columns to fetch)
+                // Define the projection: only the displayed columns, plus the calendar for the cache's partitions
                 final String[] projection = {
-                        CalendarContract.Instances.EVENT_ID,        // 0
+                        CalendarContract.Instances._ID,             // 0 Instance row, unique per occurrence
                         CalendarContract.Instances.TITLE,           // 1
                         CalendarContract.Instances.BEGIN,           // 2
                         CalendarContract.Instances.END,             // 3
                         CalendarContract.Instances.ALL_DAY,         // 4
-                        CalendarContract.Instances.EVENT_TIMEZONE,  // 5
-                        CalendarContract.Instances.DESCRIPTION      // 6
+                        CalendarContract.Instances.CALENDAR_ID      // 5
                 };
                 // Indices matching projection order
-                final int IDX_EVENT_ID = 0; final int IDX_TITLE = 1; final int IDX_BEGIN = 2;
-                final int IDX_END = 3; final int IDX_ALL_DAY = 4; final int IDX_TZ = 5; final int IDX_DESC = 6;
-
-                // Define sort order and limit
-                String sortOrder = CalendarContract.Instances.BEGIN + " ASC LIMIT " + maxEvents;
+                final int IDX_INSTANCE_ID = 0; final int IDX_TITLE = 1; final int IDX_BEGIN = 2;
+                final int IDX_END = 3; final int IDX_ALL_DAY = 4; final int IDX_CALENDAR_ID = 5;
 
                 // Execute the query
-                ContentResolver resolver = context.getContentResolver();
-                cursor = resolver.query(queryUri, projection, selection.toString(), selectionArgs.toArray(new String[0]), sortOrder);
+                cursor = resolver.query(queryUri, projection, query.selection, query.selectionArgs, query.sortOrder);
 
                 // Process the results
                 if (cursor != null) {
@@ -301,23 +321,26 @@ public class SimpleEventListWidgetProvider extends AppWidgetProvider {
                         if (title == null || title.trim().isEmpty()) { title = "(No Title)"; } // Handle missing titles
 
                         eventList.add(new CalendarEventItem(
-                                cursor.getLong(IDX_EVENT_ID), title, cursor.getLong(IDX_BEGIN), cursor.getLong(IDX_END),
-                                cursor.getInt(IDX_ALL_DAY) != 0, cursor.getString(IDX_TZ), cursor.getString(IDX_DESC)
+                                cursor.getLong(IDX_INSTANCE_ID), cursor.getString(IDX_CALENDAR_ID), title, cursor.getLong(IDX_BEGIN), cursor.getLong(IDX_END),
+                                cursor.getInt(IDX_ALL_DAY) != 0
                         ));
                     }
                     Log.d(TAG, "Loaded " + eventList.size() + " events from CalendarProvider.");
                 } else {
                     Log.w(TAG, "Calendar query returned a null cursor.");
+                    return null;
                 }
             } catch (SecurityException se) {
                 Log.e(TAG, "Permission error reading calendar.", se); // Log permission issues clearly
                 // Potentially notify the user via an error state in the widget? (More complex)
-                eventList.clear();
+                return null;
             } catch (Exception e) {
                 Log.e(TAG, "Error loading events from CalendarProvider.", e);
-                eventList.clear(); // Clear list on any other error
+                return null; // Treat any other error as a failed query
             } finally {
                 if (cursor != null) { cursor.close(); } // Ensure cursor is always closed
+                WidgetMetrics.getInstance().recordSince(WidgetMetrics.Timer.PROVIDER_QUERY, startNanos);
+                WidgetTrace.end(WidgetTrace.CALENDAR_QUERY, trace, "rows", eventList.size());
             }
             return eventList;
         }
@@ -328,80 +351,15 @@ public class SimpleEventListWidgetProvider extends AppWidgetProvider {
      */
     static class CountdownFormatter {
         private static final String TAG = "CountdownFormatter";
-        // Reusable DateFormat instances (ensure thread safety via synchronized blocks)
-        private static final SimpleDateFormat TIME_FORMAT = new SimpleDateFormat("HH:mm", Locale.getDefault());
-        private static final SimpleDateFormat DATE_FORMAT_SHORT = new SimpleDateFormat("MMM d", Locale.getDefault());
-        private static final SimpleDateFormat DATE_TIME_FORMAT_SHORT = new SimpleDateFormat("MMM d, HH:mm", Locale.getDefault());
-        private static final SimpleDateFormat DAY_TIME_FORMAT_SHORT = new SimpleDateFormat("EEE HH:mm", Locale.getDefault());
-
-        // Reusable Calendar instances via ThreadLocal — avoids expensive Calendar.getInstance() per item
-        private static final ThreadLocal<Calendar> TL_CAL_A = new ThreadLocal<Calendar>() {
-            @Override protected Calendar initialValue() { return Calendar.getInstance(SAST_TIMEZONE); }
-        };
-        private static final ThreadLocal<Calendar> TL_CAL_B = new ThreadLocal<Calendar>() {
-            @Override protected Calendar initialValue() { return Calendar.getInstance(SAST_TIMEZONE); }
-        };
-        // Reusable Date for formatting — avoids per-call allocation
-        private static final ThreadLocal<Date> TL_DATE = new ThreadLocal<Date>() {
-            @Override protected Date initialValue() { return new Date(); }
-        };
-
-        static { // Apply TimeZone once
-            TIME_FORMAT.setTimeZone(SAST_TIMEZONE);
-            DATE_FORMAT_SHORT.setTimeZone(SAST_TIMEZONE);
-            DATE_TIME_FORMAT_SHORT.setTimeZone(SAST_TIMEZONE);
-            DAY_TIME_FORMAT_SHORT.setTimeZone(SAST_TIMEZONE);
-        }
-
-        public static String formatCountdown(CalendarEventItem event) {
-            return calculateCountdown(event.startTime, event.endTime, event.allDay);
-        }
 
-        private static String calculateCountdown(long startTime, long endTime, boolean isAllDay) {
+        /** Formats the subtitle as of {@code nowMillis}, so callers can pair it with the instant it next changes. */
+        public static String formatCountdown(long nowMillis, long startTime, long endTime, boolean allDay) {
             try {
-                long nowMillis = System.currentTimeMillis();
-                Date reusableDate = TL_DATE.get();
-
-                if (nowMillis >= startTime && nowMillis < endTime) { // Happening Now
-                    synchronized (TIME_FORMAT) { // Ensure thread safety
-                        if (isAllDay) {
-                            Calendar startCal = TL_CAL_A.get(); startCal.setTimeInMillis(startTime);
-                            Calendar todayCal = TL_CAL_B.get(); todayCal.setTimeInMillis(nowMillis);
-                            return (startCal.get(Calendar.DAY_OF_YEAR) == todayCal.get(Calendar.DAY_OF_YEAR) && startCal.get(Calendar.YEAR) == todayCal.get(Calendar.YEAR))
-                                    ? "Today (All day)" : "Now (All day)";
-                        } else {
-                            reusableDate.setTime(endTime);
-                            return "Now (until " + TIME_FORMAT.format(reusableDate) + ")";
-                        }
-                    }
-                }
-
-                if (nowMillis >= endTime) { // Passed
-                    synchronized(DATE_FORMAT_SHORT) {
-                        reusableDate.setTime(startTime);
-                        return "Ended (" + DATE_FORMAT_SHORT.format(reusableDate) + ")";
-                    }
-                }
-
-                // Future
-                long diffMillis = startTime - nowMillis;
-                Calendar todayMid = TL_CAL_A.get(); todayMid.setTimeInMillis(nowMillis); todayMid.set(Calendar.HOUR_OF_DAY,0);todayMid.set(Calendar.MINUTE,0);todayMid.set(Calendar.SECOND,0);todayMid.set(Calendar.MILLISECOND,0);
-                Calendar eventMid = TL_CAL_B.get(); eventMid.setTimeInMillis(startTime); eventMid.set(Calendar.HOUR_OF_DAY,0);eventMid.set(Calendar.MINUTE,0);eventMid.set(Calendar.SECOND,0);eventMid.set(Calendar.MILLISECOND,0);
-                long diffDays = TimeUnit.MILLISECONDS.toDays(eventMid.getTimeInMillis() - todayMid.getTimeInMillis());
-
-                reusableDate.setTime(startTime);
-                synchronized (TIME_FORMAT) { // Synchronize remaining formats
-                    if (diffDays == 0) { // Today
-                        long hrs = TimeUnit.MILLISECONDS.toHours(diffMillis);
-                        if(isAllDay) return "Today (All day)";
-                        if (hrs >= 1) return hrs + "h left (" + TIME_FORMAT.format(reusableDate) + ")";
-                        long mins = Math.max(0, TimeUnit.MILLISECONDS.toMinutes(diffMillis)); return mins + "m left (" + TIME_FORMAT.format(reusableDate) + ")";
-                    } else if (diffDays == 1) { // Tomorrow
-                        return isAllDay ? "Tomorrow (All day)" : "Tomorrow " + TIME_FORMAT.format(reusableDate);
-                    } else { // Later
-                        return isAllDay ? diffDays+"d (" + DATE_FORMAT_SHORT.format(reusableDate)+", All day)" : diffDays+"d (" + DAY_TIME_FORMAT_SHORT.format(reusableDate) + ")";
-                    }
-                }
+                // Lock-free: a per-thread builder and date fields computed without Calendar/SimpleDateFormat
+                StringBuilder sb = CountdownTextEngine.reusableBuilder();
+                CountdownTextEngine.appendListItem(sb, CountdownTexts.listDates(), nowMillis,
+                        startTime, endTime, allDay);
+                return sb.toString();
             } catch (Exception e) { Log.e(TAG, "Error formatting countdown", e); return ""; }
         }
     } // End CountdownFormatter
@@ -469,6 +427,7 @@ public class SimpleEventListWidgetProvider extends AppWidgetProvider {
             Intent intent = new Intent(context, SimpleEventListWidgetProvider.class);
             intent.setAction(AppWidgetManager.ACTION_APPWIDGET_UPDATE);
             intent.putExtra(AppWidgetManager.EXTRA_APPWIDGET_IDS, new int[]{appWidgetId});
+            intent.putExtra(EXTRA_MANUAL_REFRESH, true);
             PendingIntent pi = PendingIntent.getBroadcast(context, appWidgetId + 2000, intent, PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
             views.setOnClickPendingIntent(R.id.widget_refresh_container, pi);
         }
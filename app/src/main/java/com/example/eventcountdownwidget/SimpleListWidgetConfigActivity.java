@@ -3,7 +3,6 @@ package com.example.eventcountdownwidget;
 import android.app.Activity;
 import android.appwidget.AppWidgetManager;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.graphics.Color;
 import android.os.Build;
 import android.os.Bundle;
@@ -33,14 +32,8 @@ import androidx.core.content.ContextCompat;
 
 public class SimpleListWidgetConfigActivity extends Activity {
     private static final int PERMISSION_REQUEST_CODE = 200;
-    private static final String PREFS_NAME = "com.example.eventcountdownwidget.WidgetPrefs";
-    private static final String PREF_PREFIX_KEY = "simple_list_widget_";
-    private static final String THEME_STYLE_KEY = "_theme_style";
-    private static final String WIDGET_COLOR_KEY = "_widget_color";
-    private static final String MAX_EVENTS_KEY = "_max_events";
     // Updated constants for event limits
     private static final int MAX_CONFIGURABLE_EVENTS = 25; // User can choose up to 25
-    private static final int DEFAULT_EVENTS_TO_SHOW = 10; // Default value
 
     // Logging Tag
     private static final String TAG = "SimpleListWidgetConfig";
@@ -182,11 +175,11 @@ public class SimpleListWidgetConfigActivity extends Activity {
     }
 
     private void loadSavedPreferences() {
-        SharedPreferences prefs = getSharedPreferences(PREFS_NAME, 0);
-        int savedThemeStyle = prefs.getInt(PREF_PREFIX_KEY + mAppWidgetId + THEME_STYLE_KEY, 0);
-        int savedColor = prefs.getInt(PREF_PREFIX_KEY + mAppWidgetId + WIDGET_COLOR_KEY, -1);
-        // ADJUST Default and Ensure Max for MaxEvents
-        int savedMaxEvents = prefs.getInt(PREF_PREFIX_KEY + mAppWidgetId + MAX_EVENTS_KEY, DEFAULT_EVENTS_TO_SHOW); // Use new default
+        SimpleEventListWidgetProvider.WidgetConfig config = WidgetConfigCache.get(this).getListConfig(mAppWidgetId);
+        int savedThemeStyle = config.getThemeStyle();
+        int savedColor = config.getWidgetColor();
+        // Ensure Max for MaxEvents (the store defaults it to 10 when unset)
+        int savedMaxEvents = config.getMaxEvents();
         savedMaxEvents = Math.min(savedMaxEvents, MAX_CONFIGURABLE_EVENTS); // Ensure saved value doesn't exceed allowed max
         savedMaxEvents = Math.max(1, savedMaxEvents); // Ensure at least 1
 
@@ -302,19 +295,13 @@ public class SimpleListWidgetConfigActivity extends Activity {
         // ADJUST MaxEvents calculation
         int maxEvents = maxEventsSeekBar.getProgress() + 1; // Maps 0-24 -> 1-25
 
-        SharedPreferences.Editor prefs = getSharedPreferences(PREFS_NAME, 0).edit();
-        prefs.putInt(PREF_PREFIX_KEY + mAppWidgetId + THEME_STYLE_KEY, themeStyleOption);
-        prefs.putInt(PREF_PREFIX_KEY + mAppWidgetId + MAX_EVENTS_KEY, maxEvents); // Save the chosen value (1-25)
-
-        // Save color
+        // Save color (-1 clears it) along with the chosen event count (1-25)
         if (customColor != -1) {
-            prefs.putInt(PREF_PREFIX_KEY + mAppWidgetId + WIDGET_COLOR_KEY, customColor);
             Log.d(TAG, "Saving prefs for list widget " + mAppWidgetId + ": Theme=" + themeStyleOption + ", MaxEvents=" + maxEvents + ", Color=" + customColor);
         } else {
-            prefs.remove(PREF_PREFIX_KEY + mAppWidgetId + WIDGET_COLOR_KEY);
-            Log.w(TAG, "Saving prefs for list widget " + mAppWidgetId + ": Color is -1 (unset), removing pref.");
+            Log.w(TAG, "Saving prefs for list widget " + mAppWidgetId + ": Color is -1 (unset), clearing it.");
         }
-        prefs.apply();
+        WidgetConfigCache.get(this).saveListConfig(mAppWidgetId, themeStyleOption, customColor, maxEvents);
     }
 
     private void updateWidget() {
@@ -0,0 +1,50 @@
+package com.example.eventcountdownwidget;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+/**
+ * Handles the system events that make every rendered text and every scheduled deadline wrong at
+ * once: the wall clock was set, the zone or the locale changed, or the app was updated. Drops the
+ * cached formatters, countdown timelines, day table and event windows, then re-renders and
+ * reschedules all widgets in one pass through {@link WidgetUpdateReceiver#refreshAll}, off the
+ * main thread.
+ */
+public class SystemChangeReceiver extends BroadcastReceiver {
+
+    private static final String TAG = "SystemChangeReceiver";
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        String action = intent.getAction();
+        if (!Intent.ACTION_TIME_CHANGED.equals(action)
+                && !Intent.ACTION_TIMEZONE_CHANGED.equals(action)
+                && !Intent.ACTION_LOCALE_CHANGED.equals(action)
+                && !Intent.ACTION_MY_PACKAGE_REPLACED.equals(action)) {
+            Log.w(TAG, "Received unexpected intent: " + intent);
+            return;
+        }
+        Log.i(TAG, action + ": re-rendering and rescheduling every widget.");
+        CountdownTexts.invalidate();
+        // Cached event windows were cut at the old "now"
+        EventInstanceCache.getInstance().invalidate();
+
+        // Rebuilding every timeline and widget can take too long for the main thread, and clock
+        // and zone changes tend to arrive in bursts
+        final Context appContext = context.getApplicationContext();
+        final PendingResult pendingResult = goAsync();
+        new Thread(() -> {
+            try {
+                // Timelines hold formatted texts; an app update may have changed the labels
+                CountdownTimelineStore.get(appContext).invalidate();
+                WidgetUpdateReceiver.refreshAll(appContext);
+            } catch (Exception e) {
+                Log.e(TAG, "Error refreshing widgets after " + action, e);
+            } finally {
+                pendingResult.finish();
+            }
+        }).start();
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.eventcountdownwidget;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Bounded on-disk buffer of Chrome trace events ("complete" events, {@code "ph":"X"}), one per line.
+ * Spans are collected in memory and appended to the current file on {@link #flush}; once that file
+ * passes {@code maxBytesPerFile} it becomes the previous generation (replacing the older one), so
+ * at most two files' worth of the latest spans is ever kept, across process restarts.
+ * {@link #export} joins both generations into a JSON object that trace viewers (chrome://tracing,
+ * Perfetto UI) load directly, with the build in {@code otherData} so dumps can be compared.
+ * Contains no Android dependencies so it can be exercised from plain JVM unit tests.
+ */
+final class TraceEventLog {
+
+    static final String CURRENT_FILE = "widget-trace.jsonl";
+    static final String PREVIOUS_FILE = "widget-trace.1.jsonl";
+
+    private static final String EVENT_START = "{\"name\":";
+    // Pending spans are written out at the latest once they reach this size
+    private static final int AUTO_FLUSH_CHARS = 16 * 1024;
+
+    private final File current;
+    private final File previous;
+    private final long maxBytesPerFile;
+    private final StringBuilder pending = new StringBuilder(AUTO_FLUSH_CHARS + 256);
+
+    TraceEventLog(File dir, long maxBytesPerFile) {
+        this.current = new File(dir, CURRENT_FILE);
+        this.previous = new File(dir, PREVIOUS_FILE);
+        this.maxBytesPerFile = maxBytesPerFile;
+    }
+
+    /**
+     * Records one span.
+     *
+     * @param startMicros Start on a monotonic clock, in microseconds.
+     * @param argName     Name of the single span argument, or null for none.
+     */
+    synchronized void append(String name, long startMicros, long durationMicros, int pid, long tid,
+                             String argName, long argValue) {
+        pending.append(EVENT_START).append('"').append(name)
+                .append("\",\"cat\":\"widget\",\"ph\":\"X\",\"ts\":").append(startMicros)
+                .append(",\"dur\":").append(durationMicros)
+                .append(",\"pid\":").append(pid)
+                .append(",\"tid\":").append(tid);
+        if (argName != null) {
+            pending.append(",\"args\":{\"").append(argName).append("\":").append(argValue).append('}');
+        }
+        pending.append("}\n");
+        if (pending.length() >= AUTO_FLUSH_CHARS) {
+            flush();
+        }
+    }
+
+    /** Writes the pending spans to disk, rotating the current file first if it is full. */
+    synchronized void flush() {
+        if (pending.length() == 0) {
+            return;
+        }
+        File dir = current.getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            pending.setLength(0); // Nowhere to write; keep memory bounded instead
+            return;
+        }
+        if (current.length() >= maxBytesPerFile) {
+            previous.delete();
+            current.renameTo(previous);
+        }
+        try (OutputStream out = new FileOutputStream(current, true)) {
+            out.write(pending.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            // Dropping trace data is preferable to failing a widget update
+        }
+        pending.setLength(0);
+    }
+
+    /**
+     * @param build Shown as {@code otherData.build}, e.g. the version name and code.
+     * @return Every kept span, oldest first, as a Chrome trace-event JSON object.
+     */
+    synchronized String export(String build) {
+        flush();
+        StringBuilder sb = new StringBuilder("{\"traceEvents\":[");
+        boolean first = appendLines(sb, previous, true);
+        appendLines(sb, current, first);
+        sb.append("],\"displayTimeUnit\":\"ms\",\"otherData\":{\"build\":\"");
+        appendEscaped(sb, build);
+        sb.append("\",\"clock\":\"monotonic\"}}");
+        return sb.toString();
+    }
+
+    /** @return Whether {@code sb} still has no events after this file. */
+    private static boolean appendLines(StringBuilder sb, File file, boolean first) {
+        if (!file.isFile()) {
+            return first;
+        }
+        String text;
+        try {
+            text = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return first;
+        }
+        int lineStart = 0;
+        while (lineStart < text.length()) {
+            int lineEnd = text.indexOf('\n', lineStart);
+            if (lineEnd < 0) {
+                break; // A line cut short by process death; not valid JSON
+            }
+            // A cut-short line that later spans were appended to holds two event starts; skip it
+            int nextEvent = text.indexOf(EVENT_START, lineStart + 1);
+            if (lineEnd > lineStart && (nextEvent < 0 || nextEvent > lineEnd)) {
+                if (!first) sb.append(',');
+                sb.append(text, lineStart, lineEnd);
+                first = false;
+            }
+            lineStart = lineEnd + 1;
+        }
+        return first;
+    }
+
+    private static void appendEscaped(StringBuilder sb, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+    }
+}
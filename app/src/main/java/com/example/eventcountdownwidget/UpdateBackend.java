@@ -0,0 +1,31 @@
+package com.example.eventcountdownwidget;
+
+import android.content.Context;
+
+import com.example.eventcountdownwidget.core.UpdateScheduler;
+
+/**
+ * How {@link WidgetUpdateReceiver} gets woken up for the coalesced widget refreshes. Every wakeup,
+ * whichever way it arrives, ends in the same batch of due widgets; backends only differ in which
+ * deadlines get an exact alarm.
+ */
+interface UpdateBackend {
+
+    /**
+     * Replaces whatever wakeups were armed before.
+     *
+     * @param nextDeadline      Earliest deadline of any widget, or {@link UpdateScheduler#NO_DEADLINE}.
+     * @param nextExactDeadline Earliest deadline that must be served on time, or
+     *                          {@link UpdateScheduler#NO_DEADLINE}; never before {@code nextDeadline}.
+     */
+    void arm(Context context, long nextDeadline, long nextExactDeadline);
+
+    /**
+     * Called when a {@link WidgetUpdateWorker} starts. Until {@link #onWorkFinished}, the work that is
+     * running must not be replaced: that would cancel it in the middle of its batch.
+     */
+    default void onWorkStarted() {}
+
+    /** Called right before a {@link WidgetUpdateWorker} returns; wakeups held back since can be armed now. */
+    default void onWorkFinished(Context context) {}
+}
@@ -3,7 +3,6 @@ package com.example.eventcountdownwidget;
 import android.app.Activity;
 import android.appwidget.AppWidgetManager;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.graphics.Color;
 import android.os.Build;
 import android.os.Bundle;
@@ -35,12 +34,6 @@ import androidx.core.content.ContextCompat;
 public class WidgetConfigActivity extends Activity {
     private static final int PERMISSION_REQUEST_CODE = 200;
 
-    private static final String PREFS_NAME = "com.example.eventcountdownwidget.WidgetPrefs";
-    private static final String PREF_PREFIX_KEY = "widget_";
-    // private static final String FONT_SIZE_KEY = "_font_size"; // REMOVE
-    private static final String THEME_STYLE_KEY = "_theme_style";
-    private static final String WIDGET_COLOR_KEY = "_widget_color";
-
     // Logging Tag
     private static final String TAG = "WidgetConfigActivity";
 
@@ -167,10 +160,9 @@ public class WidgetConfigActivity extends Activity {
     }
 
     private void loadSavedPreferences() {
-        SharedPreferences prefs = getSharedPreferences(PREFS_NAME, 0);
-        // int savedFontSize = prefs.getInt(PREF_PREFIX_KEY + mAppWidgetId + FONT_SIZE_KEY, 1); // REMOVE
-        int savedThemeStyle = prefs.getInt(PREF_PREFIX_KEY + mAppWidgetId + THEME_STYLE_KEY, 0);
-        int savedColor = prefs.getInt(PREF_PREFIX_KEY + mAppWidgetId + WIDGET_COLOR_KEY, -1);
+        WidgetConfigCache.CountdownConfig config = WidgetConfigCache.get(this).getCountdownConfig(mAppWidgetId);
+        int savedThemeStyle = config.themeStyle;
+        int savedColor = config.widgetColor;
 
         // Log loaded prefs (without font size)
         Log.d(TAG, "Loading prefs for widget " + mAppWidgetId + ": Theme=" + savedThemeStyle + ", Color=" + savedColor);
@@ -293,21 +285,13 @@ public class WidgetConfigActivity extends Activity {
         // int fontSizeOption = fontSizeSeekBar.getProgress(); // REMOVE
         int themeStyleOption = getSelectedThemeStyle();
 
-        SharedPreferences.Editor prefs = getSharedPreferences(PREFS_NAME, 0).edit();
-        // prefs.putInt(PREF_PREFIX_KEY + mAppWidgetId + FONT_SIZE_KEY, fontSizeOption); // REMOVE
-        prefs.putInt(PREF_PREFIX_KEY + mAppWidgetId + THEME_STYLE_KEY, themeStyleOption);
-
-        // Save the selected color (Keep as is)
+        // Save the selected color (-1 clears it)
         if (customColor != -1) {
-            prefs.putInt(PREF_PREFIX_KEY + mAppWidgetId + WIDGET_COLOR_KEY, customColor);
-            // Log without font size
             Log.d(TAG, "Saving prefs for widget " + mAppWidgetId + ": Theme=" + themeStyleOption + ", Color=" + customColor);
         } else {
-            prefs.remove(PREF_PREFIX_KEY + mAppWidgetId + WIDGET_COLOR_KEY);
-            Log.w(TAG, "Saving prefs for widget " + mAppWidgetId + ": Color is -1 (unset), removing pref.");
+            Log.w(TAG, "Saving prefs for widget " + mAppWidgetId + ": Color is -1 (unset), clearing it.");
         }
-
-        prefs.apply();
+        WidgetConfigCache.get(this).saveCountdownTheme(mAppWidgetId, themeStyleOption, customColor);
     }
 
     // updateWidget (Keep as is)
@@ -0,0 +1,175 @@
+package com.example.eventcountdownwidget;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+import android.util.SparseArray;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Process-wide, typed access to the per-widget settings persisted in {@link WidgetConfigStore}.
+ * Every read and write of widget settings goes through here: configs are built once per widget ID
+ * and kept in memory, and saves update the record, drop the cached config and rewrite the store file.
+ * On first use the legacy WidgetPrefs keys are migrated into the store and removed.
+ */
+final class WidgetConfigCache {
+
+    private static final String TAG = "WidgetConfigCache";
+
+    // Legacy SharedPreferences file, only read for the one-time migration
+    static final String PREFS_NAME = "com.example.eventcountdownwidget.WidgetPrefs";
+
+    /**
+     * Settings of one single-event countdown widget.
+     */
+    static final class CountdownConfig {
+        final long eventId;
+        final String eventTitle;
+        final long eventStartTime;
+        final long eventEndTime;
+        final int themeStyle;
+        final int widgetColor;
+
+        CountdownConfig(long eventId, String eventTitle, long eventStartTime, long eventEndTime, int themeStyle, int widgetColor) {
+            this.eventId = eventId;
+            this.eventTitle = eventTitle;
+            this.eventStartTime = eventStartTime;
+            this.eventEndTime = eventEndTime;
+            this.themeStyle = themeStyle;
+            this.widgetColor = widgetColor;
+        }
+
+        boolean hasEvent() {
+            return eventStartTime != -1 && eventTitle != null && !eventTitle.isEmpty();
+        }
+    }
+
+    private static WidgetConfigCache sInstance;
+
+    private final WidgetConfigStore store;
+    private final SparseArray<CountdownConfig> countdownConfigs = new SparseArray<>();
+    private final SparseArray<SimpleEventListWidgetProvider.WidgetConfig> listConfigs = new SparseArray<>();
+
+    private WidgetConfigCache(WidgetConfigStore store) {
+        this.store = store;
+    }
+
+    static synchronized WidgetConfigCache get(Context context) {
+        if (sInstance == null) {
+            Context appContext = context.getApplicationContext();
+            WidgetConfigStore store = new WidgetConfigStore(new File(appContext.getFilesDir(), WidgetConfigStore.FILE_NAME));
+            if (store.exists()) {
+                try {
+                    store.load();
+                    Log.d(TAG, "Loaded " + store.size() + " widget configs.");
+                } catch (IOException e) {
+                    Log.e(TAG, "Failed to load widget configs; starting empty.", e);
+                }
+            } else {
+                migrateFromPrefs(appContext, store);
+            }
+            sInstance = new WidgetConfigCache(store);
+        }
+        return sInstance;
+    }
+
+    /** Moves the legacy per-widget keys out of WidgetPrefs into the binary store. */
+    private static void migrateFromPrefs(Context context, WidgetConfigStore store) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        List<String> migratedKeys = store.migrateFromPrefs(prefs.getAll());
+        try {
+            store.save();
+        } catch (IOException e) {
+            // Keep the prefs so the migration is retried on the next start
+            Log.e(TAG, "Failed to write migrated widget configs.", e);
+            return;
+        }
+        if (!migratedKeys.isEmpty()) {
+            SharedPreferences.Editor editor = prefs.edit();
+            for (String key : migratedKeys) {
+                editor.remove(key);
+            }
+            editor.apply();
+        }
+        Log.d(TAG, "Migrated " + migratedKeys.size() + " prefs keys into " + store.size() + " widget configs.");
+    }
+
+    synchronized CountdownConfig getCountdownConfig(int appWidgetId) {
+        CountdownConfig config = countdownConfigs.get(appWidgetId);
+        if (config == null) {
+            WidgetConfigStore.Record record = store.get(WidgetConfigStore.TYPE_COUNTDOWN, appWidgetId);
+            config = record != null
+                    ? new CountdownConfig(record.eventId, record.eventTitle, record.eventStartTime, record.eventEndTime, record.themeStyle, record.widgetColor)
+                    : new CountdownConfig(-1, "", -1, -1, 0, -1);
+            countdownConfigs.put(appWidgetId, config);
+        }
+        return config;
+    }
+
+    synchronized SimpleEventListWidgetProvider.WidgetConfig getListConfig(int appWidgetId) {
+        SimpleEventListWidgetProvider.WidgetConfig config = listConfigs.get(appWidgetId);
+        if (config == null) {
+            WidgetConfigStore.Record record = store.get(WidgetConfigStore.TYPE_LIST, appWidgetId);
+            config = record != null
+                    ? new SimpleEventListWidgetProvider.WidgetConfig(appWidgetId, record.themeStyle, record.widgetColor, record.maxEvents)
+                    : new SimpleEventListWidgetProvider.WidgetConfig(appWidgetId, 0, -1, WidgetConfigStore.DEFAULT_EVENTS_TO_SHOW);
+            listConfigs.put(appWidgetId, config);
+        }
+        return config;
+    }
+
+    /** Stores the event a countdown widget counts down to. */
+    synchronized void saveCountdownEvent(int appWidgetId, long eventId, String title, long startTime, long endTime) {
+        WidgetConfigStore.Record record = store.getOrCreate(WidgetConfigStore.TYPE_COUNTDOWN, appWidgetId);
+        record.eventId = eventId;
+        record.eventTitle = title != null ? title : "";
+        record.eventStartTime = startTime;
+        record.eventEndTime = endTime;
+        countdownConfigs.remove(appWidgetId);
+        persist();
+    }
+
+    /** Stores a countdown widget's appearance; a color of -1 means none. */
+    synchronized void saveCountdownTheme(int appWidgetId, int themeStyle, int widgetColor) {
+        WidgetConfigStore.Record record = store.getOrCreate(WidgetConfigStore.TYPE_COUNTDOWN, appWidgetId);
+        record.themeStyle = themeStyle;
+        record.widgetColor = widgetColor;
+        countdownConfigs.remove(appWidgetId);
+        persist();
+    }
+
+    /** Stores a list widget's settings; a color of -1 means none. */
+    synchronized void saveListConfig(int appWidgetId, int themeStyle, int widgetColor, int maxEvents) {
+        WidgetConfigStore.Record record = store.getOrCreate(WidgetConfigStore.TYPE_LIST, appWidgetId);
+        record.themeStyle = themeStyle;
+        record.widgetColor = widgetColor;
+        record.maxEvents = maxEvents;
+        listConfigs.remove(appWidgetId);
+        persist();
+    }
+
+    synchronized void deleteCountdownConfigs(int[] appWidgetIds) {
+        boolean changed = false;
+        for (int appWidgetId : appWidgetIds) {
+            changed |= store.remove(WidgetConfigStore.TYPE_COUNTDOWN, appWidgetId);
+            countdownConfigs.remove(appWidgetId);
+        }
+        if (changed) persist();
+    }
+
+    synchronized void deleteListConfig(int appWidgetId) {
+        listConfigs.remove(appWidgetId);
+        if (store.remove(WidgetConfigStore.TYPE_LIST, appWidgetId)) persist();
+    }
+
+    private void persist() {
+        try {
+            store.save();
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to save widget configs.", e);
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package com.example.eventcountdownwidget;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Persistent storage for per-widget settings: one binary file of fixed-size records.
+ * Replaces the {@code widget_<id>_...} / {@code simple_list_widget_<id>_...} keys in the WidgetPrefs XML.
+ * Saves write the whole file to a temporary sibling, sync it, and rename it over the original,
+ * so a crash mid-write leaves either the old or the new file, never a torn one.
+ * Contains no Android dependencies so it can be exercised from plain JVM unit tests;
+ * {@link WidgetConfigCache} owns the process-wide instance.
+ *
+ * <p>File layout (big-endian): {@code magic, version, recordCount}, then {@code recordCount}
+ * records of {@link #RECORD_SIZE} bytes each.
+ */
+final class WidgetConfigStore {
+
+    static final String FILE_NAME = "widget_configs.bin";
+
+    private static final int MAGIC = 0x45435743; // "ECWC"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+
+    static final int TYPE_COUNTDOWN = 1;
+    static final int TYPE_LIST = 2;
+
+    /** Fixed record size; titles longer than {@link #MAX_TITLE_BYTES} of UTF-8 are truncated. */
+    static final int RECORD_SIZE = 256;
+    // widgetId(4) type(1) reserved(1) titleLength(2) eventId(8) start(8) end(8) theme(4) color(4) maxEvents(4)
+    private static final int RECORD_FIXED_FIELDS_SIZE = 44;
+    static final int MAX_TITLE_BYTES = RECORD_SIZE - RECORD_FIXED_FIELDS_SIZE;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // Keys of the legacy SharedPreferences layout, used for migration
+    static final String COUNTDOWN_PREFIX_KEY = "widget_";
+    static final String LIST_PREFIX_KEY = "simple_list_widget_";
+    static final String EVENT_ID_KEY = "_event_id";
+    static final String EVENT_TITLE_KEY = "_event_title";
+    static final String EVENT_TIME_KEY = "_event_time";
+    static final String EVENT_END_TIME_KEY = "_event_end_time";
+    static final String THEME_STYLE_KEY = "_theme_style";
+    static final String WIDGET_COLOR_KEY = "_widget_color";
+    static final String MAX_EVENTS_KEY = "_max_events";
+
+    static final int DEFAULT_EVENTS_TO_SHOW = 10;
+
+    /** Returned by {@link #parseWidgetId} for keys that don't belong to a widget of the given prefix. */
+    static final int INVALID_WIDGET_ID = -1;
+
+    /**
+     * One widget's settings. Countdown widgets use the event fields; list widgets use maxEvents.
+     */
+    static final class Record {
+        final int widgetId;
+        final int type;
+        long eventId = -1;
+        String eventTitle = "";
+        long eventStartTime = -1;
+        long eventEndTime = -1;
+        int themeStyle = 0; // Dynamic
+        int widgetColor = -1; // None
+        int maxEvents = DEFAULT_EVENTS_TO_SHOW;
+
+        Record(int widgetId, int type) {
+            this.widgetId = widgetId;
+            this.type = type;
+        }
+    }
+
+    private final File file;
+    private final Map<Integer, Record> countdownRecords = new TreeMap<>();
+    private final Map<Integer, Record> listRecords = new TreeMap<>();
+
+    WidgetConfigStore(File file) {
+        this.file = file;
+    }
+
+    boolean exists() {
+        return file.exists();
+    }
+
+    Record get(int type, int widgetId) {
+        return recordsOf(type).get(widgetId);
+    }
+
+    /** @return The widget's record, creating one with default values if it doesn't exist yet. */
+    Record getOrCreate(int type, int widgetId) {
+        Map<Integer, Record> records = recordsOf(type);
+        Record record = records.get(widgetId);
+        if (record == null) {
+            record = new Record(widgetId, type);
+            records.put(widgetId, record);
+        }
+        return record;
+    }
+
+    /** @return Whether a record was removed. */
+    boolean remove(int type, int widgetId) {
+        return recordsOf(type).remove(widgetId) != null;
+    }
+
+    int size() {
+        return countdownRecords.size() + listRecords.size();
+    }
+
+    private Map<Integer, Record> recordsOf(int type) {
+        if (type == TYPE_COUNTDOWN) return countdownRecords;
+        if (type == TYPE_LIST) return listRecords;
+        throw new IllegalArgumentException("Unknown widget type: " + type);
+    }
+
+    /**
+     * Replaces the in-memory records with the file's contents. A missing file loads as empty.
+     *
+     * @throws IOException If the file can't be read or isn't a valid store file.
+     */
+    void load() throws IOException {
+        countdownRecords.clear();
+        listRecords.clear();
+        if (!file.exists()) {
+            return;
+        }
+
+        ByteBuffer buffer;
+        try (FileInputStream in = new FileInputStream(file)) {
+            FileChannel channel = in.getChannel();
+            long length = channel.size();
+            if (length < HEADER_SIZE || length > Integer.MAX_VALUE) {
+                throw new IOException("Invalid store file size: " + length);
+            }
+            buffer = ByteBuffer.allocate((int) length);
+            while (buffer.hasRemaining() && channel.read(buffer) != -1) { /* Keep reading */ }
+            buffer.flip();
+        }
+
+        if (buffer.getInt() != MAGIC) throw new IOException("Not a widget config store: " + file);
+        int version = buffer.getInt();
+        if (version != VERSION) throw new IOException("Unsupported store version " + version);
+        int count = buffer.getInt();
+        if (count < 0 || buffer.remaining() != (long) count * RECORD_SIZE) {
+            throw new IOException("Store file truncated: expected " + count + " records");
+        }
+
+        byte[] titleBytes = new byte[MAX_TITLE_BYTES];
+        for (int i = 0; i < count; i++) {
+            int recordStart = buffer.position();
+            int widgetId = buffer.getInt();
+            int type = buffer.get();
+            buffer.get(); // Reserved
+            int titleLength = buffer.getShort();
+            if (titleLength < 0 || titleLength > MAX_TITLE_BYTES || (type != TYPE_COUNTDOWN && type != TYPE_LIST)) {
+                throw new IOException("Corrupt record " + i);
+            }
+            Record record = new Record(widgetId, type);
+            record.eventId = buffer.getLong();
+            record.eventStartTime = buffer.getLong();
+            record.eventEndTime = buffer.getLong();
+            record.themeStyle = buffer.getInt();
+            record.widgetColor = buffer.getInt();
+            record.maxEvents = buffer.getInt();
+            buffer.get(titleBytes, 0, titleLength);
+            record.eventTitle = new String(titleBytes, 0, titleLength, UTF_8);
+            buffer.position(recordStart + RECORD_SIZE);
+            recordsOf(type).put(widgetId, record);
+        }
+    }
+
+    /**
+     * Writes every record to a temporary file and atomically renames it over the store file.
+     */
+    void save() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + size() * RECORD_SIZE);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(size());
+        CharsetEncoder encoder = UTF_8.newEncoder();
+        for (Record record : countdownRecords.values()) writeRecord(buffer, record, encoder);
+        for (Record record : listRecords.values()) writeRecord(buffer, record, encoder);
+        buffer.flip();
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            FileChannel channel = out.getChannel();
+            while (buffer.hasRemaining()) channel.write(buffer);
+            out.getFD().sync();
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("Could not rename " + tmp + " to " + file);
+        }
+    }
+
+    private static void writeRecord(ByteBuffer buffer, Record record, CharsetEncoder encoder) {
+        int recordStart = buffer.position();
+        buffer.putInt(record.widgetId);
+        buffer.put((byte) record.type);
+        buffer.put((byte) 0); // Reserved
+        int titleLengthPosition = buffer.position();
+        buffer.putShort((short) 0); // Filled in once the title is encoded
+        buffer.putLong(record.eventId);
+        buffer.putLong(record.eventStartTime);
+        buffer.putLong(record.eventEndTime);
+        buffer.putInt(record.themeStyle);
+        buffer.putInt(record.widgetColor);
+        buffer.putInt(record.maxEvents);
+
+        // The encoder stops at the last whole character that fits, so truncation never splits one
+        ByteBuffer titleSlot = buffer.slice();
+        titleSlot.limit(MAX_TITLE_BYTES);
+        encoder.reset();
+        encoder.encode(CharBuffer.wrap(record.eventTitle != null ? record.eventTitle : ""), titleSlot, true);
+        buffer.putShort(titleLengthPosition, (short) titleSlot.position());
+        buffer.position(recordStart + RECORD_SIZE);
+    }
+
+    /**
+     * Imports the legacy per-widget SharedPreferences keys.
+     *
+     * @param prefs All entries of the WidgetPrefs file.
+     * @return The keys that were imported, so the caller can remove them.
+     */
+    List<String> migrateFromPrefs(Map<String, ?> prefs) {
+        List<String> migratedKeys = new ArrayList<>();
+        for (Map.Entry<String, ?> entry : prefs.entrySet()) {
+            String key = entry.getKey();
+            Object value = entry.getValue();
+            int countdownId = parseWidgetId(key, COUNTDOWN_PREFIX_KEY);
+            if (countdownId != INVALID_WIDGET_ID) {
+                if (applyCountdownKey(getOrCreate(TYPE_COUNTDOWN, countdownId), key, value)) migratedKeys.add(key);
+                continue;
+            }
+            int listId = parseWidgetId(key, LIST_PREFIX_KEY);
+            if (listId != INVALID_WIDGET_ID) {
+                if (applyListKey(getOrCreate(TYPE_LIST, listId), key, value)) migratedKeys.add(key);
+            }
+        }
+        return migratedKeys;
+    }
+
+    private static boolean applyCountdownKey(Record record, String key, Object value) {
+        if (key.endsWith(EVENT_END_TIME_KEY) && value instanceof Long) {
+            record.eventEndTime = (Long) value;
+        } else if (key.endsWith(EVENT_TIME_KEY) && value instanceof Long) {
+            record.eventStartTime = (Long) value;
+        } else if (key.endsWith(EVENT_ID_KEY) && value instanceof Long) {
+            record.eventId = (Long) value;
+        } else if (key.endsWith(EVENT_TITLE_KEY) && value instanceof String) {
+            record.eventTitle = (String) value;
+        } else {
+            return applyThemeKey(record, key, value);
+        }
+        return true;
+    }
+
+    private static boolean applyListKey(Record record, String key, Object value) {
+        if (key.endsWith(MAX_EVENTS_KEY) && value instanceof Integer) {
+            record.maxEvents = (Integer) value;
+            return true;
+        }
+        return applyThemeKey(record, key, value);
+    }
+
+    private static boolean applyThemeKey(Record record, String key, Object value) {
+        if (key.endsWith(THEME_STYLE_KEY) && value instanceof Integer) {
+            record.themeStyle = (Integer) value;
+        } else if (key.endsWith(WIDGET_COLOR_KEY) && value instanceof Integer) {
+            record.widgetColor = (Integer) value;
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Extracts the widget ID from a key of the form {@code <prefix><id>_<suffix>} without allocating.
+     *
+     * @return The widget ID, or {@link #INVALID_WIDGET_ID} if the key doesn't match.
+     */
+    static int parseWidgetId(String key, String prefix) {
+        if (!key.startsWith(prefix)) {
+            return INVALID_WIDGET_ID;
+        }
+        int id = 0;
+        int i = prefix.length();
+        int digits = 0;
+        for (; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c < '0' || c > '9') break;
+            if (id > (Integer.MAX_VALUE - (c - '0')) / 10) return INVALID_WIDGET_ID; // Overflow
+            id = id * 10 + (c - '0');
+            digits++;
+        }
+        if (digits == 0 || i >= key.length() || key.charAt(i) != '_') {
+            return INVALID_WIDGET_ID;
+        }
+        return id;
+    }
+}
@@ -0,0 +1,359 @@
+package com.example.eventcountdownwidget;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Process-wide counters and latency histograms for the widget hot paths, shown on the diagnostics
+ * card in {@link MainActivity}. Everything is allocated up front and updated with atomic adds, so
+ * recording from a widget update never takes a lock or allocates: counters and histogram buckets
+ * are fixed arrays, the latest samples of each timer go into a ring buffer, and per-widget alarm
+ * counts live in a fixed open-addressed table whose overflow is pooled.
+ * Contains no Android dependencies so it can be exercised from plain JVM unit tests.
+ */
+final class WidgetMetrics {
+
+    /** Plain event counts. */
+    enum Counter {
+        REMOTE_VIEWS_FULL("remoteViewsFull"),
+        REMOTE_VIEWS_PARTIAL("remoteViewsPartial"),
+        REMOTE_VIEWS_BYTES("remoteViewsBytes"),
+        LIST_DATA_CHANGED("listDataChanged"),
+        EVENT_ROWS_LOADED("eventRowsLoaded"),
+        WAKEUPS_EXACT("wakeupsExact"),
+        WAKEUPS_DEFERRED("wakeupsDeferred");
+
+        final String jsonName;
+
+        Counter(String jsonName) {
+            this.jsonName = jsonName;
+        }
+    }
+
+    /** Timed operations, each with its own histogram. */
+    enum Timer {
+        UPDATE_COUNTDOWN("updateAppWidgetCountdown"),
+        UPDATE_LIST("updateAppWidgetList"),
+        LOAD_EVENTS("loadEvents"),
+        PROVIDER_QUERY("providerQuery");
+
+        final String jsonName;
+
+        Timer(String jsonName) {
+            this.jsonName = jsonName;
+        }
+    }
+
+    /** Upper bounds (inclusive, in microseconds) of the histogram buckets; one more bucket holds the rest. */
+    static final long[] BUCKET_BOUNDS_MICROS = {
+            100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000, 250_000, 500_000, 1_000_000
+    };
+    /** Latest samples kept per timer; a power of two. */
+    static final int RECENT_SAMPLES = 64;
+    /** Widgets tracked individually; alarms of any further widgets are pooled. */
+    static final int MAX_WIDGETS = 64;
+
+    private static final int BUCKETS = BUCKET_BOUNDS_MICROS.length + 1;
+    private static final int TIMERS = Timer.values().length;
+    private static final int NO_WIDGET = 0; // AppWidgetManager.INVALID_APPWIDGET_ID
+
+    private static final WidgetMetrics INSTANCE = new WidgetMetrics();
+
+    private final long startedAtMillis;
+    private final AtomicLongArray counters = new AtomicLongArray(Counter.values().length);
+    // Timer t owns buckets [t * BUCKETS, (t + 1) * BUCKETS) and ring [t * RECENT_SAMPLES, ...)
+    private final AtomicLongArray buckets = new AtomicLongArray(TIMERS * BUCKETS);
+    private final AtomicLongArray totalNanos = new AtomicLongArray(TIMERS);
+    private final AtomicLongArray maxNanos = new AtomicLongArray(TIMERS);
+    private final AtomicLongArray recentNanos = new AtomicLongArray(TIMERS * RECENT_SAMPLES);
+    private final AtomicLongArray recentCursor = new AtomicLongArray(TIMERS);
+    // Slot MAX_WIDGETS is the overflow pool
+    private final AtomicIntegerArray widgetIds = new AtomicIntegerArray(MAX_WIDGETS);
+    private final AtomicLongArray alarmsScheduled = new AtomicLongArray(MAX_WIDGETS + 1);
+    private final AtomicLongArray alarmsFired = new AtomicLongArray(MAX_WIDGETS + 1);
+    private final AtomicLong lastRowCount = new AtomicLong();
+
+    static WidgetMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    WidgetMetrics() {
+        this(System.currentTimeMillis());
+    }
+
+    WidgetMetrics(long startedAtMillis) {
+        this.startedAtMillis = startedAtMillis;
+    }
+
+    void increment(Counter counter) {
+        counters.incrementAndGet(counter.ordinal());
+    }
+
+    void add(Counter counter, long amount) {
+        counters.addAndGet(counter.ordinal(), amount);
+    }
+
+    /** Records one run of {@code timer} that started at {@code startNanos} ({@link System#nanoTime}). */
+    void recordSince(Timer timer, long startNanos) {
+        record(timer, System.nanoTime() - startNanos);
+    }
+
+    void record(Timer timer, long nanos) {
+        int t = timer.ordinal();
+        buckets.incrementAndGet(t * BUCKETS + bucketOf(nanos));
+        totalNanos.addAndGet(t, nanos);
+        long max;
+        while (nanos > (max = maxNanos.get(t)) && !maxNanos.compareAndSet(t, max, nanos)) {
+            // Lost a race with another writer; retry against its value
+        }
+        long slot = recentCursor.getAndIncrement(t) & (RECENT_SAMPLES - 1);
+        recentNanos.set(t * RECENT_SAMPLES + (int) slot, nanos);
+    }
+
+    /** Records a calendar load: its duration and how many rows it returned. */
+    void recordLoad(long startNanos, int rows) {
+        recordSince(Timer.LOAD_EVENTS, startNanos);
+        add(Counter.EVENT_ROWS_LOADED, rows);
+        lastRowCount.set(rows);
+    }
+
+    void alarmScheduled(int appWidgetId) {
+        alarmsScheduled.incrementAndGet(widgetSlot(appWidgetId));
+    }
+
+    void alarmFired(int appWidgetId) {
+        alarmsFired.incrementAndGet(widgetSlot(appWidgetId));
+    }
+
+    /** Finds or claims the table slot of a widget; the overflow slot once the table is full. */
+    private int widgetSlot(int appWidgetId) {
+        int start = (appWidgetId * 0x9E3779B9 >>> 16) & (MAX_WIDGETS - 1);
+        for (int probe = 0; probe < MAX_WIDGETS; probe++) {
+            int slot = (start + probe) & (MAX_WIDGETS - 1);
+            int id = widgetIds.get(slot);
+            if (id == appWidgetId) return slot;
+            if (id == NO_WIDGET) {
+                if (widgetIds.compareAndSet(slot, NO_WIDGET, appWidgetId)) return slot;
+                if (widgetIds.get(slot) == appWidgetId) return slot; // Claimed by a concurrent call for the same widget
+            }
+        }
+        return MAX_WIDGETS;
+    }
+
+    private static int bucketOf(long nanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        for (int i = 0; i < BUCKET_BOUNDS_MICROS.length; i++) {
+            if (micros <= BUCKET_BOUNDS_MICROS[i]) return i;
+        }
+        return BUCKET_BOUNDS_MICROS.length;
+    }
+
+    /** Copies the current values; writers may still be running, so totals can be a few events apart. */
+    Snapshot snapshot(long nowMillis) {
+        long[] counterValues = new long[counters.length()];
+        for (int i = 0; i < counterValues.length; i++) counterValues[i] = counters.get(i);
+
+        TimerStats[] timers = new TimerStats[TIMERS];
+        for (Timer timer : Timer.values()) {
+            int t = timer.ordinal();
+            long[] counts = new long[BUCKETS];
+            for (int b = 0; b < BUCKETS; b++) counts[b] = buckets.get(t * BUCKETS + b);
+            long written = recentCursor.get(t);
+            int kept = (int) Math.min(written, RECENT_SAMPLES);
+            long[] recent = new long[kept];
+            for (int i = 0; i < kept; i++) {
+                // Oldest first
+                long index = written - kept + i;
+                recent[i] = recentNanos.get(t * RECENT_SAMPLES + (int) (index & (RECENT_SAMPLES - 1)));
+            }
+            timers[t] = new TimerStats(timer, counts, totalNanos.get(t), maxNanos.get(t), recent);
+        }
+
+        int widgets = 0;
+        for (int slot = 0; slot < MAX_WIDGETS; slot++) {
+            if (widgetIds.get(slot) != NO_WIDGET) widgets++;
+        }
+        int[] ids = new int[widgets];
+        long[] scheduled = new long[widgets];
+        long[] fired = new long[widgets];
+        int n = 0;
+        for (int slot = 0; slot < MAX_WIDGETS && n < widgets; slot++) {
+            int id = widgetIds.get(slot);
+            if (id == NO_WIDGET) continue;
+            ids[n] = id;
+            scheduled[n] = alarmsScheduled.get(slot);
+            fired[n] = alarmsFired.get(slot);
+            n++;
+        }
+        return new Snapshot(startedAtMillis, nowMillis, counterValues, timers, lastRowCount.get(),
+                ids, scheduled, fired, alarmsScheduled.get(MAX_WIDGETS), alarmsFired.get(MAX_WIDGETS));
+    }
+
+    /** Latency summary of one timer. */
+    static final class TimerStats {
+        final Timer timer;
+        final long[] bucketCounts;
+        final long totalNanos;
+        final long maxNanos;
+        final long[] recentNanos;
+
+        TimerStats(Timer timer, long[] bucketCounts, long totalNanos, long maxNanos, long[] recentNanos) {
+            this.timer = timer;
+            this.bucketCounts = bucketCounts;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.recentNanos = recentNanos;
+        }
+
+        long count() {
+            long count = 0;
+            for (long c : bucketCounts) count += c;
+            return count;
+        }
+
+        /**
+         * @return The upper bound in microseconds of the bucket holding the {@code p} quantile,
+         *         {@code maxNanos} (in microseconds) for the open-ended bucket, or 0 without samples.
+         */
+        long percentileMicros(double p) {
+            long count = count();
+            if (count == 0) return 0;
+            long rank = (long) Math.ceil(p * count);
+            long seen = 0;
+            for (int b = 0; b < bucketCounts.length; b++) {
+                seen += bucketCounts[b];
+                if (seen >= Math.max(rank, 1)) {
+                    return b < BUCKET_BOUNDS_MICROS.length ? BUCKET_BOUNDS_MICROS[b] : TimeUnit.NANOSECONDS.toMicros(maxNanos);
+                }
+            }
+            return TimeUnit.NANOSECONDS.toMicros(maxNanos);
+        }
+    }
+
+    /** A consistent-enough copy of the registry, rendered for the diagnostics card or as JSON. */
+    static final class Snapshot {
+        final long startedAtMillis;
+        final long takenAtMillis;
+        final long[] counters;
+        final TimerStats[] timers;
+        final long lastRowCount;
+        final int[] widgetIds;
+        final long[] alarmsScheduled;
+        final long[] alarmsFired;
+        final long otherAlarmsScheduled;
+        final long otherAlarmsFired;
+
+        Snapshot(long startedAtMillis, long takenAtMillis, long[] counters, TimerStats[] timers, long lastRowCount,
+                 int[] widgetIds, long[] alarmsScheduled, long[] alarmsFired,
+                 long otherAlarmsScheduled, long otherAlarmsFired) {
+            this.startedAtMillis = startedAtMillis;
+            this.takenAtMillis = takenAtMillis;
+            this.counters = counters;
+            this.timers = timers;
+            this.lastRowCount = lastRowCount;
+            this.widgetIds = widgetIds;
+            this.alarmsScheduled = alarmsScheduled;
+            this.alarmsFired = alarmsFired;
+            this.otherAlarmsScheduled = otherAlarmsScheduled;
+            this.otherAlarmsFired = otherAlarmsFired;
+        }
+
+        long get(Counter counter) {
+            return counters[counter.ordinal()];
+        }
+
+        TimerStats get(Timer timer) {
+            return timers[timer.ordinal()];
+        }
+
+        long totalAlarmsScheduled() {
+            long total = otherAlarmsScheduled;
+            for (long n : alarmsScheduled) total += n;
+            return total;
+        }
+
+        long totalAlarmsFired() {
+            long total = otherAlarmsFired;
+            for (long n : alarmsFired) total += n;
+            return total;
+        }
+
+        /** Short plain-text report for the diagnostics card. */
+        String toSummary() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("Since process start ").append(TimeUnit.MILLISECONDS.toMinutes(takenAtMillis - startedAtMillis)).append(" min ago\n");
+            for (TimerStats stats : timers) {
+                long count = stats.count();
+                sb.append(stats.timer.jsonName).append(": ").append(count).append(" x");
+                if (count > 0) {
+                    sb.append(String.format(Locale.US, ", mean %.1f ms, p50 <= %.1f ms, p99 <= %.1f ms, max %.1f ms",
+                            stats.totalNanos / 1e6 / count, stats.percentileMicros(0.50) / 1e3,
+                            stats.percentileMicros(0.99) / 1e3, stats.maxNanos / 1e6));
+                }
+                sb.append('\n');
+            }
+            sb.append("Rows loaded: ").append(get(Counter.EVENT_ROWS_LOADED)).append(" (last load ").append(lastRowCount).append(")\n");
+            sb.append("RemoteViews pushes: ").append(get(Counter.REMOTE_VIEWS_FULL)).append(" full, ")
+                    .append(get(Counter.REMOTE_VIEWS_PARTIAL)).append(" partial, ")
+                    .append(get(Counter.REMOTE_VIEWS_BYTES)).append(" B; ")
+                    .append(get(Counter.LIST_DATA_CHANGED)).append(" list refreshes\n");
+            sb.append("Alarms: ").append(totalAlarmsScheduled()).append(" scheduled, ").append(totalAlarmsFired())
+                    .append(" fired for ").append(widgetIds.length).append(" widgets; wakeups ")
+                    .append(get(Counter.WAKEUPS_EXACT)).append(" exact, ").append(get(Counter.WAKEUPS_DEFERRED)).append(" deferred");
+            return sb.toString();
+        }
+
+        /** The whole snapshot, including histogram buckets and recent samples, as a JSON object. */
+        String toJson() {
+            StringBuilder sb = new StringBuilder(1024);
+            sb.append("{\"startedAtMillis\":").append(startedAtMillis)
+                    .append(",\"takenAtMillis\":").append(takenAtMillis)
+                    .append(",\"counters\":{");
+            for (Counter counter : Counter.values()) {
+                if (counter.ordinal() > 0) sb.append(',');
+                sb.append('"').append(counter.jsonName).append("\":").append(get(counter));
+            }
+            sb.append("},\"lastRowCount\":").append(lastRowCount);
+
+            sb.append(",\"bucketBoundsMicros\":");
+            appendArray(sb, BUCKET_BOUNDS_MICROS);
+            sb.append(",\"timers\":{");
+            for (TimerStats stats : timers) {
+                if (stats.timer.ordinal() > 0) sb.append(',');
+                sb.append('"').append(stats.timer.jsonName).append("\":{\"count\":").append(stats.count())
+                        .append(",\"totalNanos\":").append(stats.totalNanos)
+                        .append(",\"maxNanos\":").append(stats.maxNanos)
+                        .append(",\"p50Micros\":").append(stats.percentileMicros(0.50))
+                        .append(",\"p99Micros\":").append(stats.percentileMicros(0.99))
+                        .append(",\"buckets\":");
+                appendArray(sb, stats.bucketCounts);
+                sb.append(",\"recentNanos\":");
+                appendArray(sb, stats.recentNanos);
+                sb.append('}');
+            }
+
+            sb.append("},\"alarms\":{\"widgets\":[");
+            for (int i = 0; i < widgetIds.length; i++) {
+                if (i > 0) sb.append(',');
+                sb.append("{\"widgetId\":").append(widgetIds[i])
+                        .append(",\"scheduled\":").append(alarmsScheduled[i])
+                        .append(",\"fired\":").append(alarmsFired[i]).append('}');
+            }
+            sb.append("],\"otherScheduled\":").append(otherAlarmsScheduled)
+                    .append(",\"otherFired\":").append(otherAlarmsFired).append("}}");
+            return sb.toString();
+        }
+
+        private static void appendArray(StringBuilder sb, long[] values) {
+            sb.append('[');
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) sb.append(',');
+                sb.append(values[i]);
+            }
+            sb.append(']');
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.eventcountdownwidget;
+
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.os.Process;
+import android.os.Trace;
+
+import java.io.File;
+
+/**
+ * Tracing mode for widget update passes. While enabled, each traced section is both an
+ * {@link Trace} section (visible in systrace / Perfetto captures) and a span in the bounded
+ * on-disk {@link TraceEventLog}, so a dump from a field device can be opened in a trace viewer.
+ * Off by default; while off, {@link #begin} is a single volatile read.
+ *
+ * <pre>
+ * long trace = WidgetTrace.begin(context, WidgetTrace.UPDATE_COUNTDOWN);
+ * try { ... } finally { WidgetTrace.end(WidgetTrace.UPDATE_COUNTDOWN, trace, "widgetId", appWidgetId); }
+ * </pre>
+ */
+final class WidgetTrace {
+
+    static final String ALARM_PASS = "WidgetUpdateReceiver.onReceive";
+    static final String DEFERRED_PASS = "WidgetUpdateWorker.doWork";
+    static final String UPDATE_COUNTDOWN = "EventCountdownWidget.updateAppWidget";
+    static final String UPDATE_LIST = "SimpleEventListWidgetProvider.updateAppWidget";
+    static final String LOAD_EVENTS = "CalendarRepository.loadEvents";
+    static final String CALENDAR_QUERY = "CalendarRepository.queryInstances";
+    static final String GET_VIEW_AT = "EventListWidgetService.getViewAt";
+
+    /** Returned by {@link #begin} while tracing is off. */
+    static final long NOT_TRACED = 0L;
+
+    private static final String PREFS_NAME = "com.example.eventcountdownwidget.Tracing";
+    private static final String KEY_ENABLED = "enabled";
+    private static final String TRACE_DIR = "traces";
+    private static final long MAX_BYTES_PER_FILE = 128 * 1024;
+
+    private static volatile Boolean sEnabled; // Null until read from the preferences
+    private static volatile TraceEventLog sLog;
+
+    private WidgetTrace() {}
+
+    /**
+     * For code without a Context at hand; counts as off until a {@link #begin(Context, String)}
+     * call has read the setting, which every update pass starts with.
+     */
+    static long begin(String section) {
+        Boolean enabled = sEnabled;
+        if (enabled == null || !enabled) {
+            return NOT_TRACED;
+        }
+        Trace.beginSection(section);
+        return System.nanoTime();
+    }
+
+    /** @return A token for {@link #end}: the start time, or {@link #NOT_TRACED}. */
+    static long begin(Context context, String section) {
+        Boolean enabled = sEnabled;
+        if (enabled == null) {
+            enabled = load(context);
+        }
+        if (!enabled) {
+            return NOT_TRACED;
+        }
+        Trace.beginSection(section);
+        return System.nanoTime();
+    }
+
+    static void end(String section, long token) {
+        end(section, token, null, 0L);
+    }
+
+    /** Closes the section opened by {@link #begin}; must run on the same thread, e.g. in a finally block. */
+    static void end(String section, long token, String argName, long argValue) {
+        if (token == NOT_TRACED) {
+            return;
+        }
+        long durationNanos = System.nanoTime() - token;
+        Trace.endSection();
+        TraceEventLog log = sLog;
+        if (log != null) {
+            log.append(section, token / 1000, durationNanos / 1000, Process.myPid(), Process.myTid(), argName, argValue);
+        }
+    }
+
+    /** Writes the spans collected so far to disk; called at the end of each update pass. */
+    static void flush() {
+        TraceEventLog log = sLog;
+        if (log != null) {
+            log.flush();
+        }
+    }
+
+    static boolean isEnabled(Context context) {
+        Boolean enabled = sEnabled;
+        return enabled != null ? enabled : load(context);
+    }
+
+    static synchronized void setEnabled(Context context, boolean enabled) {
+        context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit()
+                .putBoolean(KEY_ENABLED, enabled).apply();
+        log(context);
+        if (!enabled) {
+            sLog.flush();
+        }
+        sEnabled = enabled;
+    }
+
+    /** @return Every kept span as Chrome trace-event JSON, tagged with this build and device. */
+    static synchronized String export(Context context) {
+        String build = "unknown";
+        try {
+            PackageInfo info = context.getPackageManager().getPackageInfo(context.getPackageName(), 0);
+            build = info.versionName + " (" + info.getLongVersionCode() + ")";
+        } catch (PackageManager.NameNotFoundException e) {
+            // Keep "unknown"
+        }
+        return log(context).export(build + " on " + Build.MODEL + ", Android " + Build.VERSION.RELEASE);
+    }
+
+    private static synchronized boolean load(Context context) {
+        if (sEnabled == null) {
+            log(context);
+            sEnabled = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+                    .getBoolean(KEY_ENABLED, false);
+        }
+        return sEnabled;
+    }
+
+    private static TraceEventLog log(Context context) {
+        if (sLog == null) {
+            File dir = new File(context.getApplicationContext().getFilesDir(), TRACE_DIR);
+            sLog = new TraceEventLog(dir, MAX_BYTES_PER_FILE);
+        }
+        return sLog;
+    }
+}
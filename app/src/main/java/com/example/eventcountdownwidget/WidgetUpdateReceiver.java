@@ -1,199 +1,398 @@
 package com.example.eventcountdownwidget;
 
-import android.app.AlarmManager;
-import android.app.PendingIntent;
 import android.appwidget.AppWidgetManager;
 import android.content.BroadcastReceiver;
 import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
-import android.os.Build;
 import android.util.Log;
 
-import java.util.Calendar;
+import com.example.eventcountdownwidget.core.NextUpdateCalculator;
+import com.example.eventcountdownwidget.core.UpdateScheduler;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Drives timed widget refreshes through a single coalesced wakeup.
+ * Every widget instance registers its next deadline with the shared {@link UpdateScheduler};
+ * the {@link UpdateBackend} keeps one wakeup armed for the earliest deadline, and when it fires
+ * every widget that is due is refreshed in one batch before the wakeup is re-armed. Deadlines
+ * that must be on time get an exact alarm; the rest may be served by a deferrable one.
+ */
 public class WidgetUpdateReceiver extends BroadcastReceiver {
 
     private static final String TAG = "WidgetUpdateReceiver";
     public static final String ACTION_UPDATE_WIDGET = "com.example.eventcountdownwidget.ACTION_UPDATE_WIDGET";
-    public static final String EXTRA_WIDGET_ID = "com.example.eventcountdownwidget.EXTRA_WIDGET_ID";
-    public static final String EXTRA_PROVIDER_CLASS = "com.example.eventcountdownwidget.EXTRA_PROVIDER_CLASS";
+
+    // Persisted deadlines so the schedule survives process death between alarms
+    private static final String SCHEDULE_PREFS_NAME = "com.example.eventcountdownwidget.UpdateSchedule";
+    private static final String EXACT_KEY_SUFFIX = ".exact";
+    // How many batches each kind of wakeup served; every deferred one is an exact alarm avoided
+    private static final String WAKEUP_PREFS_NAME = "com.example.eventcountdownwidget.UpdateWakeups";
+    private static final String KEY_EXACT_WAKEUPS = "exact";
+    private static final String KEY_DEFERRED_WAKEUPS = "deferred";
+    // Wakeup counts are saved every this many wakeups; a process death loses at most the unsaved ones
+    private static final int WAKEUP_SAVE_BATCH = 16;
+
+    // Calendar edits reach list widgets through CalendarChangeObserver; this poll is only a backstop
+    private static final int LIST_POLL_INTERVAL_MINUTES = 12 * 60;
+    // Safety net: even a countdown whose text is stable for months gets re-rendered daily
+    private static final long MAX_COUNTDOWN_IDLE_MILLIS = TimeUnit.HOURS.toMillis(24);
+
+    private static UpdateScheduler sScheduler;
+    private static UpdateBackend sBackend = new HybridUpdateBackend();
+    // What the schedule prefs hold; null until the first write after process start
+    private static UpdateScheduler sPersisted;
+    // The deadlines the backend was last armed for; cleared once that wakeup is spent
+    private static boolean sArmed;
+    private static long sArmedDeadline;
+    private static long sArmedExactDeadline;
+    // Wakeup counts {exact, deferred}, loaded from the prefs on first use
+    private static long[] sWakeups;
+    private static int sUnsavedWakeups;
 
     @Override
     public void onReceive(Context context, Intent intent) {
         if (intent != null && ACTION_UPDATE_WIDGET.equals(intent.getAction())) {
-            int appWidgetId = intent.getIntExtra(EXTRA_WIDGET_ID, AppWidgetManager.INVALID_APPWIDGET_ID);
-            String providerClassName = intent.getStringExtra(EXTRA_PROVIDER_CLASS);
-
-            if (appWidgetId != AppWidgetManager.INVALID_APPWIDGET_ID && providerClassName != null) {
-                Log.d(TAG, "Received update alarm for widget ID: " + appWidgetId + " of type: " + providerClassName);
-
-                AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
-
-                // Trigger the update for the correct widget provider
-                try {
-                    Class<?> providerClass = Class.forName(providerClassName);
-                    if (EventCountdownWidget.class.getName().equals(providerClassName)) {
-                        EventCountdownWidget.updateAppWidget(context, appWidgetManager, appWidgetId);
-                    } else if (SimpleEventListWidgetProvider.class.getName().equals(providerClassName)) {
-                        SimpleEventListWidgetProvider.updateAppWidget(context, appWidgetManager, appWidgetId);
-                    } else {
-                        Log.w(TAG, "Unknown provider class name: " + providerClassName);
-                    }
-                } catch (ClassNotFoundException e) {
-                    Log.e(TAG, "Provider class not found: " + providerClassName, e);
-                } catch (Exception e) {
-                    Log.e(TAG, "Error updating widget ID " + appWidgetId, e);
-                }
-
-                // Reschedule the next update for the start of the next minute
-                scheduleNextUpdate(context, appWidgetId, providerClassName);
-            } else {
-                Log.w(TAG, "Invalid widget ID or provider class received in intent.");
+            long trace = WidgetTrace.begin(context, WidgetTrace.ALARM_PASS);
+            try {
+                runDueUpdates(context, false);
+            } finally {
+                WidgetTrace.end(WidgetTrace.ALARM_PASS, trace);
+                WidgetTrace.flush();
             }
         } else {
             Log.w(TAG, "Received unexpected intent: " + intent);
         }
     }
 
-    public static void scheduleNextUpdate(Context context, int appWidgetId, String providerClassName) {
-        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-        if (alarmManager == null) {
-            Log.e(TAG, "Cannot get AlarmManager service.");
-            return;
-        }
-
-        // Get event time from preferences to determine appropriate update interval
-        long eventStartTime = getEventStartTime(context, appWidgetId, providerClassName);
-        long eventEndTime = getEventEndTime(context, appWidgetId, providerClassName);
+    /** Swaps how refreshes are woken up, e.g. back to {@link ExactAlarmBackend} for everything. */
+    static synchronized void setBackend(Context context, UpdateBackend backend) {
+        sBackend = backend;
+        sArmed = false;
+        persistAndArm(context, getScheduler(context));
+    }
 
-        // Calculate update interval based on event timing
-        int updateIntervalMinutes = calculateUpdateInterval(eventStartTime, eventEndTime);
+    static synchronized UpdateBackend getBackend() {
+        return sBackend;
+    }
 
-        // Calculate next update time
-        Calendar calendar = Calendar.getInstance();
-        calendar.add(Calendar.MINUTE, updateIntervalMinutes);
-        calendar.set(Calendar.SECOND, 0);
-        calendar.set(Calendar.MILLISECOND, 0);
-        long triggerAtMillis = calendar.getTimeInMillis();
+    /**
+     * Refreshes every widget whose deadline has been reached (within the coalescing window),
+     * computes a fresh deadline for each and re-arms the wakeup.
+     *
+     * @param deferred Whether a deferrable wakeup (rather than the exact alarm) brought us here.
+     */
+    static synchronized void runDueUpdates(Context context, boolean deferred) {
+        sArmed = false; // The wakeup that brought us here is spent
+        UpdateScheduler scheduler = getScheduler(context);
+        long now = System.currentTimeMillis();
+        List<UpdateScheduler.Entry> due = scheduler.collectDue(now);
+        Log.d(TAG, (deferred ? "Deferred update ran: " : "Update alarm fired: ")
+                + due.size() + " of " + scheduler.size() + " widgets due.");
+        if (!due.isEmpty()) {
+            countWakeup(context, deferred);
+        }
 
-        Log.d(TAG, "Scheduling next update for widget " + appWidgetId +
-                " in " + updateIntervalMinutes + " minutes at " + calendar.getTime());
+        AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
+        int[] dueListIds = new int[due.size()];
+        int dueListCount = 0;
 
-        PendingIntent pendingIntent = createUpdatePendingIntent(context, appWidgetId,
-                providerClassName, PendingIntent.FLAG_UPDATE_CURRENT);
-        try {
-            // Use setExactAndAllowWhileIdle for better reliability across Doze modes
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
-                if (alarmManager.canScheduleExactAlarms()) {
-                    alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerAtMillis, pendingIntent);
+        WidgetMetrics metrics = WidgetMetrics.getInstance();
+        for (UpdateScheduler.Entry entry : due) {
+            metrics.alarmFired(entry.widgetId);
+            try {
+                if (EventCountdownWidget.class.getName().equals(entry.providerClassName)) {
+                    EventCountdownWidget.updateCountdownText(context, appWidgetManager, entry.widgetId);
+                } else if (SimpleEventListWidgetProvider.class.getName().equals(entry.providerClassName)) {
+                    dueListIds[dueListCount++] = entry.widgetId;
                 } else {
-                    alarmManager.setAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerAtMillis, pendingIntent);
-                    Log.w(TAG, "Cannot schedule exact alarms. Scheduled inexact update for widget " + appWidgetId);
+                    Log.w(TAG, "Unknown provider class name: " + entry.providerClassName);
                 }
-            } else {
-                alarmManager.setExact(AlarmManager.RTC_WAKEUP, triggerAtMillis, pendingIntent);
+            } catch (Exception e) {
+                Log.e(TAG, "Error updating widget ID " + entry.widgetId, e);
             }
-        } catch (SecurityException se) {
-            Log.e(TAG, "SecurityException scheduling alarm for widget " + appWidgetId + ". Check exact alarm permissions.", se);
-            alarmManager.setAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerAtMillis, pendingIntent);
-        } catch (Exception e) {
-            Log.e(TAG, "Error scheduling alarm for widget " + appWidgetId, e);
+            putDeadline(context, scheduler, scheduler, entry.widgetId, entry.providerClassName, now);
         }
+
+        // List widgets only need their item views refreshed; push all of them in one call
+        if (dueListCount > 0) {
+            int[] listIds = new int[dueListCount];
+            System.arraycopy(dueListIds, 0, listIds, 0, dueListCount);
+            try {
+                appWidgetManager.notifyAppWidgetViewDataChanged(listIds, R.id.event_list_view);
+                metrics.add(WidgetMetrics.Counter.LIST_DATA_CHANGED, dueListCount);
+            } catch (Exception e) {
+                Log.e(TAG, "Error refreshing list widgets", e);
+            }
+        }
+
+        persistAndArm(context, scheduler);
     }
 
-    // Helper method to calculate appropriate update interval based on event timing
-    private static int calculateUpdateInterval(long eventStartTime, long eventEndTime) {
-        long now = System.currentTimeMillis();
+    /**
+     * Registers (or refreshes) the next update deadline for one widget and re-arms the shared wakeup.
+     */
+    public static synchronized void scheduleNextUpdate(Context context, int appWidgetId, String providerClassName) {
+        UpdateScheduler scheduler = getScheduler(context);
+        long deadline = putDeadline(context, scheduler, scheduler, appWidgetId, providerClassName, System.currentTimeMillis());
+        Log.d(TAG, "Next update for widget " + appWidgetId + " due at " + new Date(deadline));
+        persistAndArm(context, scheduler);
+    }
+
+    public static synchronized void cancelUpdate(Context context, int appWidgetId, String providerClassName) {
+        UpdateScheduler scheduler = getScheduler(context);
+        scheduler.remove(appWidgetId);
+        Log.d(TAG, "Removed widget ID " + appWidgetId + " from the update schedule.");
+        persistAndArm(context, scheduler);
+    }
 
-        // For events happening now (between start and end time)
-        if (now >= eventStartTime && now < eventEndTime) {
-            return 1; // Update every minute for active events
+    /**
+     * Rebuilds the whole schedule from the live widgets: a fresh deadline for each, computed against
+     * the current clock, with one write and one wakeup for all of them. Deadlines the list factories
+     * reported earlier are kept while still ahead.
+     */
+    public static synchronized void rescheduleAll(Context context) {
+        AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
+        rescheduleAll(context,
+                appWidgetManager.getAppWidgetIds(new ComponentName(context, EventCountdownWidget.class)),
+                appWidgetManager.getAppWidgetIds(new ComponentName(context, SimpleEventListWidgetProvider.class)),
+                getScheduler(context));
+    }
+
+    /**
+     * Re-renders and reschedules every widget, for changes that invalidate all rendered texts at once.
+     * Countdown widgets each get a full update; the list widgets share one
+     * {@code notifyAppWidgetViewDataChanged}, after which their factories report exact deadlines.
+     */
+    public static synchronized void refreshAll(Context context) {
+        AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
+        int[] countdownIds = appWidgetManager.getAppWidgetIds(new ComponentName(context, EventCountdownWidget.class));
+        int[] listIds = appWidgetManager.getAppWidgetIds(new ComponentName(context, SimpleEventListWidgetProvider.class));
+        // Reported list deadlines assumed the old clock or texts; the factories report new ones
+        rescheduleAll(context, countdownIds, listIds, new UpdateScheduler());
+
+        for (int appWidgetId : countdownIds) {
+            try {
+                EventCountdownWidget.updateAppWidget(context, appWidgetManager, appWidgetId);
+            } catch (Exception e) {
+                Log.e(TAG, "Error updating widget ID " + appWidgetId, e);
+            }
         }
+        if (listIds.length > 0) {
+            try {
+                appWidgetManager.notifyAppWidgetViewDataChanged(listIds, R.id.event_list_view);
+                WidgetMetrics.getInstance().add(WidgetMetrics.Counter.LIST_DATA_CHANGED, listIds.length);
+            } catch (Exception e) {
+                Log.e(TAG, "Error refreshing list widgets", e);
+            }
+        }
+    }
 
-        // For past events
-        if (now >= eventEndTime) {
-            return 60; // Update hourly for past events
+    /** @param reported Source of the list widgets' reported deadlines. */
+    private static void rescheduleAll(Context context, int[] countdownIds, int[] listIds, UpdateScheduler reported) {
+        UpdateScheduler scheduler = new UpdateScheduler();
+        long now = System.currentTimeMillis();
+        String countdownProvider = EventCountdownWidget.class.getName();
+        for (int appWidgetId : countdownIds) {
+            putDeadline(context, scheduler, reported, appWidgetId, countdownProvider, now);
         }
+        String listProvider = SimpleEventListWidgetProvider.class.getName();
+        for (int appWidgetId : listIds) {
+            putDeadline(context, scheduler, reported, appWidgetId, listProvider, now);
+        }
+        sScheduler = scheduler;
+        Log.d(TAG, "Rescheduled " + countdownIds.length + " countdown and " + listIds.length + " list widgets.");
+        persistAndArm(context, scheduler);
+    }
 
-        // For future events, scale based on proximity
-        long diffMillis = eventStartTime - now;
+    /**
+     * Records the next text change of a list widget's rows, as computed by its RemoteViewsFactory
+     * once the events are loaded. The deadline is capped by the regular list polling interval.
+     *
+     * @param exact Whether that change must be shown on time (see {@link NextUpdateCalculator#needsExactListAlarm}).
+     */
+    public static synchronized void scheduleListUpdate(Context context, int appWidgetId, long nextTextChange, boolean exact) {
+        UpdateScheduler scheduler = getScheduler(context);
+        long now = System.currentTimeMillis();
+        long pollDeadline = UpdateScheduler.deadlineAfter(now, LIST_POLL_INTERVAL_MINUTES);
+        long deadline = Math.min(nextTextChange, pollDeadline);
+        scheduler.put(appWidgetId, SimpleEventListWidgetProvider.class.getName(), deadline, exact && nextTextChange <= pollDeadline);
+        WidgetMetrics.getInstance().alarmScheduled(appWidgetId);
+        Log.d(TAG, "Next list update for widget " + appWidgetId + " due at " + new Date(deadline));
+        persistAndArm(context, scheduler);
+    }
 
-        if (diffMillis <= TimeUnit.HOURS.toMillis(1)) {
-            return 1; // Every minute if less than 1 hour away
-        } else if (diffMillis <= TimeUnit.HOURS.toMillis(3)) {
-            return 5; // Every 5 minutes if 1-3 hours away
-        } else if (diffMillis <= TimeUnit.DAYS.toMillis(1)) {
-            return 15; // Every 15 minutes if 3-24 hours away
-        } else if (diffMillis <= TimeUnit.DAYS.toMillis(7)) {
-            return 60; // Hourly if 1-7 days away
-        } else {
-            return 240; // Every 4 hours if more than a week away
+    /**
+     * Computes the next refresh deadline for the given widget and puts it into {@code target},
+     * marked exact when it must be served on time.
+     *
+     * @param reported Source of the list widget's reported deadline; may be {@code target} itself.
+     * @return The deadline.
+     */
+    private static long putDeadline(Context context, UpdateScheduler target, UpdateScheduler reported,
+                                    int appWidgetId, String providerClassName, long now) {
+        WidgetMetrics.getInstance().alarmScheduled(appWidgetId);
+        if (EventCountdownWidget.class.getName().equals(providerClassName)) {
+            // Sleep until the next precomputed subtitle entry (text change, or the Chronometer handing back)
+            WidgetConfigCache.CountdownConfig config = WidgetConfigCache.get(context).getCountdownConfig(appWidgetId);
+            long nextChange = CountdownTimelineStore.get(context).nextChange(appWidgetId, config, now);
+            long deadline = Math.min(nextChange, now + MAX_COUNTDOWN_IDLE_MILLIS);
+            target.put(appWidgetId, providerClassName, deadline,
+                    NextUpdateCalculator.needsExactCountdownAlarm(deadline, config.eventStartTime, config.eventEndTime));
+            return deadline;
         }
+
+        // List rows are loaded asynchronously by the RemoteViewsFactory, which reports their exact
+        // next change via scheduleListUpdate(); until then fall back to the polling interval.
+        long pollDeadline = UpdateScheduler.deadlineAfter(now, LIST_POLL_INTERVAL_MINUTES);
+        long reportedDeadline = reported.deadlineOf(appWidgetId);
+        boolean useReported = reportedDeadline > now && reportedDeadline <= pollDeadline;
+        boolean exact = useReported && reported.isExact(appWidgetId);
+        long deadline = useReported ? reportedDeadline : pollDeadline;
+        target.put(appWidgetId, providerClassName, deadline, exact);
+        return deadline;
     }
 
-    // Helper method to get event start time for the given widget
-    private static long getEventStartTime(Context context, int appWidgetId, String providerClassName) {
-        SharedPreferences prefs = context.getSharedPreferences("com.example.eventcountdownwidget.WidgetPrefs", 0);
-        String keyPrefix;
+    /**
+     * Returns the in-memory schedule, rebuilding it from the persisted deadlines after process start.
+     * Live widgets without a persisted deadline are treated as due immediately.
+     */
+    private static UpdateScheduler getScheduler(Context context) {
+        if (sScheduler == null) {
+            UpdateScheduler scheduler = new UpdateScheduler();
+            SharedPreferences prefs = context.getSharedPreferences(SCHEDULE_PREFS_NAME, Context.MODE_PRIVATE);
+            AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
 
-        if (providerClassName.equals(EventCountdownWidget.class.getName())) {
-            keyPrefix = "widget_";
-        } else {
-            keyPrefix = "simple_list_widget_";
+            int[] countdownIds = appWidgetManager.getAppWidgetIds(new ComponentName(context, EventCountdownWidget.class));
+            for (int id : countdownIds) {
+                scheduler.put(id, EventCountdownWidget.class.getName(), prefs.getLong(String.valueOf(id), 0L),
+                        prefs.getBoolean(id + EXACT_KEY_SUFFIX, false));
+            }
+            int[] listIds = appWidgetManager.getAppWidgetIds(new ComponentName(context, SimpleEventListWidgetProvider.class));
+            for (int id : listIds) {
+                scheduler.put(id, SimpleEventListWidgetProvider.class.getName(), prefs.getLong(String.valueOf(id), 0L),
+                        prefs.getBoolean(id + EXACT_KEY_SUFFIX, false));
+            }
+            Log.d(TAG, "Restored update schedule for " + scheduler.size() + " widgets.");
+            sScheduler = scheduler;
         }
-
-        return prefs.getLong(keyPrefix + appWidgetId + "_event_time", System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1));
+        return sScheduler;
     }
 
-    // Helper method to get event end time for the given widget
-    private static long getEventEndTime(Context context, int appWidgetId, String providerClassName) {
-        SharedPreferences prefs = context.getSharedPreferences("com.example.eventcountdownwidget.WidgetPrefs", 0);
-        String keyPrefix;
+    /**
+     * Writes the deadlines that changed to disk and has the backend arm the wakeup for the earliest of
+     * them, unless it is already armed for the same deadlines. Also keeps the calendar observer
+     * registered exactly while list widgets exist.
+     */
+    private static void persistAndArm(Context context, UpdateScheduler scheduler) {
+        persist(context, scheduler);
 
-        if (providerClassName.equals(EventCountdownWidget.class.getName())) {
-            keyPrefix = "widget_";
-        } else {
-            keyPrefix = "simple_list_widget_";
+        boolean hasListWidgets = false;
+        for (UpdateScheduler.Entry entry : scheduler.entries()) {
+            if (SimpleEventListWidgetProvider.class.getName().equals(entry.providerClassName)) {
+                hasListWidgets = true;
+                break;
+            }
         }
+        CalendarChangeObserver.setEnabled(context, hasListWidgets);
 
-        // If no end time is stored, default to start time + 1 hour
-        long startTime = getEventStartTime(context, appWidgetId, providerClassName);
-        return prefs.getLong(keyPrefix + appWidgetId + "_event_end_time", startTime + TimeUnit.HOURS.toMillis(1));
+        long nextDeadline = scheduler.nextDeadline();
+        long nextExactDeadline = scheduler.nextExactDeadline();
+        if (sArmed && nextDeadline == sArmedDeadline && nextExactDeadline == sArmedExactDeadline) {
+            return;
+        }
+        if (nextDeadline != UpdateScheduler.NO_DEADLINE) {
+            Log.d(TAG, "Next update at " + new Date(nextDeadline) + (nextExactDeadline == nextDeadline ? " (exact)" : "")
+                    + ", " + scheduler.size() + " widgets tracked");
+        }
+        sBackend.arm(context, nextDeadline, nextExactDeadline);
+        sArmed = true;
+        sArmedDeadline = nextDeadline;
+        sArmedExactDeadline = nextExactDeadline;
     }
 
+    /**
+     * Brings the schedule prefs in line with {@code scheduler}, touching only the widgets whose
+     * deadline changed. The first write after process start also drops deadlines of deleted widgets.
+     */
+    private static void persist(Context context, UpdateScheduler scheduler) {
+        SharedPreferences.Editor editor = context.getSharedPreferences(SCHEDULE_PREFS_NAME, Context.MODE_PRIVATE).edit();
+        boolean changed = false;
+        if (sPersisted == null) {
+            editor.clear();
+            sPersisted = new UpdateScheduler();
+            changed = true;
+        }
+
+        List<Integer> removed = new ArrayList<>();
+        for (UpdateScheduler.Entry entry : sPersisted.entries()) {
+            if (!scheduler.contains(entry.widgetId)) {
+                removed.add(entry.widgetId);
+            }
+        }
+        for (int widgetId : removed) {
+            editor.remove(String.valueOf(widgetId)).remove(widgetId + EXACT_KEY_SUFFIX);
+            sPersisted.remove(widgetId);
+            changed = true;
+        }
 
-    public static void cancelUpdate(Context context, int appWidgetId, String providerClassName) {
-        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-        if (alarmManager != null) {
-            PendingIntent pendingIntent = createUpdatePendingIntent(context, appWidgetId, providerClassName, PendingIntent.FLAG_NO_CREATE);
-            if (pendingIntent != null) {
-                alarmManager.cancel(pendingIntent);
-                pendingIntent.cancel(); // Also cancel the PendingIntent itself
-                Log.d(TAG, "Cancelled update alarm for widget ID: " + appWidgetId);
+        for (UpdateScheduler.Entry entry : scheduler.entries()) {
+            if (sPersisted.contains(entry.widgetId) && sPersisted.deadlineOf(entry.widgetId) == entry.deadline
+                    && sPersisted.isExact(entry.widgetId) == entry.exact) {
+                continue;
+            }
+            editor.putLong(String.valueOf(entry.widgetId), entry.deadline);
+            if (entry.exact) {
+                editor.putBoolean(entry.widgetId + EXACT_KEY_SUFFIX, true);
             } else {
-                Log.d(TAG, "No existing alarm found to cancel for widget ID: " + appWidgetId);
+                editor.remove(entry.widgetId + EXACT_KEY_SUFFIX);
             }
+            sPersisted.put(entry.widgetId, entry.providerClassName, entry.deadline, entry.exact);
+            changed = true;
+        }
+
+        if (changed) {
+            editor.apply();
         }
     }
 
-    private static PendingIntent createUpdatePendingIntent(Context context, int appWidgetId, String providerClassName, int flags) {
-        Intent intent = new Intent(context, WidgetUpdateReceiver.class);
-        intent.setAction(ACTION_UPDATE_WIDGET);
-        intent.putExtra(EXTRA_WIDGET_ID, appWidgetId);
-        intent.putExtra(EXTRA_PROVIDER_CLASS, providerClassName);
-        // Ensure the intent is unique for each widget ID to avoid conflicts
-        intent.setData(android.net.Uri.parse("update://widget/" + appWidgetId));
+    /** Counts the wakeup in the metrics and in the saved totals, which are written in batches. */
+    private static void countWakeup(Context context, boolean deferred) {
+        WidgetMetrics.getInstance().increment(deferred ? WidgetMetrics.Counter.WAKEUPS_DEFERRED : WidgetMetrics.Counter.WAKEUPS_EXACT);
+        long[] wakeups = getWakeups(context);
+        long count = ++wakeups[deferred ? 1 : 0];
+        if (++sUnsavedWakeups >= WAKEUP_SAVE_BATCH) {
+            context.getSharedPreferences(WAKEUP_PREFS_NAME, Context.MODE_PRIVATE).edit()
+                    .putLong(KEY_EXACT_WAKEUPS, wakeups[0])
+                    .putLong(KEY_DEFERRED_WAKEUPS, wakeups[1])
+                    .apply();
+            sUnsavedWakeups = 0;
+        }
+        if (deferred) {
+            Log.d(TAG, "Exact alarms avoided so far: " + count);
+        }
+    }
 
-        int pendingIntentFlags = flags | PendingIntent.FLAG_IMMUTABLE;
+    private static long[] getWakeups(Context context) {
+        if (sWakeups == null) {
+            SharedPreferences prefs = context.getSharedPreferences(WAKEUP_PREFS_NAME, Context.MODE_PRIVATE);
+            sWakeups = new long[] {prefs.getLong(KEY_EXACT_WAKEUPS, 0L), prefs.getLong(KEY_DEFERRED_WAKEUPS, 0L)};
+        }
+        return sWakeups;
+    }
+
+    /** @return How many batches a deferrable wakeup served instead of an exact alarm. */
+    static synchronized long getExactAlarmsAvoided(Context context) {
+        return getWakeups(context)[1];
+    }
 
-        return PendingIntent.getBroadcast(
-                context,
-                appWidgetId, // Use widget ID as the request code for uniqueness
-                intent,
-                pendingIntentFlags
-        );
+    /** @return How many batches an exact alarm served. */
+    static synchronized long getExactWakeups(Context context) {
+        return getWakeups(context)[0];
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,36 @@
+package com.example.eventcountdownwidget;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+/**
+ * The deferrable wakeup enqueued by {@link HybridUpdateBackend}: runs the same batch of due widget
+ * refreshes as the exact alarm. The backend is told while it runs, so re-arming from the batch
+ * doesn't replace (and so cancel) this very work.
+ */
+public class WidgetUpdateWorker extends Worker {
+
+    public WidgetUpdateWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        UpdateBackend backend = WidgetUpdateReceiver.getBackend();
+        backend.onWorkStarted();
+        long trace = WidgetTrace.begin(context, WidgetTrace.DEFERRED_PASS);
+        try {
+            WidgetUpdateReceiver.runDueUpdates(context, true);
+        } finally {
+            WidgetTrace.end(WidgetTrace.DEFERRED_PASS, trace);
+            WidgetTrace.flush();
+            backend.onWorkFinished(context);
+        }
+        return Result.success();
+    }
+}
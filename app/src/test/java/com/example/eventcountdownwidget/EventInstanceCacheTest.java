@@ -0,0 +1,188 @@
+package com.example.eventcountdownwidget;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link EventInstanceCache}, using a loader that counts provider queries.
+ */
+public class EventInstanceCacheTest {
+
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    private static final long T0 = 1_700_000_040_000L;
+
+    private static final EventInstanceCache.Key KEY =
+            new EventInstanceCache.Key(Arrays.asList("3", "1"), DAY, 30 * DAY);
+
+    /**
+     * Serves {@code count} back-to-back hour-long events, the first ending a minute after T0, honouring the limit.
+     * Events are dealt round-robin to the requested calendars.
+     */
+    private static final class CountingLoader implements EventInstanceCache.Loader {
+        int queries;
+        int lastLimit;
+        List<String> lastCalendarIds;
+        int count = 40;
+        boolean fail;
+
+        @Override
+        public List<SimpleEventListWidgetProvider.CalendarEventItem> load(List<String> calendarIds,
+                long now, long windowStart, long windowEnd, int limit) {
+            queries++;
+            lastLimit = limit;
+            lastCalendarIds = calendarIds;
+            if (fail) return null;
+            List<SimpleEventListWidgetProvider.CalendarEventItem> items = new ArrayList<>();
+            for (int i = 0; i < count && items.size() < limit; i++) {
+                long start = T0 - HOUR + MINUTE + i * HOUR;
+                if (start + HOUR >= now) items.add(new SimpleEventListWidgetProvider.CalendarEventItem(i, calendarIds.get(i % calendarIds.size()), "Event " + i, start, start + HOUR, false));
+            }
+            return items;
+        }
+    }
+
+    @Test
+    public void tenWidgets_shareOneQuery() {
+        EventInstanceCache cache = new EventInstanceCache();
+        CountingLoader loader = new CountingLoader();
+        int[] maxEvents = {1, 5, 10, 25, 3, 10, 7, 10, 2, 25};
+        for (int max : maxEvents) {
+            List<SimpleEventListWidgetProvider.CalendarEventItem> events = cache.getEvents(KEY, T0, max, loader);
+            assertEquals(max, events.size());
+            assertEquals(0, events.get(0).getId()); // Every widget gets a prefix of the same sorted result
+        }
+        assertEquals(1, loader.queries);
+        assertEquals(1, cache.getQueryCount());
+    }
+
+    @Test
+    public void calendarSetOrder_doesNotChangeKey() {
+        EventInstanceCache cache = new EventInstanceCache();
+        CountingLoader loader = new CountingLoader();
+        cache.getEvents(KEY, T0, 5, loader);
+        cache.getEvents(new EventInstanceCache.Key(Arrays.asList("1", "3"), DAY, 30 * DAY), T0, 5, loader);
+        assertEquals(1, loader.queries);
+
+        // A subset of the calendars is served from their partitions
+        List<SimpleEventListWidgetProvider.CalendarEventItem> subset =
+                cache.getEvents(new EventInstanceCache.Key(Arrays.asList("1"), DAY, 30 * DAY), T0, 5, loader);
+        assertEquals(1, loader.queries);
+        assertEquals(5, subset.size());
+        for (SimpleEventListWidgetProvider.CalendarEventItem item : subset) assertEquals("1", item.getCalendarId());
+
+        cache.getEvents(new EventInstanceCache.Key(Arrays.asList("1"), DAY, 7 * DAY), T0, 5, loader);
+        assertEquals(2, loader.queries); // A different window can't reuse anything
+    }
+
+    @Test
+    public void addedCalendar_queriesOnlyThatCalendar() {
+        EventInstanceCache cache = new EventInstanceCache();
+        CountingLoader loader = new CountingLoader();
+        cache.getEvents(KEY, T0, 10, loader);
+
+        EventInstanceCache.Key added = new EventInstanceCache.Key(Arrays.asList("1", "3", "5"), DAY, 30 * DAY);
+        List<SimpleEventListWidgetProvider.CalendarEventItem> events = cache.getEvents(added, T0, 10, loader);
+        assertEquals(2, loader.queries);
+        assertEquals(Arrays.asList("5"), loader.lastCalendarIds);
+        assertEquals(10, events.size());
+        for (int i = 1; i < events.size(); i++) {
+            assertTrue(events.get(i - 1).getStartTime() <= events.get(i).getStartTime());
+        }
+    }
+
+    @Test
+    public void droppedCalendar_disappearsWithoutQuery() {
+        EventInstanceCache cache = new EventInstanceCache();
+        CountingLoader loader = new CountingLoader();
+        cache.getEvents(KEY, T0, 10, loader);
+
+        cache.dropCalendars(Arrays.asList("3"));
+        EventInstanceCache.Key remaining = new EventInstanceCache.Key(Arrays.asList("1"), DAY, 30 * DAY);
+        List<SimpleEventListWidgetProvider.CalendarEventItem> events = cache.getEvents(remaining, T0, 10, loader);
+        assertEquals(1, loader.queries);
+        assertEquals(10, events.size());
+        for (SimpleEventListWidgetProvider.CalendarEventItem item : events) assertEquals("1", item.getCalendarId());
+
+        // Re-adding it queries just that calendar again
+        cache.getEvents(KEY, T0, 10, loader);
+        assertEquals(2, loader.queries);
+        assertEquals(Arrays.asList("3"), loader.lastCalendarIds);
+    }
+
+    @Test
+    public void expiredResult_isQueriedAgain() {
+        EventInstanceCache cache = new EventInstanceCache();
+        CountingLoader loader = new CountingLoader();
+        cache.getEvents(KEY, T0, 5, loader);
+        cache.getEvents(KEY, T0 + EventInstanceCache.TTL_MILLIS - 1, 5, loader);
+        assertEquals(1, loader.queries);
+        cache.getEvents(KEY, T0 + EventInstanceCache.TTL_MILLIS, 5, loader);
+        assertEquals(2, loader.queries);
+    }
+
+    @Test
+    public void invalidate_forcesQuery() {
+        EventInstanceCache cache = new EventInstanceCache();
+        CountingLoader loader = new CountingLoader();
+        cache.getEvents(KEY, T0, 5, loader);
+        cache.invalidate();
+        cache.getEvents(KEY, T0 + MINUTE, 5, loader);
+        assertEquals(2, loader.queries);
+    }
+
+    @Test
+    public void endedEvents_areSkippedAndTruncatedResultRefetched() {
+        EventInstanceCache cache = new EventInstanceCache();
+        CountingLoader loader = new CountingLoader();
+        cache.getEvents(KEY, T0, 25, loader);
+        assertEquals(25, loader.lastLimit);
+
+        // Past the first event's end but within the TTL: it drops out, and the 25-item result can't fill 25 rows
+        long later = T0 + 2 * MINUTE;
+        List<SimpleEventListWidgetProvider.CalendarEventItem> small = cache.getEvents(KEY, later, 5, loader);
+        assertEquals(1, small.get(0).getId());
+        assertEquals(1, loader.queries);
+        List<SimpleEventListWidgetProvider.CalendarEventItem> full = cache.getEvents(KEY, later, 25, loader);
+        assertEquals(25, full.size());
+        assertEquals(2, loader.queries);
+    }
+
+    @Test
+    public void largeMaxEvents_raisesQueryLimit() {
+        EventInstanceCache cache = new EventInstanceCache();
+        CountingLoader loader = new CountingLoader();
+        cache.getEvents(KEY, T0, 5, loader);
+        assertEquals(30, cache.getEvents(KEY, T0, 30, loader).size());
+        assertEquals(30, loader.lastLimit);
+        assertEquals(2, loader.queries);
+    }
+
+    @Test
+    public void failedQuery_isNotCached() {
+        EventInstanceCache cache = new EventInstanceCache();
+        CountingLoader loader = new CountingLoader();
+        loader.fail = true;
+        assertTrue(cache.getEvents(KEY, T0, 5, loader).isEmpty());
+        loader.fail = false;
+        assertEquals(5, cache.getEvents(KEY, T0, 5, loader).size());
+        assertEquals(2, loader.queries);
+    }
+
+    @Test
+    public void returnedList_isIndependentCopy() {
+        EventInstanceCache cache = new EventInstanceCache();
+        CountingLoader loader = new CountingLoader();
+        cache.getEvents(KEY, T0, 5, loader).clear(); // The factory clears its list in onDestroy
+        assertEquals(5, cache.getEvents(KEY, T0, 5, loader).size());
+        assertEquals(1, loader.queries);
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.eventcountdownwidget;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link EventPageWindow}.
+ */
+public class EventPageWindowTest {
+
+    private static final int PAGE = 10;
+
+    /** Keyset source over 0..total-1, serving pages the way the provider query does. */
+    private static List<Integer> fetch(EventPageWindow.Load<Integer> load, int total) {
+        List<Integer> page = new ArrayList<>();
+        if (!load.backward) {
+            int from = load.anchor == null ? 0 : load.anchor + 1;
+            for (int i = from; i < total && page.size() < load.limit; i++) page.add(i);
+        } else {
+            for (int i = load.anchor - 1; i >= 0 && page.size() < load.limit; i--) page.add(0, i);
+        }
+        return page;
+    }
+
+    private static boolean load(EventPageWindow<Integer> window, EventPageWindow.Load<Integer> load, int total) {
+        return window.apply(load, fetch(load, total));
+    }
+
+    @Test
+    public void firstPage_loadsFromTheStart() {
+        EventPageWindow<Integer> window = new EventPageWindow<>(PAGE, 3, 2);
+        EventPageWindow.Load<Integer> first = window.start();
+        assertNull(first.anchor);
+        assertFalse(first.backward);
+        assertNull("No second load while the first is pending", window.onVisibleRange(0, 5));
+
+        assertTrue(load(window, first, 100));
+        assertEquals(PAGE, window.items().size());
+        assertTrue(window.isFirstPageLoaded());
+        assertEquals(Integer.valueOf(0), window.items().get(0));
+    }
+
+    @Test
+    public void scrollingNearTheEnd_appendsAfterLastKey() {
+        EventPageWindow<Integer> window = new EventPageWindow<>(PAGE, 3, 2);
+        load(window, window.start(), 100);
+
+        assertNull("Far from the end", window.onVisibleRange(0, 5));
+        EventPageWindow.Load<Integer> next = window.onVisibleRange(2, 8);
+        assertNotNull(next);
+        assertEquals(Integer.valueOf(9), next.anchor);
+        load(window, next, 100);
+        assertEquals(20, window.items().size());
+        assertEquals(Integer.valueOf(19), window.items().get(19));
+    }
+
+    @Test
+    public void window_isBoundedAndReloadsEvictedPagesBackward() {
+        EventPageWindow<Integer> window = new EventPageWindow<>(PAGE, 3, 2);
+        load(window, window.start(), 100);
+        for (int i = 0; i < 2; i++) {
+            load(window, window.onVisibleRange(0, window.items().size() - 1), 100);
+        }
+        assertEquals(30, window.items().size());
+
+        // Fourth page evicts the first
+        assertTrue(load(window, window.onVisibleRange(20, 29), 100));
+        assertEquals(30, window.items().size());
+        assertEquals(Integer.valueOf(10), window.items().get(0));
+
+        // Scrolling back up reloads it and evicts the newest page
+        EventPageWindow.Load<Integer> back = window.onVisibleRange(0, 5);
+        assertTrue(back.backward);
+        assertEquals(Integer.valueOf(10), back.anchor);
+        assertTrue(load(window, back, 100));
+        assertEquals(30, window.items().size());
+        assertEquals(Integer.valueOf(0), window.items().get(0));
+        assertEquals(Integer.valueOf(29), window.items().get(29));
+
+        // A full page can't tell whether more precede it; an empty one marks the start again
+        EventPageWindow.Load<Integer> beforeStart = window.onVisibleRange(0, 5);
+        assertTrue(beforeStart.backward);
+        assertFalse(load(window, beforeStart, 100));
+        assertNull(window.onVisibleRange(0, 5));
+
+        // The evicted end can be re-fetched
+        EventPageWindow.Load<Integer> forward = window.onVisibleRange(20, 29);
+        assertFalse(forward.backward);
+        assertEquals(Integer.valueOf(29), forward.anchor);
+    }
+
+    @Test
+    public void shortPage_marksTheEnd() {
+        EventPageWindow<Integer> window = new EventPageWindow<>(PAGE, 3, 2);
+        load(window, window.start(), 15);
+        load(window, window.onVisibleRange(0, 9), 15);
+        assertEquals(15, window.items().size());
+        assertNull(window.onVisibleRange(0, 14));
+    }
+
+    @Test
+    public void emptyFirstPage_isLoadedAndFinal() {
+        EventPageWindow<Integer> window = new EventPageWindow<>(PAGE, 3, 2);
+        assertFalse(load(window, window.start(), 0));
+        assertTrue(window.isFirstPageLoaded());
+        assertTrue(window.items().isEmpty());
+        assertNull(window.onVisibleRange(-1, -1));
+    }
+
+    @Test
+    public void staleLoads_areIgnoredAfterRestart() {
+        EventPageWindow<Integer> window = new EventPageWindow<>(PAGE, 3, 2);
+        EventPageWindow.Load<Integer> stale = window.start();
+        EventPageWindow.Load<Integer> current = window.start();
+
+        assertFalse(window.apply(stale, Collections.singletonList(42)));
+        assertFalse(window.isFirstPageLoaded());
+        assertTrue(load(window, current, 100));
+        assertEquals(Integer.valueOf(0), window.items().get(0));
+    }
+
+    @Test
+    public void failedLoad_canBeRetried() {
+        EventPageWindow<Integer> window = new EventPageWindow<>(PAGE, 3, 2);
+        load(window, window.start(), 100);
+        EventPageWindow.Load<Integer> next = window.onVisibleRange(0, 9);
+        assertFalse(window.apply(next, null));
+        assertEquals(PAGE, window.items().size());
+
+        EventPageWindow.Load<Integer> retry = window.onVisibleRange(0, 9);
+        assertNotNull(retry);
+        assertEquals(Integer.valueOf(9), retry.anchor);
+    }
+
+    @Test
+    public void retain_keepsFlaggedItemsInOrder() {
+        EventPageWindow<Integer> window = new EventPageWindow<>(PAGE, 3, 2);
+        load(window, window.start(), 8);
+        assertTrue(window.isComplete());
+
+        boolean[] keep = {true, false, false, true, true, false, true, false};
+        assertEquals(4, window.retain(keep));
+        assertEquals(Arrays.asList(0, 3, 4, 6), window.items());
+        assertTrue(window.isComplete());
+        assertNull(window.onVisibleRange(0, 3));
+    }
+
+    @Test
+    public void retain_isRejectedForPartialResults() {
+        EventPageWindow<Integer> window = new EventPageWindow<>(PAGE, 3, 2);
+        load(window, window.start(), 100);
+        assertFalse(window.isComplete());
+        try {
+            window.retain(new boolean[PAGE]);
+            fail("A partial result can't be narrowed in memory");
+        } catch (IllegalStateException expected) {
+            // Expected
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.eventcountdownwidget;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link EventTitleSearch}.
+ */
+public class EventTitleSearchTest {
+
+    @Test
+    public void normalize_lowercasesAndCollapsesWhitespace() {
+        assertEquals("team sync weekly", EventTitleSearch.normalize("  Team\tSync   WEEKLY "));
+        assertNull(EventTitleSearch.normalize("   "));
+        assertNull(EventTitleSearch.normalize(null));
+    }
+
+    @Test
+    public void matches_requiresEveryToken() {
+        String title = EventTitleSearch.normalize("Quarterly Planning Review");
+        assertTrue(EventTitleSearch.matches(title, EventTitleSearch.tokens("plan quart")));
+        assertFalse(EventTitleSearch.matches(title, EventTitleSearch.tokens("plan budget")));
+        assertTrue(EventTitleSearch.matches(title, EventTitleSearch.tokens(null)));
+        assertFalse(EventTitleSearch.matches(null, EventTitleSearch.tokens("plan")));
+    }
+
+    @Test
+    public void narrows_onlyWhenTextWasAdded() {
+        assertTrue(EventTitleSearch.narrows(null, "a"));
+        assertTrue(EventTitleSearch.narrows("pla", "plan"));
+        assertTrue(EventTitleSearch.narrows("plan", "plan r"));
+        assertFalse(EventTitleSearch.narrows("plan", "pla"));
+        assertFalse(EventTitleSearch.narrows("plan", "review"));
+        assertFalse(EventTitleSearch.narrows("plan", null));
+    }
+
+    @Test
+    public void narrowedResult_equalsFullSearch() {
+        List<String> titles = new ArrayList<>();
+        for (String title : Arrays.asList("Planning", "Plan review", "Lunch", "Sprint plan", "Review", "Planet talk")) {
+            titles.add(EventTitleSearch.normalize(title));
+        }
+        boolean[] broad = EventTitleSearch.match(titles, Function.identity(), EventTitleSearch.tokens("plan"), () -> false);
+        boolean[] full = EventTitleSearch.match(titles, Function.identity(), EventTitleSearch.tokens("plan re"), () -> false);
+        for (int i = 0; i < full.length; i++) {
+            assertTrue("Narrower query matched a row the broader one did not", !full[i] || broad[i]);
+        }
+        assertArrayEquals(new boolean[] {false, true, false, false, false, false}, full);
+    }
+
+    @Test
+    public void match_stopsWhenCancelled() {
+        List<String> titles = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) titles.add("event " + i);
+        int[] checks = new int[1];
+        // Cancelled after the first check: the rest of the rows are skipped
+        assertNull(EventTitleSearch.match(titles, Function.identity(), EventTitleSearch.tokens("event"),
+                () -> checks[0]++ > 0));
+        assertEquals(2, checks[0]);
+        assertEquals(1000, EventTitleSearch.match(titles, Function.identity(), EventTitleSearch.tokens("event"),
+                () -> false).length);
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.eventcountdownwidget;
+
+import android.app.AlarmManager;
+import android.app.Application;
+import android.appwidget.AppWidgetManager;
+import android.content.Context;
+import android.util.Log;
+
+import androidx.work.Configuration;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
+import androidx.work.testing.SynchronousExecutor;
+import androidx.work.testing.TestDriver;
+import androidx.work.testing.WorkManagerTestInitHelper;
+
+import com.example.eventcountdownwidget.core.UpdateScheduler;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowAlarmManager;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Robolectric tests for {@link HybridUpdateBackend}: which deadlines get the exact alarm, which go
+ * to the deferrable work, and that the work runs the due widget refreshes and counts the exact
+ * alarm it saved.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class HybridUpdateBackendTest {
+
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    private Application context;
+    private ShadowAlarmManager alarms;
+    private WorkManager workManager;
+    private HybridUpdateBackend backend;
+    private long now;
+
+    @Before
+    public void setUp() throws Exception {
+        context = RuntimeEnvironment.getApplication();
+        Configuration config = new Configuration.Builder()
+                .setMinimumLoggingLevel(Log.DEBUG)
+                .setExecutor(new SynchronousExecutor())
+                .build();
+        WorkManagerTestInitHelper.initializeTestWorkManager(context, config);
+        workManager = WorkManager.getInstance(context);
+        ShadowAlarmManager.setCanScheduleExactAlarms(true);
+        alarms = shadowOf((AlarmManager) context.getSystemService(Context.ALARM_SERVICE));
+        backend = new HybridUpdateBackend();
+        now = System.currentTimeMillis();
+        // The worker reports to the receiver's backend
+        Field field = WidgetUpdateReceiver.class.getDeclaredField("sBackend");
+        field.setAccessible(true);
+        field.set(null, backend);
+        Field armed = WidgetUpdateReceiver.class.getDeclaredField("sArmed");
+        armed.setAccessible(true);
+        armed.set(null, false);
+    }
+
+    @Test
+    public void farDeadline_isDeferredWithoutAlarm() throws Exception {
+        backend.arm(context, now + 3 * HOUR, UpdateScheduler.NO_DEADLINE);
+        assertNull(alarms.getNextScheduledAlarm());
+        assertEquals(WorkInfo.State.ENQUEUED, deferredWork().getState());
+    }
+
+    @Test
+    public void exactDeadlineFirst_armsAlarmAndDropsWork() throws Exception {
+        backend.arm(context, now + 3 * HOUR, UpdateScheduler.NO_DEADLINE);
+        backend.arm(context, now + 10 * MINUTE, now + 10 * MINUTE);
+        assertEquals(now + 10 * MINUTE, alarms.getNextScheduledAlarm().getTriggerAtMs());
+        assertEquals(WorkInfo.State.CANCELLED, deferredWork().getState());
+    }
+
+    @Test
+    public void afterProcessRestart_cancelsStaleWork() throws Exception {
+        backend.arm(context, now + 3 * HOUR, UpdateScheduler.NO_DEADLINE);
+        // A new process starts with a new backend that never enqueued anything itself
+        new HybridUpdateBackend().arm(context, now + 10 * MINUTE, now + 10 * MINUTE);
+        assertEquals(WorkInfo.State.CANCELLED, deferredWork().getState());
+    }
+
+    @Test
+    public void exactDeadlineLater_keepsBoth() throws Exception {
+        backend.arm(context, now + 3 * HOUR, now + 2 * DAY);
+        assertEquals(now + 2 * DAY, alarms.getNextScheduledAlarm().getTriggerAtMs());
+        assertEquals(WorkInfo.State.ENQUEUED, deferredWork().getState());
+    }
+
+    @Test
+    public void deferredWork_runsDueWidgetsAndCountsAvoidedAlarm() throws Exception {
+        shadowOf(AppWidgetManager.getInstance(context))
+                .createWidget(EventCountdownWidget.class, R.layout.event_countdown_widget);
+        forgetSchedule(); // Restored without a persisted deadline, the widget is due right away
+        backend.arm(context, now + HOUR, UpdateScheduler.NO_DEADLINE);
+        long avoided = WidgetUpdateReceiver.getExactAlarmsAvoided(context);
+
+        TestDriver driver = WorkManagerTestInitHelper.getTestDriver(context);
+        driver.setInitialDelayMet(deferredWork().getId());
+
+        assertEquals(avoided + 1, WidgetUpdateReceiver.getExactAlarmsAvoided(context));
+    }
+
+    @Test
+    public void deferredWork_chainsItsSuccessorInsteadOfCancellingItself() throws Exception {
+        shadowOf(AppWidgetManager.getInstance(context))
+                .createWidget(EventCountdownWidget.class, R.layout.event_countdown_widget);
+        forgetSchedule();
+        backend.arm(context, now + HOUR, UpdateScheduler.NO_DEADLINE);
+        WorkInfo first = deferredWork();
+
+        // The batch re-arms for the widget's next (deferrable) refresh while the work still runs
+        WorkManagerTestInitHelper.getTestDriver(context).setInitialDelayMet(first.getId());
+
+        List<WorkInfo> infos = workManager.getWorkInfosForUniqueWork(HybridUpdateBackend.WORK_NAME).get();
+        assertEquals(2, infos.size());
+        for (WorkInfo info : infos) {
+            if (info.getId().equals(first.getId())) {
+                assertEquals(WorkInfo.State.SUCCEEDED, info.getState());
+            } else {
+                assertEquals(WorkInfo.State.ENQUEUED, info.getState());
+            }
+        }
+    }
+
+    private void forgetSchedule() throws Exception {
+        context.getSharedPreferences("com.example.eventcountdownwidget.UpdateSchedule", Context.MODE_PRIVATE)
+                .edit().clear().commit();
+        for (String name : new String[] {"sScheduler", "sPersisted"}) {
+            Field field = WidgetUpdateReceiver.class.getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(null, null);
+        }
+    }
+
+    private WorkInfo deferredWork() throws Exception {
+        List<WorkInfo> infos = workManager.getWorkInfosForUniqueWork(HybridUpdateBackend.WORK_NAME).get();
+        assertEquals(1, infos.size());
+        return infos.get(0);
+    }
+}
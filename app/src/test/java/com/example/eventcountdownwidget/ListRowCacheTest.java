@@ -0,0 +1,68 @@
+package com.example.eventcountdownwidget;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link ListRowCache}.
+ */
+public class ListRowCacheTest {
+
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+    private static final long T0 = 1_700_000_040_000L;
+    private static final long END = T0 + 30 * MINUTE;
+
+    private static ListRowCache<String> cacheWithRow() {
+        ListRowCache<String> cache = new ListRowCache<>();
+        cache.resize(3);
+        cache.put(1, 42, T0, END, false, "Standup", "in 5m", T0 - 4 * MINUTE, "row");
+        return cache;
+    }
+
+    @Test
+    public void getCurrent_hitsUntilSubtitleChanges() {
+        ListRowCache<String> cache = cacheWithRow();
+        assertEquals("row", cache.getCurrent(1, 42, T0, END, false, "Standup", T0 - 5 * MINUTE));
+        assertNull(cache.getCurrent(1, 42, T0, END, false, "Standup", T0 - 4 * MINUTE));
+    }
+
+    @Test
+    public void getCurrent_missesOtherInstanceOrEditedEvent() {
+        ListRowCache<String> cache = cacheWithRow();
+        long now = T0 - 5 * MINUTE;
+        assertNull(cache.getCurrent(1, 43, T0, END, false, "Standup", now));
+        assertNull(cache.getCurrent(1, 42, T0 + MINUTE, END, false, "Standup", now)); // Another instance of the same event
+        assertNull(cache.getCurrent(1, 42, T0, END, false, "Retro", now));
+        assertNull(cache.getCurrent(1, 42, T0, END + MINUTE, false, "Standup", now)); // End time edited
+        assertNull(cache.getCurrent(1, 42, T0, END, true, "Standup", now)); // Made all-day
+        assertNull(cache.getCurrent(0, 42, T0, END, false, "Standup", now));
+    }
+
+    @Test
+    public void get_keepsRowWhoseSubtitleCameOutTheSame() {
+        ListRowCache<String> cache = cacheWithRow();
+        assertEquals("row", cache.get(1, 42, T0, END, false, "Standup", "in 5m"));
+        assertNull(cache.get(1, 42, T0, END, false, "Standup", "in 4m"));
+    }
+
+    @Test
+    public void resize_keepsRowsByPosition() {
+        ListRowCache<String> cache = cacheWithRow();
+        cache.resize(5);
+        assertEquals("row", cache.get(1, 42, T0, END, false, "Standup", "in 5m"));
+        cache.resize(1);
+        assertNull(cache.get(1, 42, T0, END, false, "Standup", "in 5m"));
+        cache.put(4, 42, T0, END, false, "Standup", "in 5m", T0, "row"); // Out of range, ignored
+        assertNull(cache.get(4, 42, T0, END, false, "Standup", "in 5m"));
+    }
+
+    @Test
+    public void clear_dropsEveryRow() {
+        ListRowCache<String> cache = cacheWithRow();
+        cache.clear();
+        assertNull(cache.get(1, 42, T0, END, false, "Standup", "in 5m"));
+    }
+}
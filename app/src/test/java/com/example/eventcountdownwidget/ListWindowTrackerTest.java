@@ -0,0 +1,83 @@
+package com.example.eventcountdownwidget;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link ListWindowTracker}.
+ */
+public class ListWindowTrackerTest {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long T0 = 1_700_000_040_000L;
+
+    private static List<SimpleEventListWidgetProvider.CalendarEventItem> events(int count) {
+        List<SimpleEventListWidgetProvider.CalendarEventItem> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            items.add(item(i, "Event " + i, T0 + i * HOUR, T0 + (i + 1) * HOUR, false));
+        }
+        return items;
+    }
+
+    private static SimpleEventListWidgetProvider.CalendarEventItem item(long id, String title, long start, long end, boolean allDay) {
+        return new SimpleEventListWidgetProvider.CalendarEventItem(id, title, start, end, allDay);
+    }
+
+    @Test
+    public void fingerprint_isStableForEqualRows() {
+        assertEquals(ListWindowTracker.fingerprint(events(5)), ListWindowTracker.fingerprint(events(5)));
+    }
+
+    @Test
+    public void fingerprint_changesWithAnyVisibleField() {
+        long base = ListWindowTracker.fingerprint(events(3));
+        List<SimpleEventListWidgetProvider.CalendarEventItem> edited = events(3);
+
+        edited.set(1, item(1, "Renamed", T0 + HOUR, T0 + 2 * HOUR, false));
+        assertNotEquals(base, ListWindowTracker.fingerprint(edited));
+        edited.set(1, item(1, "Event 1", T0 + HOUR + 60_000, T0 + 2 * HOUR, false));
+        assertNotEquals(base, ListWindowTracker.fingerprint(edited));
+        edited.set(1, item(1, "Event 1", T0 + HOUR, T0 + 3 * HOUR, false));
+        assertNotEquals(base, ListWindowTracker.fingerprint(edited));
+        edited.set(1, item(1, "Event 1", T0 + HOUR, T0 + 2 * HOUR, true));
+        assertNotEquals(base, ListWindowTracker.fingerprint(edited));
+        edited.set(1, item(99, "Event 1", T0 + HOUR, T0 + 2 * HOUR, false));
+        assertNotEquals(base, ListWindowTracker.fingerprint(edited));
+
+        assertNotEquals(base, ListWindowTracker.fingerprint(events(2)));
+        List<SimpleEventListWidgetProvider.CalendarEventItem> swapped = events(3);
+        swapped.add(0, swapped.remove(1));
+        assertNotEquals(base, ListWindowTracker.fingerprint(swapped));
+    }
+
+    @Test
+    public void hasChanged_unknownWidgetCountsAsChanged() {
+        ListWindowTracker tracker = new ListWindowTracker();
+        assertTrue(tracker.hasChanged(7, ListWindowTracker.fingerprint(events(3))));
+    }
+
+    @Test
+    public void hasChanged_onlyWidgetsWhoseWindowContainsTheEdit() {
+        ListWindowTracker tracker = new ListWindowTracker();
+        List<SimpleEventListWidgetProvider.CalendarEventItem> before = events(10);
+        int[] maxEvents = {3, 5, 10};
+        for (int id = 0; id < maxEvents.length; id++) {
+            tracker.recordRendered(id, ListWindowTracker.fingerprint(before.subList(0, maxEvents[id])));
+        }
+
+        // An edit to the 5th event is only visible to widgets showing at least 5 rows
+        List<SimpleEventListWidgetProvider.CalendarEventItem> after = events(10);
+        after.set(4, item(4, "Moved", T0 + 20 * HOUR, T0 + 21 * HOUR, false));
+        assertFalse(tracker.hasChanged(0, ListWindowTracker.fingerprint(after.subList(0, 3))));
+        assertTrue(tracker.hasChanged(1, ListWindowTracker.fingerprint(after.subList(0, 5))));
+        assertTrue(tracker.hasChanged(2, ListWindowTracker.fingerprint(after.subList(0, 10))));
+
+        tracker.forget(0);
+        assertTrue(tracker.hasChanged(0, ListWindowTracker.fingerprint(after.subList(0, 3))));
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.eventcountdownwidget;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link RemoteViewsTrafficCounter}.
+ */
+public class RemoteViewsTrafficCounterTest {
+
+    private static final long HOUR = RemoteViewsTrafficCounter.BUCKET_MILLIS;
+    private static final long T0 = 1_700_000_000_000L / HOUR * HOUR; // Start of an hour
+
+    @Test
+    public void updatesWithinAnHour_accumulate() {
+        RemoteViewsTrafficCounter counter = new RemoteViewsTrafficCounter();
+        assertNull(counter.record(T0, 1200, false));
+        assertNull(counter.record(T0 + HOUR / 2, 90, true));
+        assertNull(counter.record(T0 + HOUR - 1, 90, true));
+
+        RemoteViewsTrafficCounter.Totals totals = counter.current();
+        assertEquals(T0, totals.bucketStartMillis);
+        assertEquals(1, totals.fullUpdates);
+        assertEquals(1200, totals.fullBytes);
+        assertEquals(2, totals.partialUpdates);
+        assertEquals(180, totals.partialBytes);
+        assertEquals(1380, totals.totalBytes());
+    }
+
+    @Test
+    public void nextHour_closesPreviousBucket() {
+        RemoteViewsTrafficCounter counter = new RemoteViewsTrafficCounter();
+        counter.record(T0 + 10, 1000, false);
+        counter.record(T0 + 20, 100, true);
+
+        RemoteViewsTrafficCounter.Totals closed = counter.record(T0 + 3 * HOUR + 5, 100, true);
+        assertNotNull(closed);
+        assertEquals(T0, closed.bucketStartMillis);
+        assertEquals(1100, closed.totalBytes());
+
+        RemoteViewsTrafficCounter.Totals current = counter.current();
+        assertEquals(T0 + 3 * HOUR, current.bucketStartMillis);
+        assertEquals(0, current.fullUpdates);
+        assertEquals(100, current.partialBytes);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.eventcountdownwidget;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link TraceEventLog}.
+ */
+public class TraceEventLogTest {
+
+    private static File newDir() throws IOException {
+        File dir = Files.createTempDirectory("trace").toFile();
+        dir.deleteOnExit();
+        return new File(dir, "traces"); // Created on first flush
+    }
+
+    private static int countEvents(String json) {
+        int count = 0;
+        for (int i = json.indexOf("\"ph\":\"X\""); i >= 0; i = json.indexOf("\"ph\":\"X\"", i + 1)) count++;
+        return count;
+    }
+
+    @Test
+    public void export_isChromeTraceEventJson() throws IOException {
+        TraceEventLog log = new TraceEventLog(newDir(), 64 * 1024);
+        log.append("WidgetUpdateReceiver.onReceive", 1_000, 250, 42, 7, null, 0);
+        log.append("EventCountdownWidget.updateAppWidget", 1_010, 30, 42, 7, "widgetId", 12);
+
+        String json = log.export("1.0 (1) \"beta\"");
+        assertEquals("{\"traceEvents\":["
+                + "{\"name\":\"WidgetUpdateReceiver.onReceive\",\"cat\":\"widget\",\"ph\":\"X\",\"ts\":1000,\"dur\":250,\"pid\":42,\"tid\":7},"
+                + "{\"name\":\"EventCountdownWidget.updateAppWidget\",\"cat\":\"widget\",\"ph\":\"X\",\"ts\":1010,\"dur\":30,\"pid\":42,\"tid\":7,\"args\":{\"widgetId\":12}}"
+                + "],\"displayTimeUnit\":\"ms\",\"otherData\":{\"build\":\"1.0 (1) \\\"beta\\\"\",\"clock\":\"monotonic\"}}", json);
+    }
+
+    @Test
+    public void spans_surviveANewInstance() throws IOException {
+        File dir = newDir();
+        TraceEventLog log = new TraceEventLog(dir, 64 * 1024);
+        log.append("a", 1, 1, 1, 1, null, 0);
+        log.flush();
+
+        TraceEventLog afterRestart = new TraceEventLog(dir, 64 * 1024);
+        afterRestart.append("b", 2, 1, 2, 1, null, 0);
+        String json = afterRestart.export("test");
+        assertTrue(json, json.indexOf("\"name\":\"a\"") < json.indexOf("\"name\":\"b\""));
+        assertEquals(2, countEvents(json));
+    }
+
+    @Test
+    public void disk_staysWithinTwoGenerations() throws IOException {
+        File dir = newDir();
+        long maxBytes = 4 * 1024;
+        TraceEventLog log = new TraceEventLog(dir, maxBytes);
+        for (int i = 0; i < 2_000; i++) {
+            log.append("EventListWidgetService.getViewAt", i * 10L, 5, 1, 1, "position", i);
+            if (i % 10 == 9) log.flush();
+        }
+        log.flush();
+
+        File current = new File(dir, TraceEventLog.CURRENT_FILE);
+        File previous = new File(dir, TraceEventLog.PREVIOUS_FILE);
+        assertTrue(previous.isFile());
+        assertTrue(current.length() + previous.length() < 3 * maxBytes);
+
+        // The newest span is kept, the oldest ones are gone
+        String json = log.export("test");
+        assertTrue(json.contains("\"position\":1999}"));
+        assertFalse(json.contains("\"position\":0}"));
+    }
+
+    @Test
+    public void export_skipsLineCutShortByProcessDeath() throws IOException {
+        File dir = newDir();
+        TraceEventLog log = new TraceEventLog(dir, 64 * 1024);
+        log.append("a", 1, 1, 1, 1, null, 0);
+        log.flush();
+        try (FileOutputStream out = new FileOutputStream(new File(dir, TraceEventLog.CURRENT_FILE), true)) {
+            out.write("{\"name\":\"b\",\"cat\":".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertEquals(1, countEvents(log.export("test")));
+
+        log.append("c", 3, 1, 2, 1, null, 0); // Appended onto the cut-short line
+        log.append("d", 4, 1, 2, 1, null, 0);
+        String json = log.export("test");
+        assertEquals(2, countEvents(json));
+        assertTrue(json, json.contains("\"name\":\"d\""));
+    }
+}
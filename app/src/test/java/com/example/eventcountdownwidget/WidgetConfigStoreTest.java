@@ -0,0 +1,295 @@
+package com.example.eventcountdownwidget;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link WidgetConfigStore}: binary round trips, the legacy prefs migration,
+ * corruption handling, and a benchmark of load/save times against an XML prefs baseline.
+ */
+public class WidgetConfigStoreTest {
+
+    private File dir;
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("widget-store").toFile();
+        file = new File(dir, WidgetConfigStore.FILE_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) f.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void saveAndLoad_roundTripsAllFields() throws IOException {
+        WidgetConfigStore store = new WidgetConfigStore(file);
+        WidgetConfigStore.Record countdown = store.getOrCreate(WidgetConfigStore.TYPE_COUNTDOWN, 12);
+        countdown.eventId = 987654321L;
+        countdown.eventTitle = "Braai at Lwazi's \uD83C\uDF56";
+        countdown.eventStartTime = 1_700_000_000_000L;
+        countdown.eventEndTime = 1_700_003_600_000L;
+        countdown.themeStyle = 2;
+        countdown.widgetColor = 0xFF336699;
+        WidgetConfigStore.Record list = store.getOrCreate(WidgetConfigStore.TYPE_LIST, 12);
+        list.maxEvents = 25;
+        list.widgetColor = 0xFF112233;
+        store.save();
+
+        assertEquals(12 + 2 * WidgetConfigStore.RECORD_SIZE, file.length());
+        assertFalse("temporary file must be renamed away", new File(file.getPath() + ".tmp").exists());
+
+        WidgetConfigStore reloaded = new WidgetConfigStore(file);
+        reloaded.load();
+        assertEquals(2, reloaded.size());
+        WidgetConfigStore.Record c = reloaded.get(WidgetConfigStore.TYPE_COUNTDOWN, 12);
+        assertEquals(987654321L, c.eventId);
+        assertEquals("Braai at Lwazi's \uD83C\uDF56", c.eventTitle);
+        assertEquals(1_700_000_000_000L, c.eventStartTime);
+        assertEquals(1_700_003_600_000L, c.eventEndTime);
+        assertEquals(2, c.themeStyle);
+        assertEquals(0xFF336699, c.widgetColor);
+        WidgetConfigStore.Record l = reloaded.get(WidgetConfigStore.TYPE_LIST, 12);
+        assertEquals(25, l.maxEvents);
+        assertEquals(0xFF112233, l.widgetColor);
+        assertEquals(0, l.themeStyle);
+    }
+
+    @Test
+    public void save_truncatesLongTitlesOnCharacterBoundary() throws IOException {
+        StringBuilder title = new StringBuilder();
+        while (title.length() < 200) title.append("\u00E9\uD83C\uDF89"); // 2- and 4-byte UTF-8 characters
+        WidgetConfigStore store = new WidgetConfigStore(file);
+        store.getOrCreate(WidgetConfigStore.TYPE_COUNTDOWN, 1).eventTitle = title.toString();
+        store.save();
+
+        WidgetConfigStore reloaded = new WidgetConfigStore(file);
+        reloaded.load();
+        String loaded = reloaded.get(WidgetConfigStore.TYPE_COUNTDOWN, 1).eventTitle;
+        assertTrue(title.toString().startsWith(loaded));
+        assertTrue(loaded.getBytes("UTF-8").length <= WidgetConfigStore.MAX_TITLE_BYTES);
+        assertFalse("no dangling surrogate", Character.isHighSurrogate(loaded.charAt(loaded.length() - 1)));
+    }
+
+    @Test
+    public void remove_dropsOnlyThatWidgetType() throws IOException {
+        WidgetConfigStore store = new WidgetConfigStore(file);
+        store.getOrCreate(WidgetConfigStore.TYPE_COUNTDOWN, 3);
+        store.getOrCreate(WidgetConfigStore.TYPE_LIST, 3);
+        assertTrue(store.remove(WidgetConfigStore.TYPE_COUNTDOWN, 3));
+        assertFalse(store.remove(WidgetConfigStore.TYPE_COUNTDOWN, 3));
+        store.save();
+
+        WidgetConfigStore reloaded = new WidgetConfigStore(file);
+        reloaded.load();
+        assertNull(reloaded.get(WidgetConfigStore.TYPE_COUNTDOWN, 3));
+        assertNotNull(reloaded.get(WidgetConfigStore.TYPE_LIST, 3));
+    }
+
+    @Test
+    public void load_missingFileIsEmpty() throws IOException {
+        WidgetConfigStore store = new WidgetConfigStore(file);
+        assertFalse(store.exists());
+        store.load();
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    public void load_rejectsTruncatedAndForeignFiles() throws IOException {
+        WidgetConfigStore store = new WidgetConfigStore(file);
+        store.getOrCreate(WidgetConfigStore.TYPE_COUNTDOWN, 1);
+        store.save();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(file.length() - 1);
+        }
+        assertLoadFails(file);
+
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write("<?xml version='1.0' encoding='utf-8' standalone='yes' ?>".getBytes("UTF-8"));
+        }
+        assertLoadFails(file);
+    }
+
+    @Test
+    public void migrateFromPrefs_importsLegacyKeys() {
+        Map<String, Object> prefs = new HashMap<>();
+        prefs.put("widget_5_event_id", 77L);
+        prefs.put("widget_5_event_title", "Exam");
+        prefs.put("widget_5_event_time", 1000L);
+        prefs.put("widget_5_event_end_time", 2000L);
+        prefs.put("widget_5_theme_style", 1);
+        prefs.put("widget_5_widget_color", 0xFF00FF00);
+        prefs.put("simple_list_widget_9_max_events", 4);
+        prefs.put("simple_list_widget_9_theme_style", 2);
+        prefs.put("widget_5_font_size", 1); // Long-removed setting, left alone
+        prefs.put("list_widget_9_max_events", 12); // Written by the unused list config activity, left alone
+
+        WidgetConfigStore store = new WidgetConfigStore(file);
+        List<String> migrated = store.migrateFromPrefs(prefs);
+
+        assertEquals(8, migrated.size());
+        assertFalse(migrated.contains("widget_5_font_size"));
+        assertFalse(migrated.contains("list_widget_9_max_events"));
+        WidgetConfigStore.Record countdown = store.get(WidgetConfigStore.TYPE_COUNTDOWN, 5);
+        assertEquals(77L, countdown.eventId);
+        assertEquals("Exam", countdown.eventTitle);
+        assertEquals(1000L, countdown.eventStartTime);
+        assertEquals(2000L, countdown.eventEndTime);
+        assertEquals(1, countdown.themeStyle);
+        assertEquals(0xFF00FF00, countdown.widgetColor);
+        WidgetConfigStore.Record list = store.get(WidgetConfigStore.TYPE_LIST, 9);
+        assertEquals(4, list.maxEvents);
+        assertEquals(2, list.themeStyle);
+        assertEquals(-1, list.widgetColor);
+    }
+
+    @Test
+    public void parseWidgetId_countdownKeys() {
+        assertEquals(42, WidgetConfigStore.parseWidgetId("widget_42_event_time", WidgetConfigStore.COUNTDOWN_PREFIX_KEY));
+        assertEquals(7, WidgetConfigStore.parseWidgetId("widget_7_theme_style", WidgetConfigStore.COUNTDOWN_PREFIX_KEY));
+    }
+
+    @Test
+    public void parseWidgetId_listKeysDoNotMatchCountdownPrefix() {
+        String key = "simple_list_widget_13_max_events";
+        assertEquals(WidgetConfigStore.INVALID_WIDGET_ID, WidgetConfigStore.parseWidgetId(key, WidgetConfigStore.COUNTDOWN_PREFIX_KEY));
+        assertEquals(13, WidgetConfigStore.parseWidgetId(key, WidgetConfigStore.LIST_PREFIX_KEY));
+    }
+
+    @Test
+    public void parseWidgetId_rejectsMalformedKeys() {
+        String prefix = WidgetConfigStore.COUNTDOWN_PREFIX_KEY;
+        assertEquals(WidgetConfigStore.INVALID_WIDGET_ID, WidgetConfigStore.parseWidgetId("widget_", prefix));
+        assertEquals(WidgetConfigStore.INVALID_WIDGET_ID, WidgetConfigStore.parseWidgetId("widget__event_time", prefix));
+        assertEquals(WidgetConfigStore.INVALID_WIDGET_ID, WidgetConfigStore.parseWidgetId("widget_12", prefix));
+        assertEquals(WidgetConfigStore.INVALID_WIDGET_ID, WidgetConfigStore.parseWidgetId("widget_99999999999_event_time", prefix));
+        assertEquals(WidgetConfigStore.INVALID_WIDGET_ID, WidgetConfigStore.parseWidgetId("selected_calendars", prefix));
+    }
+
+    /**
+     * Benchmark: median load and save times at 1, 50 and 500 widgets for the binary store and for an
+     * XML file in the SharedPreferences layout (one entry per setting, whole file rewritten per save).
+     * Run with {@code ./gradlew :app:testDebugUnitTest --tests "*WidgetConfigStoreTest*"} and check the test output.
+     */
+    @Test
+    public void benchmark_loadAndSaveTimes() throws Exception {
+        System.out.println("widgets | store save us | store load us | xml save us | xml load us");
+        for (int n : new int[]{1, 50, 500}) {
+            WidgetConfigStore store = new WidgetConfigStore(file);
+            Map<String, Object> prefs = new HashMap<>();
+            for (int id = 0; id < n; id++) {
+                WidgetConfigStore.Record record = store.getOrCreate(WidgetConfigStore.TYPE_COUNTDOWN, id);
+                record.eventId = id;
+                record.eventTitle = "Event number " + id;
+                record.eventStartTime = 1_700_000_000_000L + id;
+                record.eventEndTime = 1_700_003_600_000L + id;
+                record.widgetColor = 0xFF000000 | id;
+                prefs.put("widget_" + id + "_event_id", record.eventId);
+                prefs.put("widget_" + id + "_event_title", record.eventTitle);
+                prefs.put("widget_" + id + "_event_time", record.eventStartTime);
+                prefs.put("widget_" + id + "_event_end_time", record.eventEndTime);
+                prefs.put("widget_" + id + "_theme_style", record.themeStyle);
+                prefs.put("widget_" + id + "_widget_color", record.widgetColor);
+            }
+            File xml = new File(dir, "prefs.xml");
+
+            long storeSave = medianNanos(() -> store.save());
+            long storeLoad = medianNanos(() -> new WidgetConfigStore(file).load());
+            long xmlSave = medianNanos(() -> writeXml(xml, prefs));
+            long xmlLoad = medianNanos(() -> readXml(xml));
+            System.out.println(String.format("%7d | %13d | %13d | %11d | %11d",
+                    n, storeSave / 1000, storeLoad / 1000, xmlSave / 1000, xmlLoad / 1000));
+
+            WidgetConfigStore check = new WidgetConfigStore(file);
+            check.load();
+            assertEquals(n, check.size());
+            assertEquals(prefs.size(), readXml(xml));
+        }
+    }
+
+    // --- Helpers ---
+
+    private interface IoTask {
+        void run() throws Exception;
+    }
+
+    private static long medianNanos(IoTask task) throws Exception {
+        long[] samples = new long[15];
+        for (int i = 0; i < 5; i++) task.run(); // Warm up
+        for (int i = 0; i < samples.length; i++) {
+            long start = System.nanoTime();
+            task.run();
+            samples[i] = System.nanoTime() - start;
+        }
+        java.util.Arrays.sort(samples);
+        return samples[samples.length / 2];
+    }
+
+    private static void assertLoadFails(File file) {
+        try {
+            new WidgetConfigStore(file).load();
+            fail("Expected IOException for " + file);
+        } catch (IOException expected) {
+            // Expected
+        }
+    }
+
+    /** Writes the map the way SharedPreferences does: the whole XML file, synced, every time. */
+    private static void writeXml(File xml, Map<String, Object> prefs) throws IOException {
+        StringBuilder sb = new StringBuilder("<?xml version='1.0' encoding='utf-8' standalone='yes' ?>\n<map>\n");
+        for (Map.Entry<String, Object> entry : prefs.entrySet()) {
+            Object value = entry.getValue();
+            if (value instanceof String) {
+                sb.append("    <string name=\"").append(entry.getKey()).append("\">").append(value).append("</string>\n");
+            } else {
+                String type = value instanceof Long ? "long" : "int";
+                sb.append("    <").append(type).append(" name=\"").append(entry.getKey())
+                        .append("\" value=\"").append(value).append("\" />\n");
+            }
+        }
+        sb.append("</map>\n");
+        try (FileOutputStream out = new FileOutputStream(xml)) {
+            out.write(sb.toString().getBytes("UTF-8"));
+            out.getFD().sync();
+        }
+    }
+
+    /** @return The number of entries parsed back from the XML file. */
+    private static int readXml(File xml) throws Exception {
+        byte[] bytes = Files.readAllBytes(xml.toPath());
+        NodeList nodes = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(new ByteArrayInputStream(bytes)).getDocumentElement().getChildNodes();
+        Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            if (nodes.item(i) instanceof Element) {
+                Element element = (Element) nodes.item(i);
+                values.put(element.getAttribute("name"),
+                        element.hasAttribute("value") ? element.getAttribute("value") : element.getTextContent());
+            }
+        }
+        return values.size();
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.eventcountdownwidget;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link WidgetMetrics}.
+ */
+public class WidgetMetricsTest {
+
+    private static final long T0 = 1_700_000_040_000L;
+    private static final long MICRO = TimeUnit.MICROSECONDS.toNanos(1);
+    private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void record_fillsBucketsAndPercentiles() {
+        WidgetMetrics metrics = new WidgetMetrics(T0);
+        for (int i = 0; i < 98; i++) metrics.record(WidgetMetrics.Timer.UPDATE_COUNTDOWN, 80 * MICRO);
+        metrics.record(WidgetMetrics.Timer.UPDATE_COUNTDOWN, 3 * MILLI);
+        metrics.record(WidgetMetrics.Timer.UPDATE_COUNTDOWN, 2_000 * MILLI); // Past the last bound
+
+        WidgetMetrics.TimerStats stats = metrics.snapshot(T0).get(WidgetMetrics.Timer.UPDATE_COUNTDOWN);
+        assertEquals(100, stats.count());
+        assertEquals(98, stats.bucketCounts[0]);
+        assertEquals(1, stats.bucketCounts[5]); // <= 5 ms
+        assertEquals(1, stats.bucketCounts[WidgetMetrics.BUCKET_BOUNDS_MICROS.length]);
+        assertEquals(100, stats.percentileMicros(0.50));
+        assertEquals(5_000, stats.percentileMicros(0.99));
+        assertEquals(2_000_000, stats.percentileMicros(1.0));
+        assertEquals(2_000 * MILLI, stats.maxNanos);
+        assertEquals(0, metrics.snapshot(T0).get(WidgetMetrics.Timer.LOAD_EVENTS).percentileMicros(0.5));
+    }
+
+    @Test
+    public void recentSamples_keepTheLatestOldestFirst() {
+        WidgetMetrics metrics = new WidgetMetrics(T0);
+        int samples = WidgetMetrics.RECENT_SAMPLES + 10;
+        for (int i = 1; i <= samples; i++) metrics.record(WidgetMetrics.Timer.LOAD_EVENTS, i);
+
+        long[] recent = metrics.snapshot(T0).get(WidgetMetrics.Timer.LOAD_EVENTS).recentNanos;
+        assertEquals(WidgetMetrics.RECENT_SAMPLES, recent.length);
+        assertEquals(11, recent[0]);
+        assertEquals(samples, recent[recent.length - 1]);
+    }
+
+    @Test
+    public void alarms_countedPerWidgetWithPooledOverflow() {
+        WidgetMetrics metrics = new WidgetMetrics(T0);
+        for (int id = 1; id <= WidgetMetrics.MAX_WIDGETS + 5; id++) {
+            metrics.alarmScheduled(id);
+            metrics.alarmScheduled(id);
+            metrics.alarmFired(id);
+        }
+
+        WidgetMetrics.Snapshot snapshot = metrics.snapshot(T0);
+        assertEquals(WidgetMetrics.MAX_WIDGETS, snapshot.widgetIds.length);
+        for (int i = 0; i < snapshot.widgetIds.length; i++) {
+            assertEquals(2, snapshot.alarmsScheduled[i]);
+            assertEquals(1, snapshot.alarmsFired[i]);
+        }
+        assertEquals(10, snapshot.otherAlarmsScheduled);
+        assertEquals(5, snapshot.otherAlarmsFired);
+        assertEquals(2 * (WidgetMetrics.MAX_WIDGETS + 5), snapshot.totalAlarmsScheduled());
+    }
+
+    @Test
+    public void concurrentWriters_loseNothing() throws InterruptedException {
+        WidgetMetrics metrics = new WidgetMetrics(T0);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    metrics.increment(WidgetMetrics.Counter.REMOTE_VIEWS_PARTIAL);
+                    metrics.record(WidgetMetrics.Timer.UPDATE_LIST, i);
+                    metrics.alarmScheduled(i % 8 + 1);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) thread.join();
+
+        WidgetMetrics.Snapshot snapshot = metrics.snapshot(T0);
+        assertEquals(40_000, snapshot.get(WidgetMetrics.Counter.REMOTE_VIEWS_PARTIAL));
+        assertEquals(40_000, snapshot.get(WidgetMetrics.Timer.UPDATE_LIST).count());
+        assertEquals(9_999, snapshot.get(WidgetMetrics.Timer.UPDATE_LIST).maxNanos);
+        assertEquals(8, snapshot.widgetIds.length);
+        assertEquals(40_000, snapshot.totalAlarmsScheduled());
+    }
+
+    @Test
+    public void toJson_containsEverySection() {
+        WidgetMetrics metrics = new WidgetMetrics(T0);
+        metrics.recordLoad(System.nanoTime(), 12);
+        metrics.add(WidgetMetrics.Counter.REMOTE_VIEWS_BYTES, 1380);
+        metrics.alarmFired(7);
+
+        String json = metrics.snapshot(T0 + 60_000L).toJson();
+        assertTrue(json, json.startsWith("{\"startedAtMillis\":" + T0 + ",\"takenAtMillis\":" + (T0 + 60_000L)));
+        assertTrue(json, json.contains("\"remoteViewsBytes\":1380"));
+        assertTrue(json, json.contains("\"eventRowsLoaded\":12"));
+        assertTrue(json, json.contains("\"lastRowCount\":12"));
+        assertTrue(json, json.contains("\"loadEvents\":{\"count\":1,"));
+        assertTrue(json, json.contains("{\"widgetId\":7,\"scheduled\":0,\"fired\":1}"));
+        int depth = 0;
+        for (char c : json.toCharArray()) {
+            if (c == '{' || c == '[') depth++;
+            if (c == '}' || c == ']') depth--;
+            assertTrue(depth >= 0);
+        }
+        assertEquals(0, depth);
+    }
+}
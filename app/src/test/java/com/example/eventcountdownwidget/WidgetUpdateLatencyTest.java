@@ -0,0 +1,296 @@
+package com.example.eventcountdownwidget;
+
+import android.app.Application;
+import android.appwidget.AppWidgetManager;
+import android.content.ContentProvider;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.Intent;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.provider.CalendarContract;
+import android.widget.RemoteViewsService;
+
+import androidx.work.testing.WorkManagerTestInitHelper;
+
+import com.example.eventcountdownwidget.core.UpdateScheduler;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowAppWidgetManager;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Throughput and latency harness for widget refreshes, runnable on a plain JVM (no emulator).
+ * Installs {@link #COUNTDOWN_WIDGETS} countdown and {@link #LIST_WIDGETS} list widgets backed by a
+ * fake calendar provider seeded with {@link #SEEDED_INSTANCES} instances, then times the refresh
+ * passes the system drives: {@code onUpdate}, the coalesced update alarm and the list factories'
+ * {@code onDataSetChanged}. Prints p50/p99 latency and allocated bytes per pass, and fails when a
+ * pass exceeds its budget, so it doubles as a regression gate:
+ * {@code ./gradlew :app:testDebugUnitTest --tests '*WidgetUpdateLatencyTest'}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class WidgetUpdateLatencyTest {
+
+    private static final int COUNTDOWN_WIDGETS = 50;
+    private static final int LIST_WIDGETS = 50;
+    private static final int SEEDED_INSTANCES = 5000;
+    private static final int CALENDARS = 4;
+    private static final int WARMUP_PASSES = 5;
+    private static final int MEASURED_PASSES = 30;
+
+    // Per-widget budgets. The slowest pass, countdown onUpdate, measured up to ~12 ms and ~180 KiB
+    // per widget on one core with Robolectric 4.14.1, so time has about 2x headroom
+    private static final long MAX_P99_NANOS_PER_WIDGET = TimeUnit.MILLISECONDS.toNanos(25);
+    private static final long MAX_BYTES_PER_WIDGET = 4L * 1024 * 1024;
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    private Application context;
+    private AppWidgetManager appWidgetManager;
+    private FakeCalendarProvider calendarProvider;
+    private int[] countdownIds;
+    private int[] listIds;
+
+    /**
+     * Answers Instances queries like the calendar provider: filters by calendar, "end >= now" and
+     * the window in the URI, sorts by start and honours the LIMIT in the sort order.
+     */
+    public static final class FakeCalendarProvider extends ContentProvider {
+        private final List<Object[]> instances = new ArrayList<>(); // {id, title, begin, end, allDay, tz, desc, calendarId}
+        int queryCount;
+
+        void seed(int count, int calendars, long nowMillis) {
+            Random random = new Random(count);
+            for (int i = 0; i < count; i++) {
+                long begin = nowMillis - DAY + (long) (random.nextDouble() * 31 * DAY);
+                boolean allDay = random.nextInt(10) == 0;
+                long end = allDay ? begin + DAY : begin + (1 + random.nextInt(3)) * HOUR;
+                instances.add(new Object[]{(long) i, "Event " + i, begin, end, allDay ? 1 : 0, "UTC", null,
+                        (long) (1 + random.nextInt(calendars))});
+            }
+            instances.sort((a, b) -> Long.compare((long) a[2], (long) b[2]));
+        }
+
+        @Override
+        public boolean onCreate() {
+            return true;
+        }
+
+        @Override
+        public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs, String sortOrder) {
+            queryCount++;
+            List<String> segments = uri.getPathSegments(); // instances/when/<begin>/<end>
+            long windowStart = Long.parseLong(segments.get(segments.size() - 2));
+            long windowEnd = Long.parseLong(segments.get(segments.size() - 1));
+            Set<String> calendarIds = new HashSet<>(Arrays.asList(selectionArgs).subList(0, selectionArgs.length - 1));
+            long now = Long.parseLong(selectionArgs[selectionArgs.length - 1]);
+            int limit = Integer.parseInt(sortOrder.substring(sortOrder.lastIndexOf(' ') + 1));
+
+            MatrixCursor cursor = new MatrixCursor(projection);
+            for (Object[] row : instances) {
+                if (cursor.getCount() >= limit) break;
+                long begin = (long) row[2];
+                long end = (long) row[3];
+                if (begin > windowEnd || end < windowStart || end < now) continue;
+                if (!calendarIds.contains(String.valueOf(row[7]))) continue;
+                Object[] values = new Object[projection.length];
+                for (int i = 0; i < projection.length; i++) {
+                    values[i] = column(row, projection[i]);
+                }
+                cursor.addRow(values);
+            }
+            return cursor;
+        }
+
+        private static Object column(Object[] row, String name) {
+            switch (name) {
+                case CalendarContract.Instances.EVENT_ID: return row[0];
+                case CalendarContract.Instances.TITLE: return row[1];
+                case CalendarContract.Instances.BEGIN: return row[2];
+                case CalendarContract.Instances.END: return row[3];
+                case CalendarContract.Instances.ALL_DAY: return row[4];
+                case CalendarContract.Instances.EVENT_TIMEZONE: return row[5];
+                case CalendarContract.Instances.DESCRIPTION: return row[6];
+                case CalendarContract.Instances.CALENDAR_ID: return row[7];
+                default: return null;
+            }
+        }
+
+        @Override public String getType(Uri uri) { return null; }
+        @Override public Uri insert(Uri uri, ContentValues values) { return null; }
+        @Override public int delete(Uri uri, String selection, String[] selectionArgs) { return 0; }
+        @Override public int update(Uri uri, ContentValues values, String selection, String[] selectionArgs) { return 0; }
+    }
+
+    /** Latency and allocation samples of one kind of pass. */
+    private static final class PassStats {
+        final String name;
+        final int widgets;
+        final long[] nanos = new long[MEASURED_PASSES];
+        final long[] bytes = new long[MEASURED_PASSES];
+
+        PassStats(String name, int widgets) {
+            this.name = name;
+            this.widgets = widgets;
+        }
+
+        long percentile(long[] samples, double p) {
+            long[] sorted = samples.clone();
+            Arrays.sort(sorted);
+            return sorted[(int) Math.ceil(p * sorted.length) - 1];
+        }
+
+        long p50() { return percentile(nanos, 0.50); }
+        long p99() { return percentile(nanos, 0.99); }
+        long bytesPerPass() { return percentile(bytes, 0.50); }
+    }
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        WorkManagerTestInitHelper.initializeTestWorkManager(context);
+        appWidgetManager = AppWidgetManager.getInstance(context);
+        calendarProvider = Robolectric.setupContentProvider(FakeCalendarProvider.class, CalendarContract.AUTHORITY);
+        calendarProvider.seed(SEEDED_INSTANCES, CALENDARS, System.currentTimeMillis());
+
+        Set<String> selected = new HashSet<>();
+        for (int c = 1; c <= CALENDARS; c++) selected.add(String.valueOf(c));
+        context.getSharedPreferences("calendar_preferences", Context.MODE_PRIVATE).edit()
+                .putStringSet("selected_calendars", selected)
+                .commit();
+
+        // Creating the widgets runs each provider's first onUpdate
+        ShadowAppWidgetManager shadowManager = shadowOf(appWidgetManager);
+        countdownIds = shadowManager.createWidgets(EventCountdownWidget.class, R.layout.event_countdown_widget, COUNTDOWN_WIDGETS);
+        listIds = shadowManager.createWidgets(SimpleEventListWidgetProvider.class, R.layout.simple_event_list_widget, LIST_WIDGETS);
+
+        // Countdowns spread from an hour ago to a year ahead, so every text mode is exercised
+        long now = System.currentTimeMillis();
+        WidgetConfigCache configs = WidgetConfigCache.get(context);
+        for (int i = 0; i < countdownIds.length; i++) {
+            long start = now - HOUR + (long) i * 365 * DAY / COUNTDOWN_WIDGETS + i * 7 * HOUR;
+            configs.saveCountdownEvent(countdownIds[i], i, "Countdown " + i, start, start + HOUR);
+        }
+    }
+
+    @Test
+    public void updatePasses_stayWithinBudget() throws Exception {
+        EventCountdownWidget countdownProvider = new EventCountdownWidget();
+        SimpleEventListWidgetProvider listProvider = new SimpleEventListWidgetProvider();
+        EventListWidgetService service = Robolectric.setupService(EventListWidgetService.class);
+        List<RemoteViewsService.RemoteViewsFactory> factories = new ArrayList<>();
+        for (int id : listIds) {
+            Intent intent = new Intent(context, EventListWidgetService.class);
+            intent.putExtra(AppWidgetManager.EXTRA_APPWIDGET_ID, id);
+            RemoteViewsService.RemoteViewsFactory factory = service.onGetViewFactory(intent);
+            factory.onCreate();
+            factories.add(factory);
+        }
+        WidgetUpdateReceiver receiver = new WidgetUpdateReceiver();
+        Intent alarm = new Intent(context, WidgetUpdateReceiver.class).setAction(WidgetUpdateReceiver.ACTION_UPDATE_WIDGET);
+
+        PassStats countdownUpdate = measure("countdown onUpdate", COUNTDOWN_WIDGETS, null,
+                () -> countdownProvider.onUpdate(context, appWidgetManager, countdownIds));
+        PassStats listUpdate = measure("list onUpdate", LIST_WIDGETS, null,
+                () -> listProvider.onUpdate(context, appWidgetManager, listIds));
+        PassStats alarmPass = measure("update alarm, all due", COUNTDOWN_WIDGETS + LIST_WIDGETS,
+                this::makeEveryWidgetDue, () -> receiver.onReceive(context, alarm));
+        PassStats cachedLists = measure("list data, cached", LIST_WIDGETS, null,
+                () -> renderLists(factories));
+        PassStats changedLists = measure("list data, after change", LIST_WIDGETS,
+                () -> EventInstanceCache.getInstance().invalidate(), () -> renderLists(factories));
+
+        // One provider query serves every list widget after a calendar change
+        EventInstanceCache.getInstance().invalidate();
+        int queriesBefore = calendarProvider.queryCount;
+        renderLists(factories);
+        assertEquals(1, calendarProvider.queryCount - queriesBefore);
+
+        System.out.println("pass                      | widgets |   p50 ms |   p99 ms | KiB/pass");
+        List<String> failures = new ArrayList<>();
+        for (PassStats stats : Arrays.asList(countdownUpdate, listUpdate, alarmPass, cachedLists, changedLists)) {
+            System.out.println(String.format(Locale.US, "%-25s | %7d | %8.2f | %8.2f | %8.1f", stats.name, stats.widgets,
+                    stats.p50() / 1e6, stats.p99() / 1e6, stats.bytesPerPass() / 1024.0));
+            if (stats.p99() > MAX_P99_NANOS_PER_WIDGET * stats.widgets) {
+                failures.add(stats.name + ": p99 " + stats.p99() / 1_000_000 + " ms");
+            }
+            if (stats.bytesPerPass() > MAX_BYTES_PER_WIDGET * stats.widgets) {
+                failures.add(stats.name + ": " + stats.bytesPerPass() / 1024 + " KiB per pass");
+            }
+        }
+        assertTrue("Over budget: " + failures, failures.isEmpty());
+    }
+
+    // --- Helpers ---
+
+    /** The launcher's side of a list refresh: reload the data, then bind every row. */
+    private static void renderLists(List<RemoteViewsService.RemoteViewsFactory> factories) {
+        for (RemoteViewsService.RemoteViewsFactory factory : factories) {
+            factory.onDataSetChanged();
+            for (int position = 0; position < factory.getCount(); position++) {
+                factory.getViewAt(position);
+            }
+        }
+    }
+
+    /** Moves every tracked deadline to now, so the next alarm refreshes all widgets in one batch. */
+    private void makeEveryWidgetDue() {
+        try {
+            Field field = WidgetUpdateReceiver.class.getDeclaredField("sScheduler");
+            field.setAccessible(true);
+            UpdateScheduler scheduler = (UpdateScheduler) field.get(null);
+            List<UpdateScheduler.Entry> entries = new ArrayList<>();
+            for (UpdateScheduler.Entry entry : scheduler.entries()) entries.add(entry);
+            for (UpdateScheduler.Entry entry : entries) {
+                scheduler.put(entry.widgetId, entry.providerClassName, 0);
+            }
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static PassStats measure(String name, int widgets, Runnable beforeEachPass, Runnable pass) {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean allocations = threads instanceof com.sun.management.ThreadMXBean
+                ? (com.sun.management.ThreadMXBean) threads : null;
+        long threadId = Thread.currentThread().getId();
+
+        PassStats stats = new PassStats(name, widgets);
+        for (int i = 0; i < WARMUP_PASSES + MEASURED_PASSES; i++) {
+            if (beforeEachPass != null) beforeEachPass.run();
+            long bytesBefore = allocations != null ? allocations.getThreadAllocatedBytes(threadId) : 0;
+            long start = System.nanoTime();
+            pass.run();
+            long elapsed = System.nanoTime() - start;
+            long bytes = allocations != null ? allocations.getThreadAllocatedBytes(threadId) - bytesBefore : 0;
+            if (i >= WARMUP_PASSES) {
+                stats.nanos[i - WARMUP_PASSES] = elapsed;
+                stats.bytes[i - WARMUP_PASSES] = bytes;
+            }
+        }
+        return stats;
+    }
+}
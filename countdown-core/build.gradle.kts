@@ -0,0 +1,21 @@
+plugins {
+    `java-library`
+    alias(libs.plugins.jmh)
+}
+
+// Plain JVM module: everything here must run without an Android device or Robolectric
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+dependencies {
+    testImplementation(libs.junit)
+}
+
+// ./gradlew :countdown-core:jmh [-PjmhIncludes=Ranking]
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    findProperty("jmhIncludes")?.let { includes.add(it.toString()) }
+    resultFormat.set("JSON")
+}
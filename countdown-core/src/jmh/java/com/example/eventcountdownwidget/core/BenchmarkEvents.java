@@ -0,0 +1,79 @@
+package com.example.eventcountdownwidget.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * Deterministic synthetic calendars shared by the benchmarks: events spread over the 30-day
+ * window the list widget queries, a mix of short, long and all-day instances.
+ */
+final class BenchmarkEvents {
+
+    static final long NOW = 1_700_000_040_000L;
+    static final TimeZone ZONE = TimeZone.getTimeZone("Africa/Johannesburg");
+
+    private static final long HOUR = NextUpdateCalculator.HOUR_MILLIS;
+    private static final long DAY = NextUpdateCalculator.DAY_MILLIS;
+
+    private BenchmarkEvents() {}
+
+    static final class Event implements EventInstance {
+        final long id;
+        final String calendarId;
+        final long start;
+        final long end;
+        final boolean allDay;
+
+        Event(long id, String calendarId, long start, long end, boolean allDay) {
+            this.id = id;
+            this.calendarId = calendarId;
+            this.start = start;
+            this.end = end;
+            this.allDay = allDay;
+        }
+
+        @Override public long getId() { return id; }
+        @Override public String getCalendarId() { return calendarId; }
+        @Override public String getTitle() { return "Event " + id; }
+        @Override public long getStartTime() { return start; }
+        @Override public long getEndTime() { return end; }
+        @Override public boolean isAllDay() { return allDay; }
+    }
+
+    /** {@code count} events from a day before {@link #NOW} to 30 days after, sorted by start time. */
+    static List<Event> generate(int count, int calendars) {
+        Random random = new Random(count);
+        List<Event> events = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long start = NOW - DAY + (long) (random.nextDouble() * 31 * DAY);
+            boolean allDay = random.nextInt(10) == 0;
+            long end = allDay ? start + DAY : start + (1 + random.nextInt(3)) * HOUR;
+            events.add(new Event(i, "cal" + random.nextInt(calendars), start, end, allDay));
+        }
+        events.sort((a, b) -> Long.compare(a.start, b.start));
+        return events;
+    }
+
+    /** Splits events into per-calendar lists, each still sorted by start time. */
+    static List<List<Event>> partition(List<Event> events, int calendars) {
+        List<List<Event>> partitions = new ArrayList<>(calendars);
+        for (int c = 0; c < calendars; c++) partitions.add(new ArrayList<>());
+        for (Event event : events) {
+            partitions.get(Integer.parseInt(event.calendarId.substring(3))).add(event);
+        }
+        return partitions;
+    }
+
+    /** English plural phrases, as {@code Resources.getQuantityString} would format them. */
+    static CountdownTextEngine englishEngine() {
+        final String[][] plurals = {
+                {"%d yr", "%d yrs"}, {"%d mo", "%d mos"}, {"%d day", "%d days"}, {"%d hr", "%d hrs"}, {"%d min", "%d mins"}
+        };
+        return new CountdownTextEngine(Locale.US,
+                (unit, quantity) -> String.format(Locale.US, plurals[unit][quantity == 1 ? 0 : 1], quantity),
+                new CountdownTextEngine.Labels("In", "ago", "Starts soon", "Event passed", "Happening now!"));
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.eventcountdownwidget.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds what a list widget's factory holds between refreshes: {@link #rowObjects} is the former
+ * list of per-row objects carrying every provider column, {@link #buffer} the {@link EventBuffer}.
+ * Run with {@code -prof gc}: {@code gc.alloc.rate.norm} is each widget's retained footprint.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventBufferBenchmark {
+
+    private static final String TIMEZONE = "Africa/Johannesburg";
+    private static final String DESCRIPTION = "Weekly sync. Agenda and dial-in details are in the shared meeting notes.";
+
+    /** The former row object, with the columns the widget never displayed. */
+    static final class RowObject {
+        final long id; final String calendarId; final String title; final long start; final long end;
+        final boolean allDay; final String eventTimezone; final String description;
+
+        RowObject(long id, String calendarId, String title, long start, long end, boolean allDay, String eventTimezone, String description) {
+            this.id = id; this.calendarId = calendarId; this.title = title; this.start = start; this.end = end;
+            this.allDay = allDay; this.eventTimezone = eventTimezone; this.description = description;
+        }
+    }
+
+    /** A cached instance whose title already exists, so neither side pays for building it. */
+    static final class Titled implements EventInstance {
+        final BenchmarkEvents.Event event;
+        final String title;
+
+        Titled(BenchmarkEvents.Event event) {
+            this.event = event;
+            this.title = event.getTitle();
+        }
+
+        @Override public long getId() { return event.id; }
+        @Override public String getCalendarId() { return event.calendarId; }
+        @Override public String getTitle() { return title; }
+        @Override public long getStartTime() { return event.start; }
+        @Override public long getEndTime() { return event.end; }
+        @Override public boolean isAllDay() { return event.allDay; }
+    }
+
+    @Param({"25", "500"})
+    public int eventCount;
+
+    private List<Titled> events;
+
+    @Setup
+    public void setUp() {
+        events = new ArrayList<>();
+        for (BenchmarkEvents.Event event : BenchmarkEvents.generate(eventCount, 1)) {
+            events.add(new Titled(event));
+        }
+    }
+
+    @Benchmark
+    public List<RowObject> rowObjects() {
+        List<RowObject> rows = new ArrayList<>(events.size());
+        for (Titled row : events) {
+            // Copies stand in for the fresh strings every cursor row returns
+            rows.add(new RowObject(row.getId(), new String(row.getCalendarId()), new String(row.title), row.getStartTime(),
+                    row.getEndTime(), row.isAllDay(), new String(TIMEZONE), new String(DESCRIPTION)));
+        }
+        return rows;
+    }
+
+    @Benchmark
+    public EventBuffer buffer() {
+        return EventBuffer.of(events);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.eventcountdownwidget.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders every event's countdown text, as one widget refresh pass over {@code eventCount} rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormattingBenchmark {
+
+    @Param({"1", "100", "10000", "100000"})
+    public int eventCount;
+
+    private List<BenchmarkEvents.Event> events;
+    private CountdownTextEngine engine;
+    private DateFieldFormatter dates;
+
+    @Setup
+    public void setUp() {
+        events = BenchmarkEvents.generate(eventCount, 4);
+        engine = BenchmarkEvents.englishEngine();
+        dates = new DateFieldFormatter(DayBoundaryIndex.build(BenchmarkEvents.ZONE, BenchmarkEvents.NOW), Locale.US);
+    }
+
+    @Benchmark
+    public void countdownSubtitles(Blackhole blackhole) {
+        for (BenchmarkEvents.Event event : events) {
+            StringBuilder sb = CountdownTextEngine.reusableBuilder();
+            engine.appendCountdownSubtitle(sb, BenchmarkEvents.NOW, event.start, event.end);
+            blackhole.consume(sb.length());
+        }
+    }
+
+    @Benchmark
+    public void listItems(Blackhole blackhole) {
+        for (BenchmarkEvents.Event event : events) {
+            StringBuilder sb = CountdownTextEngine.reusableBuilder();
+            CountdownTextEngine.appendListItem(sb, dates, BenchmarkEvents.NOW, event.start, event.end, event.allDay);
+            blackhole.consume(sb.length());
+        }
+    }
+}
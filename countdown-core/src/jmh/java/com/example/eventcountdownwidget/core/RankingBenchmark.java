@@ -0,0 +1,63 @@
+package com.example.eventcountdownwidget.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Picks a list widget's rows from {@code eventCount} cached instances spread over
+ * {@code calendars} partitions; {@link #concatenateAndSort} is the approach the heap merge replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RankingBenchmark {
+
+    @Param({"1", "100", "10000", "100000"})
+    public int eventCount;
+
+    @Param({"1", "8"})
+    public int calendars;
+
+    @Param({"25"})
+    public int maxEvents;
+
+    private List<List<BenchmarkEvents.Event>> partitions;
+
+    @Setup
+    public void setUp() {
+        partitions = BenchmarkEvents.partition(BenchmarkEvents.generate(eventCount, calendars), calendars);
+    }
+
+    @Benchmark
+    public List<BenchmarkEvents.Event> heapMerge() {
+        return EventRanker.upcoming(partitions, BenchmarkEvents.NOW, Long.MAX_VALUE, maxEvents);
+    }
+
+    @Benchmark
+    public List<BenchmarkEvents.Event> concatenateAndSort() {
+        List<BenchmarkEvents.Event> merged = new ArrayList<>();
+        for (List<BenchmarkEvents.Event> partition : partitions) {
+            for (BenchmarkEvents.Event event : partition) {
+                if (event.end >= BenchmarkEvents.NOW) merged.add(event);
+            }
+        }
+        merged.sort((a, b) -> Long.compare(a.start, b.start));
+        return new ArrayList<>(merged.subList(0, Math.min(maxEvents, merged.size())));
+    }
+}
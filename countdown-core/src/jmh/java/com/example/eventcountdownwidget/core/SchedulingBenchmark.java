@@ -0,0 +1,77 @@
+package com.example.eventcountdownwidget.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Computes the next text change of {@code eventCount} events and runs them through the coalescing
+ * scheduler, as a refresh of that many widgets (or list rows) would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SchedulingBenchmark {
+
+    private static final String PROVIDER = "com.example.eventcountdownwidget.EventCountdownWidget";
+
+    @Param({"1", "100", "10000", "100000"})
+    public int eventCount;
+
+    private List<BenchmarkEvents.Event> events;
+    private DayBoundaryIndex days;
+
+    @Setup
+    public void setUp() {
+        events = BenchmarkEvents.generate(eventCount, 4);
+        days = DayBoundaryIndex.build(BenchmarkEvents.ZONE, BenchmarkEvents.NOW);
+    }
+
+    @Benchmark
+    public long nextListItemChanges() {
+        long next = NextUpdateCalculator.NEVER;
+        for (BenchmarkEvents.Event event : events) {
+            next = Math.min(next, NextUpdateCalculator.nextListItemChange(
+                    BenchmarkEvents.NOW, event.start, event.end, event.allDay, days));
+        }
+        return next;
+    }
+
+    @Benchmark
+    public long nextCountdownAlarms() {
+        long next = NextUpdateCalculator.NEVER;
+        for (BenchmarkEvents.Event event : events) {
+            next = Math.min(next, NextUpdateCalculator.nextCountdownAlarm(BenchmarkEvents.NOW, event.start, event.end));
+        }
+        return next;
+    }
+
+    /** One alarm firing: register every widget's deadline, collect the due batch and re-arm. */
+    @Benchmark
+    public void coalescedScheduler(Blackhole blackhole) {
+        UpdateScheduler scheduler = new UpdateScheduler();
+        int widgetId = 0;
+        for (BenchmarkEvents.Event event : events) {
+            scheduler.put(widgetId++, PROVIDER,
+                    NextUpdateCalculator.nextCountdownAlarm(BenchmarkEvents.NOW, event.start, event.end));
+        }
+        long deadline = scheduler.nextDeadline();
+        blackhole.consume(scheduler.collectDue(deadline));
+        blackhole.consume(deadline);
+    }
+}
@@ -0,0 +1,254 @@
+package com.example.eventcountdownwidget.core;
+
+import java.util.Locale;
+
+/**
+ * Shared formatter for the countdown texts of both widgets, writing into a reusable
+ * {@code StringBuilder} instead of concatenating Strings. Plural phrases ("5 mins") are looked up
+ * once per unit and quantity and kept in per-locale tables, so a steady-state tick only appends
+ * cached Strings and ints; the caller's final {@code toString()} is the only allocation.
+ * Unit selection matches {@link NextUpdateCalculator}, which predicts when these texts change.
+ * Contains no Android dependencies so it can be exercised from plain JVM unit tests;
+ * the app's {@code CountdownTexts} builds the instance for the current locale.
+ */
+public final class CountdownTextEngine {
+
+    private static final long MINUTE_MILLIS = NextUpdateCalculator.MINUTE_MILLIS;
+    private static final long HOUR_MILLIS = NextUpdateCalculator.HOUR_MILLIS;
+    private static final long DAY_MILLIS = NextUpdateCalculator.DAY_MILLIS;
+    private static final long WEEK_MILLIS = NextUpdateCalculator.WEEK_MILLIS;
+    private static final long MONTH_APPROX_MILLIS = NextUpdateCalculator.MONTH_APPROX_MILLIS;
+    private static final long YEAR_APPROX_MILLIS = NextUpdateCalculator.YEAR_APPROX_MILLIS;
+
+    public static final int UNIT_YEARS = 0;
+    public static final int UNIT_MONTHS = 1;
+    public static final int UNIT_DAYS = 2;
+    public static final int UNIT_HOURS = 3;
+    public static final int UNIT_MINUTES = 4;
+    private static final int UNIT_COUNT = 5;
+
+    /** Quantities up to this are cached; larger ones (e.g. hundreds of years) go to the source each time. */
+    public static final int MAX_CACHED_QUANTITY = 99;
+
+    /**
+     * Supplies localized plural phrases, e.g. {@code Resources.getQuantityString(R.plurals.minutes, q, q)}.
+     */
+    public interface PluralSource {
+        String quantityString(int unit, int quantity);
+    }
+
+    /**
+     * The fixed words of the countdown widget's subtitle.
+     */
+    public static final class Labels {
+        final String in;
+        final String ago;
+        final String startsSoon;
+        final String passed;
+        final String now;
+
+        public Labels(String in, String ago, String startsSoon, String passed, String now) {
+            this.in = in;
+            this.ago = ago;
+            this.startsSoon = startsSoon;
+            this.passed = passed;
+            this.now = now;
+        }
+    }
+
+    private static final ThreadLocal<StringBuilder> BUILDER = new ThreadLocal<StringBuilder>() {
+        @Override protected StringBuilder initialValue() { return new StringBuilder(64); }
+    };
+
+    private final Locale locale;
+    private final PluralSource plurals;
+    private final Labels labels;
+    // Filled lazily; Strings are immutable, so racing writers at worst look the same phrase up twice
+    private final String[][] pluralTable = new String[UNIT_COUNT][MAX_CACHED_QUANTITY + 1];
+
+    public CountdownTextEngine(Locale locale, PluralSource plurals, Labels labels) {
+        this.locale = locale;
+        this.plurals = plurals;
+        this.labels = labels;
+    }
+
+    public Locale getLocale() {
+        return locale;
+    }
+
+    /** The calling thread's builder, emptied. Don't hold on to it across calls. */
+    public static StringBuilder reusableBuilder() {
+        StringBuilder sb = BUILDER.get();
+        sb.setLength(0);
+        return sb;
+    }
+
+    private void appendPlural(StringBuilder sb, int unit, long quantity) {
+        if (quantity > MAX_CACHED_QUANTITY) {
+            sb.append(plurals.quantityString(unit, (int) quantity));
+            return;
+        }
+        String phrase = pluralTable[unit][(int) quantity];
+        if (phrase == null) {
+            phrase = plurals.quantityString(unit, (int) quantity);
+            pluralTable[unit][(int) quantity] = phrase;
+        }
+        sb.append(phrase);
+    }
+
+    /**
+     * Appends the countdown widget's subtitle: "Happening now!", the time until the event,
+     * or the time since it started.
+     */
+    public void appendCountdownSubtitle(StringBuilder sb, long nowMillis, long startTime, long endTime) {
+        long diffMillis = startTime - nowMillis;
+        if (nowMillis >= startTime && (endTime == -1 || nowMillis < endTime)) {
+            sb.append(labels.now);
+        } else if (diffMillis >= 0) {
+            appendTimeUntil(sb, diffMillis);
+        } else {
+            appendTimeSince(sb, -diffMillis);
+        }
+    }
+
+    /**
+     * Appends the time remaining until a future event, e.g. "In 2 days 5 hrs" or "In 3 hrs 10 mins".
+     * Under a day hours and minutes are shown; beyond that the two largest units, except that from a
+     * week on the hours are left out ("In 12 days"), so the text changes daily there.
+     */
+    public void appendTimeUntil(StringBuilder sb, long diffMillis) {
+        if (diffMillis < MINUTE_MILLIS) {
+            sb.append(labels.startsSoon);
+            return;
+        }
+
+        long years = diffMillis / YEAR_APPROX_MILLIS;
+        long months = (diffMillis % YEAR_APPROX_MILLIS) / MONTH_APPROX_MILLIS;
+        long days = (diffMillis % MONTH_APPROX_MILLIS) / DAY_MILLIS;
+        long hours = (diffMillis % DAY_MILLIS) / HOUR_MILLIS;
+        long minutes = (diffMillis % HOUR_MILLIS) / MINUTE_MILLIS;
+
+        sb.append(labels.in).append(' ');
+        if (diffMillis < DAY_MILLIS) {
+            if (hours > 0) {
+                appendPlural(sb, UNIT_HOURS, hours);
+                if (minutes > 0) {
+                    sb.append(' ');
+                    appendPlural(sb, UNIT_MINUTES, minutes);
+                }
+            } else {
+                appendPlural(sb, UNIT_MINUTES, minutes);
+            }
+            return;
+        }
+
+        int parts = 0;
+        if (years > 0) { appendPlural(sb, UNIT_YEARS, years); parts++; }
+        if (months > 0 && parts < 2) { parts = appendPart(sb, parts, UNIT_MONTHS, months); }
+        if (days > 0 && years == 0 && parts < 2) { parts = appendPart(sb, parts, UNIT_DAYS, days); }
+        if (hours > 0 && diffMillis < WEEK_MILLIS && parts < 2) { parts = appendPart(sb, parts, UNIT_HOURS, hours); }
+        if (parts == 0) {
+            appendPlural(sb, UNIT_MINUTES, 1); // Unreachable past a day, kept as a safe fallback
+        }
+    }
+
+    /**
+     * Appends the time elapsed since a past event's start, e.g. "3 yrs 2 mos ago" or "5 days 6 hrs ago".
+     * Like {@link #appendTimeUntil}, hours are left out from a week on.
+     */
+    public void appendTimeSince(StringBuilder sb, long diffMillis) {
+        if (diffMillis < MINUTE_MILLIS) {
+            sb.append(labels.passed);
+            return;
+        }
+
+        long years = diffMillis / YEAR_APPROX_MILLIS;
+        long months = (diffMillis % YEAR_APPROX_MILLIS) / MONTH_APPROX_MILLIS;
+        long days = (diffMillis % MONTH_APPROX_MILLIS) / DAY_MILLIS;
+        long hours = (diffMillis % DAY_MILLIS) / HOUR_MILLIS;
+        long minutes = (diffMillis % HOUR_MILLIS) / MINUTE_MILLIS;
+
+        int parts = 0;
+        if (years > 0) { appendPlural(sb, UNIT_YEARS, years); parts++; }
+        if (months > 0 && parts < 2) { parts = appendPart(sb, parts, UNIT_MONTHS, months); }
+        if (days > 0 && years == 0 && parts < 2) { parts = appendPart(sb, parts, UNIT_DAYS, days); }
+        if (hours > 0 && diffMillis < WEEK_MILLIS && parts < 2) { parts = appendPart(sb, parts, UNIT_HOURS, hours); }
+        if (minutes > 0 && years == 0 && months == 0 && days == 0 && parts < 2) { parts = appendPart(sb, parts, UNIT_MINUTES, minutes); }
+        if (parts == 0) {
+            sb.append(labels.passed); // Unreachable past a minute, kept as a safe fallback
+            return;
+        }
+        sb.append(' ').append(labels.ago);
+    }
+
+    private int appendPart(StringBuilder sb, int parts, int unit, long quantity) {
+        if (parts > 0) sb.append(' ');
+        appendPlural(sb, unit, quantity);
+        return parts + 1;
+    }
+
+    /**
+     * Appends a list widget row's subtitle, e.g. "Now (until 15:00)", "3h left (14:00)",
+     * "Tomorrow 09:30", "4d (Fri 14:00)" or "Ended (Feb 21)". The list texts aren't localized.
+     *
+     * @param dates Supplies the zone used for the Today/Tomorrow/N-days math and the date fields.
+     * @param isAllDay Whether the bounds are the UTC midnights the calendar provider stores for all-day instances.
+     */
+    public static void appendListItem(StringBuilder sb, DateFieldFormatter dates, long nowMillis,
+                               long startTime, long endTime, boolean isAllDay) {
+        if (isAllDay) { // Compare the event's dates, not its UTC instants, with the local day
+            startTime = dates.getDays().allDayToLocal(startTime);
+            endTime = dates.getDays().allDayToLocal(endTime);
+        }
+        if (nowMillis >= startTime && nowMillis < endTime) { // Happening now
+            if (isAllDay) {
+                sb.append(dates.dayIndex(startTime) == dates.dayIndex(nowMillis) ? "Today (All day)" : "Now (All day)");
+            } else {
+                sb.append("Now (until ");
+                dates.appendHourMinute(sb, endTime);
+                sb.append(')');
+            }
+            return;
+        }
+
+        if (nowMillis >= endTime) { // Passed
+            sb.append("Ended (");
+            dates.appendMonthDay(sb, startTime);
+            sb.append(')');
+            return;
+        }
+
+        long diffMillis = startTime - nowMillis;
+        long diffDays = dates.dayIndex(startTime) - dates.dayIndex(nowMillis);
+        if (diffDays == 0) { // Today
+            if (isAllDay) {
+                sb.append("Today (All day)");
+                return;
+            }
+            long hours = diffMillis / HOUR_MILLIS;
+            if (hours >= 1) {
+                sb.append(hours).append("h left (");
+            } else {
+                sb.append(Math.max(0, diffMillis / MINUTE_MILLIS)).append("m left (");
+            }
+            dates.appendHourMinute(sb, startTime);
+            sb.append(')');
+        } else if (diffDays == 1) { // Tomorrow
+            if (isAllDay) {
+                sb.append("Tomorrow (All day)");
+            } else {
+                sb.append("Tomorrow ");
+                dates.appendHourMinute(sb, startTime);
+            }
+        } else { // Later
+            sb.append(diffDays).append("d (");
+            if (isAllDay) {
+                dates.appendMonthDay(sb, startTime);
+                sb.append(", All day)");
+            } else {
+                dates.appendWeekdayHourMinute(sb, startTime);
+                sb.append(')');
+            }
+        }
+    }
+}
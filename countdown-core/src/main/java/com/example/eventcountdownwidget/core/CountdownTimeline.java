@@ -0,0 +1,186 @@
+package com.example.eventcountdownwidget.core;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Precomputed render states of one countdown widget: from the instant it was built, each entry is
+ * what the subtitle slot shows (static text, or the self-ticking Chronometer before or after the
+ * start) and from when. Entries are the instants {@link NextUpdateCalculator#nextCountdownAlarm}
+ * yields, with the text {@link CountdownTextEngine#appendCountdownSubtitle} gives there, so a tick
+ * is a lookup instead of formatting, and the following entry is the next alarm.
+ * The texts depend only on the event and the engine's locale and labels, not on the zone or the
+ * wall clock, so a timeline stays valid until {@link #covers} fails or the event changes.
+ */
+public final class CountdownTimeline {
+
+    /** Entries built at most; a timeline built long before the start runs out after that many changes. */
+    public static final int MAX_ENTRIES = 256;
+
+    public static final byte KIND_TEXT = 0;
+    public static final byte KIND_CHRONOMETER_UNTIL = 1;
+    public static final byte KIND_CHRONOMETER_SINCE = 2;
+
+    private static final int FORMAT_VERSION = 2;
+
+    private final long startTime;
+    private final long endTime;
+    private final String localeTag;
+    private final long[] instants; // Entry i holds from instants[i] until instants[i + 1]
+    private final byte[] kinds;
+    private final String[] texts;  // Null for the Chronometer kinds
+    private final long expiresAt;  // End of the last entry; NextUpdateCalculator.NEVER if it holds for good
+    private int cursor;            // Last entry looked up; ticks mostly ask for it or the one after
+
+    private CountdownTimeline(long startTime, long endTime, String localeTag,
+                              long[] instants, byte[] kinds, String[] texts, long expiresAt) {
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.localeTag = localeTag;
+        this.instants = instants;
+        this.kinds = kinds;
+        this.texts = texts;
+        this.expiresAt = expiresAt;
+    }
+
+    /** Builds up to {@link #MAX_ENTRIES} entries starting at {@code nowMillis}. */
+    public static CountdownTimeline build(CountdownTextEngine engine, long nowMillis, long startTime, long endTime) {
+        return build(engine, nowMillis, startTime, endTime, MAX_ENTRIES);
+    }
+
+    /**
+     * @param startTime Event start; must not be -1 (the setup prompt has no timeline).
+     * @param endTime   Event end, or -1 if unknown.
+     */
+    public static CountdownTimeline build(CountdownTextEngine engine, long nowMillis, long startTime, long endTime,
+                                          int maxEntries) {
+        long[] instants = new long[maxEntries];
+        byte[] kinds = new byte[maxEntries];
+        String[] texts = new String[maxEntries];
+        StringBuilder sb = new StringBuilder(32);
+        int size = 0;
+        long at = nowMillis;
+        while (true) {
+            byte kind;
+            String text = null;
+            if (NextUpdateCalculator.isSelfTicking(at, startTime, endTime)) {
+                kind = at < startTime ? KIND_CHRONOMETER_UNTIL : KIND_CHRONOMETER_SINCE;
+            } else {
+                kind = KIND_TEXT;
+                sb.setLength(0);
+                engine.appendCountdownSubtitle(sb, at, startTime, endTime);
+                text = sb.toString();
+            }
+            // An alarm whose state comes out the same extends the previous entry
+            if (size == 0 || kind != kinds[size - 1] || (text != null && !text.equals(texts[size - 1]))) {
+                if (size == maxEntries) {
+                    break; // "at" is where the next entry would have started
+                }
+                instants[size] = at;
+                kinds[size] = kind;
+                texts[size] = text;
+                size++;
+            }
+            at = NextUpdateCalculator.nextCountdownAlarm(at, startTime, endTime);
+            if (at == NextUpdateCalculator.NEVER) {
+                break;
+            }
+        }
+        return new CountdownTimeline(startTime, endTime, engine.getLocale().toLanguageTag(),
+                Arrays.copyOf(instants, size), Arrays.copyOf(kinds, size), Arrays.copyOf(texts, size), at);
+    }
+
+    /** Whether this timeline was built for the given event and locale. */
+    public boolean matches(long startTime, long endTime, String localeTag) {
+        return this.startTime == startTime && this.endTime == endTime && this.localeTag.equals(localeTag);
+    }
+
+    /** Whether {@link #indexAt} can answer for {@code nowMillis}. */
+    public boolean covers(long nowMillis) {
+        return nowMillis >= instants[0] && nowMillis < expiresAt;
+    }
+
+    public int size() {
+        return instants.length;
+    }
+
+    /** The entry shown at {@code nowMillis}, which must be {@linkplain #covers covered}. */
+    public int indexAt(long nowMillis) {
+        int i = cursor;
+        if (nowMillis >= instants[i]) {
+            // Usually the entry already shown, or the one the alarm was armed for
+            if (i + 1 == instants.length || nowMillis < instants[i + 1]) {
+                return i;
+            }
+            if (i + 2 == instants.length || nowMillis < instants[i + 2]) {
+                cursor = i + 1;
+                return i + 1;
+            }
+        }
+        int found = Arrays.binarySearch(instants, nowMillis);
+        i = found >= 0 ? found : -found - 2;
+        cursor = i;
+        return i;
+    }
+
+    public byte kindAt(int index) {
+        return kinds[index];
+    }
+
+    /** The subtitle text of a {@link #KIND_TEXT} entry, otherwise null. */
+    public String textAt(int index) {
+        return texts[index];
+    }
+
+    /**
+     * When entry {@code index} stops being shown: the next alarm. {@link NextUpdateCalculator#NEVER}
+     * if it is shown for good.
+     */
+    public long validUntil(int index) {
+        return index + 1 < instants.length ? instants[index + 1] : expiresAt;
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(startTime);
+        out.writeLong(endTime);
+        out.writeUTF(localeTag);
+        out.writeLong(expiresAt);
+        out.writeInt(instants.length);
+        for (int i = 0; i < instants.length; i++) {
+            out.writeLong(instants[i]);
+            out.writeByte(kinds[i]);
+            if (kinds[i] == KIND_TEXT) {
+                out.writeUTF(texts[i]);
+            }
+        }
+    }
+
+    /** @return The timeline written by {@link #writeTo}, or null if it was written by another format version. */
+    public static CountdownTimeline readFrom(DataInput in) throws IOException {
+        if (in.readInt() != FORMAT_VERSION) {
+            return null;
+        }
+        long startTime = in.readLong();
+        long endTime = in.readLong();
+        String localeTag = in.readUTF();
+        long expiresAt = in.readLong();
+        int size = in.readInt();
+        if (size <= 0 || size > MAX_ENTRIES) {
+            throw new IOException("Bad timeline size " + size);
+        }
+        long[] instants = new long[size];
+        byte[] kinds = new byte[size];
+        String[] texts = new String[size];
+        for (int i = 0; i < size; i++) {
+            instants[i] = in.readLong();
+            kinds[i] = in.readByte();
+            if (kinds[i] == KIND_TEXT) {
+                texts[i] = in.readUTF();
+            }
+        }
+        return new CountdownTimeline(startTime, endTime, localeTag, instants, kinds, texts, expiresAt);
+    }
+}
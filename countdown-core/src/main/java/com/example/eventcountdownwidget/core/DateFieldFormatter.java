@@ -0,0 +1,88 @@
+package com.example.eventcountdownwidget.core;
+
+import java.text.DateFormatSymbols;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Lock-free replacement for the shared {@code SimpleDateFormat} instances of the countdown texts.
+ * Splits an instant into local date fields with plain integer arithmetic (days-to-civil conversion,
+ * no {@code Calendar}) and appends them to a caller-supplied {@code StringBuilder}, so it can be used
+ * from any thread without locking or allocating. Local days come from a {@link DayBoundaryIndex}.
+ * Month and weekday names come from the locale's {@link DateFormatSymbols}, read once; digits are
+ * always ASCII.
+ * Contains no Android dependencies so it can be exercised from plain JVM unit tests.
+ */
+public final class DateFieldFormatter {
+
+    private static final long MINUTE_MILLIS = NextUpdateCalculator.MINUTE_MILLIS;
+    private static final long DAY_MILLIS = NextUpdateCalculator.DAY_MILLIS;
+
+    private final DayBoundaryIndex days;
+    private final TimeZone zone;
+    private final Locale locale;
+    private final String[] shortMonths;   // Indexed 0 (January) to 11
+    private final String[] shortWeekdays; // Indexed like Calendar.SUNDAY (1) to Calendar.SATURDAY (7)
+
+    /** Formats in {@code zone}, with a day table around the current time. */
+    public DateFieldFormatter(TimeZone zone, Locale locale) {
+        this(DayBoundaryIndex.build(zone, System.currentTimeMillis()), locale);
+    }
+
+    public DateFieldFormatter(DayBoundaryIndex days, Locale locale) {
+        this.days = days;
+        this.zone = days.getZone();
+        this.locale = locale;
+        DateFormatSymbols symbols = DateFormatSymbols.getInstance(locale);
+        this.shortMonths = symbols.getShortMonths();
+        this.shortWeekdays = symbols.getShortWeekdays();
+    }
+
+    public Locale getLocale() {
+        return locale;
+    }
+
+    public DayBoundaryIndex getDays() {
+        return days;
+    }
+
+    /** Days since 1970-01-01 of the local date containing {@code millis}; equal values mean the same day. */
+    public long dayIndex(long millis) {
+        return days.dayIndex(millis);
+    }
+
+    /** Appends {@code HH:mm}. */
+    public void appendHourMinute(StringBuilder sb, long millis) {
+        long local = millis + zone.getOffset(millis);
+        int minuteOfDay = (int) (Math.floorMod(local, DAY_MILLIS) / MINUTE_MILLIS);
+        appendTwoDigits(sb, minuteOfDay / 60);
+        sb.append(':');
+        appendTwoDigits(sb, minuteOfDay % 60);
+    }
+
+    /** Appends {@code MMM d}, e.g. "Feb 21". */
+    public void appendMonthDay(StringBuilder sb, long millis) {
+        long days = dayIndex(millis);
+        // Days-to-civil (proleptic Gregorian), from Howard Hinnant's date algorithms
+        long z = days + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100); // From March 1st
+        long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int dayOfMonth = (int) (dayOfYear - (153 * shiftedMonth + 2) / 5 + 1);
+        int month = (int) (shiftedMonth < 10 ? shiftedMonth + 2 : shiftedMonth - 10); // 0-based, January = 0
+        sb.append(shortMonths[month]).append(' ').append(dayOfMonth);
+    }
+
+    /** Appends {@code EEE HH:mm}, e.g. "Fri 14:00". */
+    public void appendWeekdayHourMinute(StringBuilder sb, long millis) {
+        int weekday = (int) Math.floorMod(dayIndex(millis) + 4, 7L) + 1; // 1970-01-01 was a Thursday
+        sb.append(shortWeekdays[weekday]).append(' ');
+        appendHourMinute(sb, millis);
+    }
+
+    private static void appendTwoDigits(StringBuilder sb, int value) {
+        sb.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.eventcountdownwidget.core;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * Sorted table of the local midnights of one zone around a given instant, so "which day is this"
+ * and "when does the day change" are a binary search instead of a {@code Calendar} per row.
+ * Midnights are taken from the zone's own rules when the table is built, so days of 23 or 25 hours
+ * and days that start at 01:00 (DST at midnight) come out right. Instants outside the table fall back
+ * to per-call arithmetic, which is correct but slower.
+ * Contains no Android dependencies so it can be exercised from plain JVM unit tests.
+ */
+public final class DayBoundaryIndex {
+
+    /** Days before the build instant that are covered, for recently ended and ongoing events. */
+    public static final int DAYS_BEFORE = 31;
+    /** Days after the build instant that are covered. */
+    public static final int DAYS_AFTER = 400;
+
+    private static final long DAY_MILLIS = NextUpdateCalculator.DAY_MILLIS;
+
+    private final TimeZone zone;
+    private final long firstDay;    // Days since 1970-01-01 of the local date starting at midnights[0]
+    private final long[] midnights; // midnights[i] is the first instant of local day firstDay + i
+
+    private DayBoundaryIndex(TimeZone zone, long firstDay, long[] midnights) {
+        this.zone = zone;
+        this.firstDay = firstDay;
+        this.midnights = midnights;
+    }
+
+    /** Covers {@link #DAYS_BEFORE} days before {@code nowMillis} to {@link #DAYS_AFTER} days after it. */
+    public static DayBoundaryIndex build(TimeZone zone, long nowMillis) {
+        return build(zone, nowMillis, DAYS_BEFORE, DAYS_AFTER);
+    }
+
+    public static DayBoundaryIndex build(TimeZone zone, long nowMillis, int daysBefore, int daysAfter) {
+        Calendar cal = Calendar.getInstance(zone);
+        cal.setTimeInMillis(nowMillis);
+        cal.add(Calendar.DAY_OF_YEAR, -daysBefore);
+        int year = cal.get(Calendar.YEAR);
+        int dayOfYear = cal.get(Calendar.DAY_OF_YEAR);
+
+        long[] midnights = new long[daysBefore + daysAfter + 2];
+        for (int i = 0; i < midnights.length; i++) {
+            cal.clear();
+            cal.set(Calendar.YEAR, year);
+            cal.set(Calendar.DAY_OF_YEAR, dayOfYear + i); // Lenient: rolls over into the following years
+            midnights[i] = cal.getTimeInMillis();       // Where midnight doesn't exist, the first instant after the gap
+        }
+        long firstDay = Math.floorDiv(midnights[0] + zone.getOffset(midnights[0]), DAY_MILLIS);
+        return new DayBoundaryIndex((TimeZone) zone.clone(), firstDay, midnights);
+    }
+
+    public TimeZone getZone() {
+        return zone;
+    }
+
+    /** Whether {@code millis} is answered from the table. */
+    public boolean covers(long millis) {
+        return millis >= midnights[0] && millis < midnights[midnights.length - 1];
+    }
+
+    /** Days since 1970-01-01 of the local date containing {@code millis}; equal values mean the same day. */
+    public long dayIndex(long millis) {
+        if (!covers(millis)) {
+            return Math.floorDiv(millis + zone.getOffset(millis), DAY_MILLIS);
+        }
+        return firstDay + slot(millis);
+    }
+
+    /** The first instant of the local day after the one containing {@code millis}. */
+    public long nextMidnight(long millis) {
+        if (!covers(millis)) {
+            Calendar cal = Calendar.getInstance(zone);
+            cal.setTimeInMillis(millis);
+            cal.set(Calendar.HOUR_OF_DAY, 0);
+            cal.set(Calendar.MINUTE, 0);
+            cal.set(Calendar.SECOND, 0);
+            cal.set(Calendar.MILLISECOND, 0);
+            cal.add(Calendar.DAY_OF_YEAR, 1);
+            return cal.getTimeInMillis();
+        }
+        return midnights[slot(millis) + 1];
+    }
+
+    /** The first instant of local day {@code dayIndex} (days since 1970-01-01). */
+    public long midnightOf(long dayIndex) {
+        long slot = dayIndex - firstDay;
+        if (slot >= 0 && slot < midnights.length) {
+            return midnights[(int) slot];
+        }
+        Calendar cal = Calendar.getInstance(zone);
+        cal.clear();
+        cal.set(Calendar.YEAR, 1970);
+        cal.set(Calendar.DAY_OF_YEAR, (int) (dayIndex + 1)); // Lenient, as in build()
+        return cal.getTimeInMillis();
+    }
+
+    /**
+     * Moves a bound of an all-day instance, which the calendar provider stores at UTC midnight,
+     * to the first instant of the same date in this zone, so all-day rows change with the local day.
+     */
+    public long allDayToLocal(long utcMidnight) {
+        return midnightOf(Math.floorDiv(utcMidnight, DAY_MILLIS));
+    }
+
+    /** Index of the last midnight at or before {@code millis}; only for covered instants. */
+    private int slot(long millis) {
+        int found = Arrays.binarySearch(midnights, millis);
+        if (found < 0) {
+            return -found - 2;
+        }
+        // A skipped day (e.g. Samoa's 2011-12-30) has the same midnight as the next one
+        while (found + 1 < midnights.length && midnights[found + 1] == millis) {
+            found++;
+        }
+        return found;
+    }
+}
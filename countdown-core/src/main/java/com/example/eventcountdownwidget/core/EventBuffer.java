@@ -0,0 +1,81 @@
+package com.example.eventcountdownwidget.core;
+
+import java.util.List;
+
+/**
+ * Immutable, compact copy of a list widget's rows, held by its {@code RemoteViewsFactory} between
+ * refreshes. Rows are stored column-wise: parallel primitive arrays for the instance IDs and times,
+ * a bitset for the all-day flags and interned titles, so a widget keeps three arrays' worth of longs
+ * plus one reference per row instead of a row object (and whatever strings it dragged along) per event.
+ */
+public final class EventBuffer {
+
+    public static final EventBuffer EMPTY = new EventBuffer(new long[0], new long[0], new long[0], new long[0], new String[0]);
+
+    private final long[] ids;
+    private final long[] startTimes;
+    private final long[] endTimes;
+    private final long[] allDayBits;
+    private final String[] titles;
+
+    private EventBuffer(long[] ids, long[] startTimes, long[] endTimes, long[] allDayBits, String[] titles) {
+        this.ids = ids;
+        this.startTimes = startTimes;
+        this.endTimes = endTimes;
+        this.allDayBits = allDayBits;
+        this.titles = titles;
+    }
+
+    /** Copies the visible fields of {@code events}, in order. */
+    public static EventBuffer of(List<? extends EventInstance> events) {
+        int size = events.size();
+        if (size == 0) {
+            return EMPTY;
+        }
+        long[] ids = new long[size];
+        long[] startTimes = new long[size];
+        long[] endTimes = new long[size];
+        long[] allDayBits = new long[(size + 63) >>> 6];
+        String[] titles = new String[size];
+        for (int i = 0; i < size; i++) {
+            EventInstance event = events.get(i);
+            ids[i] = event.getId();
+            startTimes[i] = event.getStartTime();
+            endTimes[i] = event.getEndTime();
+            if (event.isAllDay()) {
+                allDayBits[i >>> 6] |= 1L << i;
+            }
+            // Recurring instances and every widget showing them share one copy of the title
+            String title = event.getTitle();
+            titles[i] = title != null ? title.intern() : null;
+        }
+        return new EventBuffer(ids, startTimes, endTimes, allDayBits, titles);
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public long getId(int index) {
+        return ids[index];
+    }
+
+    public String getTitle(int index) {
+        return titles[index];
+    }
+
+    public long getStartTime(int index) {
+        return startTimes[index];
+    }
+
+    public long getEndTime(int index) {
+        return endTimes[index];
+    }
+
+    public boolean isAllDay(int index) {
+        if (index < 0 || index >= ids.length) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + ids.length);
+        }
+        return (allDayBits[index >>> 6] & (1L << index)) != 0;
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.eventcountdownwidget.core;
+
+/**
+ * A calendar event instance as seen by the ranking code; implemented by the app's
+ * {@code CalendarEventItem}.
+ */
+public interface EventInstance {
+    /** The instance's own row ID, unique per occurrence; a recurring event's instances share only its event ID. */
+    long getId();
+
+    /** Null when unknown. */
+    String getCalendarId();
+
+    String getTitle();
+
+    long getStartTime();
+
+    long getEndTime();
+
+    boolean isAllDay();
+}
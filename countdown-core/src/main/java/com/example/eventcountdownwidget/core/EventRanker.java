@@ -0,0 +1,90 @@
+package com.example.eventcountdownwidget.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Picks the rows a list widget shows from per-calendar query results.
+ * Each partition is already sorted by start time, so they are merged through a small heap that
+ * stops as soon as {@code maxEvents} rows are taken, instead of concatenating and sorting every
+ * cached row on each refresh.
+ * Contains no Android dependencies so it can be exercised from plain JVM unit tests.
+ */
+public final class EventRanker {
+
+    private EventRanker() {}
+
+    /**
+     * Merges the partitions by start time, keeping instances that end at or after {@code nowMillis}
+     * and start no later than {@code completeUntil}. Ties keep partition order, then row order:
+     * the same result as a stable sort of the concatenated partitions.
+     *
+     * @param partitions Lists sorted by start time.
+     * @return A new list of at most {@code maxEvents} items.
+     */
+    public static <E extends EventInstance> List<E> upcoming(List<? extends List<? extends E>> partitions,
+                                                             long nowMillis, long completeUntil, int maxEvents) {
+        List<E> result = new ArrayList<>();
+        int count = partitions.size();
+        if (count == 1) { // Common case: a single calendar, no merge needed
+            for (E item : partitions.get(0)) {
+                if (result.size() >= maxEvents || item.getStartTime() > completeUntil) break;
+                if (item.getEndTime() >= nowMillis) result.add(item);
+            }
+            return result;
+        }
+
+        int[] cursors = new int[count];
+        int[] heap = new int[count]; // Partition indices, ordered by their current row
+        int size = 0;
+        for (int p = 0; p < count; p++) {
+            if (skipEnded(partitions.get(p), cursors, p, nowMillis)) heap[size++] = p;
+        }
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(partitions, cursors, heap, i, size);
+        }
+
+        while (size > 0 && result.size() < maxEvents) {
+            int p = heap[0];
+            E item = partitions.get(p).get(cursors[p]);
+            if (item.getStartTime() > completeUntil) break;
+            result.add(item);
+            cursors[p]++;
+            if (!skipEnded(partitions.get(p), cursors, p, nowMillis)) {
+                heap[0] = heap[--size]; // Partition exhausted
+            }
+            siftDown(partitions, cursors, heap, 0, size);
+        }
+        return result;
+    }
+
+    /** Advances partition {@code p} past rows that already ended; false if none are left. */
+    private static boolean skipEnded(List<? extends EventInstance> partition, int[] cursors, int p, long nowMillis) {
+        int cursor = cursors[p];
+        while (cursor < partition.size() && partition.get(cursor).getEndTime() < nowMillis) cursor++;
+        cursors[p] = cursor;
+        return cursor < partition.size();
+    }
+
+    private static void siftDown(List<? extends List<? extends EventInstance>> partitions, int[] cursors,
+                                 int[] heap, int index, int size) {
+        while (true) {
+            int smallest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && precedes(partitions, cursors, heap[left], heap[smallest])) smallest = left;
+            if (right < size && precedes(partitions, cursors, heap[right], heap[smallest])) smallest = right;
+            if (smallest == index) return;
+            int swap = heap[index];
+            heap[index] = heap[smallest];
+            heap[smallest] = swap;
+            index = smallest;
+        }
+    }
+
+    private static boolean precedes(List<? extends List<? extends EventInstance>> partitions, int[] cursors, int a, int b) {
+        long startA = partitions.get(a).get(cursors[a]).getStartTime();
+        long startB = partitions.get(b).get(cursors[b]).getStartTime();
+        return startA < startB || (startA == startB && a < b);
+    }
+}
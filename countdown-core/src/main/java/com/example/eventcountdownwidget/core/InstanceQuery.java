@@ -0,0 +1,96 @@
+package com.example.eventcountdownwidget.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Selection, arguments and sort order of the calendar instance queries: instances of the selected
+ * calendars that end at or after "now", earliest first, capped at a row limit; the event picker's
+ * pages also filter by title and continue from a keyset anchor.
+ * Column names are passed in (from {@code CalendarContract.Instances}) so this stays free of
+ * Android dependencies and can be exercised from plain JVM unit tests.
+ */
+public final class InstanceQuery {
+
+    public final String selection;
+    public final String[] selectionArgs;
+    public final String sortOrder;
+
+    private InstanceQuery(String selection, String[] selectionArgs, String sortOrder) {
+        this.selection = selection;
+        this.selectionArgs = selectionArgs;
+        this.sortOrder = sortOrder;
+    }
+
+    /**
+     * @param calendarIds Must not be empty.
+     */
+    public static InstanceQuery build(String calendarIdColumn, String endColumn, String beginColumn,
+                                      List<String> calendarIds, long nowMillis, int limit) {
+        StringBuilder selection = new StringBuilder(calendarIdColumn.length() + endColumn.length() + 2 * calendarIds.size() + 16);
+        List<String> args = new ArrayList<>(calendarIds.size() + 1);
+        appendCalendarsAndEnd(selection, args, calendarIdColumn, endColumn, calendarIds, nowMillis);
+        return new InstanceQuery(selection.toString(), args.toArray(new String[0]), beginColumn + " ASC LIMIT " + limit);
+    }
+
+    /**
+     * One keyset page of the event picker: the rows of {@link #build} whose title contains every
+     * token, strictly after the anchor's (begin, tie) key in sort order, sorted by that key.
+     *
+     * @param titleTokens Substrings that must all occur in the title; LIKE wildcards in them are escaped.
+     * @param hasAnchor   False for the first page, which starts at the beginning; the anchor is then ignored.
+     * @param backward    Whether the page runs towards earlier rows, sorted descending.
+     */
+    public static InstanceQuery page(String calendarIdColumn, String endColumn, String titleColumn,
+                                     String beginColumn, String tieColumn, List<String> calendarIds, long nowMillis,
+                                     String[] titleTokens, boolean hasAnchor, long anchorBegin, long anchorTie,
+                                     boolean backward, int limit) {
+        StringBuilder selection = new StringBuilder(128);
+        List<String> args = new ArrayList<>(calendarIds.size() + titleTokens.length + 4);
+        appendCalendarsAndEnd(selection, args, calendarIdColumn, endColumn, calendarIds, nowMillis);
+
+        for (String token : titleTokens) {
+            selection.append(" AND ").append(titleColumn).append(" LIKE ? ESCAPE '\\'");
+            args.add("%" + escapeLike(token) + "%");
+        }
+
+        String op = backward ? "<" : ">";
+        if (hasAnchor) {
+            selection.append(" AND (").append(beginColumn).append(' ').append(op).append(" ?")
+                    .append(" OR (").append(beginColumn).append(" = ?")
+                    .append(" AND ").append(tieColumn).append(' ').append(op).append(" ?))");
+            args.add(String.valueOf(anchorBegin));
+            args.add(String.valueOf(anchorBegin));
+            args.add(String.valueOf(anchorTie));
+        }
+
+        String direction = backward ? " DESC" : " ASC";
+        return new InstanceQuery(selection.toString(), args.toArray(new String[0]),
+                beginColumn + direction + ", " + tieColumn + direction + " LIMIT " + limit);
+    }
+
+    private static void appendCalendarsAndEnd(StringBuilder selection, List<String> args, String calendarIdColumn,
+                                              String endColumn, List<String> calendarIds, long nowMillis) {
+        selection.append(calendarIdColumn).append(" IN (");
+        for (int i = 0; i < calendarIds.size(); i++) {
+            if (i > 0) selection.append(',');
+            selection.append('?');
+        }
+        selection.append(") AND ").append(endColumn).append(" >= ?");
+        args.addAll(calendarIds);
+        args.add(String.valueOf(nowMillis));
+    }
+
+    /** Escapes LIKE's wildcards and the escape character itself with a backslash. */
+    static String escapeLike(String text) {
+        StringBuilder sb = new StringBuilder(text.length() + 4);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '%' || c == '_' || c == '\\') {
+                sb.append('\\');
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.eventcountdownwidget.core;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Computes the exact instant at which a widget's rendered countdown text will next differ.
+ * Mirrors the unit math of {@code CountdownTextEngine.appendCountdownSubtitle} and
+ * {@code CountdownTextEngine.appendListItem}, so the update
+ * scheduler can sleep until the text actually changes instead of polling on fixed tiers.
+ * Contains no Android dependencies so it can be exercised from plain JVM unit tests.
+ */
+public final class NextUpdateCalculator {
+
+    /** Returned when the rendered text will never change on its own. */
+    public static final long NEVER = Long.MAX_VALUE;
+
+    // Time constants shared with the countdown formatting
+    public static final long MINUTE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    public static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+    public static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+    public static final long WEEK_MILLIS = TimeUnit.DAYS.toMillis(7);
+    public static final long MONTH_APPROX_MILLIS = TimeUnit.DAYS.toMillis(30); // Approximation
+    public static final long YEAR_APPROX_MILLIS = TimeUnit.DAYS.toMillis(365); // Approximation
+
+    /**
+     * Within this distance of the event start the countdown widget shows a Chronometer instead of text,
+     * so the final day (and the day after the start) needs no minute-by-minute alarms at all.
+     */
+    public static final long SELF_TICKING_WINDOW_MILLIS = DAY_MILLIS;
+
+    private NextUpdateCalculator() {}
+
+    /**
+     * Next text change of the single-event countdown widget.
+     *
+     * @param nowMillis Current time.
+     * @param startTime Event start, or -1 if no event is configured.
+     * @param endTime Event end, or -1 if unknown.
+     * @return The first instant after {@code nowMillis} at which the subtitle differs, or {@link #NEVER}.
+     */
+    public static long nextCountdownChange(long nowMillis, long startTime, long endTime) {
+        if (startTime == -1) {
+            return NEVER; // Placeholder text never changes
+        }
+
+        if (nowMillis >= startTime && (endTime == -1 || nowMillis < endTime)) {
+            // "Happening now" until the event ends
+            return endTime == -1 ? NEVER : endTime;
+        }
+
+        long diffMillis = startTime - nowMillis;
+        if (diffMillis >= 0) {
+            return startTime - untilBoundary(diffMillis, startTime, endTime);
+        }
+        return startTime + sinceBoundary(-diffMillis);
+    }
+
+    /**
+     * Whether the single-event countdown is rendered by a Chronometer ticking in the launcher:
+     * less than {@link #SELF_TICKING_WINDOW_MILLIS} before the start ("In mm:ss"), or less than that
+     * after the start once the event is over ("mm:ss ago"). "Happening now" stays static text.
+     */
+    public static boolean isSelfTicking(long nowMillis, long startTime, long endTime) {
+        if (startTime == -1) {
+            return false;
+        }
+        if (nowMillis >= startTime && (endTime == -1 || nowMillis < endTime)) {
+            return false;
+        }
+        return Math.abs(startTime - nowMillis) < SELF_TICKING_WINDOW_MILLIS;
+    }
+
+    /**
+     * Next instant the app itself must re-render the single-event countdown. Same as
+     * {@link #nextCountdownChange} outside the self-ticking window; inside it only the switch back
+     * to static text (at the start, or {@link #SELF_TICKING_WINDOW_MILLIS} after it) needs an alarm.
+     */
+    public static long nextCountdownAlarm(long nowMillis, long startTime, long endTime) {
+        if (isSelfTicking(nowMillis, startTime, endTime)) {
+            return nowMillis < startTime ? startTime : startTime + SELF_TICKING_WINDOW_MILLIS;
+        }
+        long next = nextCountdownChange(nowMillis, startTime, endTime);
+        long windowEntry = startTime - SELF_TICKING_WINDOW_MILLIS + 1;
+        return nowMillis < windowEntry ? Math.min(next, windowEntry) : next;
+    }
+
+    /**
+     * Whether a deadline from {@link #nextCountdownAlarm} must be served on time: a "now" transition,
+     * the event starting (where the counting-down Chronometer must stop) or ending. Anything else
+     * only moves a day or hour counter, or swaps text for a Chronometer showing the same time, and
+     * may be a little late.
+     */
+    public static boolean needsExactCountdownAlarm(long deadline, long startTime, long endTime) {
+        if (startTime == -1) {
+            return false;
+        }
+        return deadline == startTime || deadline == endTime;
+    }
+
+    /**
+     * Offset before the event start at which the "In ..." text next changes.
+     * The text stays constant while the remaining time is at or above the returned boundary's
+     * lower edge, so the change happens one millisecond after {@code start - boundary}.
+     */
+    private static long untilBoundary(long diffMillis, long startTime, long endTime) {
+        if (diffMillis < MINUTE_MILLIS) {
+            // "Starts soon" until the event starts (or, for zero-length events, until just after)
+            return (endTime == -1 || endTime > startTime) ? 0 : -1;
+        }
+
+        long boundary;
+        if (diffMillis < DAY_MILLIS) {
+            boundary = floorTo(diffMillis, MINUTE_MILLIS); // Hours and minutes shown
+        } else {
+            long years = diffMillis / YEAR_APPROX_MILLIS;
+            long months = (diffMillis % YEAR_APPROX_MILLIS) / MONTH_APPROX_MILLIS;
+            if (years > 0) {
+                boundary = years * YEAR_APPROX_MILLIS + months * MONTH_APPROX_MILLIS; // Years and months shown
+            } else if (months > 0 || diffMillis >= WEEK_MILLIS) {
+                boundary = floorTo(diffMillis, DAY_MILLIS); // Months and days, or only days, shown
+            } else {
+                boundary = floorTo(diffMillis, HOUR_MILLIS); // Days and hours shown
+            }
+        }
+        return boundary - 1;
+    }
+
+    /** Elapsed time since the event start at which the "... ago" text next changes. */
+    private static long sinceBoundary(long diffMillis) {
+        if (diffMillis < MINUTE_MILLIS) {
+            return MINUTE_MILLIS; // "Event passed" until the first full minute
+        }
+
+        long years = diffMillis / YEAR_APPROX_MILLIS;
+        long months = (diffMillis % YEAR_APPROX_MILLIS) / MONTH_APPROX_MILLIS;
+        long days = (diffMillis % MONTH_APPROX_MILLIS) / DAY_MILLIS;
+
+        if (years > 0) { // Years and months shown
+            return Math.min(years * YEAR_APPROX_MILLIS + (months + 1) * MONTH_APPROX_MILLIS,
+                    (years + 1) * YEAR_APPROX_MILLIS);
+        } else if (months > 0 || diffMillis >= WEEK_MILLIS) { // Months and days, or only days, shown
+            return floorTo(diffMillis, DAY_MILLIS) + DAY_MILLIS;
+        } else if (days > 0) { // Days and hours shown
+            return floorTo(diffMillis, HOUR_MILLIS) + HOUR_MILLIS;
+        }
+        return floorTo(diffMillis, MINUTE_MILLIS) + MINUTE_MILLIS; // Hours and minutes shown
+    }
+
+    /**
+     * Next text change of a single row in the list widget.
+     *
+     * @param days The local days the list rows use for their Today/Tomorrow/N-days math.
+     * @param isAllDay Whether the bounds are the UTC midnights the calendar provider stores for all-day instances.
+     */
+    public static long nextListItemChange(long nowMillis, long startTime, long endTime, boolean isAllDay, DayBoundaryIndex days) {
+        if (isAllDay) { // Same local dates as CountdownTextEngine.appendListItem
+            startTime = days.allDayToLocal(startTime);
+            endTime = days.allDayToLocal(endTime);
+        }
+        if (nowMillis >= startTime && nowMillis < endTime) { // Happening now
+            // All-day events flip between "Today" and "Now" at midnight
+            return isAllDay ? Math.min(endTime, days.nextMidnight(nowMillis)) : endTime;
+        }
+        if (nowMillis >= endTime) {
+            return NEVER; // "Ended (...)" is fixed
+        }
+
+        long diffMillis = startTime - nowMillis;
+        long nextMidnight = days.nextMidnight(nowMillis);
+        if (startTime >= nextMidnight) {
+            return nextMidnight; // "Tomorrow ..." / "Nd (...)" only change when the day does
+        }
+
+        // Today
+        if (isAllDay) {
+            return startTime;
+        }
+        long unit = diffMillis >= HOUR_MILLIS ? HOUR_MILLIS : MINUTE_MILLIS;
+        long boundary = floorTo(diffMillis, unit);
+        return boundary == 0 ? startTime : startTime - boundary + 1;
+    }
+
+    /**
+     * Whether a deadline from {@link #nextListItemChange} must be served on time: the row's event
+     * starting or ending, or its "Nm left" final approach.
+     */
+    public static boolean needsExactListAlarm(long deadline, long startTime, long endTime) {
+        return deadline == startTime || deadline == endTime || (deadline < startTime && startTime - deadline < HOUR_MILLIS);
+    }
+
+    private static long floorTo(long value, long unit) {
+        return (value / unit) * unit;
+    }
+}
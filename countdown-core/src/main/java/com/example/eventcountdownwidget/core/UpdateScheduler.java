@@ -0,0 +1,145 @@
+package com.example.eventcountdownwidget.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scheduling core behind the app's {@code WidgetUpdateReceiver}.
+ * Tracks the next refresh deadline of every widget instance (countdown and list) so that a
+ * single alarm can be armed for the earliest one. When that alarm fires, every widget whose
+ * deadline falls inside the coalescing window is handed back as one batch.
+ * Contains no Android dependencies so it can be exercised from plain JVM unit tests.
+ */
+public final class UpdateScheduler {
+
+    /**
+     * Widgets due within this window of the firing alarm are refreshed in the same batch.
+     * Deadlines are exact text-change instants (see {@link NextUpdateCalculator}), so the window is
+     * kept short: refreshing earlier would just redraw the old text and wake up again.
+     */
+    public static final long COALESCE_WINDOW_MILLIS = TimeUnit.SECONDS.toMillis(1);
+
+    /** Returned by {@link #nextDeadline()} when no widget is scheduled. */
+    public static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    /**
+     * A single widget's pending refresh.
+     */
+    public static final class Entry {
+        public final int widgetId;
+        public final String providerClassName;
+        public long deadline;
+        /**
+         * The deadline must be served on time (see {@link NextUpdateCalculator#needsExactCountdownAlarm});
+         * others may be served a little late by a deferrable wakeup the OS batches with its own.
+         */
+        public boolean exact;
+
+        Entry(int widgetId, String providerClassName, long deadline, boolean exact) {
+            this.widgetId = widgetId;
+            this.providerClassName = providerClassName;
+            this.deadline = deadline;
+            this.exact = exact;
+        }
+    }
+
+    private final Map<Integer, Entry> entries = new HashMap<>();
+
+    /** Sets (or replaces) the refresh deadline for a widget; it may be served a little late. */
+    public void put(int widgetId, String providerClassName, long deadline) {
+        put(widgetId, providerClassName, deadline, false);
+    }
+
+    /**
+     * Sets (or replaces) the refresh deadline for a widget.
+     *
+     * @param exact Whether the deadline must be served on time.
+     */
+    public void put(int widgetId, String providerClassName, long deadline, boolean exact) {
+        Entry entry = entries.get(widgetId);
+        if (entry == null || !entry.providerClassName.equals(providerClassName)) {
+            entries.put(widgetId, new Entry(widgetId, providerClassName, deadline, exact));
+        } else {
+            entry.deadline = deadline;
+            entry.exact = exact;
+        }
+    }
+
+    /** Forgets a widget, e.g. after it was deleted from the home screen. */
+    public void remove(int widgetId) {
+        entries.remove(widgetId);
+    }
+
+    /** @return The widget's current deadline, or {@link #NO_DEADLINE} if it is not tracked. */
+    public long deadlineOf(int widgetId) {
+        Entry entry = entries.get(widgetId);
+        return entry != null ? entry.deadline : NO_DEADLINE;
+    }
+
+    /** @return Whether the widget's current deadline is marked exact; false if it is not tracked. */
+    public boolean isExact(int widgetId) {
+        Entry entry = entries.get(widgetId);
+        return entry != null && entry.exact;
+    }
+
+    public boolean contains(int widgetId) {
+        return entries.containsKey(widgetId);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /** Read-only view of all tracked widgets, used for persisting the schedule. */
+    public Iterable<Entry> entries() {
+        return entries.values();
+    }
+
+    /**
+     * @return The earliest deadline across all widgets, or {@link #NO_DEADLINE} if none are scheduled.
+     */
+    public long nextDeadline() {
+        long earliest = NO_DEADLINE;
+        for (Entry entry : entries.values()) {
+            if (entry.deadline < earliest) earliest = entry.deadline;
+        }
+        return earliest;
+    }
+
+    /**
+     * @return The earliest deadline marked exact, or {@link #NO_DEADLINE} if there is none. When it is
+     *         later than {@link #nextDeadline()}, the earlier deadlines can go to a deferrable wakeup.
+     */
+    public long nextExactDeadline() {
+        long earliest = NO_DEADLINE;
+        for (Entry entry : entries.values()) {
+            if (entry.exact && entry.deadline < earliest) earliest = entry.deadline;
+        }
+        return earliest;
+    }
+
+    /**
+     * Collects every widget whose deadline is at or before {@code nowMillis + COALESCE_WINDOW_MILLIS}.
+     * The returned entries stay tracked; callers are expected to {@link #put} a fresh deadline for each.
+     */
+    public List<Entry> collectDue(long nowMillis) {
+        long horizon = nowMillis + COALESCE_WINDOW_MILLIS;
+        List<Entry> due = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (entry.deadline <= horizon) due.add(entry);
+        }
+        return due;
+    }
+
+    /**
+     * Deadline for the next refresh: {@code intervalMinutes} from now, snapped to the start of that minute.
+     * Matches the previous per-widget Calendar arithmetic without allocating a Calendar.
+     */
+    public static long deadlineAfter(long nowMillis, int intervalMinutes) {
+        long minute = TimeUnit.MINUTES.toMillis(1);
+        return (nowMillis / minute) * minute + intervalMinutes * minute;
+    }
+}
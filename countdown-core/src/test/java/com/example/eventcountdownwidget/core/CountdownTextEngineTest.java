@@ -0,0 +1,365 @@
+package com.example.eventcountdownwidget.core;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link CountdownTextEngine} and {@link DateFieldFormatter}, checked against
+ * the String-concatenating / {@code SimpleDateFormat} implementations they replaced, plus a
+ * microbenchmark of both.
+ */
+public class CountdownTextEngineTest {
+
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    private static final long WEEK = TimeUnit.DAYS.toMillis(7);
+    private static final long MONTH = TimeUnit.DAYS.toMillis(30);
+    private static final long YEAR = TimeUnit.DAYS.toMillis(365);
+
+    private static final long T0 = 1_700_000_040_000L;
+    private static final TimeZone SAST = TimeZone.getTimeZone("Africa/Johannesburg");
+    private static final TimeZone LOS_ANGELES = TimeZone.getTimeZone("America/Los_Angeles");
+
+    private static final String[][] PLURALS = {
+            {"%d yr", "%d yrs"}, {"%d mo", "%d mos"}, {"%d day", "%d days"}, {"%d hr", "%d hrs"}, {"%d min", "%d mins"}
+    };
+    private static final CountdownTextEngine.Labels LABELS =
+            new CountdownTextEngine.Labels("In", "ago", "Starts soon", "Event passed", "Happening now!");
+
+    /** English plurals formatted like {@code Resources.getQuantityString}, counting lookups. */
+    private static final class CountingPlurals implements CountdownTextEngine.PluralSource {
+        int lookups;
+
+        @Override
+        public String quantityString(int unit, int quantity) {
+            lookups++;
+            return format(unit, quantity);
+        }
+
+        static String format(int unit, int quantity) {
+            return String.format(Locale.US, PLURALS[unit][quantity == 1 ? 0 : 1], quantity);
+        }
+    }
+
+    private static String engineSubtitle(CountdownTextEngine engine, long now, long start, long end) {
+        StringBuilder sb = CountdownTextEngine.reusableBuilder();
+        engine.appendCountdownSubtitle(sb, now, start, end);
+        return sb.toString();
+    }
+
+    private static String engineListItem(DateFieldFormatter dates, long now, long start, long end, boolean allDay) {
+        StringBuilder sb = CountdownTextEngine.reusableBuilder();
+        CountdownTextEngine.appendListItem(sb, dates, now, start, end, allDay);
+        return sb.toString();
+    }
+
+    @Test
+    public void countdownSubtitle_matchesLegacyFormatter() {
+        CountdownTextEngine engine = new CountdownTextEngine(Locale.US, new CountingPlurals(), LABELS);
+        long[] steps = {7_000L, 13 * MINUTE + 1, 5 * HOUR + 7 * MINUTE, 3 * DAY + 1, 17 * DAY + 3, 11 * MONTH};
+        for (long step : steps) {
+            for (long offset = -6 * YEAR; offset <= 6 * YEAR; offset += step * 97 + 1) {
+                long start = T0 + offset;
+                if (Math.abs(offset) >= WEEK && Math.abs(offset) < MONTH) {
+                    continue; // Days only there, see countdownSubtitle_dropsHoursFromAWeekOn
+                }
+                for (long end : new long[]{-1, start, start + 90 * MINUTE}) {
+                    assertEquals("offset " + offset, LegacyCountdown.subtitle(T0, start, end), engineSubtitle(engine, T0, start, end));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void countdownSubtitle_dropsHoursFromAWeekOn() {
+        CountdownTextEngine engine = new CountdownTextEngine(Locale.US, new CountingPlurals(), LABELS);
+        assertEquals("In 6 days 23 hrs", engineSubtitle(engine, T0, T0 + WEEK - 1, -1));
+        assertEquals("In 7 days", engineSubtitle(engine, T0, T0 + WEEK, -1));
+        assertEquals("In 29 days", engineSubtitle(engine, T0, T0 + MONTH - 1, -1));
+        assertEquals("6 days 23 hrs ago", engineSubtitle(engine, T0, T0 - WEEK + 1, T0 - WEEK + HOUR));
+        assertEquals("12 days ago", engineSubtitle(engine, T0, T0 - 12 * DAY - 5 * HOUR, T0 - 12 * DAY));
+    }
+
+    @Test
+    public void listItem_matchesLegacyFormatter() {
+        for (TimeZone zone : new TimeZone[]{SAST, LOS_ANGELES}) {
+            DateFieldFormatter dates = new DateFieldFormatter(DayBoundaryIndex.build(zone, T0), Locale.US);
+            LegacyListFormatter legacy = new LegacyListFormatter(zone, Locale.US);
+            for (long offset = -40 * DAY; offset <= 40 * DAY; offset += 37 * MINUTE + 11_000L) {
+                long start = T0 + offset;
+                assertEquals(legacy.format(T0, start, start + HOUR, false), engineListItem(dates, T0, start, start + HOUR, false));
+                // The provider stores all-day bounds at UTC midnight; the legacy formatter gets the local ones
+                long allDayStart = Math.floorDiv(start, DAY) * DAY;
+                assertEquals(legacy.format(T0, localMidnight(zone, allDayStart), localMidnight(zone, allDayStart + DAY), true),
+                        engineListItem(dates, T0, allDayStart, allDayStart + DAY, true));
+            }
+        }
+    }
+
+    @Test
+    public void listItem_allDayRowsFollowTheirDateWestOfUtc() {
+        long now = utc(2024, 5, 16, 3); // 2024-05-15 20:00 in Los Angeles, already the 16th in UTC
+        DateFieldFormatter dates = new DateFieldFormatter(DayBoundaryIndex.build(LOS_ANGELES, now), Locale.US);
+        long may15 = utc(2024, 5, 15, 0);
+        assertEquals("Today (All day)", engineListItem(dates, now, may15, may15 + DAY, true));
+        assertEquals("Tomorrow (All day)", engineListItem(dates, now, may15 + DAY, may15 + 2 * DAY, true));
+        assertEquals("3d (May 18, All day)", engineListItem(dates, now, may15 + 3 * DAY, may15 + 4 * DAY, true));
+        assertEquals("Now (All day)", engineListItem(dates, now, may15 - DAY, may15 + DAY, true));
+        assertEquals("Ended (May 14)", engineListItem(dates, now, may15 - DAY, may15, true));
+        // The 16th only becomes today at local midnight, seven hours after its UTC start
+        assertEquals("Today (All day)", engineListItem(dates, now + 4 * HOUR + 1, may15 + DAY, may15 + 2 * DAY, true));
+    }
+
+    @Test
+    public void dateFields_matchSimpleDateFormatAcrossZonesAndYears() {
+        String[] zones = {"Africa/Johannesburg", "Europe/Berlin", "America/New_York", "Asia/Kolkata", "Pacific/Chatham"};
+        Locale[] locales = {Locale.US, Locale.GERMANY, Locale.FRANCE};
+        for (String zoneId : zones) {
+            TimeZone zone = TimeZone.getTimeZone(zoneId);
+            for (Locale locale : locales) {
+                DateFieldFormatter dates = new DateFieldFormatter(zone, locale);
+                SimpleDateFormat time = dateFormat("HH:mm", zone, locale);
+                SimpleDateFormat monthDay = dateFormat("MMM d", zone, locale);
+                SimpleDateFormat weekdayTime = dateFormat("EEE HH:mm", zone, locale);
+                // Leap days, year ends and DST transitions between 1960 and 2100
+                for (long millis = -10 * YEAR; millis < 130 * YEAR; millis += 9 * DAY + 7 * HOUR + 13 * MINUTE) {
+                    Date date = new Date(millis);
+                    StringBuilder sb = new StringBuilder();
+                    dates.appendHourMinute(sb, millis);
+                    assertEquals(time.format(date), sb.toString());
+                    sb.setLength(0);
+                    dates.appendMonthDay(sb, millis);
+                    assertEquals(monthDay.format(date), sb.toString());
+                    sb.setLength(0);
+                    dates.appendWeekdayHourMinute(sb, millis);
+                    assertEquals(weekdayTime.format(date), sb.toString());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void pluralPhrases_areLookedUpOncePerUnitAndQuantity() {
+        CountingPlurals plurals = new CountingPlurals();
+        CountdownTextEngine engine = new CountdownTextEngine(Locale.US, plurals, LABELS);
+        long start = T0 + 3 * HOUR + 30 * MINUTE;
+        for (int i = 0; i < 1000; i++) {
+            engineSubtitle(engine, T0, start, -1);
+        }
+        assertEquals(2, plurals.lookups); // "3 hrs" and "30 mins"
+
+        engineSubtitle(engine, T0, T0 + 400 * YEAR, -1); // Beyond the table: not cached
+        engineSubtitle(engine, T0, T0 + 400 * YEAR, -1);
+        assertEquals(2 + 2, plurals.lookups);
+    }
+
+    /**
+     * Microbenchmark in the JMH style (warmup, then timed iterations over a fixed input set),
+     * reporting ns/op and allocated bytes/op for the legacy formatters and the engine.
+     */
+    @Test
+    public void benchmark_nsAndBytesPerOp() {
+        CountdownTextEngine engine = new CountdownTextEngine(Locale.US, new CountingPlurals(), LABELS);
+        DateFieldFormatter dates = new DateFieldFormatter(SAST, Locale.US);
+        LegacyListFormatter legacyList = new LegacyListFormatter(SAST, Locale.US);
+        long[] starts = new long[64];
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = T0 + (i - 8) * 5 * HOUR + i * 7 * MINUTE;
+        }
+
+        Op legacySubtitle = i -> LegacyCountdown.subtitle(T0, starts[i & 63], starts[i & 63] + HOUR).length();
+        Op engineSubtitle = i -> {
+            StringBuilder sb = CountdownTextEngine.reusableBuilder();
+            engine.appendCountdownSubtitle(sb, T0, starts[i & 63], starts[i & 63] + HOUR);
+            return sb.length(); // The widget's final toString() is left out on both sides
+        };
+        Op legacyListOp = i -> legacyList.format(T0, starts[i & 63], starts[i & 63] + HOUR, false).length();
+        Op engineListOp = i -> {
+            StringBuilder sb = CountdownTextEngine.reusableBuilder();
+            CountdownTextEngine.appendListItem(sb, dates, T0, starts[i & 63], starts[i & 63] + HOUR, false);
+            return sb.length();
+        };
+
+        System.out.println("benchmark              |    ns/op | bytes/op");
+        double[] legacySub = measure("legacy subtitle", legacySubtitle);
+        double[] engineSub = measure("engine subtitle", engineSubtitle);
+        double[] legacyLst = measure("legacy list item", legacyListOp);
+        double[] engineLst = measure("engine list item", engineListOp);
+
+        if (legacySub[1] >= 0) { // Allocation counters are available on this JVM
+            assertTrue("engine subtitle should allocate less", engineSub[1] < legacySub[1]);
+            assertTrue("engine list item should allocate less", engineLst[1] < legacyLst[1]);
+            assertTrue("engine subtitle should be (almost) allocation-free", engineSub[1] < 16);
+            assertTrue("engine list item should be (almost) allocation-free", engineLst[1] < 16);
+        }
+    }
+
+    // --- Helpers ---
+
+    private interface Op {
+        int run(int i);
+    }
+
+    /** @return {ns/op, bytes/op}; bytes/op is -1 if the JVM can't count allocations. */
+    private static double[] measure(String name, Op op) {
+        int warmup = 200_000;
+        int iterations = 500_000;
+        int sink = 0;
+        for (int i = 0; i < warmup; i++) sink += op.run(i);
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean allocations = threads instanceof com.sun.management.ThreadMXBean
+                ? (com.sun.management.ThreadMXBean) threads : null;
+        long threadId = Thread.currentThread().getId();
+        long bytesBefore = allocations != null ? allocations.getThreadAllocatedBytes(threadId) : 0;
+        long timeBefore = System.nanoTime();
+        for (int i = 0; i < iterations; i++) sink += op.run(i);
+        long elapsed = System.nanoTime() - timeBefore;
+        long bytes = allocations != null ? allocations.getThreadAllocatedBytes(threadId) - bytesBefore : -1;
+
+        double nsPerOp = (double) elapsed / iterations;
+        double bytesPerOp = bytes < 0 ? -1 : (double) bytes / iterations;
+        System.out.println(String.format(Locale.US, "%-22s | %8.1f | %8.1f%s", name, nsPerOp, bytesPerOp, sink == 42 ? " " : ""));
+        return new double[]{nsPerOp, bytesPerOp};
+    }
+
+    /** The first instant, in {@code zone}, of the date that starts at {@code utcMidnight} in UTC. */
+    private static long localMidnight(TimeZone zone, long utcMidnight) {
+        return LocalDate.ofEpochDay(Math.floorDiv(utcMidnight, DAY)).atStartOfDay(zone.toZoneId()).toInstant().toEpochMilli();
+    }
+
+    private static long utc(int year, int month, int day, int hour) {
+        return LocalDateTime.of(year, month, day, hour, 0).toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static SimpleDateFormat dateFormat(String pattern, TimeZone zone, Locale locale) {
+        SimpleDateFormat format = new SimpleDateFormat(pattern, locale);
+        format.setTimeZone(zone);
+        return format;
+    }
+
+    /** The countdown widget's former formatTimeUntil/formatTimeSince, with English plurals. */
+    private static final class LegacyCountdown {
+        static String subtitle(long now, long start, long end) {
+            long diffMillis = start - now;
+            if (now >= start && (end == -1 || now < end)) return LABELS.now;
+            return diffMillis >= 0 ? until(diffMillis) : since(-diffMillis);
+        }
+
+        static String until(long diffMillis) {
+            if (diffMillis < MINUTE) return LABELS.startsSoon;
+            long years = diffMillis / YEAR;
+            long months = (diffMillis % YEAR) / MONTH;
+            long days = (diffMillis % MONTH) / DAY;
+            long hours = (diffMillis % DAY) / HOUR;
+            long minutes = (diffMillis % HOUR) / MINUTE;
+            if (diffMillis < DAY && years == 0 && months == 0 && days == 0) {
+                if (hours > 0) {
+                    String minutePart = minutes > 0 ? " " + plural(4, minutes) : "";
+                    return LABELS.in + " " + plural(3, hours) + minutePart;
+                }
+                return LABELS.in + " " + plural(4, minutes);
+            }
+            String part1 = null;
+            String part2 = null;
+            if (years > 0) part1 = plural(0, years);
+            if (months > 0) { if (part1 == null) part1 = plural(1, months); else if (part2 == null) part2 = plural(1, months); }
+            if (days > 0 && years == 0) { if (part1 == null) part1 = plural(2, days); else if (part2 == null) part2 = plural(2, days); }
+            if (hours > 0 && years == 0 && months == 0) { if (part1 == null) part1 = plural(3, hours); else if (part2 == null) part2 = plural(3, hours); }
+            String timeString = part1 != null && part2 != null ? part1 + " " + part2 : part1 != null ? part1 : plural(4, 1);
+            return LABELS.in + " " + timeString;
+        }
+
+        static String since(long diffMillis) {
+            if (diffMillis < MINUTE) return LABELS.passed;
+            long years = diffMillis / YEAR;
+            long months = (diffMillis % YEAR) / MONTH;
+            long days = (diffMillis % MONTH) / DAY;
+            long hours = (diffMillis % DAY) / HOUR;
+            long minutes = (diffMillis % HOUR) / MINUTE;
+            String part1 = null;
+            String part2 = null;
+            if (years > 0) part1 = plural(0, years);
+            if (months > 0) { if (part1 == null) part1 = plural(1, months); else if (part2 == null) part2 = plural(1, months); }
+            if (days > 0 && years == 0) { if (part1 == null) part1 = plural(2, days); else if (part2 == null) part2 = plural(2, days); }
+            if (hours > 0 && years == 0 && months == 0) { if (part1 == null) part1 = plural(3, hours); else if (part2 == null) part2 = plural(3, hours); }
+            if (minutes > 0 && years == 0 && months == 0 && days == 0) { if (part1 == null) part1 = plural(4, minutes); else if (part2 == null) part2 = plural(4, minutes); }
+            if (part1 == null) return LABELS.passed;
+            return (part2 != null ? part1 + " " + part2 : part1) + " " + LABELS.ago;
+        }
+
+        private static String plural(int unit, long quantity) {
+            return CountingPlurals.format(unit, (int) quantity);
+        }
+    }
+
+    /** The list widget's former CountdownFormatter.calculateCountdown. */
+    private static final class LegacyListFormatter {
+        private final TimeZone zone;
+        private final SimpleDateFormat time;
+        private final SimpleDateFormat monthDay;
+        private final SimpleDateFormat weekdayTime;
+
+        LegacyListFormatter(TimeZone zone, Locale locale) {
+            this.zone = zone;
+            this.time = dateFormat("HH:mm", zone, locale);
+            this.monthDay = dateFormat("MMM d", zone, locale);
+            this.weekdayTime = dateFormat("EEE HH:mm", zone, locale);
+        }
+
+        synchronized String format(long now, long start, long end, boolean allDay) {
+            Date date = new Date();
+            if (now >= start && now < end) {
+                if (allDay) {
+                    Calendar startCal = Calendar.getInstance(zone); startCal.setTimeInMillis(start);
+                    Calendar todayCal = Calendar.getInstance(zone); todayCal.setTimeInMillis(now);
+                    return startCal.get(Calendar.DAY_OF_YEAR) == todayCal.get(Calendar.DAY_OF_YEAR)
+                            && startCal.get(Calendar.YEAR) == todayCal.get(Calendar.YEAR) ? "Today (All day)" : "Now (All day)";
+                }
+                date.setTime(end);
+                return "Now (until " + time.format(date) + ")";
+            }
+            if (now >= end) {
+                date.setTime(start);
+                return "Ended (" + monthDay.format(date) + ")";
+            }
+            long diffMillis = start - now;
+            long diffDays = TimeUnit.MILLISECONDS.toDays(midnight(start) - midnight(now));
+            date.setTime(start);
+            if (diffDays == 0) {
+                long hrs = TimeUnit.MILLISECONDS.toHours(diffMillis);
+                if (allDay) return "Today (All day)";
+                if (hrs >= 1) return hrs + "h left (" + time.format(date) + ")";
+                long mins = Math.max(0, TimeUnit.MILLISECONDS.toMinutes(diffMillis));
+                return mins + "m left (" + time.format(date) + ")";
+            } else if (diffDays == 1) {
+                return allDay ? "Tomorrow (All day)" : "Tomorrow " + time.format(date);
+            }
+            return allDay ? diffDays + "d (" + monthDay.format(date) + ", All day)" : diffDays + "d (" + weekdayTime.format(date) + ")";
+        }
+
+        private long midnight(long millis) {
+            Calendar cal = Calendar.getInstance(zone);
+            cal.setTimeInMillis(millis);
+            cal.set(Calendar.HOUR_OF_DAY, 0);
+            cal.set(Calendar.MINUTE, 0);
+            cal.set(Calendar.SECOND, 0);
+            cal.set(Calendar.MILLISECOND, 0);
+            return cal.getTimeInMillis();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.eventcountdownwidget.core;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link CountdownTimeline}, checked against formatting with
+ * {@link CountdownTextEngine} and scheduling with {@link NextUpdateCalculator} at every instant.
+ */
+public class CountdownTimelineTest {
+
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    private static final long T0 = 1_700_000_040_000L;
+
+    private static final String[][] PLURALS = {
+            {"%d yr", "%d yrs"}, {"%d mo", "%d mos"}, {"%d day", "%d days"}, {"%d hr", "%d hrs"}, {"%d min", "%d mins"}
+    };
+    private static final CountdownTextEngine ENGINE = new CountdownTextEngine(Locale.US,
+            (unit, quantity) -> String.format(Locale.US, PLURALS[unit][quantity == 1 ? 0 : 1], quantity),
+            new CountdownTextEngine.Labels("In", "ago", "Starts soon", "Event passed", "Happening now!"));
+
+    // Event start offsets from T0: years, weeks, hours and minutes ahead, ongoing and over
+    private static final long[] START_OFFSETS = {
+            3 * 365 * DAY + 5 * HOUR, 40 * DAY + 7 * MINUTE, 2 * DAY + 30 * MINUTE, 5 * HOUR + 3 * MINUTE,
+            30 * MINUTE, -10 * MINUTE, -3 * DAY - 7 * MINUTE
+    };
+
+    private static String subtitle(long now, long start, long end) {
+        StringBuilder sb = new StringBuilder();
+        ENGINE.appendCountdownSubtitle(sb, now, start, end);
+        return sb.toString();
+    }
+
+    private static void assertEntry(CountdownTimeline timeline, long now, long start, long end) {
+        int index = timeline.indexAt(now);
+        String at = "start " + (start - T0) + " at " + (now - T0);
+        if (NextUpdateCalculator.isSelfTicking(now, start, end)) {
+            byte expected = now < start ? CountdownTimeline.KIND_CHRONOMETER_UNTIL : CountdownTimeline.KIND_CHRONOMETER_SINCE;
+            assertEquals(at, expected, timeline.kindAt(index));
+            assertNull(at, timeline.textAt(index));
+        } else {
+            assertEquals(at, CountdownTimeline.KIND_TEXT, timeline.kindAt(index));
+            assertEquals(at, subtitle(now, start, end), timeline.textAt(index));
+        }
+        assertEquals(at, NextUpdateCalculator.nextCountdownAlarm(now, start, end), timeline.validUntil(index));
+    }
+
+    @Test
+    public void entries_matchEngineAndCalculator() {
+        for (long offset : START_OFFSETS) {
+            long start = T0 + offset;
+            for (long end : new long[]{-1, start + 90 * MINUTE}) {
+                CountdownTimeline timeline = CountdownTimeline.build(ENGINE, T0, start, end);
+                for (long now = T0; now < T0 + 3 * 365 * DAY && timeline.covers(now); now += 7 * MINUTE + 13_000L) {
+                    assertEntry(timeline, now, start, end);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void ticks_walkEntriesInOrder() {
+        for (long offset : START_OFFSETS) {
+            long start = T0 + offset;
+            long end = start + 90 * MINUTE;
+            CountdownTimeline timeline = CountdownTimeline.build(ENGINE, T0, start, end);
+            long now = T0;
+            int ticks = 0;
+            while (now != NextUpdateCalculator.NEVER && timeline.covers(now)) {
+                assertEntry(timeline, now, start, end);
+                assertEntry(timeline, now + 999, start, end); // A late alarm lands on the same entry
+                now = timeline.validUntil(timeline.indexAt(now));
+                ticks++;
+            }
+            assertEquals(timeline.size(), ticks);
+        }
+    }
+
+    @Test
+    public void farEvent_runsOutAfterMaxEntries() {
+        long start = T0 + 5 * DAY + 30_000L; // Hourly text from the first entry on
+        CountdownTimeline timeline = CountdownTimeline.build(ENGINE, T0, start, -1, 16);
+        assertEquals(16, timeline.size());
+        long lastValidUntil = timeline.validUntil(15);
+        assertTrue(timeline.covers(lastValidUntil - 1));
+        assertFalse(timeline.covers(lastValidUntil));
+        assertFalse(timeline.covers(T0 - 1));
+    }
+
+    @Test
+    public void writeAndRead_roundTrip() throws IOException {
+        long start = T0 + 2 * DAY + 30 * MINUTE;
+        long end = start + HOUR;
+        CountdownTimeline timeline = CountdownTimeline.build(ENGINE, T0, start, end);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        timeline.writeTo(new DataOutputStream(bytes));
+
+        CountdownTimeline read = CountdownTimeline.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertNotNull(read);
+        assertTrue(read.matches(start, end, "en-US"));
+        assertFalse(read.matches(start, end + 1, "en-US"));
+        assertFalse(read.matches(start, end, "de-DE"));
+        assertEquals(timeline.size(), read.size());
+        for (int i = 0; i < timeline.size(); i++) {
+            assertEquals(timeline.kindAt(i), read.kindAt(i));
+            assertEquals(timeline.textAt(i), read.textAt(i));
+            assertEquals(timeline.validUntil(i), read.validUntil(i));
+        }
+    }
+}
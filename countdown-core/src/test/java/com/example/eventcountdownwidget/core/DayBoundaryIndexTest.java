@@ -0,0 +1,100 @@
+package com.example.eventcountdownwidget.core;
+
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link DayBoundaryIndex}, checked against {@code java.time} in zones whose
+ * days aren't all 24 hours long or don't all start at 00:00.
+ */
+public class DayBoundaryIndexTest {
+
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    private static final String[] ZONES = {
+            "Africa/Johannesburg", "America/New_York", "Europe/London",
+            "America/Santiago",   // DST starts at midnight: some days begin at 01:00
+            "Asia/Beirut",        // Same, in the other hemisphere
+            "Australia/Lord_Howe", // 30-minute DST shift
+            "Pacific/Chatham",    // UTC+12:45 / +13:45
+            "Pacific/Apia"        // Skipped 2011-12-30 entirely
+    };
+
+    // 2011-12-01, 2023-11-14 and 2026-03-01 UTC
+    private static final long[] BUILT_AT = {1_322_697_600_000L, 1_700_000_040_000L, 1_772_323_200_000L};
+
+    @Test
+    public void dayIndexAndNextMidnight_matchJavaTime() {
+        for (String zoneId : ZONES) {
+            ZoneId zone = ZoneId.of(zoneId);
+            for (long builtAt : BUILT_AT) {
+                DayBoundaryIndex days = DayBoundaryIndex.build(TimeZone.getTimeZone(zoneId), builtAt);
+                // Past both ends of the table, to cover the fallback as well
+                long from = builtAt - (DayBoundaryIndex.DAYS_BEFORE + 3) * DAY;
+                long to = builtAt + (DayBoundaryIndex.DAYS_AFTER + 3) * DAY;
+                for (long millis = from; millis < to; millis += 53 * MINUTE + 7_000L) {
+                    assertDay(zoneId, days, zone, millis);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void midnights_areDayStarts() {
+        for (String zoneId : ZONES) {
+            ZoneId zone = ZoneId.of(zoneId);
+            DayBoundaryIndex days = DayBoundaryIndex.build(TimeZone.getTimeZone(zoneId), BUILT_AT[0]);
+            long midnight = days.nextMidnight(BUILT_AT[0]);
+            for (int i = 0; i < DayBoundaryIndex.DAYS_AFTER; i++) {
+                // Right at and just before each boundary
+                assertDay(zoneId, days, zone, midnight);
+                assertDay(zoneId, days, zone, midnight - 1);
+                midnight = days.nextMidnight(midnight);
+            }
+        }
+    }
+
+    @Test
+    public void midnightOf_matchesJavaTime() {
+        for (String zoneId : ZONES) {
+            ZoneId zone = ZoneId.of(zoneId);
+            for (long builtAt : BUILT_AT) {
+                DayBoundaryIndex days = DayBoundaryIndex.build(TimeZone.getTimeZone(zoneId), builtAt);
+                long today = Math.floorDiv(builtAt, DAY);
+                for (long day = today - DayBoundaryIndex.DAYS_BEFORE - 3; day < today + DayBoundaryIndex.DAYS_AFTER + 3; day++) {
+                    long expected = LocalDate.ofEpochDay(day).atStartOfDay(zone).toInstant().toEpochMilli();
+                    assertEquals(zoneId + " midnight of day " + day, expected, days.midnightOf(day));
+                    assertEquals(zoneId + " all-day bound of day " + day, expected, days.allDayToLocal(day * DAY));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void covers_tableRange() {
+        TimeZone zone = TimeZone.getTimeZone("Africa/Johannesburg");
+        long now = BUILT_AT[1];
+        DayBoundaryIndex days = DayBoundaryIndex.build(zone, now, 2, 5);
+        assertTrue(days.covers(now));
+        assertTrue(days.covers(now - 2 * DAY));
+        assertTrue(days.covers(now + 5 * DAY));
+        assertFalse(days.covers(now - 3 * DAY));
+        assertFalse(days.covers(now + 7 * DAY));
+        assertEquals(zone.getID(), days.getZone().getID());
+    }
+
+    private static void assertDay(String zoneId, DayBoundaryIndex days, ZoneId zone, long millis) {
+        LocalDate date = Instant.ofEpochMilli(millis).atZone(zone).toLocalDate();
+        long nextMidnight = date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+        assertEquals(zoneId + " day of " + millis, date.toEpochDay(), days.dayIndex(millis));
+        assertEquals(zoneId + " next midnight after " + millis, nextMidnight, days.nextMidnight(millis));
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.eventcountdownwidget.core;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link EventBuffer}, plus the heap each list widget retains with it
+ * compared to the row objects it replaced.
+ */
+public class EventBufferTest {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long T0 = 1_700_000_040_000L;
+
+    private static final class Row implements EventInstance {
+        final long id;
+        final String title;
+        final long start;
+        final boolean allDay;
+
+        Row(long id, String title, long start, boolean allDay) {
+            this.id = id;
+            this.title = title;
+            this.start = start;
+            this.allDay = allDay;
+        }
+
+        @Override public long getId() { return id; }
+        @Override public String getCalendarId() { return "1"; }
+        @Override public String getTitle() { return title; }
+        @Override public long getStartTime() { return start; }
+        @Override public long getEndTime() { return start + HOUR; }
+        @Override public boolean isAllDay() { return allDay; }
+    }
+
+    /** The former per-row object: every provider column, including the never-shown ones. */
+    private static final class LegacyRow {
+        final long id; final String calendarId; final String title; final long start; final long end;
+        final boolean allDay; final String eventTimezone; final String description;
+
+        LegacyRow(long id, String calendarId, String title, long start, long end, boolean allDay, String eventTimezone, String description) {
+            this.id = id; this.calendarId = calendarId; this.title = title; this.start = start; this.end = end;
+            this.allDay = allDay; this.eventTimezone = eventTimezone; this.description = description;
+        }
+    }
+
+    private static List<Row> rows(int count) {
+        List<Row> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            // A handful of recurring titles, as fresh strings like a cursor returns them
+            rows.add(new Row(i, new String(("Event " + (i % 7)).toCharArray()), T0 + i * HOUR, i % 5 == 0));
+        }
+        return rows;
+    }
+
+    @Test
+    public void of_copiesEveryVisibleField() {
+        List<Row> rows = rows(130); // Spans three bitset words
+        EventBuffer buffer = EventBuffer.of(rows);
+        assertEquals(rows.size(), buffer.size());
+        for (int i = 0; i < rows.size(); i++) {
+            Row row = rows.get(i);
+            assertEquals(row.id, buffer.getId(i));
+            assertEquals(row.title, buffer.getTitle(i));
+            assertEquals(row.start, buffer.getStartTime(i));
+            assertEquals(row.start + HOUR, buffer.getEndTime(i));
+            assertEquals("all-day flag of row " + i, row.allDay, buffer.isAllDay(i));
+        }
+    }
+
+    @Test
+    public void titles_areShared() {
+        EventBuffer first = EventBuffer.of(rows(14));
+        EventBuffer second = EventBuffer.of(rows(14));
+        assertSame(first.getTitle(0), first.getTitle(7));
+        assertSame(first.getTitle(3), second.getTitle(3));
+    }
+
+    @Test
+    public void emptyList_isEmptyBuffer() {
+        assertSame(EventBuffer.EMPTY, EventBuffer.of(Collections.<Row>emptyList()));
+        assertEquals(0, EventBuffer.EMPTY.size());
+    }
+
+    @Test
+    public void isAllDay_checksBounds() {
+        try {
+            EventBuffer.of(rows(3)).isAllDay(3); // Inside the first bitset word, past the last row
+            fail("Expected IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException expected) {
+            // Expected
+        }
+    }
+
+    /**
+     * What a widget's factory keeps between refreshes, measured as the bytes allocated to build it:
+     * the former list of row objects with their own column strings, against the buffer.
+     */
+    @Test
+    public void heap_perWidgetFootprint() {
+        System.out.println("events | row objects bytes | buffer bytes");
+        for (int count : new int[] {25, 500}) {
+            List<Row> rows = rows(count);
+            EventBuffer.of(rows); // Intern the titles outside the measurement; the pool is shared
+            long legacy = allocatedBytes(() -> {
+                List<LegacyRow> list = new ArrayList<>(count);
+                for (Row row : rows) {
+                    // Each cursor row brought its own copies of the strings
+                    list.add(new LegacyRow(row.id, new String("1".toCharArray()), new String(row.title.toCharArray()),
+                            row.start, row.start + HOUR, row.allDay, new String("Africa/Johannesburg".toCharArray()),
+                            new String("Weekly sync. Agenda and dial-in details are in the shared meeting notes.".toCharArray())));
+                }
+                return list;
+            });
+            long buffer = allocatedBytes(() -> EventBuffer.of(rows));
+            System.out.println(String.format(Locale.US, "%6d | %17d | %12d", count, legacy, buffer));
+            if (legacy >= 0) { // Allocation counters are available on this JVM
+                assertTrue("buffer should retain less than row objects at " + count + " events", buffer * 3 < legacy);
+            }
+        }
+    }
+
+    private interface Build {
+        Object run();
+    }
+
+    /** @return Bytes allocated by {@code build}, or -1 if the JVM can't count allocations. */
+    private static long allocatedBytes(Build build) {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        long threadId = Thread.currentThread().getId();
+        for (int i = 0; i < 1000; i++) build.run(); // Warm up so the measured run isn't interpreted
+        long before = allocations.getThreadAllocatedBytes(threadId);
+        Object retained = build.run();
+        long bytes = allocations.getThreadAllocatedBytes(threadId) - before;
+        assertNotNull(retained);
+        return bytes;
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.eventcountdownwidget.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link EventRanker}.
+ */
+public class EventRankerTest {
+
+    private static final long HOUR = NextUpdateCalculator.HOUR_MILLIS;
+    private static final long T0 = 1_700_000_000_000L;
+
+    static final class Item implements EventInstance {
+        final long id;
+        final String calendarId;
+        final long start;
+        final long end;
+
+        Item(long id, String calendarId, long start, long end) {
+            this.id = id;
+            this.calendarId = calendarId;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override public long getId() { return id; }
+        @Override public String getCalendarId() { return calendarId; }
+        @Override public String getTitle() { return "Event " + id; }
+        @Override public long getStartTime() { return start; }
+        @Override public long getEndTime() { return end; }
+        @Override public boolean isAllDay() { return false; }
+    }
+
+    @Test
+    public void singlePartition_keepsOrderAndSkipsEnded() {
+        List<Item> rows = Arrays.asList(
+                new Item(1, "a", T0 - 2 * HOUR, T0 - HOUR), // Ended
+                new Item(2, "a", T0 - HOUR, T0 + HOUR),
+                new Item(3, "a", T0 + HOUR, T0 + 2 * HOUR),
+                new Item(4, "a", T0 + 2 * HOUR, T0 + 3 * HOUR));
+
+        assertEquals(Arrays.asList(rows.get(1), rows.get(2)),
+                EventRanker.upcoming(Collections.singletonList(rows), T0, Long.MAX_VALUE, 2));
+        assertEquals(Collections.singletonList(rows.get(1)),
+                EventRanker.upcoming(Collections.singletonList(rows), T0, T0, 10)); // Incomplete past T0
+    }
+
+    @Test
+    public void ties_keepPartitionOrder() {
+        Item a1 = new Item(1, "a", T0 + HOUR, T0 + 2 * HOUR);
+        Item b1 = new Item(2, "b", T0 + HOUR, T0 + 2 * HOUR);
+        Item b0 = new Item(3, "b", T0, T0 + HOUR);
+        List<List<Item>> partitions = Arrays.asList(Collections.singletonList(a1), Arrays.asList(b0, b1));
+
+        assertEquals(Arrays.asList(b0, a1, b1), EventRanker.upcoming(partitions, T0, Long.MAX_VALUE, 10));
+    }
+
+    @Test
+    public void randomPartitions_matchStableSortOfConcatenation() {
+        Random random = new Random(42);
+        for (int round = 0; round < 500; round++) {
+            int calendars = 1 + random.nextInt(6);
+            List<List<Item>> partitions = new ArrayList<>();
+            List<Item> concatenated = new ArrayList<>();
+            long id = 0;
+            for (int c = 0; c < calendars; c++) {
+                List<Item> rows = new ArrayList<>();
+                int count = random.nextInt(30);
+                for (int i = 0; i < count; i++) {
+                    long start = T0 + (random.nextInt(48) - 12) * HOUR; // Coarse starts to force ties
+                    rows.add(new Item(id++, "cal" + c, start, start + random.nextInt(4) * HOUR));
+                }
+                rows.sort((x, y) -> Long.compare(x.start, y.start));
+                partitions.add(rows);
+                concatenated.addAll(rows);
+            }
+            int maxEvents = 1 + random.nextInt(40);
+            long completeUntil = random.nextBoolean() ? Long.MAX_VALUE : T0 + random.nextInt(36) * HOUR;
+
+            List<Item> expected = new ArrayList<>();
+            List<Item> sorted = new ArrayList<>(concatenated);
+            sorted.sort((x, y) -> Long.compare(x.start, y.start)); // Stable
+            for (Item item : sorted) {
+                if (expected.size() >= maxEvents || item.start > completeUntil) break;
+                if (item.end >= T0) expected.add(item);
+            }
+            assertEquals("round " + round, expected, EventRanker.upcoming(partitions, T0, completeUntil, maxEvents));
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.eventcountdownwidget.core;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link InstanceQuery}.
+ */
+public class InstanceQueryTest {
+
+    @Test
+    public void build_placesOneArgumentPerCalendarThenNow() {
+        InstanceQuery query = InstanceQuery.build("calendar_id", "end", "begin",
+                Arrays.asList("3", "7", "12"), 1_700_000_000_000L, 25);
+
+        assertEquals("calendar_id IN (?,?,?) AND end >= ?", query.selection);
+        assertArrayEquals(new String[]{"3", "7", "12", "1700000000000"}, query.selectionArgs);
+        assertEquals("begin ASC LIMIT 25", query.sortOrder);
+    }
+
+    @Test
+    public void build_singleCalendar() {
+        InstanceQuery query = InstanceQuery.build("calendar_id", "end", "begin",
+                Arrays.asList("1"), 0L, 1);
+
+        assertEquals("calendar_id IN (?) AND end >= ?", query.selection);
+        assertArrayEquals(new String[]{"1", "0"}, query.selectionArgs);
+    }
+
+    @Test
+    public void page_firstPageFiltersTitleTokensWithEscapedWildcards() {
+        InstanceQuery query = InstanceQuery.page("calendar_id", "end", "title", "begin", "event_id",
+                Arrays.asList("3", "7"), 1_000L, new String[]{"team", "50%_off"}, false, 0L, 0L, false, 40);
+
+        assertEquals("calendar_id IN (?,?) AND end >= ? AND title LIKE ? ESCAPE '\\' AND title LIKE ? ESCAPE '\\'",
+                query.selection);
+        assertArrayEquals(new String[]{"3", "7", "1000", "%team%", "%50\\%\\_off%"}, query.selectionArgs);
+        assertEquals("begin ASC, event_id ASC LIMIT 40", query.sortOrder);
+    }
+
+    @Test
+    public void page_continuesPastTheAnchorKeyInEitherDirection() {
+        InstanceQuery forward = InstanceQuery.page("calendar_id", "end", "title", "begin", "event_id",
+                Arrays.asList("1"), 0L, new String[0], true, 5_000L, 42L, false, 20);
+        assertEquals("calendar_id IN (?) AND end >= ? AND (begin > ? OR (begin = ? AND event_id > ?))", forward.selection);
+        assertArrayEquals(new String[]{"1", "0", "5000", "5000", "42"}, forward.selectionArgs);
+        assertEquals("begin ASC, event_id ASC LIMIT 20", forward.sortOrder);
+
+        InstanceQuery backward = InstanceQuery.page("calendar_id", "end", "title", "begin", "event_id",
+                Arrays.asList("1"), 0L, new String[0], true, 5_000L, 42L, true, 20);
+        assertEquals("calendar_id IN (?) AND end >= ? AND (begin < ? OR (begin = ? AND event_id < ?))", backward.selection);
+        assertEquals("begin DESC, event_id DESC LIMIT 20", backward.sortOrder);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.eventcountdownwidget.core;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The fixed 1/5/15/60/240-minute refresh tiers the update receiver used before
+ * deadlines were derived from the rendered text. Kept as a baseline for the
+ * scheduling simulations.
+ */
+final class LegacyUpdateTiers {
+
+    private LegacyUpdateTiers() {}
+
+    static int calculateUpdateInterval(long nowMillis, long eventStartTime, long eventEndTime) {
+        // For events happening now (between start and end time)
+        if (nowMillis >= eventStartTime && nowMillis < eventEndTime) {
+            return 1; // Update every minute for active events
+        }
+
+        // For past events
+        if (nowMillis >= eventEndTime) {
+            return 60; // Update hourly for past events
+        }
+
+        // For future events, scale based on proximity
+        long diffMillis = eventStartTime - nowMillis;
+
+        if (diffMillis <= TimeUnit.HOURS.toMillis(1)) {
+            return 1; // Every minute if less than 1 hour away
+        } else if (diffMillis <= TimeUnit.HOURS.toMillis(3)) {
+            return 5; // Every 5 minutes if 1-3 hours away
+        } else if (diffMillis <= TimeUnit.DAYS.toMillis(1)) {
+            return 15; // Every 15 minutes if 3-24 hours away
+        } else if (diffMillis <= TimeUnit.DAYS.toMillis(7)) {
+            return 60; // Hourly if 1-7 days away
+        } else {
+            return 240; // Every 4 hours if more than a week away
+        }
+    }
+
+    static long nextDeadline(long nowMillis, long eventStartTime, long eventEndTime) {
+        return UpdateScheduler.deadlineAfter(nowMillis, calculateUpdateInterval(nowMillis, eventStartTime, eventEndTime));
+    }
+}
@@ -0,0 +1,373 @@
+package com.example.eventcountdownwidget.core;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Calendar;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link NextUpdateCalculator}.
+ * A reference renderer reproduces the unit selection of the countdown and list formatters
+ * (numbers only, no resources) and is used to check that the computed instant is exactly
+ * when the text changes. A harness then compares redraw counts against the old fixed tiers.
+ */
+public class NextUpdateCalculatorTest {
+
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    private static final long WEEK = TimeUnit.DAYS.toMillis(7);
+    private static final long MONTH = TimeUnit.DAYS.toMillis(30);
+    private static final long YEAR = TimeUnit.DAYS.toMillis(365);
+
+    private static final TimeZone ZONE = TimeZone.getTimeZone("Africa/Johannesburg");
+    private static final TimeZone LOS_ANGELES = TimeZone.getTimeZone("America/Los_Angeles");
+
+    // Fixed, minute-aligned start of the simulation
+    private static final long T0 = 1_700_000_040_000L;
+
+    private static final DayBoundaryIndex DAYS = DayBoundaryIndex.build(ZONE, T0);
+
+    @Test
+    public void countdown_placeholderNeverChanges() {
+        assertEquals(NextUpdateCalculator.NEVER, NextUpdateCalculator.nextCountdownChange(T0, -1, -1));
+    }
+
+    @Test
+    public void countdown_happeningNowChangesAtEnd() {
+        assertEquals(T0 + HOUR, NextUpdateCalculator.nextCountdownChange(T0, T0 - MINUTE, T0 + HOUR));
+        assertEquals(NextUpdateCalculator.NEVER, NextUpdateCalculator.nextCountdownChange(T0, T0 - MINUTE, -1));
+    }
+
+    @Test
+    public void exactAlarms_onlyForTransitionsAndFinalApproach() {
+        long start = T0 + 3 * DAY + 3 * HOUR;
+        long end = start + HOUR;
+        // "In 3 days 3 hrs" ticks hourly and may be late, as may the switches to and from the
+        // Chronometer a day around the start; the start and the end may not
+        assertFalse(NextUpdateCalculator.needsExactCountdownAlarm(NextUpdateCalculator.nextCountdownAlarm(T0, start, end), start, end));
+        assertFalse(NextUpdateCalculator.needsExactCountdownAlarm(NextUpdateCalculator.nextCountdownAlarm(start - DAY - 30 * MINUTE, start, end), start, end));
+        assertTrue(NextUpdateCalculator.needsExactCountdownAlarm(NextUpdateCalculator.nextCountdownAlarm(start - 5 * HOUR, start, end), start, end));
+        assertTrue(NextUpdateCalculator.needsExactCountdownAlarm(NextUpdateCalculator.nextCountdownAlarm(start - 30 * MINUTE, start, end), start, end));
+        assertTrue(NextUpdateCalculator.needsExactCountdownAlarm(NextUpdateCalculator.nextCountdownAlarm(start, start, end), start, end));
+        assertFalse(NextUpdateCalculator.needsExactCountdownAlarm(NextUpdateCalculator.nextCountdownAlarm(end + 3 * HOUR, start, end), start, end));
+        assertFalse(NextUpdateCalculator.needsExactCountdownAlarm(T0, -1, -1));
+
+        assertFalse(NextUpdateCalculator.needsExactListAlarm(NextUpdateCalculator.nextListItemChange(start - 150 * MINUTE, start, end, false, DAYS), start, end));
+        assertTrue(NextUpdateCalculator.needsExactListAlarm(NextUpdateCalculator.nextListItemChange(start - 30 * MINUTE, start, end, false, DAYS), start, end));
+        assertTrue(NextUpdateCalculator.needsExactListAlarm(NextUpdateCalculator.nextListItemChange(start + MINUTE, start, end, false, DAYS), start, end));
+    }
+
+    @Test
+    public void countdown_daysAndHoursOnlyChangeOnTheHour() {
+        // "In 3 days 5 hrs" stays put until the remaining time drops below 3d 5h
+        long start = T0 + 3 * DAY + 5 * HOUR + 20 * MINUTE;
+        long next = NextUpdateCalculator.nextCountdownChange(T0, start, start + HOUR);
+        assertEquals(start - (3 * DAY + 5 * HOUR) + 1, next);
+    }
+
+    @Test
+    public void countdown_matchesReferenceRendererEverywhere() {
+        long[] offsets = {
+                30_000L, 5 * MINUTE + 7_000L, 59 * MINUTE, 3 * HOUR + 10 * MINUTE, 23 * HOUR,
+                DAY + 30 * MINUTE, 3 * DAY + 5 * HOUR, 29 * DAY, 45 * DAY + 3 * HOUR,
+                YEAR + 2 * MONTH + 3 * DAY, -10 * MINUTE, -3 * DAY
+        };
+        for (long offset : offsets) {
+            long start = T0 + offset;
+            long end = start + HOUR;
+            assertBoundariesExact(start, end, 8 * DAY);
+        }
+        // Events without an end time and already long past
+        assertBoundariesExact(T0 + 2 * HOUR, -1, 2 * DAY);
+        assertBoundariesExact(T0 - 400 * DAY, T0 - 399 * DAY, 40 * DAY);
+    }
+
+    @Test
+    public void listItem_matchesReferenceRendererEverywhere() {
+        long[] offsets = {-20 * MINUTE, 90_000L, 45 * MINUTE, 5 * HOUR, 20 * HOUR, 2 * DAY, 9 * DAY};
+        for (TimeZone zone : new TimeZone[]{ZONE, LOS_ANGELES}) {
+            DayBoundaryIndex days = DayBoundaryIndex.build(zone, T0);
+            for (long offset : offsets) {
+                long start = T0 + offset;
+                assertListBoundariesExact(days, start, start + HOUR, false, 3 * DAY);
+                long allDayStart = Math.floorDiv(start, DAY) * DAY; // All-day bounds are UTC midnights
+                assertListBoundariesExact(days, allDayStart, allDayStart + DAY, true, 3 * DAY);
+                assertListBoundariesExact(days, allDayStart - DAY, allDayStart + DAY, true, 3 * DAY);
+            }
+        }
+    }
+
+    @Test
+    public void listItem_allDayRowsChangeAtLocalMidnightWestOfUtc() {
+        long now = utc(2024, 5, 16, 3); // 2024-05-15 20:00 in Los Angeles, already the 16th in UTC
+        DayBoundaryIndex days = DayBoundaryIndex.build(LOS_ANGELES, now);
+        long may15 = utc(2024, 5, 15, 0);
+        long localMidnight = utc(2024, 5, 16, 7); // 2024-05-16 00:00 in Los Angeles
+        assertEquals(localMidnight, NextUpdateCalculator.nextListItemChange(now, may15, may15 + DAY, true, days));
+        assertEquals(localMidnight, NextUpdateCalculator.nextListItemChange(now, may15 + DAY, may15 + 2 * DAY, true, days));
+        assertEquals(localMidnight, NextUpdateCalculator.nextListItemChange(now, may15 + 3 * DAY, may15 + 4 * DAY, true, days));
+        assertEquals(NextUpdateCalculator.NEVER, NextUpdateCalculator.nextListItemChange(now, may15 - DAY, may15, true, days));
+    }
+
+    /**
+     * Harness: replays two weeks for a spread of events with the old fixed tiers and with the
+     * alarms the widget now arms (text changes, and the Chronometer taking over within a day of the
+     * start), counting redraws and how many of them left the slot unchanged.
+     */
+    @Test
+    public void harness_redrawCountsVersusFixedTiers() {
+        long[] offsets = {
+                20 * MINUTE, 2 * HOUR, 10 * HOUR, 2 * DAY, 3 * DAY + 5 * HOUR, 6 * DAY,
+                12 * DAY, 40 * DAY, 200 * DAY, 2 * YEAR, -2 * DAY
+        };
+        long duration = 14 * DAY;
+        long totalRedundant = 0;
+        System.out.println("event offset (min) | tier redraws | tier redundant | boundary redraws | boundary exact");
+        for (long offset : offsets) {
+            long start = T0 + offset;
+            long end = start + HOUR;
+            int[] tiers = countRedraws(start, end, duration, false);
+            int[] boundary = countRedraws(start, end, duration, true);
+            assertEquals("boundary-aware redraws must always change the text", 0, boundary[1]);
+            totalRedundant += tiers[1];
+            System.out.println(String.format("%18d | %12d | %14d | %16d | %14d", offset / MINUTE, tiers[0], tiers[1], boundary[0], boundary[2]));
+            assertTrue("fewer redraws than the tiers at offset " + offset, boundary[0] < tiers[0]);
+        }
+        System.out.println("Redundant redraws eliminated: " + totalRedundant);
+
+        // An order of magnitude fewer wherever the slot is coarser than the old tiers
+        assertAtLeastFewer(10, T0 - 10 * MINUTE, T0 + 3 * HOUR, 3 * HOUR);           // Happening now
+        assertAtLeastFewer(10, T0 + HOUR, T0 + 2 * HOUR, HOUR);                      // Final hour
+        assertAtLeastFewer(10, T0 + DAY, T0 + DAY + HOUR, DAY);                      // Final day
+        assertAtLeastFewer(10, T0 - HOUR, T0 - 30 * MINUTE, DAY - HOUR);             // Day after the start
+        assertAtLeastFewer(10, T0 - 10 * DAY, T0 - 10 * DAY + HOUR, WEEK);           // Weeks ago
+        assertAtLeastFewer(10, T0 + 2 * YEAR, T0 + 2 * YEAR + HOUR, 14 * DAY);       // Years away
+        // Weeks and months away: daily text changes against the old 4-hour tier
+        assertAtLeastFewer(5, T0 + 20 * DAY, T0 + 20 * DAY + HOUR, WEEK);
+        assertAtLeastFewer(5, T0 + 200 * DAY, T0 + 200 * DAY + HOUR, 14 * DAY);
+        // Days away: "In 3 days 5 hrs" changes hourly, as often as the old tier refreshed, but never needs an exact alarm
+        int[] daysAway = countRedraws(T0 + 6 * DAY, T0 + 6 * DAY + HOUR, 5 * DAY, true);
+        assertEquals(5 * 24, daysAway[0]);
+        assertEquals(0, daysAway[2]);
+    }
+
+    @Test
+    public void countdownAlarm_neverMissesATextOrModeChange() {
+        long[] offsets = {-3 * HOUR, -50 * MINUTE, -10 * MINUTE, 30_000L, 20 * MINUTE, 59 * MINUTE, 61 * MINUTE, 3 * HOUR, 2 * DAY};
+        long[] durations = {0, 10 * MINUTE, 2 * HOUR};
+        for (long offset : offsets) {
+            for (long duration : durations) {
+                assertAlarmsExact(T0 + offset, T0 + offset + duration, 3 * DAY);
+            }
+        }
+        assertAlarmsExact(T0 + 20 * MINUTE, -1, DAY);
+        assertAlarmsExact(-1, -1, DAY);
+    }
+
+    /**
+     * Harness: a one-hour countdown to a 30-minute event, followed by the first hour after its start.
+     * Every alarm is one app-process wakeup, since nothing else runs the process in between.
+     */
+    @Test
+    public void harness_oneHourCountdownAlarms() {
+        long start = T0 + HOUR;
+        long end = start + 30 * MINUTE;
+        long[] textAlarms = countAlarms(start, end, T0, start, false);
+        long[] chronometerAlarms = countAlarms(start, end, T0, start, true);
+        long[] textAfter = countAlarms(start, end, start, start + HOUR, false);
+        long[] chronometerAfter = countAlarms(start, end, start, start + HOUR, true);
+        System.out.println("phase             | text alarms/wakeups | chronometer alarms/wakeups");
+        System.out.println(String.format("one-hour countdown| %19d | %26d", textAlarms[0], chronometerAlarms[0]));
+        System.out.println(String.format("first hour after  | %19d | %26d", textAfter[0], chronometerAfter[0]));
+
+        assertEquals(61, textAlarms[0]); // "In 59 mins" ... "Starts soon", then the start
+        assertEquals(1, chronometerAlarms[0]); // Already ticking a day out; only "Happening now!"
+        assertEquals(31, textAfter[0]); // Event end, then "31 mins ago" ... "1 hr ago"
+        assertEquals(1, chronometerAfter[0]); // Event end; back to text only a day after the start
+    }
+
+    // --- Helpers ---
+
+    /** Like {@link #assertBoundariesExact}, but for what the slot shows with the Chronometer mode. */
+    private static void assertAlarmsExact(long start, long end, long duration) {
+        long now = T0;
+        long limit = T0 + duration;
+        while (now < limit) {
+            long next = NextUpdateCalculator.nextCountdownAlarm(now, start, end);
+            assertTrue("alarm must be in the future", next > now);
+            String shown = renderSlot(now, start, end);
+            for (long t = now; t < Math.min(next, limit); t += 15_000L) {
+                assertEquals("slot changed before alarm (start=" + start + ", t=" + t + ")", shown, renderSlot(t, start, end));
+            }
+            if (next == NextUpdateCalculator.NEVER || next >= limit) return;
+            assertEquals(shown, renderSlot(next - 1, start, end));
+            now = next;
+        }
+    }
+
+    private static String renderSlot(long now, long start, long end) {
+        if (NextUpdateCalculator.isSelfTicking(now, start, end)) {
+            return now < start ? "chronometer-down" : "chronometer-up";
+        }
+        return start == -1 ? "setup" : renderCountdown(now, start, end);
+    }
+
+    /** @return {alarms} between {@code from} (exclusive) and {@code to} (inclusive). */
+    private static long[] countAlarms(long start, long end, long from, long to, boolean chronometer) {
+        long alarms = 0;
+        long now = from;
+        while (true) {
+            long next = chronometer
+                    ? NextUpdateCalculator.nextCountdownAlarm(now, start, end)
+                    : NextUpdateCalculator.nextCountdownChange(now, start, end);
+            if (next > to) return new long[]{alarms};
+            alarms++;
+            now = next;
+        }
+    }
+
+
+    /** Walks every minute (and every computed boundary) and checks text changes only at computed instants. */
+    private static void assertBoundariesExact(long start, long end, long duration) {
+        long now = T0;
+        long limit = T0 + duration;
+        while (now < limit) {
+            long next = NextUpdateCalculator.nextCountdownChange(now, start, end);
+            assertTrue("deadline must be in the future", next > now);
+            String text = renderCountdown(now, start, end);
+            long probeEnd = Math.min(next, limit);
+            for (long t = now; t < probeEnd; t += MINUTE) {
+                assertEquals("text changed before deadline (start=" + start + ", t=" + t + ")", text, renderCountdown(t, start, end));
+            }
+            if (probeEnd > now + 1) {
+                assertEquals(text, renderCountdown(probeEnd - 1, start, end));
+            }
+            if (next == NextUpdateCalculator.NEVER || next >= limit) return;
+            assertFalse("text did not change at deadline (start=" + start + ", t=" + next + ")",
+                    text.equals(renderCountdown(next, start, end)));
+            now = next;
+        }
+    }
+
+    private static void assertListBoundariesExact(DayBoundaryIndex days, long start, long end, boolean allDay, long duration) {
+        TimeZone zone = days.getZone();
+        long now = T0;
+        long limit = T0 + duration;
+        while (now < limit) {
+            long next = NextUpdateCalculator.nextListItemChange(now, start, end, allDay, days);
+            assertTrue("deadline must be in the future", next > now);
+            String text = renderListItem(zone, now, start, end, allDay);
+            long probeEnd = Math.min(next, limit);
+            for (long t = now; t < probeEnd; t += MINUTE) {
+                assertEquals("list text changed before deadline", text, renderListItem(zone, t, start, end, allDay));
+            }
+            if (probeEnd > now + 1) {
+                assertEquals(text, renderListItem(zone, probeEnd - 1, start, end, allDay));
+            }
+            if (next == NextUpdateCalculator.NEVER || next >= limit) return;
+            assertFalse("list text did not change at deadline", text.equals(renderListItem(zone, next, start, end, allDay)));
+            now = next;
+        }
+    }
+
+    private static void assertAtLeastFewer(int factor, long start, long end, long duration) {
+        int tiers = countRedraws(start, end, duration, false)[0];
+        int boundary = countRedraws(start, end, duration, true)[0];
+        assertTrue("Expected >= " + factor + "x fewer redraws, got " + tiers + " vs " + boundary, boundary * factor <= tiers);
+    }
+
+    /**
+     * @return {redraws, redraws that rendered the same slot as the previous one, exact alarms among them};
+     *         every tier redraw was an exact alarm.
+     */
+    private static int[] countRedraws(long start, long end, long duration, boolean boundaryAware) {
+        int redraws = 0;
+        int redundant = 0;
+        int exact = 0;
+        long now = T0;
+        long limit = T0 + duration;
+        String shown = boundaryAware ? renderSlot(now, start, end) : renderCountdown(now, start, end);
+        while (true) {
+            long next = boundaryAware
+                    ? NextUpdateCalculator.nextCountdownAlarm(now, start, end)
+                    : LegacyUpdateTiers.nextDeadline(now, start, end);
+            if (next >= limit) return new int[]{redraws, redundant, exact};
+            redraws++;
+            if (!boundaryAware || NextUpdateCalculator.needsExactCountdownAlarm(next, start, end)) exact++;
+            String text = boundaryAware ? renderSlot(next, start, end) : renderCountdown(next, start, end);
+            if (text.equals(shown)) redundant++;
+            shown = text;
+            now = next;
+        }
+    }
+
+    /** Same unit selection as CountdownTextEngine.appendCountdownSubtitle. */
+    private static String renderCountdown(long now, long start, long end) {
+        if (now >= start && (end == -1 || now < end)) return "now";
+        long diff = start - now;
+        boolean future = diff >= 0;
+        if (!future) diff = -diff;
+        if (diff < MINUTE) return future ? "soon" : "passed";
+
+        long years = diff / YEAR;
+        long months = (diff % YEAR) / MONTH;
+        long days = (diff % MONTH) / DAY;
+        long hours = (diff % DAY) / HOUR;
+        long minutes = (diff % HOUR) / MINUTE;
+
+        if (future && diff < DAY) {
+            return "in " + hours + "h" + (hours > 0 && minutes == 0 ? "" : minutes + "m");
+        }
+        StringBuilder sb = new StringBuilder(future ? "in" : "ago");
+        int parts = 0;
+        if (years > 0) { sb.append(' ').append(years).append('y'); parts++; }
+        if (months > 0 && parts < 2) { sb.append(' ').append(months).append("mo"); parts++; }
+        if (days > 0 && years == 0 && parts < 2) { sb.append(' ').append(days).append('d'); parts++; }
+        if (hours > 0 && diff < WEEK && parts < 2) { sb.append(' ').append(hours).append('h'); parts++; }
+        if (!future && minutes > 0 && years == 0 && months == 0 && days == 0 && parts < 2) { sb.append(' ').append(minutes).append('m'); }
+        return sb.toString();
+    }
+
+    /** Same branch selection as CountdownTextEngine.appendListItem; all-day bounds are UTC midnights. */
+    private static String renderListItem(TimeZone zone, long now, long start, long end, boolean allDay) {
+        if (allDay) {
+            start = LocalDate.ofEpochDay(Math.floorDiv(start, DAY)).atStartOfDay(zone.toZoneId()).toInstant().toEpochMilli();
+            end = LocalDate.ofEpochDay(Math.floorDiv(end, DAY)).atStartOfDay(zone.toZoneId()).toInstant().toEpochMilli();
+        }
+        if (now >= start && now < end) {
+            if (allDay) return startOfDay(zone, start) == startOfDay(zone, now) ? "today-allday" : "now-allday";
+            return "now";
+        }
+        if (now >= end) return "ended";
+        long diff = start - now;
+        long diffDays = Math.round((startOfDay(zone, start) - startOfDay(zone, now)) / (double) DAY); // Days of 23 or 25 hours
+        if (diffDays == 0) {
+            if (allDay) return "today-allday";
+            long hrs = TimeUnit.MILLISECONDS.toHours(diff);
+            if (hrs >= 1) return hrs + "h left";
+            return TimeUnit.MILLISECONDS.toMinutes(diff) + "m left";
+        }
+        return diffDays == 1 ? "tomorrow" : diffDays + "d";
+    }
+
+    private static long startOfDay(TimeZone zone, long millis) {
+        Calendar cal = Calendar.getInstance(zone);
+        cal.setTimeInMillis(millis);
+        cal.set(Calendar.HOUR_OF_DAY, 0);
+        cal.set(Calendar.MINUTE, 0);
+        cal.set(Calendar.SECOND, 0);
+        cal.set(Calendar.MILLISECOND, 0);
+        return cal.getTimeInMillis();
+    }
+
+    private static long utc(int year, int month, int day, int hour) {
+        return LocalDateTime.of(year, month, day, hour, 0).toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
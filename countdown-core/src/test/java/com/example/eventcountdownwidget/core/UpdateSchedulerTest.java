@@ -0,0 +1,265 @@
+package com.example.eventcountdownwidget.core;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link UpdateScheduler}, plus a small benchmark comparing
+ * the number of device wakeups per simulated hour for per-widget alarms versus
+ * the single coalesced alarm.
+ */
+public class UpdateSchedulerTest {
+
+    private static final String COUNTDOWN = "com.example.eventcountdownwidget.EventCountdownWidget";
+    private static final String LIST = "com.example.eventcountdownwidget.SimpleEventListWidgetProvider";
+
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    // Fixed, minute-aligned start of the simulation
+    private static final long T0 = 1_700_000_040_000L;
+
+    @Test
+    public void nextDeadline_isEarliestAcrossProviders() {
+        UpdateScheduler scheduler = new UpdateScheduler();
+        assertEquals(UpdateScheduler.NO_DEADLINE, scheduler.nextDeadline());
+
+        scheduler.put(1, COUNTDOWN, T0 + 10 * MINUTE);
+        scheduler.put(2, LIST, T0 + 2 * MINUTE);
+        scheduler.put(3, COUNTDOWN, T0 + 60 * MINUTE);
+        assertEquals(T0 + 2 * MINUTE, scheduler.nextDeadline());
+
+        scheduler.remove(2);
+        assertEquals(T0 + 10 * MINUTE, scheduler.nextDeadline());
+        assertFalse(scheduler.contains(2));
+    }
+
+    @Test
+    public void put_replacesExistingDeadline() {
+        UpdateScheduler scheduler = new UpdateScheduler();
+        scheduler.put(7, COUNTDOWN, T0 + MINUTE);
+        scheduler.put(7, COUNTDOWN, T0 + 5 * MINUTE);
+        assertEquals(1, scheduler.size());
+        assertEquals(T0 + 5 * MINUTE, scheduler.nextDeadline());
+    }
+
+    @Test
+    public void deadlineOf_untrackedWidget() {
+        UpdateScheduler scheduler = new UpdateScheduler();
+        scheduler.put(4, LIST, T0 + MINUTE);
+        assertEquals(T0 + MINUTE, scheduler.deadlineOf(4));
+        assertEquals(UpdateScheduler.NO_DEADLINE, scheduler.deadlineOf(5));
+    }
+
+    @Test
+    public void collectDue_includesWidgetsInsideCoalescingWindow() {
+        UpdateScheduler scheduler = new UpdateScheduler();
+        scheduler.put(1, COUNTDOWN, T0);
+        scheduler.put(2, LIST, T0 + UpdateScheduler.COALESCE_WINDOW_MILLIS);
+        scheduler.put(3, COUNTDOWN, T0 + UpdateScheduler.COALESCE_WINDOW_MILLIS + 1);
+
+        List<UpdateScheduler.Entry> due = scheduler.collectDue(T0);
+        assertEquals(2, due.size());
+        for (UpdateScheduler.Entry entry : due) {
+            assertTrue(entry.widgetId == 1 || entry.widgetId == 2);
+        }
+        // Due widgets stay tracked until they are rescheduled
+        assertEquals(3, scheduler.size());
+    }
+
+    @Test
+    public void deadlineAfter_snapsToMinute() {
+        long now = T0 + 25_000L;
+        assertEquals(T0 + MINUTE, UpdateScheduler.deadlineAfter(now, 1));
+        assertEquals(T0 + 15 * MINUTE, UpdateScheduler.deadlineAfter(now, 15));
+    }
+
+    @Test
+    public void coalescedAlarm_neverWakesMoreThanPerWidgetAlarms() {
+        for (int n : new int[]{1, 12, 50}) {
+            long[][] events = eventsFor(n);
+            int perWidget = simulatePerWidgetWakeups(events, HOUR);
+            int coalesced = simulateCoalescedWakeups(events, HOUR);
+            assertTrue("n=" + n, coalesced <= perWidget);
+            assertTrue("n=" + n, coalesced <= 60); // At most one wakeup per minute
+        }
+    }
+
+    @Test
+    public void nextExactDeadline_onlyMarkedDeadlines() {
+        UpdateScheduler scheduler = new UpdateScheduler();
+        scheduler.put(1, COUNTDOWN, T0 + 3 * DAY);
+        scheduler.put(2, LIST, T0 + 12 * HOUR);
+        assertEquals(UpdateScheduler.NO_DEADLINE, scheduler.nextExactDeadline());
+
+        scheduler.put(3, COUNTDOWN, T0 + 2 * DAY, true); // An event starting
+        scheduler.put(4, LIST, T0 + 5 * DAY, true);
+        assertEquals(T0 + 2 * DAY, scheduler.nextExactDeadline());
+        assertEquals(T0 + 12 * HOUR, scheduler.nextDeadline());
+        assertTrue(scheduler.isExact(3));
+    }
+
+    @Test
+    public void put_replacesExactFlag() {
+        UpdateScheduler scheduler = new UpdateScheduler();
+        scheduler.put(7, COUNTDOWN, T0 + DAY, true);
+        scheduler.put(7, COUNTDOWN, T0 + DAY);
+        assertFalse(scheduler.isExact(7));
+        assertFalse(scheduler.isExact(8));
+        assertEquals(UpdateScheduler.NO_DEADLINE, scheduler.nextExactDeadline());
+    }
+
+    @Test
+    public void hybrid_keepsTransitionsExactAndDefersTheRest() {
+        long[][] events = eventsFor(50, FAR_OFFSETS);
+        int[] allExact = simulateBackendWakeups(events, 7 * DAY, false);
+        int[] hybrid = simulateBackendWakeups(events, 7 * DAY, true);
+        assertEquals("same refreshes either way", allExact[0] + allExact[1], hybrid[0] + hybrid[1]);
+        assertTrue("hybrid should avoid exact alarms: " + hybrid[0] + " vs " + allExact[0], hybrid[0] < allExact[0]);
+        assertEquals("every exact deadline still gets an exact alarm", 0, hybrid[2]);
+    }
+
+    /**
+     * Benchmark: exact alarms per simulated week, with every wakeup exact versus the hybrid backend.
+     * "far" countdowns stay days to a year out all week; "mixed" adds some reaching their start,
+     * whose start and end need exact alarms (and serve the rest on the way).
+     */
+    @Test
+    public void benchmark_exactAlarmsPerSimulatedWeek() {
+        System.out.println("events | widgets | all exact | hybrid exact | hybrid deferred | exact alarms avoided");
+        for (long[] offsets : new long[][]{FAR_OFFSETS, MIXED_OFFSETS}) {
+            for (int n : new int[]{1, 5, 25, 100}) {
+                long[][] events = eventsFor(n, offsets);
+                int[] allExact = simulateBackendWakeups(events, 7 * DAY, false);
+                int[] hybrid = simulateBackendWakeups(events, 7 * DAY, true);
+                System.out.println(String.format("%6s | %7d | %9d | %12d | %15d | %20d", offsets == FAR_OFFSETS ? "far" : "mixed",
+                        n, allExact[0], hybrid[0], hybrid[1], allExact[0] - hybrid[0]));
+            }
+        }
+    }
+
+    /**
+     * Benchmark: wakeups per simulated hour for N widgets. Prints a small table; run with
+     * {@code ./gradlew :app:testDebugUnitTest --tests "*UpdateSchedulerTest*"} and check the test output.
+     */
+    @Test
+    public void benchmark_wakeupsPerSimulatedHour() {
+        System.out.println("widgets | per-widget alarms | coalesced alarm");
+        for (int n : new int[]{1, 5, 12, 25, 50, 100}) {
+            long[][] events = eventsFor(n);
+            int perWidget = simulatePerWidgetWakeups(events, HOUR);
+            int coalesced = simulateCoalescedWakeups(events, HOUR);
+            System.out.println(String.format("%7d | %17d | %15d", n, perWidget, coalesced));
+        }
+    }
+
+    // --- Simulation helpers ---
+
+    /** Spreads event start times from a few minutes to a few weeks out, each lasting an hour. */
+    private static long[][] eventsFor(int n) {
+        long[] offsets = {5 * MINUTE, 40 * MINUTE, 2 * HOUR, 6 * HOUR, 2 * DAY, 20 * DAY, -30 * MINUTE};
+        long[][] events = new long[n][2];
+        for (int i = 0; i < n; i++) {
+            long start = T0 + offsets[i % offsets.length] + (i / offsets.length) * 7 * MINUTE;
+            events[i][0] = start;
+            events[i][1] = start + HOUR;
+        }
+        return events;
+    }
+
+    /** Old behaviour: every widget owns its own alarm, each firing is a separate wakeup. */
+    private static int simulatePerWidgetWakeups(long[][] events, long duration) {
+        long[] deadlines = new long[events.length];
+        for (int i = 0; i < events.length; i++) {
+            deadlines[i] = nextDeadline(T0, events[i]);
+        }
+        int wakeups = 0;
+        long end = T0 + duration;
+        while (true) {
+            int next = -1;
+            for (int i = 0; i < deadlines.length; i++) {
+                if (deadlines[i] <= end && (next == -1 || deadlines[i] < deadlines[next])) next = i;
+            }
+            if (next == -1) break;
+            wakeups++;
+            long now = deadlines[next];
+            deadlines[next] = nextDeadline(now, events[next]);
+        }
+        return wakeups;
+    }
+
+    /** New behaviour: one alarm for the earliest deadline, everything due is refreshed together. */
+    private static int simulateCoalescedWakeups(long[][] events, long duration) {
+        UpdateScheduler scheduler = new UpdateScheduler();
+        for (int i = 0; i < events.length; i++) {
+            scheduler.put(i, COUNTDOWN, nextDeadline(T0, events[i]));
+        }
+        int wakeups = 0;
+        long end = T0 + duration;
+        long now;
+        while ((now = scheduler.nextDeadline()) <= end) {
+            wakeups++;
+            for (UpdateScheduler.Entry entry : scheduler.collectDue(now)) {
+                scheduler.put(entry.widgetId, entry.providerClassName, nextDeadline(now, events[entry.widgetId]));
+            }
+        }
+        return wakeups;
+    }
+
+    private static final long[] FAR_OFFSETS = {9 * DAY + 5 * HOUR, 40 * DAY, 120 * DAY, 400 * DAY};
+    private static final long[] MIXED_OFFSETS = {5 * HOUR, 3 * DAY, 9 * DAY + 5 * HOUR, 40 * DAY, 120 * DAY, 400 * DAY};
+
+    /** Countdowns starting at {@code offsets} from T0, staggered, each lasting an hour. */
+    private static long[][] eventsFor(int n, long[] offsets) {
+        long[][] events = new long[n][2];
+        for (int i = 0; i < n; i++) {
+            long start = T0 + offsets[i % offsets.length] + (i / offsets.length) * 97 * MINUTE;
+            events[i][0] = start;
+            events[i][1] = start + HOUR;
+        }
+        return events;
+    }
+
+    /**
+     * Drives the countdown deadlines through one coalesced wakeup at a time, the way the receiver
+     * arms them: an exact alarm when {@link UpdateScheduler#nextExactDeadline} is the earliest
+     * deadline (always, if {@code hybrid} is false), a deferrable wakeup otherwise. Deferred wakeups
+     * are assumed on time, so both runs refresh the same widgets at the same instants.
+     *
+     * @return {exact wakeups, deferred wakeups, transitions served by a deferred wakeup}.
+     */
+    private static int[] simulateBackendWakeups(long[][] events, long duration, boolean hybrid) {
+        UpdateScheduler scheduler = new UpdateScheduler();
+        for (int i = 0; i < events.length; i++) {
+            putCountdown(scheduler, i, T0, events[i]);
+        }
+        int exact = 0;
+        int deferred = 0;
+        int lateTransitions = 0;
+        long end = T0 + duration;
+        long now;
+        while ((now = scheduler.nextDeadline()) <= end) {
+            boolean isExact = !hybrid || scheduler.nextExactDeadline() <= now;
+            if (isExact) exact++; else deferred++;
+            for (UpdateScheduler.Entry entry : scheduler.collectDue(now)) {
+                if (!isExact && entry.exact) lateTransitions++;
+                putCountdown(scheduler, entry.widgetId, now, events[entry.widgetId]);
+            }
+        }
+        return new int[]{exact, deferred, lateTransitions};
+    }
+
+    private static void putCountdown(UpdateScheduler scheduler, int widgetId, long now, long[] event) {
+        long deadline = NextUpdateCalculator.nextCountdownAlarm(now, event[0], event[1]);
+        scheduler.put(widgetId, COUNTDOWN, deadline, NextUpdateCalculator.needsExactCountdownAlarm(deadline, event[0], event[1]));
+    }
+
+    private static long nextDeadline(long now, long[] event) {
+        return LegacyUpdateTiers.nextDeadline(now, event[0], event[1]);
+    }
+}
@@ -21,4 +21,5 @@ dependencyResolutionManagement {
 
 rootProject.name = "EventCountdownWidget"
 include(":app")
+include(":countdown-core")
  
\ No newline at end of file